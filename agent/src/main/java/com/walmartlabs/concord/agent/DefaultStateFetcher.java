@@ -20,9 +20,19 @@ package com.walmartlabs.concord.agent;
  * =====
  */
 
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.ApiException;
 import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.client.ProcessApi;
 import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.Posix;
+import com.walmartlabs.concord.common.ZipItemAttributes;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +40,12 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.*;
 
 @Named
 @Singleton
@@ -40,17 +54,46 @@ public class DefaultStateFetcher implements StateFetcher {
     private static final Logger log = LoggerFactory.getLogger(DefaultStateFetcher.class);
 
     private final ProcessApi processApi;
+    private final StateCache stateCache;
 
     @Inject
-    public DefaultStateFetcher(ProcessApi processApi) {
+    public DefaultStateFetcher(ProcessApi processApi, StateCache stateCache) {
         this.processApi = processApi;
+        this.stateCache = stateCache;
     }
 
     @Override
     public void downloadState(JobRequest job) throws Exception {
+        List<String> knownHashes = stateCache.knownHashes();
+
+        ClientUtils.withRetry(AgentConstants.API_CALL_MAX_RETRIES, AgentConstants.API_CALL_RETRY_DELAY, () -> {
+            try {
+                if (!download(job, knownHashes)) {
+                    log.warn("downloadState ['{}'] -> some of the cached files are gone or invalid, retrying without the cache", job.getInstanceId());
+                    download(job, Collections.emptyList());
+                }
+            } catch (ApiException e) {
+                // older servers don't have the POST endpoint
+                if (e.getCode() != 404 && e.getCode() != 405) {
+                    throw e;
+                }
+
+                log.info("downloadState ['{}'] -> streaming download is not supported by the server, using the old endpoint", job.getInstanceId());
+                downloadArchive(job);
+            }
+            return null;
+        });
+
+        stateCache.cleanup();
+    }
+
+    /**
+     * Downloads the whole process state archive into a temporary file.
+     */
+    private void downloadArchive(JobRequest job) throws IOException, ApiException {
         File payload = null;
         try {
-            payload = ClientUtils.withRetry(AgentConstants.API_CALL_MAX_RETRIES, AgentConstants.API_CALL_RETRY_DELAY, () -> processApi.downloadState(job.getInstanceId()));
+            payload = processApi.downloadState(job.getInstanceId());
             IOUtils.unzip(payload.toPath(), job.getPayloadDir(), StandardCopyOption.REPLACE_EXISTING);
         } finally {
             if (payload != null) {
@@ -59,6 +102,82 @@ public class DefaultStateFetcher implements StateFetcher {
         }
     }
 
+    /**
+     * Downloads and unpacks the process state without storing the archive.
+     *
+     * @param knownHashes hashes of the cached files, the server omits the data of such files
+     * @return {@code false} if some of the omitted files are no longer in the cache.
+     */
+    private boolean download(JobRequest job, List<String> knownHashes) throws IOException, ApiException {
+        ApiClient client = processApi.getApiClient();
+
+        String path = "/api/v1/process/" + job.getInstanceId() + "/state/snapshot";
+
+        Map<String, String> headerParams = new HashMap<>();
+        headerParams.put("Content-Type", "application/json");
+        headerParams.put("Accept", "application/zip");
+
+        String[] authNames = client.getAuthentications().keySet().toArray(new String[0]);
+
+        Call call = client.buildCall(path, "POST", new ArrayList<>(), new ArrayList<>(),
+                knownHashes, headerParams, new HashMap<>(), authNames, null);
+
+        Response resp = call.execute();
+        try (ResponseBody body = resp.body()) {
+            if (!resp.isSuccessful()) {
+                throw new ApiException(resp.message(), resp.code(), resp.headers().toMultimap(), body.string());
+            }
+
+            return unzip(body.byteStream(), job.getPayloadDir());
+        }
+    }
+
+    private boolean unzip(InputStream in, Path targetDir) throws IOException {
+        boolean complete = true;
+
+        try (ZipArchiveInputStream zip = new ZipArchiveInputStream(in)) {
+            ZipArchiveEntry e;
+            while ((e = zip.getNextZipEntry()) != null) {
+                Path p = targetDir.resolve(e.getName()).normalize();
+                if (!p.startsWith(targetDir)) {
+                    throw new IOException("Invalid state entry: " + e.getName());
+                }
+
+                if (e.isDirectory()) {
+                    Files.createDirectories(p);
+                    continue;
+                }
+
+                Path parent = p.getParent();
+                if (!Files.exists(parent)) {
+                    Files.createDirectories(parent);
+                }
+
+                long size = Files.copy(zip, p, StandardCopyOption.REPLACE_EXISTING);
+
+                // only non-empty files are deduplicated by the server, so an empty entry
+                // with a hash is a reference to a file in the cache
+                String hash = ZipItemAttributes.getHash(e);
+                if (hash != null) {
+                    if (size == 0) {
+                        complete &= stateCache.copyTo(hash, p);
+                    } else {
+                        stateCache.put(hash, p);
+                    }
+                }
+
+                int unixMode = ZipItemAttributes.getUnixMode(e);
+                if (unixMode <= 0) {
+                    unixMode = Posix.DEFAULT_UNIX_MODE;
+                }
+
+                Files.setPosixFilePermissions(p, Posix.posix(unixMode));
+            }
+        }
+
+        return complete;
+    }
+
     private static void delete(Path dir) {
         if (dir == null) {
             return;
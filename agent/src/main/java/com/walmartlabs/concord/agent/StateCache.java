@@ -0,0 +1,197 @@
+package com.walmartlabs.concord.agent;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.google.common.hash.Hashing;
+import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local cache of process state files, addressed by the hash of their content.
+ * Allows the agent to skip the download of files it already has.
+ */
+@Named
+@Singleton
+public class StateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(StateCache.class);
+
+    /**
+     * Max number of hashes to send to the server.
+     */
+    private static final int MAX_KNOWN_HASHES = 10000;
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path cacheDir;
+    private final long maxSize;
+
+    @Inject
+    public StateCache(AgentConfiguration cfg) {
+        this.cacheDir = cfg.getStateCacheDir();
+        this.maxSize = cfg.getStateCacheMaxSize();
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return hashes of the cached files, the most recently used first.
+     */
+    public List<String> knownHashes() throws IOException {
+        if (!isEnabled()) {
+            return Collections.emptyList();
+        }
+
+        return list().stream()
+                .limit(MAX_KNOWN_HASHES)
+                .map(p -> p.getFileName().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Copies the cached file to the specified destination.
+     *
+     * @return {@code false} if the file is not in the cache or if the cached
+     * file is corrupted.
+     */
+    public boolean copyTo(String hash, Path dst) throws IOException {
+        Path src = cacheDir.resolve(assertHash(hash));
+
+        try {
+            Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(src, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // removed by a concurrent cleanup
+            return false;
+        }
+
+        // check the copy, the cached file might be modified after the check
+        if (!hash.equals(hash(dst))) {
+            log.warn("copyTo ['{}'] -> invalid cache entry, removing...", hash);
+            Files.deleteIfExists(src);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Puts a copy of the specified file into the cache.
+     */
+    public void put(String hash, Path src) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Path dst = cacheDir.resolve(assertHash(hash));
+        if (Files.exists(dst)) {
+            Files.setLastModifiedTime(dst, FileTime.fromMillis(System.currentTimeMillis()));
+            return;
+        }
+
+        Path tmp = Files.createTempFile(cacheDir, "state", ".tmp");
+        try {
+            Files.copy(src, tmp, StandardCopyOption.REPLACE_EXISTING);
+
+            if (!hash.equals(hash(tmp))) {
+                log.warn("put ['{}'] -> hash mismatch, skipping", hash);
+                return;
+            }
+
+            Files.move(tmp, dst, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Removes the least recently used files until the size of the cache
+     * is below the limit.
+     */
+    public void cleanup() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            List<Path> files = list();
+
+            long size = 0;
+            for (Path p : files) {
+                size += Files.size(p);
+
+                if (size > maxSize) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("cleanup -> error: {}", e.getMessage());
+        }
+    }
+
+    private List<Path> list() throws IOException {
+        Map<Path, Long> lastModified = new HashMap<>();
+
+        try (Stream<Path> s = Files.list(cacheDir)) {
+            s.filter(p -> HASH_PATTERN.matcher(p.getFileName().toString()).matches())
+                    .forEach(p -> {
+                        try {
+                            lastModified.put(p, Files.getLastModifiedTime(p).toMillis());
+                        } catch (IOException e) {
+                            // removed by a concurrent cleanup
+                        }
+                    });
+        }
+
+        List<Path> result = new ArrayList<>(lastModified.keySet());
+        result.sort(Comparator.comparing(lastModified::get, Comparator.reverseOrder()));
+        return result;
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static String hash(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile())
+                .hash(Hashing.sha256())
+                .toString();
+    }
+
+    private static String assertHash(String hash) {
+        if (!HASH_PATTERN.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid hash: " + hash);
+        }
+        return hash;
+    }
+}
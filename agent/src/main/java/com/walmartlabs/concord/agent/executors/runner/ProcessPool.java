@@ -33,9 +33,17 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a number of pre-forked JVMs for each set of dependencies (hash).
+ * The number of JVMs kept for each hash follows the recent rate of
+ * {@link #take(HashCode, ProcessLauncher)} calls for that hash. The rate
+ * decays with the half-life of {@code prefork.maxAge}, i.e. a hash that
+ * is not requested again doesn't get any new pre-forked JVMs.
+ */
 @Named
 @Singleton
 public class ProcessPool {
@@ -44,11 +52,23 @@ public class ProcessPool {
 
     private static final long CLEANUP_PERIOD = 30000;
 
+    /**
+     * Demand rates below this value are considered zero and removed.
+     */
+    private static final double MIN_DEMAND = 0.01;
+
     private final long maxEntryAge;
     private final int maxEntryCount;
-    private final Map<HashCode, Queue<ProcessEntry>> pool = new HashMap<>();
+    private final ConcurrentMap<HashCode, Queue<ProcessEntry>> pool = new ConcurrentHashMap<>();
+    private final ConcurrentMap<HashCode, Demand> demand = new ConcurrentHashMap<>();
+    private final Set<HashCode> populating = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
     private final ExecutorService executor = Executors.newCachedThreadPool();
 
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+
     @Inject
     public ProcessPool(PreForkConfiguration cfg) {
         this.maxEntryAge = cfg.getMaxAge();
@@ -56,6 +76,10 @@ public class ProcessPool {
         init();
     }
 
+    int size() {
+        return size.get();
+    }
+
     public void init() {
         Thread t = new Thread(() -> {
             log.info("run -> starting cleanup thread, max entry age {}ms, max entry count {}", maxEntryAge, maxEntryCount);
@@ -75,95 +99,186 @@ public class ProcessPool {
     }
 
     public ProcessEntry take(HashCode hc, ProcessLauncher launcher) throws ExecutionException {
-        synchronized (pool) {
-            Queue<ProcessEntry> q = pool.computeIfAbsent(hc, k -> new LinkedList<>());
+        ProcessEntry entry = poll(hc);
+        if (entry == null) {
+            misses.incrementAndGet();
+
+            try {
+                entry = launcher.start();
+            } catch (IOException e) {
+                throw new ExecutionException("Error while starting a new process", e);
+            }
+
+            log.info("take -> started a new process: {}", entry.procDir);
+        } else {
+            hits.incrementAndGet();
+            log.info("take -> using a pre-forked instance: {}", entry.procDir);
+        }
 
-            ProcessEntry entry = q.poll();
-            if (entry == null) {
+        demand.computeIfAbsent(hc, k -> new Demand()).take(System.currentTimeMillis(), maxEntryAge);
+
+        // one populate task per hash at a time, otherwise concurrent tasks
+        // might overshoot the target. The running task picks up the new demand
+        if (target(hc) > 0 && populating.add(hc)) {
+            executor.submit(() -> {
                 try {
-                    entry = launcher.start();
-                } catch (IOException e) {
-                    throw new ExecutionException("Error while starting a new process", e);
+                    populate(hc, launcher);
+                } finally {
+                    populating.remove(hc);
                 }
+            });
+        }
 
-                log.info("take -> started a new process: {}", entry.procDir);
-            } else {
-                log.info("take -> using a pre-forked instance: {}", entry.procDir);
-            }
+        return entry;
+    }
+
+    private ProcessEntry poll(HashCode hc) {
+        Queue<ProcessEntry> q = pool.get(hc);
+        if (q == null) {
+            return null;
+        }
 
-            executor.submit(() -> populate(hc, launcher));
+        ProcessEntry entry = q.poll();
+        if (entry != null) {
+            size.decrementAndGet();
+        }
+        return entry;
+    }
 
-            return entry;
+    /**
+     * @return the number of pre-forked JVMs to keep for the specified hash.
+     * The current take is already served, pre-fork only for the expected
+     * subsequent ones.
+     */
+    private int target(HashCode hc) {
+        Demand d = demand.get(hc);
+        if (d == null) {
+            return 0;
         }
+
+        double rate = d.current(System.currentTimeMillis(), maxEntryAge);
+        return (int) Math.min(maxEntryCount, Math.round(rate - 1));
     }
 
     private void populate(HashCode hc, ProcessLauncher launcher) {
-        synchronized (pool) {
-            // calculate the total number of processes in the pool
-            int total = 0;
-            for (Map.Entry<HashCode, Queue<ProcessEntry>> e : pool.entrySet()) {
-                total += e.getValue().size();
+        while (queueSize(hc) < target(hc)) {
+            if (!reserve()) {
+                return;
             }
 
-            if (total >= maxEntryCount) {
-                // mark the oldest entry for removal
-                ProcessEntry oldest = null;
-                for (Map.Entry<HashCode, Queue<ProcessEntry>> q : pool.entrySet()) {
-                    for (ProcessEntry e : q.getValue()) {
-                        if (oldest == null || oldest.timestamp > e.timestamp) {
-                            oldest = e;
-                        }
-                    }
+            ProcessEntry entry;
+            try {
+                entry = launcher.start();
+            } catch (IOException e) {
+                size.decrementAndGet();
+                log.error("populate -> error while starting a new process", e);
+                return;
+            }
+
+            // add atomically, the maintenance thread might be removing the same queue
+            pool.compute(hc, (k, q) -> {
+                if (q == null) {
+                    q = new ConcurrentLinkedQueue<>();
                 }
+                q.add(entry);
+                return q;
+            });
+        }
+    }
 
-                // it's never null
-                assert oldest != null;
+    int queueSize(HashCode hc) {
+        Queue<ProcessEntry> q = pool.get(hc);
+        return q != null ? q.size() : 0;
+    }
 
-                oldest.remove = true;
+    /**
+     * Reserves a slot for a new pool entry. If the pool is full, removes
+     * the oldest entry.
+     *
+     * @return {@code false} if the pool is full and there's nothing to remove.
+     */
+    private boolean reserve() {
+        while (true) {
+            int n = size.get();
+            if (n < maxEntryCount) {
+                if (size.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+                continue;
             }
 
-            // add a new pool entry
-            Queue<ProcessEntry> q = pool.computeIfAbsent(hc, k -> new LinkedList<>());
-            try {
-                q.add(launcher.start());
-            } catch (IOException e) {
-                log.error("populate -> error while starting a new process", e);
+            if (!removeOldest()) {
+                return false;
             }
         }
     }
 
-    private void maintenance() {
-        List<HashCode> queuesToRemove = new ArrayList<>();
+    private boolean removeOldest() {
+        ProcessEntry oldest = null;
+        Queue<ProcessEntry> oldestQueue = null;
+        for (Queue<ProcessEntry> q : pool.values()) {
+            for (ProcessEntry e : q) {
+                if (oldest == null || oldest.timestamp > e.timestamp) {
+                    oldest = e;
+                    oldestQueue = q;
+                }
+            }
+        }
+
+        if (oldest == null) {
+            return false;
+        }
+
+        // the entry might be taken concurrently
+        if (oldestQueue.remove(oldest)) {
+            size.decrementAndGet();
+            wasted.incrementAndGet();
+            Utils.kill(oldest.process);
+        }
+
+        return true;
+    }
+
+    void maintenance() {
         List<Process> processesToKill = new ArrayList<>();
 
         long t = System.currentTimeMillis();
 
-        synchronized (pool) {
-            pool.forEach((hc, q) -> {
-                q.removeIf(e -> {
-                    if (e.remove || t - e.timestamp >= maxEntryAge) {
-                        processesToKill.add(e.process);
-                        return true;
-                    }
-                    return false;
-                });
-
-                if (q.isEmpty()) {
-                    queuesToRemove.add(hc);
+        pool.forEach((hc, q) -> {
+            List<ProcessEntry> expired = new ArrayList<>();
+            for (ProcessEntry e : q) {
+                if (t - e.timestamp >= maxEntryAge) {
+                    expired.add(e);
                 }
-            });
+            }
+
+            // the entries might be taken concurrently, kill only the removed ones
+            for (ProcessEntry e : expired) {
+                if (q.remove(e)) {
+                    processesToKill.add(e.process);
+                    size.decrementAndGet();
+                }
+            }
+        });
 
-            for (HashCode hc : queuesToRemove) {
-                pool.remove(hc);
+        int queuesRemoved = 0;
+        for (HashCode hc : pool.keySet()) {
+            if (pool.computeIfPresent(hc, (k, q) -> q.isEmpty() ? null : q) == null) {
+                queuesRemoved++;
             }
         }
 
-        log.info("maintenance -> removed {} queues", queuesToRemove.size());
+        demand.entrySet().removeIf(e -> e.getValue().current(t, maxEntryAge) < MIN_DEMAND);
+
+        log.info("maintenance -> removed {} queues", queuesRemoved);
 
         for (Process p : processesToKill) {
             Utils.kill(p);
         }
+        wasted.addAndGet(processesToKill.size());
         log.info("maintenance -> killed {} processes", processesToKill.size());
+
+        log.info("maintenance -> pool size: {}, hits: {}, misses: {}, wasted: {}", size.get(), hits.get(), misses.get(), wasted.get());
     }
 
     public interface ProcessLauncher {
@@ -177,8 +292,6 @@ public class ProcessPool {
         private final Process process;
         private final Path procDir;
 
-        private boolean remove = false;
-
         public ProcessEntry(Process process, Path procDir) {
             this.timestamp = System.currentTimeMillis();
             this.process = process;
@@ -193,4 +306,26 @@ public class ProcessPool {
             return procDir;
         }
     }
+
+    /**
+     * Exponentially decaying number of recent takes.
+     */
+    private static final class Demand {
+
+        private double rate;
+        private long lastUpdate;
+
+        synchronized double take(long now, long halfLife) {
+            rate = current(now, halfLife) + 1;
+            lastUpdate = now;
+            return rate;
+        }
+
+        synchronized double current(long now, long halfLife) {
+            if (rate == 0) {
+                return 0;
+            }
+            return rate * Math.pow(0.5, (double) (now - lastUpdate) / halfLife);
+        }
+    }
 }
@@ -25,4 +25,14 @@ import java.util.UUID;
 public interface LogAppender {
 
     void appendLog(UUID instanceId, byte[] ab);
+
+    /**
+     * Appends {@code len} bytes of the provided buffer. The buffer can be
+     * reused by the caller after the method returns.
+     */
+    default void appendLog(UUID instanceId, byte[] ab, int len) {
+        byte[] data = new byte[len];
+        System.arraycopy(ab, 0, data, 0, len);
+        appendLog(instanceId, data);
+    }
 }
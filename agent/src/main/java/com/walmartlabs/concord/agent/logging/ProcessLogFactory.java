@@ -35,17 +35,19 @@ public class ProcessLogFactory {
 
     private final Path logDir;
     private final long logStreamMaxDelay;
+    private final int logBatchSize;
     private final LogAppender logAppender;
 
     @Inject
     public ProcessLogFactory(AgentConfiguration cfg, LogAppender logAppender) {
         this.logDir = cfg.getLogDir();
         this.logStreamMaxDelay = cfg.getLogMaxDelay();
+        this.logBatchSize = cfg.getLogBatchSize();
         this.logAppender = logAppender;
     }
 
     public RedirectedProcessLog createRedirectedLog(UUID instanceId) throws IOException {
-        return new RedirectedProcessLog(logDir, instanceId, logAppender, logStreamMaxDelay);
+        return new RedirectedProcessLog(logDir, instanceId, logAppender, logStreamMaxDelay, logBatchSize);
     }
 
     public RemoteProcessLog createRemoteLog(UUID instanceId) {
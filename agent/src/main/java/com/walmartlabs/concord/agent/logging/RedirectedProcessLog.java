@@ -26,36 +26,42 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.UUID;
-import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * Log that uses a local file as a buffer before sending the data into the specified {@link LogAppender}.
  * Typically, {@link #run(Supplier)} method should be executed in a separate thread.
+ * <p>
+ * The data is sent in batches of up to {@code batchSize} bytes. A batch is sent
+ * when it's full or when its first byte is older than {@code logSteamMaxDelay}.
+ * If the appender is slow, the data stays in the local file until the appender
+ * catches up.
  */
 public class RedirectedProcessLog implements ProcessLog {
 
+    /**
+     * Max delay between file reads when there's no new data.
+     */
+    private static final long MAX_POLL_DELAY = 250;
+
     private final UUID instanceId;
     private final LogAppender appender;
     private final long logSteamMaxDelay;
+    private final int batchSize;
 
     private final LocalProcessLog localLog;
 
-    public RedirectedProcessLog(Path baseDir, UUID instanceId, LogAppender appender, long logSteamMaxDelay) throws IOException {
+    public RedirectedProcessLog(Path baseDir, UUID instanceId, LogAppender appender, long logSteamMaxDelay, int batchSize) throws IOException {
         this.instanceId = instanceId;
         this.appender = appender;
         this.logSteamMaxDelay = logSteamMaxDelay;
+        this.batchSize = batchSize;
         this.localLog = new LocalProcessLog(baseDir, instanceId);
     }
 
     public void run(Supplier<Boolean> stopCondition) throws Exception {
-        Consumer<Chunk> sink = chunk -> {
-            byte[] ab = new byte[chunk.len];
-            System.arraycopy(chunk.ab, 0, ab, 0, chunk.len);
-            appender.appendLog(instanceId, ab);
-        };
-
-        streamLog(localLog.logFile(), stopCondition, logSteamMaxDelay, sink);
+        Sink sink = (ab, len) -> appender.appendLog(instanceId, ab, len);
+        streamLog(localLog.logFile(), stopCondition, logSteamMaxDelay, batchSize, sink);
     }
 
     @Override
@@ -83,45 +89,67 @@ public class RedirectedProcessLog implements ProcessLog {
         this.localLog.error(log, args);
     }
 
-    private static void streamLog(Path p, Supplier<Boolean> stopCondition, long maxDelay, Consumer<Chunk> sink) throws IOException {
+    private static void streamLog(Path p, Supplier<Boolean> stopCondition, long maxDelay, int batchSize, Sink sink) throws IOException {
         long total = 0;
 
-        byte[] ab = new byte[8192];
+        // the buffer is reused for all batches
+        byte[] ab = new byte[batchSize];
+        int len = 0;
+        long firstPendingAt = 0;
+
+        long pollDelay = Math.min(maxDelay, MAX_POLL_DELAY);
 
         try (InputStream in = Files.newInputStream(p, StandardOpenOption.READ)) {
             while (true) {
-                int read = in.read(ab, 0, ab.length);
+                int read = in.read(ab, len, ab.length - len);
                 if (read > 0) {
-                    sink.accept(new Chunk(ab, read));
+                    if (len == 0) {
+                        firstPendingAt = System.currentTimeMillis();
+                    }
+                    len += read;
                     total += read;
                 }
 
-                if (read < ab.length) {
-                    if (stopCondition.get() && total >= Files.size(p)) {
-                        // the log and the job are finished
-                        break;
-                    }
+                if (len == ab.length) {
+                    // the batch is full, send it and continue reading
+                    sink.accept(ab, len);
+                    len = 0;
+                    continue;
+                }
+
+                if (read > 0) {
+                    // there might be more data immediately available
+                    continue;
+                }
+
+                boolean finished = stopCondition.get() && total >= Files.size(p);
+
+                if (len > 0 && (finished || System.currentTimeMillis() - firstPendingAt >= maxDelay)) {
+                    sink.accept(ab, len);
+                    len = 0;
+                }
 
-                    // job is still running, wait for more data
-                    try {
-                        Thread.sleep(maxDelay);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
+                if (finished) {
+                    // the log and the job are finished
+                    break;
+                }
+
+                // job is still running, wait for more data
+                try {
+                    Thread.sleep(pollDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (len > 0) {
+                        sink.accept(ab, len);
                     }
+                    break;
                 }
             }
         }
     }
 
-    private static final class Chunk {
+    private interface Sink {
 
-        private final byte[] ab;
-        private final int len;
-
-        private Chunk(byte[] ab, int len) { // NOSONAR
-            this.ab = ab;
-            this.len = len;
-        }
+        void accept(byte[] ab, int len);
     }
 }
@@ -22,6 +22,7 @@ package com.walmartlabs.concord.agent.logging;
 
 import com.walmartlabs.concord.ApiException;
 import com.walmartlabs.concord.agent.AgentConstants;
+import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
 import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.client.ProcessApi;
 import org.slf4j.Logger;
@@ -29,27 +30,55 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @Named
 public class RemoteLogAppender implements LogAppender {
 
     private static final Logger log = LoggerFactory.getLogger(RemoteLogAppender.class);
 
+    private static final int MIN_COMPRESSION_SIZE = 1024;
+
     private final ProcessApi processApi;
+    private final boolean compression;
 
     @Inject
-    public RemoteLogAppender(ProcessApi processApi) {
+    public RemoteLogAppender(ProcessApi processApi, AgentConfiguration cfg) {
         this.processApi = processApi;
+        this.compression = cfg.isLogCompression();
     }
 
     @Override
     public void appendLog(UUID instanceId, byte[] ab) {
+        appendLog(instanceId, ab, ab.length);
+    }
+
+    @Override
+    public void appendLog(UUID instanceId, byte[] ab, int len) {
         String path = "/api/v1/process/" + instanceId + "/log";
 
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/octet-stream");
+
+        byte[] data;
+        if (compression && len >= MIN_COMPRESSION_SIZE) {
+            data = gzip(ab, len);
+            headers.put("Content-Encoding", "gzip");
+        } else if (len == ab.length) {
+            data = ab;
+        } else {
+            data = Arrays.copyOf(ab, len);
+        }
+
         try {
             ClientUtils.withRetry(AgentConstants.API_CALL_MAX_RETRIES, AgentConstants.API_CALL_RETRY_DELAY, () -> {
-                ClientUtils.postData(processApi.getApiClient(), path, ab);
+                ClientUtils.postData(processApi.getApiClient(), path, data, headers, null);
                 return null;
             });
         } catch (ApiException e) {
@@ -57,4 +86,15 @@ public class RemoteLogAppender implements LogAppender {
             log.warn("appendLog ['{}'] -> error: {}", instanceId, e.getMessage());
         }
     }
+
+    private static byte[] gzip(byte[] ab, int len) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(ab, 0, len);
+        } catch (IOException e) {
+            // should never happen with in-memory streams
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
 }
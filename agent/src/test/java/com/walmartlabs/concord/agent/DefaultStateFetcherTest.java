@@ -0,0 +1,175 @@
+package com.walmartlabs.concord.agent;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
+import com.walmartlabs.concord.client.ConcordApiClient;
+import com.walmartlabs.concord.client.ProcessApi;
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.ZipItemAttributes;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultStateFetcherTest {
+
+    private static final byte[] DATA = "Hello!".getBytes(StandardCharsets.UTF_8);
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static final String HASH = Hashing.sha256().hashBytes(DATA).toString();
+
+    private HttpServer server;
+    private Path workDir;
+    private Path cacheDir;
+    private DefaultStateFetcher fetcher;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+
+        workDir = IOUtils.createTempDir("state-fetcher-test");
+        cacheDir = Files.createDirectories(workDir.resolve("cache"));
+
+        AgentConfiguration cfg = mock(AgentConfiguration.class);
+        when(cfg.getStateCacheDir()).thenReturn(cacheDir);
+        when(cfg.getStateCacheMaxSize()).thenReturn(1024 * 1024L);
+
+        ApiClient apiClient = new ConcordApiClient("http://localhost:" + server.getAddress().getPort());
+        apiClient.setTempFolderPath(workDir.toString());
+
+        fetcher = new DefaultStateFetcher(new ProcessApi(apiClient), new StateCache(cfg));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+        IOUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testFallbackToGet() throws Exception {
+        server.createContext("/", ex -> {
+            if ("POST".equals(ex.getRequestMethod())) {
+                send(ex, 405, new byte[0]);
+            } else {
+                send(ex, 200, zip(false));
+            }
+        });
+
+        JobRequest job = newJob();
+        fetcher.downloadState(job);
+
+        assertArrayEquals(DATA, Files.readAllBytes(job.getPayloadDir().resolve("a.txt")));
+    }
+
+    @Test
+    public void testCachedFile() throws Exception {
+        Files.write(cacheDir.resolve(HASH), DATA);
+
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext("/", ex -> {
+            requests.incrementAndGet();
+            // the agent sends the cached hashes, the server omits the data of such files
+            boolean cached = readBody(ex).contains(HASH);
+            send(ex, 200, zip(cached));
+        });
+
+        JobRequest job = newJob();
+        fetcher.downloadState(job);
+
+        assertEquals(1, requests.get());
+        assertArrayEquals(DATA, Files.readAllBytes(job.getPayloadDir().resolve("a.txt")));
+    }
+
+    @Test
+    public void testCorruptedCacheEntry() throws Exception {
+        Files.write(cacheDir.resolve(HASH), "corrupted".getBytes(StandardCharsets.UTF_8));
+
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext("/", ex -> {
+            requests.incrementAndGet();
+            boolean cached = readBody(ex).contains(HASH);
+            send(ex, 200, zip(cached));
+        });
+
+        JobRequest job = newJob();
+        fetcher.downloadState(job);
+
+        // downloaded again without the cache
+        assertEquals(2, requests.get());
+        assertArrayEquals(DATA, Files.readAllBytes(job.getPayloadDir().resolve("a.txt")));
+
+        // the cache entry is replaced with the valid data
+        assertArrayEquals(DATA, Files.readAllBytes(cacheDir.resolve(HASH)));
+    }
+
+    private JobRequest newJob() throws IOException {
+        Path payloadDir = Files.createDirectories(workDir.resolve("payload-" + UUID.randomUUID()));
+        return new JobRequest(JobRequest.Type.RUNNER, UUID.randomUUID(), payloadDir,
+                null, null, null, null, null, null, null);
+    }
+
+    private static byte[] zip(boolean omitData) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+            ZipArchiveEntry e = new ZipArchiveEntry("a.txt");
+            ZipItemAttributes.set(e, 0644, HASH);
+            zip.putArchiveEntry(e);
+            if (!omitData) {
+                zip.write(DATA);
+            }
+            zip.closeArchiveEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        return new String(IOUtils.toByteArray(ex.getRequestBody()), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange ex, int code, byte[] ab) throws IOException {
+        ex.sendResponseHeaders(code, ab.length > 0 ? ab.length : -1);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(ab);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.walmartlabs.concord.agent.executors.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.HashCode;
+import com.walmartlabs.concord.agent.cfg.PreForkConfiguration;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool.ProcessEntry;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool.ProcessLauncher;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessPoolTest {
+
+    private static final HashCode HASH = HashCode.fromInt(1);
+
+    @Test(timeout = 30000)
+    public void testConcurrentPopulate() throws Exception {
+        ProcessPool pool = new ProcessPool(cfg(TimeUnit.HOURS.toMillis(1), 100));
+
+        Thread testThread = Thread.currentThread();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+
+        // pre-forks are blocked until all takes are done
+        ProcessLauncher launcher = () -> {
+            if (Thread.currentThread() != testThread) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            started.incrementAndGet();
+            return new ProcessEntry(new FakeProcess(), Paths.get("test"));
+        };
+
+        int takes = 5;
+        for (int i = 0; i < takes; i++) {
+            pool.take(HASH, launcher);
+        }
+        release.countDown();
+
+        // the rate of 5 takes means 4 pre-forked JVMs
+        int target = takes - 1;
+        while (pool.queueSize(HASH) < target) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(500);
+
+        assertEquals(target, pool.queueSize(HASH));
+        assertEquals(target, pool.size());
+        assertEquals(takes + target, started.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testMaintenance() throws Exception {
+        long maxAge = 1000;
+        ProcessPool pool = new ProcessPool(cfg(maxAge, 100));
+
+        List<FakeProcess> processes = new ArrayList<>();
+        ProcessLauncher launcher = () -> {
+            FakeProcess p = new FakeProcess();
+            synchronized (processes) {
+                processes.add(p);
+            }
+            return new ProcessEntry(p, Paths.get("test"));
+        };
+
+        pool.take(HASH, launcher);
+        pool.take(HASH, launcher);
+        pool.take(HASH, launcher);
+
+        while (pool.queueSize(HASH) < 1) {
+            Thread.sleep(10);
+        }
+
+        Thread.sleep(maxAge + 100);
+        pool.maintenance();
+
+        assertEquals(0, pool.queueSize(HASH));
+        assertEquals(0, pool.size());
+        synchronized (processes) {
+            // the taken processes are still alive, the pre-forked ones are killed
+            assertEquals(3, processes.stream().filter(FakeProcess::isAlive).count());
+            assertTrue(processes.size() > 3);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMaintenanceDoesNotKillTakenEntries() throws Exception {
+        // the entries expire while the takes keep the demand high
+        ProcessPool pool = new ProcessPool(cfg(50, 10));
+
+        ProcessLauncher launcher = () -> new ProcessEntry(new FakeProcess(), Paths.get("test"));
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread maintenance = new Thread(() -> {
+            while (!stop.get()) {
+                pool.maintenance();
+            }
+        });
+        maintenance.start();
+
+        try {
+            for (int i = 0; i < 10000; i++) {
+                ProcessEntry e = pool.take(HASH, launcher);
+                assertTrue(e.getProcess().isAlive());
+            }
+        } finally {
+            stop.set(true);
+            maintenance.join();
+        }
+
+        assertTrue(pool.size() >= 0);
+    }
+
+    private static PreForkConfiguration cfg(long maxAge, int maxCount) {
+        PreForkConfiguration cfg = mock(PreForkConfiguration.class);
+        when(cfg.getMaxAge()).thenReturn(maxAge);
+        when(cfg.getMaxCount()).thenReturn(maxCount);
+        return cfg;
+    }
+
+    private static class FakeProcess extends Process {
+
+        private volatile boolean alive = true;
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            if (alive) {
+                throw new IllegalThreadStateException();
+            }
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+            alive = false;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return alive;
+        }
+    }
+}
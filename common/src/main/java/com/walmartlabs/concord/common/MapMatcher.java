@@ -20,11 +20,21 @@ package com.walmartlabs.concord.common;
  * =====
  */
 
-import java.util.Collection;
-import java.util.Map;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+/**
+ * Matches data maps against conditions. String conditions are regular expressions.
+ * <p>
+ * Use {@link #compile(Map)} to create a reusable matcher when the same conditions
+ * are matched against multiple data maps. Compiled matchers precompile the regular
+ * expressions and compare the strings without any regex metacharacters directly.
+ */
 public final class MapMatcher {
 
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
     public static boolean matches(Map<String, Object> data, Map<String, Object> conditions) {
         if (conditions == null || conditions.isEmpty()) {
             return true;
@@ -33,6 +43,49 @@ public final class MapMatcher {
         return compareNodes(data, conditions);
     }
 
+    /**
+     * Creates a reusable matcher for the specified conditions.
+     * The result is thread-safe.
+     */
+    public static MapMatcher compile(Map<String, Object> conditions) {
+        if (conditions == null || conditions.isEmpty()) {
+            return new MapMatcher(null);
+        }
+
+        return new MapMatcher(compileNode(conditions));
+    }
+
+    /**
+     * @return {@code true} if the specified string condition doesn't contain
+     * any regex metacharacters, i.e. it matches only itself.
+     */
+    public static boolean isLiteral(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(s.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final Node root;
+
+    private MapMatcher(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Same as {@link #matches(Map, Map)} with the conditions used to
+     * {@link #compile(Map)} this matcher.
+     */
+    public boolean matches(Map<String, Object> data) {
+        if (root == null) {
+            return true;
+        }
+
+        return root.matches(data);
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     private static boolean compareNodes(Object data, Object conditions) {
         if (data == null && conditions == null) {
@@ -95,6 +148,9 @@ public final class MapMatcher {
     }
 
     private static boolean compareStringValues(String dataValue, String conditionValue) {
+        if (isLiteral(conditionValue)) {
+            return dataValue.equals(conditionValue);
+        }
         return dataValue.matches(conditionValue);
     }
 
@@ -102,6 +158,155 @@ public final class MapMatcher {
         return dataValue.equals(conditionValue);
     }
 
-    private MapMatcher() {
+    @SuppressWarnings("unchecked")
+    private static Node compileNode(Object conditions) {
+        if (conditions == null) {
+            return Objects::isNull;
+        } else if (conditions instanceof Map) {
+            return new ObjectNode((Map<String, Object>) conditions);
+        } else if (conditions instanceof String) {
+            return new StringNode((String) conditions);
+        } else if (conditions instanceof Collection) {
+            return new ArrayNode((Collection<Object>) conditions);
+        } else {
+            return data -> data != null && compareValues(data, conditions);
+        }
+    }
+
+    /**
+     * A compiled condition. Follows the same rules as {@link #compareNodes(Object, Object)}.
+     */
+    private interface Node {
+
+        boolean matches(Object data);
+    }
+
+    private static final class ObjectNode implements Node {
+
+        private final Map<String, Object> conditions;
+        private final Map<String, Node> fields;
+
+        private ObjectNode(Map<String, Object> conditions) {
+            this.conditions = conditions;
+            this.fields = new LinkedHashMap<>(conditions.size());
+            conditions.forEach((k, v) -> fields.put(k, compileNode(v)));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean matches(Object data) {
+            if (data == null) {
+                return false;
+            }
+
+            if (!(data instanceof Map)) {
+                return compareValues(data, conditions);
+            }
+
+            Map<String, Object> m = (Map<String, Object>) data;
+            for (Map.Entry<String, Node> e : fields.entrySet()) {
+                if (!e.getValue().matches(m.get(e.getKey()))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static final class StringNode implements Node {
+
+        private final String condition;
+        private final Pattern pattern;
+        private final PatternSyntaxException error;
+
+        private StringNode(String condition) {
+            this.condition = condition;
+
+            Pattern pattern = null;
+            PatternSyntaxException error = null;
+            if (!isLiteral(condition)) {
+                try {
+                    pattern = Pattern.compile(condition);
+                } catch (PatternSyntaxException e) {
+                    // report the error when matching, same as String#matches
+                    error = e;
+                }
+            }
+            this.pattern = pattern;
+            this.error = error;
+        }
+
+        @Override
+        public boolean matches(Object data) {
+            if (data == null) {
+                return matchString("");
+            } else if (data instanceof String) {
+                return matchString((String) data);
+            } else {
+                return compareValues(data, condition);
+            }
+        }
+
+        private boolean matchString(String s) {
+            if (error != null) {
+                throw error;
+            }
+
+            if (pattern == null) {
+                return s.equals(condition);
+            }
+
+            return pattern.matcher(s).matches();
+        }
+    }
+
+    private static final class ArrayNode implements Node {
+
+        private final Collection<Object> conditions;
+        private final List<Node> elements;
+
+        private ArrayNode(Collection<Object> conditions) {
+            this.conditions = conditions;
+            this.elements = new ArrayList<>(conditions.size());
+            for (Object c : conditions) {
+                elements.add(compileNode(c));
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean matches(Object data) {
+            if (data == null) {
+                return false;
+            }
+
+            if (!(data instanceof Collection)) {
+                // the condition's elements are matched using the data as the condition,
+                // can't be precompiled
+                return matchAny(data, conditions);
+            }
+
+            Collection<Object> dataElements = (Collection<Object>) data;
+            if (elements.size() > dataElements.size()) {
+                return false;
+            }
+
+            for (Node e : elements) {
+                boolean matched = false;
+                for (Object d : dataElements) {
+                    if (e.matches(d)) {
+                        matched = true;
+                        break;
+                    }
+                }
+
+                if (!matched) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.walmartlabs.concord.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.apache.commons.compress.archivers.zip.UnrecognizedExtraField;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipExtraField;
+import org.apache.commons.compress.archivers.zip.ZipShort;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Additional attributes of ZIP entries stored in the local file headers.
+ * Unlike the "external attributes" of the central directory, the local
+ * headers are available when the archive is read as a stream.
+ * <p>
+ * The attributes are the file's unix mode and (optionally) the hash of
+ * the file's content.
+ */
+public final class ZipItemAttributes {
+
+    private static final ZipShort HEADER_ID = new ZipShort(0x4363); // "cC"
+
+    public static void set(ZipArchiveEntry entry, int unixMode, String hash) {
+        byte[] h = hash != null ? hash.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+
+        byte[] data = ByteBuffer.allocate(4 + h.length)
+                .putInt(unixMode)
+                .put(h)
+                .array();
+
+        UnrecognizedExtraField f = new UnrecognizedExtraField();
+        f.setHeaderId(HEADER_ID);
+        f.setLocalFileDataData(data);
+        f.setCentralDirectoryData(data);
+
+        entry.addExtraField(f);
+    }
+
+    /**
+     * @return the file's unix mode or {@code -1} if the entry has no attributes.
+     */
+    public static int getUnixMode(ZipArchiveEntry entry) {
+        byte[] data = getData(entry);
+        if (data == null || data.length < 4) {
+            return -1;
+        }
+
+        return ByteBuffer.wrap(data).getInt();
+    }
+
+    /**
+     * @return the hash of the file's content or {@code null} if the entry has no hash.
+     */
+    public static String getHash(ZipArchiveEntry entry) {
+        byte[] data = getData(entry);
+        if (data == null || data.length <= 4) {
+            return null;
+        }
+
+        return new String(data, 4, data.length - 4, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] getData(ZipArchiveEntry entry) {
+        ZipExtraField f = entry.getExtraField(HEADER_ID);
+        if (f == null) {
+            return null;
+        }
+
+        return f.getLocalFileDataData();
+    }
+
+    private ZipItemAttributes() {
+    }
+}
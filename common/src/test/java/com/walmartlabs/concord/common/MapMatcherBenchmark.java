@@ -0,0 +1,104 @@
+package com.walmartlabs.concord.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches a GitHub-like event against a set of trigger-like conditions
+ * using {@link MapMatcher#matches(Map, Map)} and the compiled matchers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapMatcherBenchmark {
+
+    @Param({"10", "100"})
+    public int conditionCount;
+
+    private Map<String, Object> event;
+    private List<Map<String, Object>> conditions;
+    private List<MapMatcher> matchers;
+
+    @Setup
+    public void setup() {
+        event = new HashMap<>();
+        event.put("org", "octocat");
+        event.put("repository", "hello-world");
+        event.put("branch", "master");
+        event.put("type", "push");
+        event.put("status", "opened");
+        event.put("payload", Collections.singletonMap("sender", "someone"));
+
+        conditions = new ArrayList<>(conditionCount);
+        matchers = new ArrayList<>(conditionCount);
+        for (int i = 0; i < conditionCount; i++) {
+            Map<String, Object> c = new HashMap<>();
+            c.put("org", "octocat");
+            c.put("repository", i % 2 == 0 ? "hello-world" : "repo-" + i);
+            c.put("branch", i % 3 == 0 ? ".*" : "(master|develop)");
+            c.put("type", "push");
+            c.put("payload", Collections.singletonMap("sender", ".*"));
+
+            conditions.add(c);
+            matchers.add(MapMatcher.compile(c));
+        }
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matched = 0;
+        for (Map<String, Object> c : conditions) {
+            if (MapMatcher.matches(event, c)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matched = 0;
+        for (MapMatcher m : matchers) {
+            if (m.matches(event)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MapMatcherBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -65,5 +65,6 @@ public class KvTaskIT extends AbstractIT {
         proc.assertLog(".*msg \\(removed\\): \\[].*");
         proc.assertLog(".*x: 123.*");
         proc.assertLog(".*x \\(updated\\): 124.*");
+        proc.assertLog(".*a, b \\(updated\\): 2, 4.*");
     }
 }
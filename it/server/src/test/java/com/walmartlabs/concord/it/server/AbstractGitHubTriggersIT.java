@@ -39,6 +39,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 
@@ -195,7 +196,7 @@ public class AbstractGitHubTriggersIT extends AbstractServerIT {
         client.addDefaultHeader("X-Hub-Signature", "sha1=" + GitHubUtils.sign(payload));
 
         GitHubEventsApi eventsApi = new GitHubEventsApi(client);
-        eventsApi.onEvent(payload, "abc", event);
+        eventsApi.onEvent(payload, UUID.randomUUID().toString(), event);
     }
 
     protected void assertLog(ProcessEntry entry, String pattern) throws Exception {
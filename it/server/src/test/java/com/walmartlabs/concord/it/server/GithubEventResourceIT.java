@@ -128,6 +128,54 @@ public class GithubEventResourceIT extends AbstractServerIT {
         projectsApi.delete(orgName, projectName);
     }
 
+    /**
+     * The events are acknowledged immediately and processed asynchronously
+     * by the event inbox. Redeliveries of the same event must be ignored.
+     */
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void pushRedelivery() throws Exception {
+        String orgName = "Default";
+        String projectName = "test_" + randomString();
+        String repoName = "repo_" + randomString();
+
+        String processTag = "tag_" + randomString();
+        Path tmpDir = createTempDir();
+
+        File src = new File(GithubEventResourceIT.class.getResource("githubEventWithPayload").toURI());
+        IOUtils.copy(src.toPath(), tmpDir);
+        updateTag(tmpDir.resolve("concord.yml"), processTag);
+
+        Git repo = Git.init().setDirectory(tmpDir.toFile()).call();
+        repo.add().addFilepattern(".").call();
+        repo.commit().setMessage("import").call();
+
+        String gitUrl = tmpDir.toAbsolutePath().toString();
+
+        // ---
+
+        UUID projectId = createProjectAndRepo(orgName, projectName, repoName, gitUrl);
+
+        // ---
+
+        String deliveryId = UUID.randomUUID().toString();
+        githubEvent("githubEventWithPayload/push_request.json", tmpDir.getFileName().toString(), "push", deliveryId);
+        githubEvent("githubEventWithPayload/push_request.json", tmpDir.getFileName().toString(), "push", deliveryId);
+
+        List<ProcessEntry> processes = waitProcesses(projectId, processTag, 1);
+
+        // give the inbox a chance to (incorrectly) process the second delivery
+        Thread.sleep(10000);
+
+        ProcessApi processApi = new ProcessApi(getApiClient());
+        processes = processApi.list(null, null, projectId, null, null, Collections.singletonList(processTag), null, null, null, 10, 0);
+        assertEquals(processes.toString(), 1, processes.size());
+
+        // ---
+
+        ProjectsApi projectsApi = new ProjectsApi(getApiClient());
+        projectsApi.delete(orgName, projectName);
+    }
+
     @Test(timeout = DEFAULT_TEST_TIMEOUT)
     public void nonOrgEvent() throws Exception {
         Path tmpDir = createTempDir();
@@ -240,6 +288,10 @@ public class GithubEventResourceIT extends AbstractServerIT {
     }
 
     private void githubEvent(String eventFile, String repoName, String eventName) throws Exception {
+        githubEvent(eventFile, repoName, eventName, UUID.randomUUID().toString());
+    }
+
+    private void githubEvent(String eventFile, String repoName, String eventName, String deliveryId) throws Exception {
         String event = new String(Files.readAllBytes(Paths.get(GithubEventResourceIT.class.getResource(eventFile).toURI())));
         if (repoName != null) {
             event = event.replace("org-repo", repoName);
@@ -250,7 +302,7 @@ public class GithubEventResourceIT extends AbstractServerIT {
 
         GitHubEventsApi gitHubEvents = new GitHubEventsApi(client);
 
-        String result = gitHubEvents.onEvent(event, "abc", eventName);
+        String result = gitHubEvents.onEvent(event, deliveryId, eventName);
         assertEquals("ok", result);
     }
 
@@ -26,10 +26,7 @@ import com.walmartlabs.concord.client.ProcessEntry.StatusEnum;
 import org.junit.Ignore;
 import org.junit.Test;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static com.walmartlabs.concord.it.common.ITUtils.archive;
 import static com.walmartlabs.concord.it.common.ServerClient.*;
@@ -73,6 +70,30 @@ public class ProcessIT extends AbstractServerIT {
         waitForStatus(processApi, spr.getInstanceId(), StatusEnum.CANCELLED, StatusEnum.FAILED, StatusEnum.FINISHED);
     }
 
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void testBatchWaitForCompletion() throws Exception {
+        byte[] payload = archive(ProcessIT.class.getResource("example").toURI());
+
+        ProcessApi processApi = new ProcessApi(getApiClient());
+        StartProcessResponse spr1 = start(payload);
+        StartProcessResponse spr2 = start(payload);
+
+        List<UUID> ids = Arrays.asList(spr1.getInstanceId(), spr2.getInstanceId());
+
+        List<ProcessEntry> l;
+        while (true) {
+            l = processApi.batchWaitForCompletion(ids, "ALL", 30);
+            if (l.stream().allMatch(e -> e.getStatus() == StatusEnum.FINISHED || e.getStatus() == StatusEnum.FAILED)) {
+                break;
+            }
+        }
+
+        assertEquals(2, l.size());
+        for (ProcessEntry e : l) {
+            assertEquals(StatusEnum.FINISHED, e.getStatus());
+        }
+    }
+
     @Test(timeout = DEFAULT_TEST_TIMEOUT)
     public void testTaskOut() throws Exception {
         byte[] payload = archive(ProcessIT.class.getResource("taskOut").toURI(), ITConstants.DEPENDENCIES_DIR);
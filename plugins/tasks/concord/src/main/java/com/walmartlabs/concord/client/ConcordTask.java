@@ -48,7 +48,16 @@ public class ConcordTask extends AbstractConcordTask {
     private static final Logger log = LoggerFactory.getLogger(ConcordTask.class);
 
     private static final long DEFAULT_KILL_TIMEOUT = 10000;
-    private static final long DEFAULT_POLL_DELAY = 5000;
+
+    /**
+     * Max time (sec) the server holds a single {@code waitForCompletion} request.
+     */
+    private static final long DEFAULT_WAIT_TIMEOUT = 30;
+
+    /**
+     * Max number of processes in a single {@code waitForCompletion} request.
+     */
+    private static final int MAX_WAIT_BATCH_SIZE = 1000;
 
     /**
      * @deprecated use {@link #PAYLOAD_KEY}
@@ -187,41 +196,70 @@ public class ConcordTask extends AbstractConcordTask {
     public <T> Map<String, T> waitForCompletion(@InjectVariable("context") Context ctx, List<String> ids, long timeout, Function<ProcessEntry, T> processor) {
         Map<String, T> result = new HashMap<>();
 
-        ids.parallelStream().map(UUID::fromString).forEach(id -> {
-            log.info("Waiting for {}...", id);
-
-            long t1 = System.currentTimeMillis();
-            while (true) {
-                try {
-                    ProcessEntry e = ClientUtils.withRetry(3, 1000, () -> withClient(ctx, client -> {
-                        ProcessApi api = new ProcessApi(client);
-                        return api.get(id);
-                    }));
-
-                    ProcessEntry.StatusEnum s = e.getStatus();
-
-                    if (isFinalStatus(s)) {
-                        T t = processor.apply(e);
-                        if (t != null) {
-                            result.put(id.toString(), t);
-                        }
-                        break;
-                    } else {
-                        long t2 = System.currentTimeMillis();
-                        if (timeout > 0) {
-                            long dt = t2 - t1;
-                            if (dt >= timeout) {
-                                throw new TimeoutException("Timeout waiting for " + id + ": " + dt);
-                            }
-                        }
-
-                        Thread.sleep(DEFAULT_POLL_DELAY);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
+        Set<UUID> remaining = ids.stream()
+                .map(UUID::fromString)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        log.info("Waiting for {}...", remaining);
+
+        long t1 = System.currentTimeMillis();
+        while (!remaining.isEmpty()) {
+            // the server holds the request until all processes are finished or the wait timeout is reached
+            List<UUID> batch = remaining.stream()
+                    .limit(MAX_WAIT_BATCH_SIZE)
+                    .collect(Collectors.toList());
+
+            long waitTimeout = DEFAULT_WAIT_TIMEOUT;
+            if (timeout > 0) {
+                long left = timeout - (System.currentTimeMillis() - t1);
+                waitTimeout = Math.max(1, Math.min(waitTimeout, TimeUnit.MILLISECONDS.toSeconds(left)));
+            }
+            int waitTimeoutSec = (int) waitTimeout;
+
+            List<ProcessEntry> entries;
+            try {
+                entries = ClientUtils.withRetry(3, 1000, () -> withClient(ctx, client -> {
+                    ProcessApi api = new ProcessApi(client);
+                    return api.batchWaitForCompletion(batch, "ALL", waitTimeoutSec);
+                }));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            Set<UUID> found = entries.stream()
+                    .map(ProcessEntry::getInstanceId)
+                    .collect(Collectors.toSet());
+
+            for (UUID id : batch) {
+                if (!found.contains(id)) {
+                    throw new IllegalStateException("Process instance not found: " + id);
                 }
             }
-        });
+
+            for (ProcessEntry e : entries) {
+                if (!isFinalStatus(e.getStatus())) {
+                    continue;
+                }
+
+                remaining.remove(e.getInstanceId());
+
+                T t = processor.apply(e);
+                if (t != null) {
+                    result.put(e.getInstanceId().toString(), t);
+                }
+            }
+
+            if (remaining.isEmpty()) {
+                break;
+            }
+
+            if (timeout > 0) {
+                long dt = System.currentTimeMillis() - t1;
+                if (dt >= timeout) {
+                    throw new RuntimeException(new TimeoutException("Timeout waiting for " + remaining + ": " + dt));
+                }
+            }
+        }
 
         return result;
     }
@@ -91,6 +91,23 @@ public class Configuration {
         this.followRedirects = followRedirects;
     }
 
+    /**
+     * Collects the task's parameters from the specified context.
+     *
+     * @param ctx context to read the parameters from
+     * @return map of all non-null parameters
+     */
+    static Map<String, Object> getInput(Context ctx) {
+        Map<String, Object> input = new HashMap<>(ALL_KEYS.length);
+        for (String k : ALL_KEYS) {
+            Object v = ctx.getVariable(k);
+            if (v != null) {
+                input.put(k, v);
+            }
+        }
+        return input;
+    }
+
     /**
      * Method to get a new instance of builder
      *
@@ -391,16 +408,7 @@ public class Configuration {
          */
         public Configuration build(Context ctx) throws Exception {
             String workDir = (String) ctx.getVariable(Constants.Context.WORK_DIR_KEY);
-
-            Map<String, Object> input = new HashMap<>(ALL_KEYS.length);
-            for (String k : ALL_KEYS) {
-                Object v = ctx.getVariable(k);
-                if (v != null) {
-                    input.put(k, v);
-                }
-            }
-
-            return build(workDir, input);
+            return build(workDir, getInput(ctx));
         }
 
         @SuppressWarnings("unchecked")
@@ -0,0 +1,112 @@
+package com.walmartlabs.concord.plugins.http;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.sdk.MapUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.walmartlabs.concord.plugins.http.HttpTask.HttpTaskConstant.*;
+
+/**
+ * Executes a list of requests concurrently. Each element of the {@code requests}
+ * list is merged over the top-level task parameters, i.e. the common parameters
+ * (auth, headers, timeouts, etc) can be specified once for the whole batch.
+ * <p>
+ * The result contains the list of individual responses (in the same order as
+ * the requests) and the overall {@code success} flag. Errors of individual
+ * requests (timeouts, connection errors, etc) don't abort the batch, such
+ * requests are reported as unsuccessful responses with {@code errorString}.
+ */
+final class HttpBatch {
+
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int MAX_PARALLELISM = 64;
+
+    static boolean isBatch(Map<String, Object> input) {
+        return input.get(REQUESTS_KEY) != null;
+    }
+
+    static Map<String, Object> execute(String workDir, Map<String, Object> input) throws Exception {
+        List<Map<String, Object>> requests = MapUtils.assertList(input, REQUESTS_KEY);
+
+        int parallelism = MapUtils.getInt(input, PARALLELISM_KEY, DEFAULT_PARALLELISM);
+        if (parallelism <= 0 || parallelism > MAX_PARALLELISM) {
+            throw new IllegalArgumentException("'" + PARALLELISM_KEY + "' must be between 1 and " + MAX_PARALLELISM + ", got: " + parallelism);
+        }
+
+        Map<String, Object> defaults = new HashMap<>(input);
+        defaults.remove(REQUESTS_KEY);
+        defaults.remove(PARALLELISM_KEY);
+        defaults.remove(OUT_KEY);
+
+        // validate all requests before sending anything
+        List<Configuration> configs = new ArrayList<>(requests.size());
+        for (Map<String, Object> r : requests) {
+            Map<String, Object> m = new HashMap<>(defaults);
+            m.putAll(r);
+            configs.add(Configuration.custom().build(workDir, m));
+        }
+
+        List<Map<String, Object>> responses = new ArrayList<>(configs.size());
+        boolean success = true;
+
+        if (!configs.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, configs.size()));
+            try {
+                List<Future<Map<String, Object>>> futures = new ArrayList<>(configs.size());
+                for (Configuration cfg : configs) {
+                    futures.add(executor.submit(() -> SimpleHttpClient.create(cfg).execute().getResponse()));
+                }
+
+                for (Future<Map<String, Object>> f : futures) {
+                    Map<String, Object> r = get(f);
+                    success &= Boolean.TRUE.equals(r.get(SUCCESS_PARAM));
+                    responses.add(r);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put(SUCCESS_PARAM, success);
+        result.put(RESPONSES_PARAM, responses);
+        return result;
+    }
+
+    private static Map<String, Object> get(Future<Map<String, Object>> f) throws InterruptedException {
+        try {
+            return new HashMap<>(f.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+
+            Map<String, Object> r = new HashMap<>();
+            r.put(SUCCESS_PARAM, false);
+            r.put(ERROR_STRING_PARAM, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            return r;
+        }
+    }
+
+    private HttpBatch() {
+    }
+}
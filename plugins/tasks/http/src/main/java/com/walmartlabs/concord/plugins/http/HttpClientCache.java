@@ -0,0 +1,117 @@
+package com.walmartlabs.concord.plugins.http;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of {@link CloseableHttpClient} instances. Clients are keyed
+ * by the connection-related parts of {@link Configuration}, so requests with
+ * the same timeouts, proxy and redirect settings share the same connection pool
+ * (and keep-alive connections) regardless of the task instance or the runtime
+ * version they were made from.
+ * <p>
+ * Cached clients live as long as the JVM, stale and idle connections are
+ * evicted by a background thread.
+ */
+public final class HttpClientCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClientCache.class);
+
+    private static final int MAX_CONNECTIONS_TOTAL = 200;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final long MAX_IDLE_TIME = 30;
+
+    private static final ConcurrentMap<List<Object>, CloseableHttpClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a shared client for the specified configuration. The returned
+     * client must not be closed.
+     */
+    public static CloseableHttpClient get(Configuration cfg) {
+        List<Object> key = Arrays.asList(cfg.getConnectTimeout(), cfg.getSocketTimeout(), cfg.isFollowRedirects(), cfg.getProxy());
+        return clients.computeIfAbsent(key, k -> createClient(cfg));
+    }
+
+    private static CloseableHttpClient createClient(Configuration cfg) {
+        RequestConfig.Builder c = RequestConfig.custom()
+                .setConnectTimeout(cfg.getConnectTimeout())
+                .setSocketTimeout(cfg.getSocketTimeout())
+                .setRedirectsEnabled(cfg.isFollowRedirects());
+
+        String proxy = cfg.getProxy();
+        if (proxy != null) {
+            log.info("Using proxy: {}", proxy);
+            c.setProxy(HttpHost.create(proxy));
+        }
+
+        return HttpClientBuilder.create()
+                .setConnectionManager(buildConnectionManager())
+                .setDefaultRequestConfig(c.build())
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_TIME, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static PoolingHttpClientConnectionManager buildConnectionManager() {
+        SSLConnectionSocketFactory socketFactory;
+        try {
+            SSLContextBuilder builder = new SSLContextBuilder();
+            builder.loadTrustMaterial(new TrustAllStrategy());
+            socketFactory = new SSLConnectionSocketFactory(builder.build(), NoopHostnameVerifier.INSTANCE);
+        } catch (Exception e) {
+            throw new RuntimeException("Error while creating the SSL context: " + e.getMessage(), e);
+        }
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.INSTANCE)
+                .register("https", socketFactory)
+                .build();
+
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager(registry);
+        cm.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        cm.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        return cm;
+    }
+
+    private HttpClientCache() {
+    }
+}
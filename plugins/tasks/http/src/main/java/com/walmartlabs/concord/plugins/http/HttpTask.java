@@ -20,6 +20,7 @@ package com.walmartlabs.concord.plugins.http;
  * =====
  */
 
+import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.sdk.Context;
 import com.walmartlabs.concord.sdk.Task;
 import org.slf4j.Logger;
@@ -27,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import static com.walmartlabs.concord.plugins.http.HttpTask.HttpTaskConstant.*;
@@ -45,6 +47,11 @@ public class HttpTask implements Task {
 
     @Override
     public void execute(Context ctx) throws Exception {
+        if (ctx.getVariable(REQUESTS_KEY) != null) {
+            setOutVariable(ctx, executeBatch(ctx));
+            return;
+        }
+
         Configuration config = Configuration.custom().build(ctx);
 
         setOutVariable(ctx, executeRequest(config));
@@ -80,6 +87,24 @@ public class HttpTask implements Task {
         return response;
     }
 
+    /**
+     * Method to execute the list of requests specified in the {@code requests} parameter
+     *
+     * @param ctx {@link Context}
+     * @return Map
+     * @throws Exception exception
+     */
+    private Map<String, Object> executeBatch(Context ctx) throws Exception {
+        String workDir = (String) ctx.getVariable(Constants.Context.WORK_DIR_KEY);
+        Map<String, Object> input = Configuration.getInput(ctx);
+
+        Map<String, Object> response = HttpBatch.execute(workDir, input);
+        log.info("Batch size: {}", ((List<?>) response.get(RESPONSES_PARAM)).size());
+        log.info("Success response: {}", response.get(SUCCESS_PARAM));
+
+        return response;
+    }
+
     /**
      * Method to set the response in the output variable
      *
@@ -163,10 +188,12 @@ public class HttpTask implements Task {
         static final String IGNORE_ERRORS_KEY = "ignoreErrors";
         static final String METHOD_KEY = "method";
         static final String OUT_KEY = "out";
+        static final String PARALLELISM_KEY = "parallelism";
         static final String PASSWORD_KEY = "password"; // NOSONAR
         static final String PROXY_KEY = "proxy";
         static final String QUERY_KEY = "query";
         static final String REQUEST_KEY = "request";
+        static final String REQUESTS_KEY = "requests";
         static final String REQUEST_TIMEOUT_KEY = "requestTimeout";
         static final String RESPONSE_KEY = "response";
         static final String SOCKET_TIMEOUT_KEY = "socketTimeout";
@@ -186,10 +213,12 @@ public class HttpTask implements Task {
                 IGNORE_ERRORS_KEY,
                 METHOD_KEY,
                 OUT_KEY,
+                PARALLELISM_KEY,
                 PASSWORD_KEY,
                 PROXY_KEY,
                 QUERY_KEY,
                 REQUEST_KEY,
+                REQUESTS_KEY,
                 REQUEST_TIMEOUT_KEY,
                 RESPONSE_KEY,
                 SOCKET_TIMEOUT_KEY,
@@ -204,6 +233,8 @@ public class HttpTask implements Task {
 
         static final String SUCCESS_PARAM = "success";
         static final String STATUS_CODE_PARAM = "statusCode";
+        static final String ERROR_STRING_PARAM = "errorString";
+        static final String RESPONSES_PARAM = "responses";
 
         private HttpTaskConstant() {
         }
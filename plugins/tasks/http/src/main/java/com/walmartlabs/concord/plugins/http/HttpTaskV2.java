@@ -34,6 +34,11 @@ public class HttpTaskV2 implements Task {
     @Override
     public Serializable execute(TaskContext ctx) throws Exception {
         String workDir = ctx.workingDirectory().toString();
+
+        if (HttpBatch.isBatch(ctx.input())) {
+            return new HashMap<>(HttpBatch.execute(workDir, ctx.input()));
+        }
+
         Configuration config = Configuration.custom().build(workDir, ctx.input());
 
         Map<String, Object> response = SimpleHttpClient.create(config).execute().getResponse();
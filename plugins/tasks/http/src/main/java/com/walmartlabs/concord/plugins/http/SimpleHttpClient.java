@@ -26,21 +26,11 @@ import com.walmartlabs.concord.plugins.http.exception.RequestTimeoutException;
 import com.walmartlabs.concord.plugins.http.exception.UnauthorizedException;
 import com.walmartlabs.concord.plugins.http.request.HttpTaskRequest;
 import org.apache.http.*;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,9 +42,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileAttribute;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -67,15 +54,24 @@ public class SimpleHttpClient {
 
     private static final Logger log = LoggerFactory.getLogger(SimpleHttpClient.class);
 
+    /**
+     * Runs requests with a {@link Configuration#getRequestTimeout() request timeout}.
+     * Shared between all clients, threads are created on demand and discarded when idle.
+     */
+    private static final ExecutorService executorService = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "http-task-request");
+        t.setDaemon(true);
+        return t;
+    });
+
     private final Configuration config;
     private final CloseableHttpClient client;
     private final HttpUriRequest request;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 
     private SimpleHttpClient(Configuration config) throws Exception {
         this.config = config;
-        this.client = createClient(config);
+        this.client = HttpClientCache.get(config);
         this.request = buildHttpUriRequest(config);
     }
 
@@ -103,7 +99,11 @@ public class SimpleHttpClient {
                 logRequest(request);
             }
 
-            httpResponse = callWithTimeout(() -> this.client.execute(request), config.getRequestTimeout());
+            // the client is shared, use a separate cookie store for each call
+            HttpClientContext ctx = HttpClientContext.create();
+            ctx.setCookieStore(new BasicCookieStore());
+
+            httpResponse = callWithTimeout(() -> this.client.execute(request, ctx), config.getRequestTimeout());
 
             int code = httpResponse.getStatusLine().getStatusCode();
             if (isUnauthorized(code) && !config.isIgnoreErrors()) {
@@ -153,8 +153,6 @@ public class SimpleHttpClient {
 
                 httpResponse.close();
             }
-
-            this.client.close();
         }
     }
 
@@ -311,51 +309,6 @@ public class SimpleHttpClient {
         return HttpStatus.SC_UNAUTHORIZED == statusCode;
     }
 
-    /**
-     * Method to create {@link CloseableHttpClient client} with custom connection manager
-     *
-     * @return CloseableHttpClient client
-     * @throws Exception exception
-     */
-    private static CloseableHttpClient createClient(Configuration cfg) throws Exception {
-        RequestConfig.Builder c = RequestConfig.custom()
-                .setConnectTimeout(cfg.getConnectTimeout())
-                .setSocketTimeout(cfg.getSocketTimeout())
-                .setRedirectsEnabled(cfg.isFollowRedirects());
-
-        String proxy = cfg.getProxy();
-        if (proxy != null) {
-            log.info("Using proxy: {}", proxy);
-            c.setProxy(HttpHost.create(proxy));
-        }
-
-        return HttpClientBuilder.create()
-                .setConnectionManager(buildConnectionManager())
-                .setDefaultRequestConfig(c.build())
-                .build();
-    }
-
-    /**
-     * Method to build the connection manager
-     *
-     * @return HttpClientConnectionManager
-     * @throws KeyManagementException   keyManagementException
-     * @throws NoSuchAlgorithmException noSuchAlgorithmException
-     */
-    private static HttpClientConnectionManager buildConnectionManager() throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
-        SSLContextBuilder builder = new SSLContextBuilder();
-        builder.loadTrustMaterial(new TrustAllStrategy());
-        SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(
-                builder.build(), NoopHostnameVerifier.INSTANCE);
-
-        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.INSTANCE)
-                .register("https", socketFactory)
-                .build();
-
-        return new PoolingHttpClientConnectionManager(registry);
-    }
-
     private HttpUriRequest buildHttpUriRequest(Configuration cfg) throws Exception {
         switch (cfg.getMethodType()) {
             case DELETE:
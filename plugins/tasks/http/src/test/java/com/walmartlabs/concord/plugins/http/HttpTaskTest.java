@@ -25,9 +25,7 @@ import com.walmartlabs.concord.sdk.Context;
 import org.junit.Test;
 
 import java.io.File;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.Assert.*;
@@ -342,4 +340,69 @@ public class HttpTaskTest extends AbstractHttpTaskTest {
         task.execute(mockContext);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteBatch() throws Exception {
+        initCxtForRequest(mockContext, "GET", null, "string", null, false, 0);
+        when(mockContext.getVariable("parallelism")).thenReturn(2);
+        when(mockContext.getVariable("requests")).thenReturn(Arrays.asList(
+                Collections.singletonMap("url", "http://localhost:" + rule.port() + "/json"),
+                Collections.singletonMap("url", "http://localhost:" + rule.port() + "/string"),
+                Collections.singletonMap("url", "http://localhost:" + rule.port() + "/unsuccessful")));
+
+        task.execute(mockContext);
+
+        verify(getRequestedFor(urlEqualTo("/json")));
+        verify(getRequestedFor(urlEqualTo("/string")));
+        verify(getRequestedFor(urlEqualTo("/unsuccessful")));
+
+        assertEquals(false, response.get("success"));
+
+        List<Map<String, Object>> responses = (List<Map<String, Object>>) response.get("responses");
+        assertEquals(3, responses.size());
+        assertEquals(200, responses.get(0).get("statusCode"));
+        assertEquals(200, responses.get(1).get("statusCode"));
+        assertEquals(400, responses.get(2).get("statusCode"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteBatchWithErrors() throws Exception {
+        initCxtForRequest(mockContext, "GET", null, "string", null, false, 0);
+        when(mockContext.getVariable("requests")).thenReturn(Arrays.asList(
+                Collections.singletonMap("url", "http://localhost:" + rule.port() + "/fault"),
+                Collections.singletonMap("url", "http://localhost:" + rule.port() + "/string")));
+
+        task.execute(mockContext);
+
+        // the failed request doesn't discard the other responses
+        assertEquals(false, response.get("success"));
+
+        List<Map<String, Object>> responses = (List<Map<String, Object>>) response.get("responses");
+        assertEquals(2, responses.size());
+        assertEquals(false, responses.get(0).get("success"));
+        assertNotNull(responses.get(0).get("errorString"));
+        assertEquals(true, responses.get(1).get("success"));
+        assertEquals(200, responses.get(1).get("statusCode"));
+    }
+
+    @Test
+    public void testCookiesAreNotShared() throws Exception {
+        rule.stubFor(get(urlEqualTo("/cookie"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Set-Cookie", "session=secret; Path=/")
+                        .withBody("ok")));
+
+        initCxtForRequest(mockContext, "GET", "string", "string",
+                "http://localhost:" + rule.port() + "/cookie", false, 0);
+        task.execute(mockContext);
+
+        initCxtForRequest(mockContext, "GET", "string", "string",
+                "http://localhost:" + rule.port() + "/string", false, 0);
+        task.execute(mockContext);
+
+        verify(getRequestedFor(urlEqualTo("/string"))
+                .withHeader("Cookie", absent()));
+    }
 }
@@ -23,6 +23,9 @@ package com.walmartlabs.concord.plugins.kv;
 import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.client.ProcessKvStoreApi;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public final class KvTaskUtils {
@@ -69,6 +72,47 @@ public final class KvTaskUtils {
                 api.incLong(txId, key));
     }
 
+    public static Map<String, String> getStrings(ProcessKvStoreApi api, UUID txId, List<String> keys) throws Exception {
+        assertValidKeys(keys);
+        return ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () ->
+                api.getStrings(txId, keys));
+    }
+
+    public static void putStrings(ProcessKvStoreApi api, UUID txId, Map<String, String> values) throws Exception {
+        assertValidKeys(values.keySet());
+        ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () -> {
+            api.putStrings(txId, values);
+            return null;
+        });
+    }
+
+    public static Map<String, Long> getLongs(ProcessKvStoreApi api, UUID txId, List<String> keys) throws Exception {
+        assertValidKeys(keys);
+        return ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () ->
+                api.getLongs(txId, keys));
+    }
+
+    public static void putLongs(ProcessKvStoreApi api, UUID txId, Map<String, Long> values) throws Exception {
+        assertValidKeys(values.keySet());
+        ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () -> {
+            api.putLongs(txId, values);
+            return null;
+        });
+    }
+
+    public static Map<String, Long> incLongs(ProcessKvStoreApi api, UUID txId, List<String> keys) throws Exception {
+        assertValidKeys(keys);
+        return ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () ->
+                api.incLongs(txId, keys));
+    }
+
+    private static void assertValidKeys(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("Keys are required");
+        }
+        keys.forEach(KvTaskUtils::assertValidKey);
+    }
+
     private static void assertValidKey(String s) {
         if (s == null || s.isEmpty()) {
             throw new IllegalArgumentException("Keys cannot be empty or null");
@@ -27,6 +27,8 @@ import com.walmartlabs.concord.runtime.v2.sdk.Task;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Named("kv")
@@ -80,4 +82,39 @@ public class KvTaskV2 implements Task {
         ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
         return KvTaskUtils.incLong(api, txId, key);
     }
+
+    public Map<String, String> getStrings(List<String> keys) throws Exception {
+        UUID txId = processInstanceId.getValue();
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        return KvTaskUtils.getStrings(api, txId, keys);
+    }
+
+    public void putStrings(Map<String, String> values) throws Exception {
+        UUID txId = processInstanceId.getValue();
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        KvTaskUtils.putStrings(api, txId, values);
+    }
+
+    public Map<String, Long> getLongs(List<String> keys) throws Exception {
+        UUID txId = processInstanceId.getValue();
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        return KvTaskUtils.getLongs(api, txId, keys);
+    }
+
+    public void putLongs(Map<String, Long> values) throws Exception {
+        UUID txId = processInstanceId.getValue();
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        KvTaskUtils.putLongs(api, txId, values);
+    }
+
+    /**
+     * Increments multiple keys in a single request.
+     *
+     * @return the updated values
+     */
+    public Map<String, Long> incLongs(List<String> keys) throws Exception {
+        UUID txId = processInstanceId.getValue();
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        return KvTaskUtils.incLongs(api, txId, keys);
+    }
 }
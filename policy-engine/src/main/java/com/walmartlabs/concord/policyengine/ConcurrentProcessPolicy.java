@@ -22,6 +22,7 @@ package com.walmartlabs.concord.policyengine;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
 public class ConcurrentProcessPolicy {
@@ -55,4 +56,32 @@ public class ConcurrentProcessPolicy {
         }
         return CheckResult.success();
     }
+
+    /**
+     * Same as {@link #check(Supplier, Supplier)}, but uses the number of
+     * processes to check the limits. The list of processes is fetched
+     * only if the limit is exceeded.
+     */
+    public CheckResult<ConcurrentProcessRule, List<UUID>> check(
+            IntSupplier processCountPerOrg,
+            IntSupplier processCountPerProject,
+            Supplier<List<UUID>> processPerOrg,
+            Supplier<List<UUID>> processPerProject) {
+
+        if (rule == null || (rule.getMaxPerOrg() == null && rule.getMaxPerProject() == null)) {
+            return CheckResult.success();
+        }
+
+        if (rule.getMaxPerOrg() != null) {
+            if (processCountPerOrg.getAsInt() >= rule.getMaxPerOrg()) {
+                return CheckResult.error(new CheckResult.Item<>(rule, processPerOrg.get()));
+            }
+        } else {
+            if (processCountPerProject.getAsInt() >= rule.getMaxPerProject()) {
+                return CheckResult.error(new CheckResult.Item<>(rule, processPerProject.get()));
+            }
+        }
+
+        return CheckResult.success();
+    }
 }
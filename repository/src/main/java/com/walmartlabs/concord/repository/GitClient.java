@@ -37,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.regex.Pattern;
 
 import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
@@ -50,6 +51,8 @@ public class GitClient {
 
     private static final int SUCCESS_EXIT_CODE = 0;
 
+    private static final Pattern COMMIT_ID_PATTERN = Pattern.compile("[0-9a-fA-F]{40}");
+
     private final long defaultTimeout;
     private final GitClientConfiguration cfg;
 
@@ -88,8 +91,13 @@ public class GitClient {
 
         launchCommand(dest, defaultTimeout, "config", "remote.origin.url", uri);
 
-        List<RefSpec> refspecs = Collections.singletonList(new RefSpec("+refs/heads/*:refs/remotes/origin/*"));
-        fetchCommand(uri, refspecs, secret, shallow, dest);
+        // commits are immutable, no need to go to the remote if we already have the commit
+        if (commitId != null && hasCommit(commitId, dest)) {
+            log.info("Commit '{}' is already present locally, skipping the fetch", commitId);
+        } else {
+            List<RefSpec> refspecs = Collections.singletonList(new RefSpec("+refs/heads/*:refs/remotes/origin/*"));
+            fetchCommand(uri, refspecs, secret, shallow, dest);
+        }
 
         ObjectId rev;
         if (commitId != null) {
@@ -201,6 +209,15 @@ public class GitClient {
         }
     }
 
+    private boolean hasCommit(String commitId, Path dest) {
+        // only full commit IDs, anything else (e.g. tags) might've changed on the remote
+        if (!COMMIT_ID_PATTERN.matcher(commitId).matches()) {
+            return false;
+        }
+
+        return getHeadRevision(commitId, dest) != null;
+    }
+
     private ObjectId revParse(String revName, Path dest) {
         String arg = revName + "^{commit}";
         String result = launchCommand(dest, defaultTimeout, "rev-parse", arg);
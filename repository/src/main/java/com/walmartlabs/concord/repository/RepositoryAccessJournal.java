@@ -54,7 +54,7 @@ public class RepositoryAccessJournal {
         this.journal = load(repoJournalPath);
     }
 
-    public void recordAccess(String repoUrl, Path repoLocalPath) throws IOException {
+    public synchronized void recordAccess(String repoUrl, Path repoLocalPath) throws IOException {
         RepositoryJournalItem item = RepositoryJournalItem.builder()
                 .repoUrl(repoUrl)
                 .repoPath(repoLocalPath)
@@ -65,7 +65,7 @@ public class RepositoryAccessJournal {
         objectMapper.writeValue(repoJournalPath(repoUrl).toFile(), item);
     }
 
-    public void removeRecord(String repoUrl) throws IOException {
+    public synchronized void removeRecord(String repoUrl) throws IOException {
         Files.deleteIfExists(repoJournalPath(repoUrl));
         journal.remove(repoUrl);
     }
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 public class RepositoryCache {
 
@@ -44,7 +45,7 @@ public class RepositoryCache {
     private final long lockTimeout;
     private final long maxCacheAge;
 
-    private final Striped<Lock> locks;
+    private final Striped<ReadWriteLock> locks;
 
     private long nextCleanup = -1;
 
@@ -59,7 +60,7 @@ public class RepositoryCache {
         this.lockTimeout = lockTimeout;
         this.accessJournal = maxCacheAge > 0 ? new RepositoryAccessJournal(objectMapper, repoJournalPath) : null;
         this.maxCacheAge = maxCacheAge;
-        this.locks = Striped.lock(lockCount);
+        this.locks = Striped.readWriteLock(lockCount);
     }
 
     public Path getPath(String repositoryUrl) {
@@ -77,6 +78,9 @@ public class RepositoryCache {
         return repoPath;
     }
 
+    /**
+     * Calls {@code f} while holding the exclusive lock for the specified repository.
+     */
     public <T> T withLock(String repoUrl, Callable<T> f) {
         try {
             return withLock(lockTimeout, repoUrl, f);
@@ -85,12 +89,64 @@ public class RepositoryCache {
         }
     }
 
+    /**
+     * Calls {@code lookup} while holding the shared lock for the specified repository.
+     * If it returns {@code null} (e.g. the local copy must be updated), calls {@code update}
+     * while holding the exclusive lock, then downgrades the lock to a shared one.
+     * Finally, calls {@code read} with the result while still holding the shared lock.
+     * <p>
+     * Multiple {@code lookup} and {@code read} calls for the same repository can run
+     * concurrently. The next update waits for all of them to finish.
+     */
+    public <T, R> R withLock(String repoUrl, Callable<T> lookup, Callable<T> update, ReadAction<T, R> read) {
+        try {
+            ReadWriteLock rwl = locks.get(repoUrl);
+
+            Lock l = lock(rwl.readLock(), repoUrl);
+            try {
+                T result = lookup.call();
+                if (result == null) {
+                    // the read lock can't be upgraded
+                    l.unlock();
+                    l = null;
+
+                    l = lock(rwl.writeLock(), repoUrl);
+                    result = update.call();
+
+                    // downgrade the lock, acquiring the read lock while holding the write lock never blocks
+                    Lock readLock = rwl.readLock();
+                    readLock.lock();
+                    l.unlock();
+                    l = readLock;
+                }
+
+                return read.apply(result);
+            } finally {
+                if (l != null) {
+                    l.unlock();
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            cleanup();
+        }
+    }
+
     private <T> T withLock(long lockTimeout, String repoUrl, Callable<T> f) {
-        Lock l = locks.get(repoUrl);
+        Lock l = locks.get(repoUrl).writeLock();
         try {
             if (!l.tryLock(lockTimeout, TimeUnit.MILLISECONDS)) {
                 throw new IllegalStateException("Timeout waiting for the repository lock. Repository url: " + repoUrl);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        try {
             return f.call();
         } catch (IllegalArgumentException e) {
             throw e;
@@ -101,6 +157,13 @@ public class RepositoryCache {
         }
     }
 
+    private Lock lock(Lock l, String repoUrl) throws InterruptedException {
+        if (!l.tryLock(lockTimeout, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timeout waiting for the repository lock. Repository url: " + repoUrl);
+        }
+        return l;
+    }
+
     private void cleanup() {
         if (maxCacheAge == 0) {
             return;
@@ -139,4 +202,10 @@ public class RepositoryCache {
 
         return encodedUrl;
     }
+
+    @FunctionalInterface
+    public interface ReadAction<T, R> {
+
+        R apply(T t) throws Exception;
+    }
 }
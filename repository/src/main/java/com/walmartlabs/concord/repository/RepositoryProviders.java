@@ -38,6 +38,17 @@ public class RepositoryProviders {
         RepositoryProvider provider = getProvider(url);
         provider.fetch(url, branch, commitId, secret, destDir);
 
+        return open(provider, branch, path, destDir);
+    }
+
+    /**
+     * Returns a previously fetched repository without updating it.
+     */
+    public Repository open(String url, String branch, String path, Path destDir) {
+        return open(getProvider(url), branch, path, destDir);
+    }
+
+    private static Repository open(RepositoryProvider provider, String branch, String path, Path destDir) {
         Path repoPath = repoPath(destDir, path);
 
         return new Repository(provider.getBranchOrDefault(branch), destDir, repoPath, provider);
@@ -0,0 +1,104 @@
+package com.walmartlabs.concord.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Uses local repositories created with the git CLI.
+ */
+public class GitClientLocalTest {
+
+    @Test
+    public void testFetchSkippedForKnownCommit() throws Exception {
+        GitClient client = new GitClient(GitClientConfiguration.builder().build());
+
+        try (TemporaryPath origin = IOUtils.tempDir("git-client-origin");
+             TemporaryPath dest = IOUtils.tempDir("git-client-dest")) {
+
+            String commitId = commit(origin.path(), "v1");
+            String url = origin.path().toUri().toString();
+
+            client.fetch(url, null, commitId, null, dest.path());
+            assertEquals("v1", new String(Files.readAllBytes(dest.path().resolve("test"))).trim());
+
+            // the remote is gone, a fetch would fail
+            IOUtils.deleteRecursively(origin.path());
+
+            client.fetch(url, null, commitId, null, dest.path());
+            assertEquals("v1", new String(Files.readAllBytes(dest.path().resolve("test"))).trim());
+
+            // unknown commits still require a fetch
+            try {
+                client.fetch(url, null, "0123456789012345678901234567890123456789", null, dest.path());
+                fail("exception expected");
+            } catch (RepositoryException e) {
+                // expected
+            }
+        }
+    }
+
+    private static String commit(Path repo, String content) throws Exception {
+        if (!Files.exists(repo.resolve(".git"))) {
+            git(repo, "init");
+        }
+
+        Files.write(repo.resolve("test"), content.getBytes());
+        git(repo, "add", "test");
+        git(repo, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-m", content);
+        return git(repo, "rev-parse", "HEAD").trim();
+    }
+
+    private static String git(Path workDir, String... args) throws Exception {
+        String[] cmd = new String[args.length + 1];
+        cmd[0] = "git";
+        System.arraycopy(args, 0, cmd, 1, args.length);
+
+        Process p = new ProcessBuilder(cmd)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .start();
+
+        String out = read(p.getInputStream());
+        if (p.waitFor() != 0) {
+            throw new IOException("git error: " + out);
+        }
+        return out;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(in, out);
+        return new String(out.toByteArray());
+    }
+}
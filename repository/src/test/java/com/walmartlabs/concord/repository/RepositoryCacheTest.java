@@ -0,0 +1,98 @@
+package com.walmartlabs.concord.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryCacheTest {
+
+    @Test(timeout = 10000)
+    public void testSharedReads() throws Exception {
+        String url = "https://example.com/repo.git";
+
+        try (TemporaryPath cacheDir = IOUtils.tempDir("repository-cache-test");
+             TemporaryPath infoDir = IOUtils.tempDir("repository-cache-info-test")) {
+
+            RepositoryCache cache = new RepositoryCache(cacheDir.path(), infoDir.path(), 5000, 0, 16, new ObjectMapper());
+
+            int readers = 3;
+            CountDownLatch allReading = new CountDownLatch(readers);
+            ExecutorService executor = Executors.newFixedThreadPool(readers);
+            try {
+                Future<?>[] results = new Future[readers];
+                for (int i = 0; i < readers; i++) {
+                    results[i] = executor.submit(() -> cache.withLock(url, () -> "fetched", () -> "updated", s -> {
+                        // all readers must hold the lock at the same time
+                        allReading.countDown();
+                        assertTrue(allReading.await(5, TimeUnit.SECONDS));
+                        return s;
+                    }));
+                }
+
+                for (Future<?> r : results) {
+                    assertEquals("fetched", r.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // the exclusive lock is available again
+            assertEquals("updated", cache.withLock(url, () -> "updated"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testUpdateOnMiss() throws Exception {
+        String url = "https://example.com/repo.git";
+
+        try (TemporaryPath cacheDir = IOUtils.tempDir("repository-cache-test");
+             TemporaryPath infoDir = IOUtils.tempDir("repository-cache-info-test")) {
+
+            RepositoryCache cache = new RepositoryCache(cacheDir.path(), infoDir.path(), 5000, 0, 16, new ObjectMapper());
+
+            AtomicReference<String> cached = new AtomicReference<>();
+            AtomicInteger updates = new AtomicInteger();
+
+            Callable<String> update = () -> {
+                updates.incrementAndGet();
+                cached.set("fetched");
+                return "fetched";
+            };
+
+            assertEquals("fetched", cache.withLock(url, cached::get, update, s -> s));
+            assertEquals("fetched", cache.withLock(url, cached::get, update, s -> s));
+            assertEquals(1, updates.get());
+
+            // the exclusive lock is released after the downgrade
+            assertEquals("updated", cache.withLock(url, () -> "updated"));
+        }
+    }
+}
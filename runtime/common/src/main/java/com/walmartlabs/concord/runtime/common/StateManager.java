@@ -20,17 +20,20 @@ package com.walmartlabs.concord.runtime.common;
  * =====
  */
 
+import com.google.common.hash.Hashing;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.forms.Form;
 import com.walmartlabs.concord.sdk.Constants;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
@@ -114,9 +117,9 @@ public final class StateManager {
             throw new IllegalStateException("Can't read the state file. File not found: " + p);
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(p))) {
-            return type.cast(in.readObject());
-        } catch (ClassNotFoundException | IOException e) {
+        try (InputStream in = Files.newInputStream(p)) {
+            return StateSerializer.deserialize(in, type);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -130,6 +133,55 @@ public final class StateManager {
         }
     }
 
+    /**
+     * Same as {@link #archive(Path, Serializable, Path)}, but includes only the files
+     * that were added or changed since the previous archive. Removed files are listed
+     * in {@link Constants.Files#CHECKPOINT_DELETED_FILES_FILE_NAME}.
+     *
+     * @param previousHashes hashes of the files in the previous archive (see the return value),
+     *                       an empty map to archive everything
+     * @return hashes of all files in the archived state, keyed by their path in the archive
+     */
+    public static Map<String, String> archiveChanges(Path baseDir, Serializable state, Map<String, String> previousHashes, Path result) throws IOException {
+        saveState(baseDir, state);
+
+        Map<String, Path> files = new TreeMap<>();
+        collectFiles(baseDir, Constants.Files.JOB_ATTACHMENTS_DIR_NAME, files);
+        collectFiles(baseDir, Constants.Files.CONCORD_SYSTEM_DIR_NAME, files);
+
+        Map<String, String> hashes = new HashMap<>(files.size());
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(Files.newOutputStream(result))) {
+            for (Map.Entry<String, Path> e : files.entrySet()) {
+                String name = e.getKey();
+                Path src = e.getValue();
+
+                String hash = com.google.common.io.Files.asByteSource(src.toFile()).hash(Hashing.sha256()).toString();
+                hashes.put(name, hash);
+
+                if (!hash.equals(previousHashes.get(name))) {
+                    IOUtils.zipFile(zip, src, name);
+                }
+            }
+
+            List<String> deleted = previousHashes.keySet().stream()
+                    .filter(n -> !hashes.containsKey(n))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            if (!deleted.isEmpty()) {
+                Path tmp = IOUtils.createTempFile("checkpoint", "deleted");
+                try {
+                    Files.write(tmp, deleted, StandardCharsets.UTF_8);
+                    IOUtils.zipFile(zip, tmp, Constants.Files.CHECKPOINT_DELETED_FILES_FILE_NAME);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        }
+
+        return hashes;
+    }
+
     public static void persist(Path baseDir, String storeName, Serializable object) throws IOException {
         Path storageDir = baseDir.resolve(Constants.Files.JOB_ATTACHMENTS_DIR_NAME)
                 .resolve("storage"); // TODO: constants
@@ -160,6 +212,18 @@ public final class StateManager {
         }
     }
 
+    private static void collectFiles(Path baseDir, String dirName, Map<String, Path> result) throws IOException {
+        Path src = baseDir.resolve(dirName);
+        if (Files.notExists(src)) {
+            return;
+        }
+
+        try (Stream<Path> s = Files.walk(src)) {
+            s.filter(Files::isRegularFile)
+                    .forEach(p -> result.put(dirName + "/" + src.relativize(p), p));
+        }
+    }
+
     private static void zip(ZipArchiveOutputStream zip, String name, Path src) throws IOException {
         if (Files.notExists(src)) {
             return;
@@ -178,8 +242,8 @@ public final class StateManager {
         Path dst = stateDir.resolve("instance");
 
         Path tmp = IOUtils.createTempFile("instance", "state");
-        try (OutputStream out = Files.newOutputStream(tmp)) {
-            SerializationUtils.serialize(out, state);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            StateSerializer.serialize(out, state);
         }
         Files.move(tmp, dst, REPLACE_EXISTING);
     }
@@ -0,0 +1,135 @@
+package com.walmartlabs.concord.runtime.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serializes the process state using a compact, versioned format:
+ * <pre>
+ * magic (4 bytes) | version (1 byte) | deflate-compressed object stream
+ * </pre>
+ * Equal strings are written only once and referenced afterwards (a "string
+ * table"), the same goes for objects shared between frames and threads
+ * (e.g. commands).
+ * <p>
+ * States saved by the previous versions (plain Java serialization) are
+ * detected by the absence of the header and read as is.
+ */
+public final class StateSerializer {
+
+    private static final Logger log = LoggerFactory.getLogger(StateSerializer.class);
+
+    private static final byte[] MAGIC = {'C', 'S', 'T', 'S'};
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void serialize(OutputStream out, Serializable state) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream oos = new CompactObjectOutputStream(new DeflaterOutputStream(out, deflater, BUFFER_SIZE))) {
+            oos.writeObject(state);
+        } catch (NotSerializableException e) {
+            log.warn("Check if you're setting any not serializable values in your 'script', 'task' or 'form' steps: {}", e.getMessage());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static <T> T deserialize(InputStream in, Class<T> expectedType) throws IOException {
+        BufferedInputStream bin = new BufferedInputStream(in, BUFFER_SIZE);
+
+        bin.mark(MAGIC.length + 1);
+        byte[] header = new byte[MAGIC.length];
+        int n = readFully(bin, header);
+
+        InputStream data;
+        if (n == MAGIC.length && Arrays.equals(MAGIC, header)) {
+            int version = bin.read();
+            if (version < 0) {
+                throw new EOFException("Truncated state data: missing the format version");
+            }
+            if (version != VERSION) {
+                throw new IOException("Unsupported state format version: " + version);
+            }
+            data = new InflaterInputStream(bin);
+        } else {
+            // the previous format - a plain object stream
+            bin.reset();
+            data = bin;
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(data)) {
+            return expectedType.cast(ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Can't deserialize a value into " + expectedType + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] ab) throws IOException {
+        int total = 0;
+        while (total < ab.length) {
+            int n = in.read(ab, total, ab.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Replaces equal strings with a single instance, so each unique string
+     * is written once and referenced by a handle afterwards.
+     */
+    private static final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        private final Map<String, String> strings = new HashMap<>();
+
+        private CompactObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof String) {
+                return strings.computeIfAbsent((String) obj, k -> k);
+            }
+            return obj;
+        }
+    }
+
+    private StateSerializer() {
+    }
+}
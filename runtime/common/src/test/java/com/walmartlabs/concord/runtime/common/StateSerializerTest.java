@@ -0,0 +1,130 @@
+package com.walmartlabs.concord.runtime.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StateSerializerTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        HashMap<String, Object> state = newState();
+
+        byte[] ab = serialize(state);
+        assertEquals('C', ab[0]);
+        assertEquals('S', ab[1]);
+        assertEquals('T', ab[2]);
+        assertEquals('S', ab[3]);
+        assertEquals(1, ab[4]);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = StateSerializer.deserialize(new ByteArrayInputStream(ab), Map.class);
+        assertEquals(state, result);
+
+        // references to the same object are preserved
+        List<?> a = (List<?>) result.get("a");
+        List<?> b = (List<?>) result.get("b");
+        assertSame(a, b);
+    }
+
+    @Test
+    public void testLegacyFormat() throws Exception {
+        HashMap<String, Object> state = newState();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(state);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = StateSerializer.deserialize(new ByteArrayInputStream(out.toByteArray()), Map.class);
+        assertEquals(state, result);
+    }
+
+    @Test
+    public void testUnexpectedType() throws Exception {
+        byte[] ab = serialize(newState());
+        assertThrows(ClassCastException.class, () -> StateSerializer.deserialize(new ByteArrayInputStream(ab), List.class));
+    }
+
+    @Test
+    public void testCorruptedHeader() throws Exception {
+        byte[] ab = serialize(newState());
+
+        // not our magic, treated (and rejected) as a plain object stream
+        byte[] corrupted = ab.clone();
+        corrupted[3] = 'X';
+        assertThrows(IOException.class, () -> deserialize(corrupted));
+
+        // unknown version
+        byte[] unknownVersion = ab.clone();
+        unknownVersion[4] = 2;
+        IOException e = assertThrows(IOException.class, () -> deserialize(unknownVersion));
+        assertTrue(e.getMessage().contains("version"));
+
+        // garbage after the header
+        byte[] garbage = ab.clone();
+        Arrays.fill(garbage, 5, garbage.length, (byte) 0x7f);
+        assertThrows(IOException.class, () -> deserialize(garbage));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        byte[] ab = serialize(newState());
+
+        assertThrows(IOException.class, () -> deserialize(new byte[0]));
+        assertThrows(IOException.class, () -> deserialize(Arrays.copyOf(ab, 2)));
+        assertThrows(EOFException.class, () -> deserialize(Arrays.copyOf(ab, 4)));
+        assertThrows(IOException.class, () -> deserialize(Arrays.copyOf(ab, 5)));
+        assertThrows(IOException.class, () -> deserialize(Arrays.copyOf(ab, ab.length / 2)));
+    }
+
+    private static HashMap<String, Object> newState() {
+        List<String> shared = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // equal but not identical strings
+            shared.add(new String("item"));
+            shared.add("item" + i);
+        }
+
+        HashMap<String, Object> state = new HashMap<>();
+        state.put("a", shared);
+        state.put("b", shared);
+        state.put("n", 123);
+        state.put("nested", Collections.singletonMap("k", new ArrayList<>(Arrays.asList("x", "y", null))));
+        return state;
+    }
+
+    private static byte[] serialize(Serializable state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateSerializer.serialize(out, state);
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(byte[] ab) throws IOException {
+        return StateSerializer.deserialize(new ByteArrayInputStream(ab), Object.class);
+    }
+}
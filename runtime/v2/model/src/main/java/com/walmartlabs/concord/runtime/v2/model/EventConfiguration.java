@@ -81,6 +81,51 @@ public interface EventConfiguration extends Serializable {
         return Collections.emptyList();
     }
 
+    /**
+     * Max number of events sent to the server in a single request.
+     */
+    @Value.Default
+    default int batchSize() {
+        return 100;
+    }
+
+    /**
+     * Max delay (ms) before the recorded events are sent to the server.
+     */
+    @Value.Default
+    default long batchFlushInterval() {
+        return 1000;
+    }
+
+    /**
+     * Max number of events waiting to be sent.
+     */
+    @Value.Default
+    default int maxQueueSize() {
+        return 10000;
+    }
+
+    /**
+     * What to do when the queue of events is full.
+     */
+    @Value.Default
+    default QueueOverflowPolicy queueOverflowPolicy() {
+        return QueueOverflowPolicy.BLOCK;
+    }
+
+    enum QueueOverflowPolicy {
+
+        /**
+         * Wait until there is enough space in the queue.
+         */
+        BLOCK,
+
+        /**
+         * Discard the new events.
+         */
+        DROP
+    }
+
     static ImmutableEventConfiguration.Builder builder() {
         return ImmutableEventConfiguration.builder();
     }
@@ -47,6 +47,13 @@ public interface FlowCallOptions extends StepOptions {
     @Nullable
     WithItems withItems();
 
+    /**
+     * Max number of {@link #withItems()} iterations to run concurrently.
+     * If not specified, the iterations are executed sequentially.
+     */
+    @Nullable
+    Integer parallelism();
+
     @Nullable
     Retry retry();
 
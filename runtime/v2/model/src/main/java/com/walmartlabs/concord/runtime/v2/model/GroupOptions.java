@@ -41,6 +41,13 @@ public interface GroupOptions extends StepOptions {
     @Nullable
     WithItems withItems();
 
+    /**
+     * Max number of {@link #withItems()} iterations to run concurrently.
+     * If not specified, the iterations are executed sequentially.
+     */
+    @Nullable
+    Integer parallelism();
+
     static ImmutableGroupOptions.Builder builder() {
         return ImmutableGroupOptions.builder();
     }
@@ -42,6 +42,7 @@ public final class FlowCallGrammar {
                             optional("out", stringVal.map(o::out)),
                             optional("meta", mapVal.map(o::meta)),
                             optional("withItems", nonNullVal.map(v -> o.withItems(WithItems.of(v)))),
+                            optional("parallelism", intVal.map(o::parallelism)),
                             optional("retry", retryVal.map(o::retry))
                     ))
                     .map(ImmutableFlowCallOptions.Builder::build);
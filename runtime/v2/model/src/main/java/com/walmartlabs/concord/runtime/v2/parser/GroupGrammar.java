@@ -37,6 +37,7 @@ public final class GroupGrammar {
                     o -> options(
                             optional("error", stepsVal.map(o::errorSteps)),
                             optional("withItems", nonNullVal.map(v -> o.withItems(WithItems.of(v)))),
+                            optional("parallelism", intVal.map(o::parallelism)),
                             optional("meta", mapVal.map(o::meta))
                     ))
                     .map(ImmutableGroupOptions.Builder::build);
@@ -22,6 +22,7 @@ package com.walmartlabs.concord.runtime.v2.runner.checkpoints;
 
 import com.walmartlabs.concord.ApiClient;
 import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.ApiResponse;
 import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.runtime.common.StateManager;
 import com.walmartlabs.concord.runtime.common.cfg.ApiConfiguration;
@@ -38,6 +39,7 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -51,6 +53,15 @@ public class DefaultCheckpointService implements CheckpointService {
     private final ApiClient apiClient;
     private final ApiConfiguration apiConfiguration;
 
+    /**
+     * ID of the last successfully uploaded checkpoint. Subsequent checkpoints
+     * contain only the changes made since that checkpoint.
+     * Set only if the server supports incremental checkpoints, see
+     * {@link Constants.Headers#INCREMENTAL_CHECKPOINTS}.
+     */
+    private UUID lastCheckpointId;
+    private Map<String, String> lastFileHashes = Collections.emptyMap();
+
     @Inject
     public DefaultCheckpointService(InstanceId instanceId, WorkingDirectory workingDirectory, RunnerConfiguration configuration, ApiClient apiClient) {
         this.instanceId = instanceId;
@@ -60,19 +71,34 @@ public class DefaultCheckpointService implements CheckpointService {
     }
 
     @Override
-    public void create(String name, Runtime runtime, ProcessSnapshot snapshot) {
+    public synchronized void create(String name, Runtime runtime, ProcessSnapshot snapshot) {
         UUID checkpointId = UUID.randomUUID();
 
         Path checkpointArchive = null;
         try {
-            checkpointArchive = archiveState(checkpointId, name, snapshot);
+            checkpointArchive = createArchive(checkpointId, name);
+            Map<String, String> fileHashes = StateManager.archiveChanges(workingDirectory.getValue(), snapshot, lastFileHashes, checkpointArchive);
 
             Map<String, Object> data = new HashMap<>();
             data.put("id", checkpointId);
             data.put("name", name);
             data.put("data", checkpointArchive);
+            if (lastCheckpointId != null) {
+                data.put("parentId", lastCheckpointId);
+            }
+
+            long t1 = System.currentTimeMillis();
+            boolean incremental = uploadCheckpoint(instanceId.getValue(), data);
+            long t2 = System.currentTimeMillis();
 
-            uploadCheckpoint(instanceId.getValue(), data);
+            log.info("create ['{}'] -> uploaded {} bytes ({} files, parent: {}) in {}ms",
+                    name, Files.size(checkpointArchive), fileHashes.size(), lastCheckpointId, (t2 - t1));
+
+            // older servers store all checkpoints as full ones, keep sending the full state
+            if (incremental) {
+                lastCheckpointId = checkpointId;
+                lastFileHashes = fileHashes;
+            }
         } catch (Exception e) {
             throw new RuntimeException("Checkpoint upload error", e);
         } finally {
@@ -88,23 +114,28 @@ public class DefaultCheckpointService implements CheckpointService {
         log.info("create ['{}'] -> done", name);
     }
 
-    private Path archiveState(UUID checkpointId, String checkpointName, ProcessSnapshot snapshot) throws IOException {
+    private Path createArchive(UUID checkpointId, String checkpointName) throws IOException {
         Path checkpointDir = workingDirectory.getValue().resolve(Constants.Files.JOB_CHECKPOINTS_DIR_NAME);
         if (!Files.exists(checkpointDir)) {
             Files.createDirectories(checkpointDir);
         }
 
-        Path result = checkpointDir.resolve(checkpointId + "_" + checkpointName + ".zip");
-        StateManager.archive(workingDirectory.getValue(), snapshot, result);
-        return result;
+        return checkpointDir.resolve(checkpointId + "_" + checkpointName + ".zip");
     }
 
-    private void uploadCheckpoint(UUID instanceId, Map<String, Object> data) throws ApiException {
+    /**
+     * @return {@code true} if the server supports incremental checkpoints
+     */
+    private boolean uploadCheckpoint(UUID instanceId, Map<String, Object> data) throws ApiException {
         String path = "/api/v1/process/" + instanceId + "/checkpoint";
 
-        ClientUtils.withRetry(apiConfiguration.retryCount(), apiConfiguration.retryInterval(), () -> {
-            ClientUtils.postData(apiClient, path, data, null);
-            return null;
-        });
+        ApiResponse<Void> resp = ClientUtils.withRetry(apiConfiguration.retryCount(), apiConfiguration.retryInterval(),
+                () -> ClientUtils.postData(apiClient, path, data, null));
+
+        // older servers don't send the header at all
+        return resp.getHeaders().entrySet().stream()
+                .filter(e -> Constants.Headers.INCREMENTAL_CHECKPOINTS.equalsIgnoreCase(e.getKey()))
+                .flatMap(e -> e.getValue().stream())
+                .anyMatch(Boolean::parseBoolean);
     }
 }
@@ -57,7 +57,7 @@ public class FlowCallCompiler implements StepCompiler<FlowCall> {
         // add "withItems" if needed
         WithItems withItems = options != null ? options.withItems() : null;
         if (withItems != null) {
-            cmd = new WithItemsWrapper(cmd, withItems);
+            cmd = new WithItemsWrapper(cmd, withItems, options.parallelism(), null);
         }
 
         return cmd;
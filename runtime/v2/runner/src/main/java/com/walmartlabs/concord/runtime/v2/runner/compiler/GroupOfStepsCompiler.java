@@ -57,7 +57,7 @@ public final class GroupOfStepsCompiler implements StepCompiler<GroupOfSteps> {
         // add "withItems" if needed
         WithItems withItems = options != null ? options.withItems() : null;
         if (withItems != null) {
-            return new WithItemsWrapper(cmd, withItems);
+            return new WithItemsWrapper(cmd, withItems, options.parallelism(), null);
         }
 
         return cmd;
@@ -53,7 +53,7 @@ public final class ScriptCallCompiler implements StepCompiler<ScriptCall> {
 
         WithItems withItems = options.withItems();
         if (withItems != null) {
-            cmd = new WithItemsWrapper(cmd, withItems);
+            cmd = new WithItemsWrapper(cmd, withItems, options.parallelism(), null);
         }
 
         List<Step> errorSteps = options.errorSteps();
@@ -51,7 +51,7 @@ public final class TaskCallCompiler implements StepCompiler<TaskCall> {
         // add "withItems" if needed
         WithItems withItems = options != null ? options.withItems() : null;
         if (withItems != null) {
-            cmd = new WithItemsWrapper(cmd, withItems);
+            cmd = new WithItemsWrapper(cmd, withItems, options.parallelism(), options.out());
         }
 
         // TODO add "error"
@@ -20,16 +20,16 @@ package com.walmartlabs.concord.runtime.v2.runner.el;
  * =====
  */
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.walmartlabs.concord.runtime.v2.runner.context.IntermediateGlobalsContext;
 import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskProviders;
 import com.walmartlabs.concord.runtime.v2.sdk.Context;
 import com.walmartlabs.concord.sdk.Constants;
 
 import javax.el.*;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Evaluates values. Allows partial evaluation of nested data.
@@ -39,11 +39,25 @@ public class LazyExpressionEvaluator implements ExpressionEvaluator {
     // TODO deprecate "execution"? what about scripts - can't use "context" there?
     private static final String[] CONTEXT_VARIABLE_NAMES = {Constants.Context.CONTEXT_KEY, "execution"};
 
+    private static final int EXPRESSION_CACHE_SIZE = 1024;
+
     private final ExpressionFactory expressionFactory = ExpressionFactory.newInstance();
     private final TaskProviders taskProviders;
+    private final ELResolver resolver;
+
+    private final Cache<CacheKey, ValueExpression> expressionCache;
 
     public LazyExpressionEvaluator(TaskProviders taskProviders) {
+        this(taskProviders, EXPRESSION_CACHE_SIZE);
+    }
+
+    LazyExpressionEvaluator(TaskProviders taskProviders, int expressionCacheSize) {
         this.taskProviders = taskProviders;
+        this.resolver = createResolver(expressionFactory);
+        this.expressionCache = CacheBuilder.newBuilder()
+                .maximumSize(expressionCacheSize)
+                .recordStats()
+                .build();
     }
 
     @Override
@@ -122,9 +136,14 @@ public class LazyExpressionEvaluator implements ExpressionEvaluator {
         return expectedType.cast(value);
     }
 
-    private <T> T evalExpr(Context ctx, String expr, Class<T> type) {
-        ELResolver resolver = createResolver(ctx, expressionFactory);
+    /**
+     * @return statistics of the parsed expression cache.
+     */
+    public CacheStats cacheStats() {
+        return expressionCache.stats();
+    }
 
+    private <T> T evalExpr(Context ctx, String expr, Class<T> type) {
         StandardELContext sc = new StandardELContext(expressionFactory) {
             @Override
             public ELResolver getELResolver() {
@@ -132,14 +151,15 @@ public class LazyExpressionEvaluator implements ExpressionEvaluator {
             }
         };
         sc.putContext(ExpressionFactory.class, expressionFactory);
+        sc.putContext(Context.class, ctx);
 
         // save the context as a variable
         VariableMapper vm = sc.getVariableMapper();
         for (String k : CONTEXT_VARIABLE_NAMES) {
-            vm.setVariable(k, expressionFactory.createValueExpression(ctx, Context.class));
+            vm.setVariable(k, ContextVariable.INSTANCE);
         }
 
-        ValueExpression x = expressionFactory.createValueExpression(sc, expr, type);
+        ValueExpression x = parse(sc, expr, type);
         try {
             Object v = x.getValue(sc);
             return type.cast(v);
@@ -149,14 +169,32 @@ public class LazyExpressionEvaluator implements ExpressionEvaluator {
         }
     }
 
+    /**
+     * Parsed expressions don't depend on the {@link ELContext} they were
+     * created with: the context variables are resolved on each evaluation,
+     * see {@link ContextVariable}.
+     */
+    private ValueExpression parse(ELContext elContext, String expr, Class<?> type) {
+        CacheKey k = new CacheKey(expr, type);
+
+        ValueExpression result = expressionCache.getIfPresent(k);
+        if (result == null) {
+            result = expressionFactory.createValueExpression(elContext, expr, type);
+            expressionCache.put(k, result);
+        }
+
+        return result;
+    }
+
     /**
      * Based on the original code from {@link StandardELContext#getELResolver()}.
      * Creates a {@link ELResolver} instance with "sub-resolvers" in the original order.
+     * The resolvers are stateless and shared by all evaluations.
      */
-    private ELResolver createResolver(Context ctx, ExpressionFactory expressionFactory) {
+    private ELResolver createResolver(ExpressionFactory expressionFactory) {
         CompositeELResolver r = new CompositeELResolver();
         r.add(new InjectVariableResolver());
-        r.add(new GlobalVariableResolver(ctx.globalVariables()));
+        r.add(new GlobalVariableResolver());
         r.add(new TaskResolver(taskProviders));
         r.add(expressionFactory.getStreamELResolver());
         r.add(new StaticFieldELResolver());
@@ -171,4 +209,87 @@ public class LazyExpressionEvaluator implements ExpressionEvaluator {
     private static boolean hasExpression(String s) {
         return s.contains("${");
     }
+
+    /**
+     * Returns the current Concord {@link Context} of the {@link ELContext}.
+     */
+    private static final class ContextVariable extends ValueExpression {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final ContextVariable INSTANCE = new ContextVariable();
+
+        @Override
+        public Object getValue(ELContext context) {
+            return context.getContext(Context.class);
+        }
+
+        @Override
+        public void setValue(ELContext context, Object value) {
+            throw new PropertyNotWritableException("The context variable is read-only");
+        }
+
+        @Override
+        public boolean isReadOnly(ELContext context) {
+            return true;
+        }
+
+        @Override
+        public Class<?> getType(ELContext context) {
+            return Context.class;
+        }
+
+        @Override
+        public Class<?> getExpectedType() {
+            return Context.class;
+        }
+
+        @Override
+        public String getExpressionString() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj == this;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public boolean isLiteralText() {
+            return false;
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final String expr;
+        private final Class<?> type;
+
+        private CacheKey(String expr, Class<?> type) {
+            this.expr = expr;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return expr.equals(cacheKey.expr) && type.equals(cacheKey.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(expr, type);
+        }
+    }
 }
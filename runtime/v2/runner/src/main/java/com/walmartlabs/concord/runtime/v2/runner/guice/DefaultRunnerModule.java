@@ -21,18 +21,22 @@ package com.walmartlabs.concord.runtime.v2.runner.guice;
  */
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Names;
 import com.walmartlabs.concord.ApiClient;
 import com.walmartlabs.concord.runtime.v2.runner.*;
 import com.walmartlabs.concord.runtime.v2.runner.checkpoints.CheckpointService;
 import com.walmartlabs.concord.runtime.v2.runner.checkpoints.DefaultCheckpointService;
 import com.walmartlabs.concord.runtime.v2.runner.remote.ApiClientProvider;
 import com.walmartlabs.concord.runtime.v2.runner.remote.DefaultProcessStatusCallback;
+import com.walmartlabs.concord.runtime.v2.runner.remote.ProcessEventSender;
 import com.walmartlabs.concord.runtime.v2.runner.remote.TaskCallEventRecordingListener;
 import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskCallListener;
 import com.walmartlabs.concord.runtime.v2.sdk.DockerService;
 import com.walmartlabs.concord.runtime.v2.sdk.FileService;
 import com.walmartlabs.concord.runtime.v2.sdk.SecretService;
+import com.walmartlabs.concord.svm.ExecutionListener;
 
 /**
  * Default set of services.
@@ -51,6 +55,10 @@ public class DefaultRunnerModule extends AbstractModule {
         bind(ProcessStatusCallback.class).to(DefaultProcessStatusCallback.class);
         bind(SecretService.class).to(DefaultSecretService.class);
 
+        // a single event queue per process, flushed when the process finishes or suspends
+        bind(ProcessEventSender.class).in(Singleton.class);
+        bind(ExecutionListener.class).annotatedWith(Names.named("processEventSender")).to(ProcessEventSender.class);
+
         Multibinder<TaskCallListener> taskCallListeners = Multibinder.newSetBinder(binder(), TaskCallListener.class);
         taskCallListeners.addBinding().to(TaskCallEventRecordingListener.class);
     }
@@ -21,11 +21,7 @@ package com.walmartlabs.concord.runtime.v2.runner.remote;
  */
 
 import com.fasterxml.jackson.core.JsonLocation;
-import com.walmartlabs.concord.ApiClient;
-import com.walmartlabs.concord.ApiException;
 import com.walmartlabs.concord.client.ProcessEventRequest;
-import com.walmartlabs.concord.client.ProcessEventsApi;
-import com.walmartlabs.concord.runtime.common.injector.InstanceId;
 import com.walmartlabs.concord.runtime.v2.model.Expression;
 import com.walmartlabs.concord.runtime.v2.model.FlowCall;
 import com.walmartlabs.concord.runtime.v2.model.Step;
@@ -33,8 +29,6 @@ import com.walmartlabs.concord.runtime.v2.model.TaskCall;
 import com.walmartlabs.concord.runtime.v2.runner.vm.StepCommand;
 import com.walmartlabs.concord.svm.Runtime;
 import com.walmartlabs.concord.svm.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.time.Instant;
@@ -44,15 +38,11 @@ import java.util.Map;
 
 public class EventRecordingExecutionListener implements ExecutionListener {
 
-    private static final Logger log = LoggerFactory.getLogger(EventRecordingExecutionListener.class);
-
-    private final ProcessEventsApi eventsApi;
-    private final InstanceId processInstanceId;
+    private final ProcessEventSender eventSender;
 
     @Inject
-    public EventRecordingExecutionListener(ApiClient apiClient, InstanceId processInstanceId) {
-        this.eventsApi = new ProcessEventsApi(apiClient);
-        this.processInstanceId = processInstanceId;
+    public EventRecordingExecutionListener(ProcessEventSender eventSender) {
+        this.eventSender = eventSender;
     }
 
     @Override
@@ -81,11 +71,7 @@ public class EventRecordingExecutionListener implements ExecutionListener {
         req.setData(m);
         req.setEventDate(Instant.now().atOffset(ZoneOffset.UTC));
 
-        try {
-            eventsApi.event(processInstanceId.getValue(), req);
-        } catch (ApiException e) {
-            log.warn("afterCommand [{}] -> error while sending an event to the server: {}", cmd, e.getMessage());
-        }
+        eventSender.send(req);
 
         return Result.CONTINUE;
     }
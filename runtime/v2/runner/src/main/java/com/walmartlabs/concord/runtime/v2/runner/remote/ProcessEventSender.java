@@ -0,0 +1,238 @@
+package com.walmartlabs.concord.runtime.v2.runner.remote;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.client.ProcessEventRequest;
+import com.walmartlabs.concord.client.ProcessEventsApi;
+import com.walmartlabs.concord.runtime.common.injector.InstanceId;
+import com.walmartlabs.concord.runtime.v2.model.EventConfiguration;
+import com.walmartlabs.concord.runtime.v2.model.EventConfiguration.QueueOverflowPolicy;
+import com.walmartlabs.concord.runtime.v2.model.ProcessConfiguration;
+import com.walmartlabs.concord.svm.ExecutionListener;
+import com.walmartlabs.concord.svm.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends process events to the server in batches, using a background thread.
+ * The queued events are flushed when the process finishes, suspends or fails
+ * and on JVM shutdown.
+ */
+public class ProcessEventSender implements ExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessEventSender.class);
+
+    private static final long MAX_FLUSH_WAIT = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Added to the queue by {@link #flush()} to wake up the worker and
+     * make it send the events received before the marker immediately.
+     */
+    private static final ProcessEventRequest FLUSH_MARKER = new ProcessEventRequest();
+
+    private final ProcessEventsApi eventsApi;
+    private final InstanceId processInstanceId;
+    private final EventConfiguration cfg;
+
+    private final BlockingQueue<ProcessEventRequest> queue;
+    private final Object mutex = new Object();
+
+    private long queued = 0;
+    private long processed = 0;
+    private long dropped = 0;
+
+    private volatile Thread worker;
+
+    @Inject
+    public ProcessEventSender(ApiClient apiClient, InstanceId processInstanceId, ProcessConfiguration processConfiguration) {
+        this.eventsApi = new ProcessEventsApi(apiClient);
+        this.processInstanceId = processInstanceId;
+        this.cfg = processConfiguration.events();
+        this.queue = new ArrayBlockingQueue<>(cfg.maxQueueSize());
+    }
+
+    public void send(ProcessEventRequest req) {
+        start();
+
+        boolean added;
+        if (cfg.queueOverflowPolicy() == QueueOverflowPolicy.DROP) {
+            added = queue.offer(req);
+        } else {
+            try {
+                queue.put(req);
+                added = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                added = false;
+            }
+        }
+
+        synchronized (mutex) {
+            if (added) {
+                queued++;
+            } else if (dropped++ == 0) {
+                log.warn("send -> the event queue is full, some of the process events will be dropped");
+            }
+        }
+    }
+
+    /**
+     * Waits until all queued events are sent to the server.
+     */
+    public void flush() {
+        long target;
+        synchronized (mutex) {
+            target = queued;
+        }
+
+        long deadline = System.currentTimeMillis() + MAX_FLUSH_WAIT;
+
+        // the events counted in "queued" are already in the queue, the marker goes after them
+        if (!wakeUp(deadline)) {
+            log.warn("flush -> timeout waiting for the event queue");
+        }
+
+        synchronized (mutex) {
+            while (processed < target && worker != null && worker.isAlive()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    log.warn("flush -> timeout waiting for {} event(s) to be sent", target - processed);
+                    break;
+                }
+
+                try {
+                    mutex.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            if (dropped > 0) {
+                log.warn("flush -> {} event(s) were dropped", dropped);
+            }
+        }
+    }
+
+    @Override
+    public void afterProcessEnd(State state) {
+        flush();
+    }
+
+    @Override
+    public void onProcessError(State state, Exception e) {
+        flush();
+    }
+
+    private void start() {
+        if (worker != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (worker != null) {
+                return;
+            }
+
+            Thread t = new Thread(this::run, "process-event-sender");
+            t.setDaemon(true);
+            t.start();
+
+            java.lang.Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "process-event-sender-flush"));
+
+            worker = t;
+        }
+    }
+
+    private boolean wakeUp(long deadline) {
+        Thread t = worker;
+        if (t == null || !t.isAlive()) {
+            // nothing to wait for
+            return true;
+        }
+
+        try {
+            // the queue can be full, wait for the worker to make room
+            return queue.offer(FLUSH_MARKER, Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<ProcessEventRequest> batch = new ArrayList<>(cfg.batchSize());
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                ProcessEventRequest e = queue.poll(cfg.batchFlushInterval(), TimeUnit.MILLISECONDS);
+
+                // give the process a chance to produce more events, unless a flush is requested
+                long deadline = System.currentTimeMillis() + cfg.batchFlushInterval();
+                while (e != null && e != FLUSH_MARKER) {
+                    batch.add(e);
+                    if (batch.size() >= cfg.batchSize()) {
+                        break;
+                    }
+
+                    e = queue.poll();
+                    if (e == null) {
+                        long wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0) {
+                            break;
+                        }
+                        e = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!batch.isEmpty()) {
+                sendBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<ProcessEventRequest> batch) {
+        try {
+            eventsApi.batchEvent(processInstanceId.getValue(), batch);
+        } catch (ApiException e) {
+            log.warn("sendBatch -> error while sending {} event(s) to the server: {}", batch.size(), e.getMessage());
+        }
+
+        synchronized (mutex) {
+            processed += batch.size();
+            mutex.notifyAll();
+        }
+    }
+}
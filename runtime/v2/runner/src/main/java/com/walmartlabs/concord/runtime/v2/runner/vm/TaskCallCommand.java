@@ -77,6 +77,11 @@ public class TaskCallCommand extends StepCommand<TaskCall> {
 
         String out = opts.out();
         if (out != null) {
+            // parallel "withItems" iterations collect their results separately
+            if (WithItemsWrapper.storeIterationResult(state, threadId, out, result)) {
+                return;
+            }
+
             GlobalVariables gv = runtime.getService(GlobalVariables.class);
             gv.put(out, result); // TODO a custom result structure
         }
@@ -25,8 +25,11 @@ import com.walmartlabs.concord.runtime.v2.model.WithItems;
 import com.walmartlabs.concord.runtime.v2.runner.context.ContextFactory;
 import com.walmartlabs.concord.runtime.v2.runner.el.ExpressionEvaluator;
 import com.walmartlabs.concord.runtime.v2.sdk.Context;
+import com.walmartlabs.concord.runtime.v2.sdk.GlobalVariables;
 import com.walmartlabs.concord.svm.Runtime;
 import com.walmartlabs.concord.svm.*;
+import com.walmartlabs.concord.svm.commands.Fork;
+import com.walmartlabs.concord.svm.commands.Join;
 
 import java.io.Serializable;
 import java.util.*;
@@ -36,6 +39,13 @@ import java.util.stream.Collectors;
  * Wraps a command into a loop specified by {@code withItems} option.
  * Creates a new call frame and keeps the item list, the current item
  * and the index as frame-local variables.
+ * <p>
+ * If {@code parallelism} is specified, the iterations are executed in
+ * "waves" of up to {@code parallelism} forked threads. Each thread gets
+ * its own frame-local {@code item} and {@code itemIndex}. The next wave
+ * starts when all threads of the previous one are done. The outputs of
+ * the iterations (if {@code out} is specified) are collected into a list
+ * in the same order as the items.
  */
 public class WithItemsWrapper implements Command {
 
@@ -44,14 +54,24 @@ public class WithItemsWrapper implements Command {
     public static final String CURRENT_INDEX = "itemIndex";
     public static final String CURRENT_ITEM = "item";
 
+    private static final String ITERATION_RESULT_KEY = "__withItems_result";
+
     private static final long serialVersionUID = 1L;
 
     private final Command cmd;
     private final WithItems withItems;
+    private final Integer parallelism;
+    private final String outVar;
 
     public WithItemsWrapper(Command cmd, WithItems withItems) {
+        this(cmd, withItems, null, null);
+    }
+
+    public WithItemsWrapper(Command cmd, WithItems withItems, Integer parallelism, String outVar) {
         this.cmd = cmd;
         this.withItems = withItems;
+        this.parallelism = parallelism;
+        this.outVar = outVar;
     }
 
     @Override
@@ -100,6 +120,21 @@ public class WithItemsWrapper implements Command {
 
         // TODO verify that each item is serializable
 
+        if (parallelism != null) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("'parallelism' must be a positive number. Got: " + parallelism);
+            }
+
+            Frame loop = new Frame();
+
+            VMUtils.putLocalOverride(loop, CURRENT_ITEMS, items);
+
+            loop.push(new WithItemsWave(cmd, parallelism, 0, outVar));
+
+            state.pushFrame(threadId, loop);
+            return;
+        }
+
         Frame loop = new Frame();
 
         VMUtils.putLocalOverride(loop, CURRENT_ITEMS, items);
@@ -149,6 +184,163 @@ public class WithItemsWrapper implements Command {
         }
     }
 
+    /**
+     * Stores the result of a parallel {@code withItems} iteration.
+     * Must be called from the iteration's thread.
+     *
+     * @return {@code true} if the current thread is a parallel
+     * {@code withItems} iteration which collects the specified
+     * output variable.
+     */
+    public static boolean storeIterationResult(State state, ThreadId threadId, String outVar, Serializable result) {
+        List<Frame> frames = state.getFrames(threadId);
+        if (frames.isEmpty()) {
+            return false;
+        }
+
+        // the bottom frame is the iteration's root frame
+        Frame root = frames.get(frames.size() - 1);
+        IterationResult r = (IterationResult) root.getLocal(ITERATION_RESULT_KEY);
+        if (r == null || !r.outVar.equals(outVar)) {
+            return false;
+        }
+
+        synchronized (r.results) {
+            r.results.set(r.index, result);
+        }
+
+        return true;
+    }
+
+    /**
+     * Forks the next batch ("wave") of iterations and schedules the next
+     * wave after the batch's {@link Join}. Publishes the collected results
+     * after the last wave.
+     */
+    public static class WithItemsWave implements Command {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final String RESULTS_KEY = "__withItems_results";
+
+        private final Command cmd;
+        private final int parallelism;
+        private final int start;
+        private final String outVar;
+
+        public WithItemsWave(Command cmd, int parallelism, int start, String outVar) {
+            this.cmd = cmd;
+            this.parallelism = parallelism;
+            this.start = start;
+            this.outVar = outVar;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void eval(Runtime runtime, State state, ThreadId threadId) {
+            Frame frame = state.peekFrame(threadId);
+            frame.pop();
+
+            ArrayList<Serializable> items = (ArrayList<Serializable>) VMUtils.getLocalOverride(frame, CURRENT_ITEMS);
+            if (items == null) {
+                throw new IllegalStateException("Can't find a frame-local variable containing the 'withItems' items.");
+            }
+
+            ArrayList<Serializable> results = null;
+            if (outVar != null) {
+                results = (ArrayList<Serializable>) frame.getLocal(RESULTS_KEY);
+                if (results == null) {
+                    results = new ArrayList<>(Collections.nCopies(items.size(), null));
+                    frame.setLocal(RESULTS_KEY, results);
+                }
+            }
+
+            if (start >= items.size()) {
+                // all waves are done
+                if (outVar != null) {
+                    GlobalVariables gv = runtime.getService(GlobalVariables.class);
+                    gv.put(outVar, new ArrayList<>(results));
+                }
+                return;
+            }
+
+            int end = Math.min(start + parallelism, items.size());
+
+            // the next wave runs after the current one is joined
+            frame.push(new WithItemsWave(cmd, parallelism, end, outVar));
+
+            List<Command> forks = new ArrayList<>(end - start);
+            Set<ThreadId> forkIds = new HashSet<>(end - start);
+            for (int i = start; i < end; i++) {
+                ThreadId id = state.nextThreadId();
+                IterationResult r = results != null ? new IterationResult(outVar, results, i) : null;
+                forks.add(new Fork(id, new WithItemsIteration(cmd, items, i, r)));
+                forkIds.add(id);
+            }
+
+            frame.push(new Join(forkIds));
+
+            Collections.reverse(forks);
+            forks.forEach(frame::push);
+        }
+    }
+
+    /**
+     * Runs a single parallel iteration. Sets up the iteration's frame-local
+     * variables in the forked thread's frame.
+     */
+    public static class WithItemsIteration implements Command {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Command cmd;
+        private final ArrayList<Serializable> items;
+        private final int index;
+        private final IterationResult result;
+
+        public WithItemsIteration(Command cmd, ArrayList<Serializable> items, int index, IterationResult result) {
+            this.cmd = cmd;
+            this.items = items;
+            this.index = index;
+            this.result = result;
+        }
+
+        @Override
+        public void eval(Runtime runtime, State state, ThreadId threadId) {
+            Frame frame = state.peekFrame(threadId);
+            frame.pop();
+
+            VMUtils.putLocalOverride(frame, CURRENT_ITEMS, items);
+            VMUtils.putLocalOverride(frame, CURRENT_INDEX, index);
+            VMUtils.putLocalOverride(frame, CURRENT_ITEM, items.get(index));
+
+            if (result != null) {
+                frame.setLocal(ITERATION_RESULT_KEY, result);
+            }
+
+            frame.push(cmd);
+        }
+    }
+
+    /**
+     * A slot in the list of results shared between all iterations of
+     * a parallel loop.
+     */
+    public static class IterationResult implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String outVar;
+        private final ArrayList<Serializable> results;
+        private final int index;
+
+        public IterationResult(String outVar, ArrayList<Serializable> results, int index) {
+            this.outVar = outVar;
+            this.results = results;
+            this.index = index;
+        }
+    }
+
     public static class SerializableEntry implements Map.Entry<Serializable, Serializable>, Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -394,6 +394,20 @@ public class MainTest {
         }
     }
 
+    @Test
+    public void testParallelWithItems() throws Exception {
+        deploy("parallelWithItems");
+
+        save(ProcessConfiguration.builder()
+                .build());
+
+        byte[] log = run();
+        assertLog(log, ".*results: \\[\\{x=1}, \\{x=2}, \\{x=3}, \\{x=4}, \\{x=5}].*");
+        for (int i = 6; i < 9; i++) {
+            assertLog(log, ".*item: " + i + ".*");
+        }
+    }
+
     @Test
     public void testUnknownMethod() throws Exception {
         deploy("unknownMethod");
@@ -0,0 +1,98 @@
+package com.walmartlabs.concord.runtime.v2.runner.el;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskProviders;
+import com.walmartlabs.concord.runtime.v2.runner.vars.GlobalVariablesImpl;
+import com.walmartlabs.concord.runtime.v2.sdk.Context;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a {@code withItems} loop: the same few expressions are
+ * evaluated for each item. Compare {@code cacheSize=0} (no parsed
+ * expression cache) with the default cache size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionEvaluatorBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+            "${item.name}",
+            "Hello, ${item.name}! You are #${item.idx + 1}",
+            "${item.idx % 2 == 0 ? 'even' : 'odd'}",
+            "${context.globalVariables().get('prefix')}-${item.name.toUpperCase()}"
+    };
+
+    @Param({"0", "1024"})
+    public int cacheSize;
+
+    @Param({"1000"})
+    public int items;
+
+    private LazyExpressionEvaluator evaluator;
+    private List<Context> contexts;
+
+    @Setup
+    public void setup() {
+        evaluator = new LazyExpressionEvaluator(new TaskProviders(), cacheSize);
+
+        contexts = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", "item" + i);
+            item.put("idx", i);
+
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("prefix", "bench");
+            vars.put("item", item);
+
+            contexts.add(new DummyContext(new GlobalVariablesImpl(vars)));
+        }
+    }
+
+    @Benchmark
+    public void withItems(Blackhole bh) {
+        for (Context ctx : contexts) {
+            for (String expr : EXPRESSIONS) {
+                bh.consume(evaluator.evalValue(ctx, expr, Object.class));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExpressionEvaluatorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
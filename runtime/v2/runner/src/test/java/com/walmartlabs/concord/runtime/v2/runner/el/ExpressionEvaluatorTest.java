@@ -22,6 +22,7 @@ package com.walmartlabs.concord.runtime.v2.runner.el;
 
 import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskProviders;
 import com.walmartlabs.concord.runtime.v2.runner.vars.GlobalVariablesImpl;
+import com.walmartlabs.concord.runtime.v2.sdk.Context;
 import com.walmartlabs.concord.runtime.v2.sdk.GlobalVariables;
 import com.walmartlabs.concord.runtime.v2.sdk.Task;
 import org.junit.Test;
@@ -270,6 +271,22 @@ public class ExpressionEvaluatorTest {
         assertThat(output, is(map("x", Collections.singletonList("abc"), "y", "abc")));
     }
 
+    @Test
+    public void testCachedExpressions() {
+        LazyExpressionEvaluator ee = new LazyExpressionEvaluator(new TaskProviders());
+
+        for (int i = 0; i < 3; i++) {
+            GlobalVariables vars = new GlobalVariablesImpl(Collections.singletonMap("x", i));
+            Context ctx = new DummyContext(vars);
+
+            assertEquals(i, ee.evalValue(ctx, "${x}", Object.class));
+            assertEquals(i, ee.evalValue(ctx, "${context.globalVariables().get('x')}", Object.class));
+        }
+
+        assertEquals(2, ee.cacheStats().missCount());
+        assertEquals(4, ee.cacheStats().hitCount());
+    }
+
     private static Map<Object, Object> map(Object ... values) {
         Map<Object, Object> result = new LinkedHashMap<>();
         for (int i = 0; i < values.length; i+=2) {
@@ -0,0 +1,173 @@
+package com.walmartlabs.concord.runtime.v2.runner.remote;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.client.ConcordApiClient;
+import com.walmartlabs.concord.client.ProcessEventRequest;
+import com.walmartlabs.concord.runtime.common.injector.InstanceId;
+import com.walmartlabs.concord.runtime.v2.model.EventConfiguration;
+import com.walmartlabs.concord.runtime.v2.model.ProcessConfiguration;
+import com.walmartlabs.concord.runtime.v2.runner.DefaultRuntime;
+import com.walmartlabs.concord.svm.Command;
+import com.walmartlabs.concord.svm.ExecutionListener;
+import com.walmartlabs.concord.svm.InMemoryState;
+import com.walmartlabs.concord.svm.State;
+import com.walmartlabs.concord.svm.ThreadId;
+import com.walmartlabs.concord.svm.VM;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ProcessEventSenderTest {
+
+    private static final int EVENT_COUNT = 5;
+
+    /**
+     * Much shorter than the batch flush interval, the flush must wake up the sender.
+     */
+    private static final long TEST_TIMEOUT = 10000;
+
+    private HttpServer server;
+    private AtomicInteger received;
+    private ProcessEventSender sender;
+
+    @Before
+    public void setUp() throws Exception {
+        received = new AtomicInteger();
+
+        ObjectMapper om = new ObjectMapper();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", ex -> {
+            try (InputStream in = ex.getRequestBody()) {
+                List<?> events = om.readValue(in, List.class);
+                received.addAndGet(events.size());
+            }
+            ex.sendResponseHeaders(200, -1);
+            ex.close();
+        });
+        server.start();
+
+        ApiClient apiClient = new ConcordApiClient("http://localhost:" + server.getAddress().getPort());
+
+        // long enough to make sure the events are sent by the flush, not by the timer
+        ProcessConfiguration cfg = ProcessConfiguration.builder()
+                .events(EventConfiguration.builder()
+                        .batchFlushInterval(60000)
+                        .build())
+                .build();
+
+        sender = new ProcessEventSender(apiClient, new InstanceId(UUID.randomUUID()), cfg);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void testFlush() {
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sender.send(new ProcessEventRequest().setEventType("TEST"));
+        }
+
+        sender.flush();
+        assertEquals(EVENT_COUNT, received.get());
+
+        // subsequent flushes don't wait for anything
+        sender.flush();
+        sender.send(new ProcessEventRequest().setEventType("TEST"));
+        sender.flush();
+        assertEquals(EVENT_COUNT + 1, received.get());
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void testFlushAfterProcessEnd() throws Exception {
+        VM vm = newVm();
+        vm.start(new InMemoryState(new SendEvents(sender, false)));
+
+        assertEquals(EVENT_COUNT, received.get());
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void testFlushOnError() throws Exception {
+        VM vm = newVm();
+        try {
+            vm.start(new InMemoryState(new SendEvents(sender, true)));
+            fail("exception expected");
+        } catch (RuntimeException e) {
+            assertEquals("boom", e.getMessage());
+        }
+
+        assertEquals(EVENT_COUNT, received.get());
+    }
+
+    private VM newVm() {
+        // stop after the first iteration, the runner does the same using the SynchronizationService
+        ExecutionListener stopper = new ExecutionListener() {
+            @Override
+            public Result afterEval(com.walmartlabs.concord.svm.Runtime runtime, VM vm, State state) {
+                return Result.BREAK;
+            }
+        };
+
+        return new VM(v -> new DefaultRuntime(v, Collections.emptyMap()), Arrays.asList(sender, stopper));
+    }
+
+    private static final class SendEvents implements Command {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ProcessEventSender sender;
+        private final boolean fail;
+
+        private SendEvents(ProcessEventSender sender, boolean fail) {
+            this.sender = sender;
+            this.fail = fail;
+        }
+
+        @Override
+        public void eval(com.walmartlabs.concord.svm.Runtime runtime, State state, ThreadId threadId) {
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                sender.send(new ProcessEventRequest().setEventType("TEST"));
+            }
+
+            if (fail) {
+                throw new RuntimeException("boom");
+            }
+
+            state.peekFrame(threadId).pop();
+        }
+    }
+}
@@ -73,6 +73,13 @@ public interface ExecutionListener {
     default void afterProcessEnd(State state) {
     }
 
+    /**
+     * Called when the process (or one of the {@link #afterProcessEnd(State)}
+     * listeners) fails with an unhandled exception.
+     */
+    default void onProcessError(State state, Exception e) {
+    }
+
     enum Result {
         CONTINUE,
         BREAK
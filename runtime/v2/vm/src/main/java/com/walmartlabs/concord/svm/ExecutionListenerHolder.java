@@ -105,4 +105,14 @@ public class ExecutionListenerHolder {
             l.afterProcessEnd(state);
         }
     }
+
+    public void fireOnProcessError(State state, Exception e) {
+        for (ExecutionListener l : listeners) {
+            try {
+                l.onProcessError(state, e);
+            } catch (Exception ee) {
+                e.addSuppressed(ee);
+            }
+        }
+    }
 }
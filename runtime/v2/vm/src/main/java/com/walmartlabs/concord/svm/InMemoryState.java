@@ -23,13 +23,18 @@ package com.walmartlabs.concord.svm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Simple in-memory implementation of {@link State}
+ * Simple in-memory implementation of {@link State}.
+ * <p>
+ * Thread-safe. Each thread's frame stack is guarded by its own monitor and
+ * the rest of the state is kept in concurrent maps, so VM threads don't
+ * contend with each other when pushing or popping frames.
  */
 public class InMemoryState implements Serializable, State {
 
@@ -37,11 +42,14 @@ public class InMemoryState implements Serializable, State {
 
     private static final Logger log = LoggerFactory.getLogger(InMemoryState.class);
 
-    private final Map<ThreadId, List<Frame>> frames = new HashMap<>();
-    private final Map<ThreadId, ThreadStatus> threadStatus = new HashMap<>();
-    private final Map<ThreadId, Set<ThreadId>> children = new HashMap<>();
-    private final Map<ThreadId, String> eventRefs = new HashMap<>();
-    private final Map<ThreadId, Exception> threadErrors = new HashMap<>();
+    // the fields are not final to allow conversion of the data saved by the previous versions
+    // see #readObject
+
+    private Map<ThreadId, Deque<Frame>> frames = new ConcurrentHashMap<>();
+    private Map<ThreadId, ThreadStatus> threadStatus = new ConcurrentHashMap<>();
+    private Map<ThreadId, Set<ThreadId>> children = new ConcurrentHashMap<>();
+    private Map<ThreadId, String> eventRefs = new ConcurrentHashMap<>();
+    private Map<ThreadId, Exception> threadErrors = new ConcurrentHashMap<>();
 
     private final ThreadId rootThreadId;
 
@@ -56,21 +64,21 @@ public class InMemoryState implements Serializable, State {
     public void pushFrame(ThreadId threadId, Frame frame) {
         log.trace("pushFrame {}", threadId);
 
-        synchronized (this) {
-            List<Frame> l = frames.computeIfAbsent(threadId, key -> new LinkedList<>());
-            l.add(0, frame);
+        Deque<Frame> l = frames.computeIfAbsent(threadId, key -> new ArrayDeque<>());
+        synchronized (l) {
+            l.push(frame);
         }
     }
 
     @Override
     public Frame peekFrame(ThreadId threadId) {
-        synchronized (this) {
-            List<Frame> l = frames.get(threadId);
-            if (l == null || l.isEmpty()) {
-                return null;
-            }
+        Deque<Frame> l = frames.get(threadId);
+        if (l == null) {
+            return null;
+        }
 
-            return l.get(0);
+        synchronized (l) {
+            return l.peek();
         }
     }
 
@@ -78,47 +86,42 @@ public class InMemoryState implements Serializable, State {
     public void popFrame(ThreadId threadId) {
         log.trace("popFrame {}", threadId);
 
-        synchronized (this) {
-            List<Frame> l = frames.get(threadId);
-            if (l == null) {
-                throw new IllegalStateException("Call frame doesn't exist: " + threadId);
-            }
+        Deque<Frame> l = frames.get(threadId);
+        if (l == null) {
+            throw new IllegalStateException("Call frame doesn't exist: " + threadId);
+        }
 
-            l.remove(0);
+        synchronized (l) {
+            l.pop();
         }
     }
 
     @Override
     public List<Frame> getFrames(ThreadId threadId) {
-        synchronized (this) {
-            List<Frame> l = this.frames.get(threadId);
-            if (l == null) {
-                throw new IllegalStateException("Call frame doesn't exist: " + threadId);
-            }
+        Deque<Frame> l = frames.get(threadId);
+        if (l == null) {
+            throw new IllegalStateException("Call frame doesn't exist: " + threadId);
+        }
 
+        synchronized (l) {
+            // the deque's head is the most recent frame
             return Collections.unmodifiableList(new ArrayList<>(l));
         }
     }
 
     @Override
     public void dropAllFrames() {
-        synchronized (this) {
-            frames.clear();
-        }
+        frames.clear();
     }
 
     @Override
     public void setStatus(ThreadId threadId, ThreadStatus status) {
-        synchronized (this) {
-            threadStatus.put(threadId, status);
-        }
+        threadStatus.put(threadId, status);
     }
 
     @Override
     public ThreadStatus getStatus(ThreadId threadId) {
-        synchronized (this) {
-            return threadStatus.get(threadId);
-        }
+        return threadStatus.get(threadId);
     }
 
     @Override
@@ -128,105 +131,103 @@ public class InMemoryState implements Serializable, State {
 
     @Override
     public void fork(ThreadId parentThreadId, ThreadId threadId, Command cmd) {
-        synchronized (this) {
-            setStatus(threadId, ThreadStatus.READY);
-            pushFrame(threadId, new Frame(cmd));
+        pushFrame(threadId, new Frame(cmd));
 
-            children.computeIfAbsent(parentThreadId, k -> new HashSet<>())
-                    .add(threadId);
-        }
+        children.computeIfAbsent(parentThreadId, k -> ConcurrentHashMap.newKeySet())
+                .add(threadId);
+
+        // the thread becomes visible as READY only after its frame is ready
+        setStatus(threadId, ThreadStatus.READY);
     }
 
     @Override
     public Map<ThreadId, ThreadStatus> threadStatus() {
-        synchronized (this) {
-            return new HashMap<>(threadStatus);
-        }
+        return new HashMap<>(threadStatus);
     }
 
     @Override
-    public ThreadId nextThreadId() {
-        synchronized (this) {
-            long id = threadIdSeq++;
-            return new ThreadId(id);
-        }
+    public synchronized ThreadId nextThreadId() {
+        long id = threadIdSeq++;
+        return new ThreadId(id);
     }
 
     @Override
     public void setEventRef(ThreadId threadId, String eventRef) {
         // TODO check for uniqueness
 
-        synchronized (this) {
-            String old = eventRefs.put(threadId, eventRef);
-            if (old != null) {
-                throw new IllegalStateException("Thread " + threadId + " already had an unprocessed event ref registered: " + old);
-            }
+        String old = eventRefs.put(threadId, eventRef);
+        if (old != null) {
+            throw new IllegalStateException("Thread " + threadId + " already had an unprocessed event ref registered: " + old);
         }
     }
 
     @Override
     public ThreadId removeEventRef(String eventRef) {
-        ThreadId threadId = null;
-
-        synchronized (this) {
-            for (Map.Entry<ThreadId, String> e : eventRefs.entrySet()) {
-                String s = e.getValue();
-                if (eventRef.equals(s)) {
-                    threadId = e.getKey();
-                    break;
-                }
-            }
-
-            if (threadId != null) {
-                eventRefs.remove(threadId);
+        for (Map.Entry<ThreadId, String> e : eventRefs.entrySet()) {
+            if (eventRef.equals(e.getValue()) && eventRefs.remove(e.getKey(), eventRef)) {
+                return e.getKey();
             }
         }
 
-        return threadId;
+        return null;
     }
 
     @Override
     public Map<ThreadId, String> getEventRefs() {
-        synchronized (this) {
-            return Collections.unmodifiableMap(eventRefs);
-        }
+        return Collections.unmodifiableMap(eventRefs);
     }
 
     @Override
     public void setThreadError(ThreadId threadId, Exception error) {
-        synchronized (this) {
-            threadErrors.put(threadId, error);
-        }
+        threadErrors.put(threadId, error);
     }
 
     @Override
     public Exception clearThreadError(ThreadId threadId) {
-        synchronized (this) {
-            return threadErrors.remove(threadId);
-        }
+        return threadErrors.remove(threadId);
     }
 
     @Override
     public void gc() {
-        synchronized (this) {
-            Stream<ThreadId> done = threadStatus.entrySet().stream()
-                    .filter(e -> e.getValue() == ThreadStatus.DONE)
-                    .map(Map.Entry::getKey);
-
-            Stream<ThreadId> handled = threadStatus.entrySet().stream()
-                    .filter(e -> e.getValue() == ThreadStatus.FAILED)
-                    .filter(e -> !threadErrors.containsKey(e.getKey()))
-                    .map(Map.Entry::getKey);
-
-            Stream.concat(done, handled)
-                    .collect(Collectors.toList()) // avoid races by eagerly calculating the list of IDs
-                    .forEach(k -> {
-                        threadErrors.remove(k);
-                        threadStatus.remove(k);
-                        frames.remove(k);
-                        eventRefs.remove(k);
-                        children.remove(k);
-                    });
+        // DONE and FAILED are final statuses, the threads can't be resurrected
+        // so there's no need to lock the whole state
+        for (Map.Entry<ThreadId, ThreadStatus> e : threadStatus.entrySet()) {
+            ThreadId k = e.getKey();
+            ThreadStatus status = e.getValue();
+
+            boolean done = status == ThreadStatus.DONE;
+            boolean handled = status == ThreadStatus.FAILED && !threadErrors.containsKey(k);
+            if (!done && !handled) {
+                continue;
+            }
+
+            threadErrors.remove(k);
+            threadStatus.remove(k);
+            frames.remove(k);
+            eventRefs.remove(k);
+            children.remove(k);
         }
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        // the previous versions used plain HashMaps and LinkedLists
+
+        Map<ThreadId, Deque<Frame>> frames = new ConcurrentHashMap<>();
+        this.frames.forEach((k, v) -> frames.put(k, new ArrayDeque<>(v)));
+        this.frames = frames;
+
+        Map<ThreadId, Set<ThreadId>> children = new ConcurrentHashMap<>();
+        this.children.forEach((k, v) -> {
+            Set<ThreadId> s = ConcurrentHashMap.newKeySet();
+            s.addAll(v);
+            children.put(k, s);
+        });
+        this.children = children;
+
+        this.threadStatus = new ConcurrentHashMap<>(this.threadStatus);
+        this.eventRefs = new ConcurrentHashMap<>(this.eventRefs);
+        this.threadErrors = new ConcurrentHashMap<>(this.threadErrors);
+    }
 }
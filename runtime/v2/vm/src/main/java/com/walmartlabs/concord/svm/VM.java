@@ -49,9 +49,7 @@ public class VM {
 
         listeners.fireBeforeProcessStart();
 
-        execute(state);
-
-        listeners.fireAfterProcessEnd(state);
+        executeAndFinish(state);
 
         log.debug("start -> done");
     }
@@ -71,9 +69,7 @@ public class VM {
 
         listeners.fireBeforeProcessResume();
 
-        execute(state);
-
-        listeners.fireAfterProcessEnd(state);
+        executeAndFinish(state);
 
         log.debug("resume ['{}'] -> done", eventRef);
     }
@@ -144,6 +140,20 @@ public class VM {
         }
     }
 
+    /**
+     * Executes the state and fires either {@link ExecutionListener#afterProcessEnd(State)}
+     * or {@link ExecutionListener#onProcessError(State, Exception)}.
+     */
+    private void executeAndFinish(State state) throws Exception {
+        try {
+            execute(state);
+            listeners.fireAfterProcessEnd(state);
+        } catch (Exception e) {
+            listeners.fireOnProcessError(state, e);
+            throw e;
+        }
+    }
+
     private void execute(State state) throws Exception {
         Runtime runtime = runtimeFactory.create(this);
         while (true) {
@@ -0,0 +1,133 @@
+package com.walmartlabs.concord.svm;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.svm.commands.Block;
+import com.walmartlabs.concord.svm.commands.NewFrame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the same total number of steps split between {@code threads} parallel
+ * VM threads. Each step is a {@link NewFrame} with a single command, i.e.
+ * a frame push, a command evaluation and a frame pop.
+ * <p>
+ * The threads are forked and evaluated directly (the same way
+ * {@link com.walmartlabs.concord.svm.commands.Parallel} forks them) without
+ * a {@link com.walmartlabs.concord.svm.commands.Join}, which polls the thread
+ * statuses and would dominate the results.
+ * <p>
+ * Compare the throughput (steps/s) between different {@code threads} values.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryStateBenchmark {
+
+    private static final int TOTAL_STEPS = 64 * 1024;
+
+    @Param({"1", "4", "16", "64"})
+    public int threads;
+
+    private ExecutorService executor;
+    private VM vm;
+    private Runtime runtime;
+    private Command block;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(threads);
+        runtime = new BenchmarkRuntime();
+        vm = new VM(v -> runtime, Collections.emptyList());
+
+        List<Command> steps = new ArrayList<>(TOTAL_STEPS / threads);
+        for (int i = 0; i < TOTAL_STEPS / threads; i++) {
+            steps.add(new NewFrame(new Noop(), null));
+        }
+        block = new Block(steps);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_STEPS)
+    public void parallel() throws Exception {
+        InMemoryState state = new InMemoryState(new Noop());
+        ThreadId parent = state.getRootThreadId();
+
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            ThreadId child = state.nextThreadId();
+            state.fork(parent, child, block);
+            futures.add(executor.submit(() -> {
+                vm.eval(runtime, state, child);
+                return null;
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InMemoryStateBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static class Noop implements Command {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void eval(Runtime runtime, State state, ThreadId threadId) {
+            state.peekFrame(threadId).pop();
+        }
+    }
+
+    private static class BenchmarkRuntime implements Runtime {
+
+        @Override
+        public void spawn(State state, ThreadId threadId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T getService(Class<T> klass) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
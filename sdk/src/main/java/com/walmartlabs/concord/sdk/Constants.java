@@ -256,6 +256,12 @@ public class Constants {
          */
         public static final String CRON_TIMEZONE = "timezone";
 
+        /**
+         * Max delay (in seconds) added to the cron trigger's fire time.
+         * The delay is stable for each trigger.
+         */
+        public static final String CRON_JITTER = "jitter";
+
         /**
          * The time a cron event was scheduled for.
          */
@@ -439,6 +445,12 @@ public class Constants {
          */
         public static final String CHECKPOINT_META_FILE_NAME = ".checkpoint";
 
+        /**
+         * File which contains the list of files deleted since the previous
+         * (parent) checkpoint. Used in incremental checkpoints.
+         */
+        public static final String CHECKPOINT_DELETED_FILES_FILE_NAME = ".checkpoint_deleted";
+
         /**
          * Policy file.
          */
@@ -563,6 +575,12 @@ public class Constants {
         public static final String SESSION_TOKEN = "X-Concord-SessionToken";
 
         public static final String SECRET_TYPE = "X-Concord-SecretType";
+
+        /**
+         * Returned by the server when a process checkpoint is uploaded if the server
+         * supports incremental checkpoints, i.e. checkpoints with a parent.
+         */
+        public static final String INCREMENTAL_CHECKPOINTS = "X-Concord-Incremental-Checkpoints";
     }
 
     /**
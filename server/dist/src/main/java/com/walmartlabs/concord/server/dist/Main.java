@@ -37,8 +37,18 @@ public class Main {
         log.info("Starting Concord Server ({}, {}, {})...", v.getVersion(), v.getCommitId(), v.getEnv());
 
         long t1 = System.currentTimeMillis();
-        ConcordServer.start();
+        ConcordServer server = ConcordServer.start();
         long t2 = System.currentTimeMillis();
         log.info("main -> started in {}ms", (t2 - t1));
+
+        // stop the background tasks gracefully, e.g. to save the buffered process logs
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("main -> stopping...");
+            try {
+                server.stop();
+            } catch (Exception e) {
+                log.warn("main -> error while stopping the server: {}", e.getMessage(), e);
+            }
+        }, "concord-server-shutdown"));
     }
 }
@@ -0,0 +1,213 @@
+package com.walmartlabs.concord.server;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.DatabaseConfiguration;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.jooq.DSLContext;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.jooq.impl.DSL.field;
+
+/**
+ * Cluster-wide notifications based on PostgreSQL's LISTEN/NOTIFY.
+ * <p>
+ * Notifications are best-effort: they can be lost if the listener's
+ * connection is interrupted. Subscribers must not rely on them
+ * exclusively and should use them only to speed up their regular
+ * (e.g. polling) work.
+ * <p>
+ * The listener uses a dedicated DB connection, it doesn't take a connection
+ * from the main pool.
+ */
+@Named
+@Singleton
+public class DbNotifications implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(DbNotifications.class);
+
+    private static final int POLL_TIMEOUT = 1000;
+    private static final long ERROR_DELAY = 5000;
+    private static final long VALIDATION_INTERVAL = 30000;
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * Helps to identify the listener's connection in {@code pg_stat_activity}.
+     */
+    static final String APPLICATION_NAME = "concord-db-notifications";
+
+    private final DatabaseConfiguration cfg;
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    private volatile Thread worker;
+
+    @Inject
+    public DbNotifications(@MainDB DatabaseConfiguration cfg) {
+        this.cfg = cfg;
+    }
+
+    /**
+     * Registers a listener for the specified channel.
+     * The listener is called on the notification thread, it must not block.
+     * The payload is {@code null} when the listener's connection was
+     * (re)established and some notifications might have been missed.
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        // the worker thread picks up new channels automatically
+        listeners.computeIfAbsent(channel.toLowerCase(), k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Sends a notification. The notification is delivered only after
+     * the transaction is committed.
+     */
+    public void notify(DSLContext tx, String channel, String payload) {
+        tx.select(field("pg_notify(?, ?)", Object.class, channel.toLowerCase(), payload != null ? payload : ""))
+                .execute();
+    }
+
+    @Override
+    public void start() {
+        Thread t = new Thread(this::run, "db-notifications");
+        t.setDaemon(true);
+        this.worker = t;
+        t.start();
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                // wait for the listener's connection to close
+                t.join(POLL_TIMEOUT * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("stop -> done");
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread() && !Thread.currentThread().isInterrupted()) {
+            Set<String> channels = new HashSet<>(listeners.keySet());
+            if (channels.isEmpty()) {
+                sleep(POLL_TIMEOUT);
+                continue;
+            }
+
+            try (Connection conn = connect()) {
+
+                try (Statement st = conn.createStatement()) {
+                    for (String c : channels) {
+                        st.execute("LISTEN " + c);
+                    }
+                }
+
+                // the notifications sent while we weren't listening are lost, let the subscribers know
+                channels.forEach(c -> fire(c, null));
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                long lastValidatedAt = System.currentTimeMillis();
+                while (worker == Thread.currentThread() && channels.equals(listeners.keySet())) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT);
+                    if (notifications != null) {
+                        for (PGNotification n : notifications) {
+                            fire(n.getName(), n.getParameter());
+                        }
+                    }
+
+                    // an idle connection can be silently dropped (e.g. by a firewall), check it once in a while
+                    long now = System.currentTimeMillis();
+                    if (now - lastValidatedAt >= VALIDATION_INTERVAL) {
+                        if (!conn.isValid(VALIDATION_TIMEOUT)) {
+                            throw new SQLException("The connection is no longer valid");
+                        }
+                        lastValidatedAt = now;
+                    }
+                }
+
+                try (Statement st = conn.createStatement()) {
+                    st.execute("UNLISTEN *");
+                }
+            } catch (Exception e) {
+                if (worker != Thread.currentThread()) {
+                    break;
+                }
+
+                log.warn("run -> error: {}. Will retry in {}ms...", e.getMessage(), ERROR_DELAY);
+                sleep(ERROR_DELAY);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", cfg.username());
+        props.setProperty("password", cfg.password());
+        props.setProperty("ApplicationName", APPLICATION_NAME);
+        props.setProperty("tcpKeepAlive", "true");
+
+        return DriverManager.getConnection(cfg.url(), props);
+    }
+
+    private void fire(String channel, String payload) {
+        List<Consumer<String>> l = listeners.get(channel);
+        if (l == null) {
+            return;
+        }
+
+        for (Consumer<String> c : l) {
+            try {
+                c.accept(payload);
+            } catch (Exception e) {
+                log.warn("fire ['{}'] -> listener error: {}", channel, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
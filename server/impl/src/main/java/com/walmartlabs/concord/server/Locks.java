@@ -30,6 +30,8 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 
 /**
  * Locking mechanism based on DB (advisory) locks
@@ -39,6 +41,7 @@ import java.sql.CallableStatement;
 public class Locks {
 
     private static final String LOCK_SQL = "{ call pg_advisory_xact_lock(?) }";
+    private static final String TRY_LOCK_SQL = "select pg_try_advisory_xact_lock(?)";
 
     private final LockingConfiguration cfg;
 
@@ -61,6 +64,28 @@ public class Locks {
         });
     }
 
+    public boolean tryLock(DSLContext tx, String key) {
+        return tryLock(tx, hash(key));
+    }
+
+    /**
+     * Same as {@link #lock(DSLContext, long)}, but returns immediately
+     * if the lock is already taken.
+     *
+     * @return {@code true} if the lock was acquired.
+     */
+    @WithTimer
+    public boolean tryLock(DSLContext tx, long key) {
+        return tx.connectionResult(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(TRY_LOCK_SQL)) {
+                ps.setLong(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() && rs.getBoolean(1);
+                }
+            }
+        });
+    }
+
     @SuppressWarnings("UnstableApiUsage")
     private long hash(String key) {
         HashCode hc = HashCode.fromBytes(key.getBytes());
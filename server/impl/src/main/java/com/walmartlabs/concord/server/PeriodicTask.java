@@ -31,6 +31,9 @@ public abstract class PeriodicTask implements BackgroundTask {
     private final long interval;
     private final long errorDelay;
 
+    private final Object wakeupMonitor = new Object();
+    private boolean wakeupRequested;
+
     private Thread worker;
 
     public PeriodicTask(long interval, long errorDelay) {
@@ -64,7 +67,7 @@ public abstract class PeriodicTask implements BackgroundTask {
             try {
                 boolean isContinue = performTask();
                 if (!isContinue) {
-                    sleep(interval);
+                    await(interval);
                 }
             } catch (Exception e) {
                 log.warn("run -> task {} error: {}. Will retry in {}ms...", taskName(), e.getMessage(), errorDelay, e);
@@ -79,6 +82,36 @@ public abstract class PeriodicTask implements BackgroundTask {
 
     protected abstract boolean performTask() throws Exception;
 
+    /**
+     * Requests the next {@link #performTask()} call to happen immediately
+     * instead of waiting for the end of the current interval.
+     */
+    protected void wakeUp() {
+        synchronized (wakeupMonitor) {
+            wakeupRequested = true;
+            wakeupMonitor.notifyAll();
+        }
+    }
+
+    private void await(long ms) {
+        long deadline = System.currentTimeMillis() + ms;
+        synchronized (wakeupMonitor) {
+            try {
+                while (!wakeupRequested) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wakeupMonitor.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                wakeupRequested = false;
+            }
+        }
+    }
+
     protected static void sleep(long ms) {
         try {
             Thread.sleep(ms);
@@ -141,6 +141,8 @@ public class HttpServer {
             }
 
             FilterHolder holder = new FilterHolder(filter);
+            // filters must allow async processing for the endpoints with AsyncResponse
+            holder.setAsyncSupported(true);
             for (String pathSpec : annotation.value()) {
                 log.info("Servlet -> {} @ {}", filter.getClass(), pathSpec);
                 contextHandler.addFilter(holder, pathSpec, EnumSet.allOf(DispatcherType.class));
@@ -153,6 +155,7 @@ public class HttpServer {
                 continue;
             }
 
+            holder.setAsyncSupported(true);
             for (String pathSpec : annotation.value()) {
                 log.info("Filter -> {} @ {}", holder.getClass(), pathSpec);
                 contextHandler.addFilter(holder, pathSpec, EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD, DispatcherType.INCLUDE, DispatcherType.ERROR));
@@ -45,5 +45,8 @@ public class SiestaServletHolder extends ServletHolder {
 
         // necessary to support multiple API roots
         setInitParameter("resteasy.servlet.mapping.prefix", "/");
+
+        // required for the endpoints with AsyncResponse
+        setAsyncSupported(true);
     }
 }
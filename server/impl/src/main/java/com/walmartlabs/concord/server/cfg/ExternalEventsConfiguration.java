@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.Map;
 
 @Named
@@ -42,6 +43,38 @@ public class ExternalEventsConfiguration implements Serializable {
     @Config("externalEvents.workerThreads")
     private int workerThreads;
 
+    @Inject
+    @Config("externalEvents.inbox.enabled")
+    private boolean inboxEnabled;
+
+    @Inject
+    @Config("externalEvents.inbox.consumers")
+    private int inboxConsumers;
+
+    @Inject
+    @Config("externalEvents.inbox.batchSize")
+    private int inboxBatchSize;
+
+    @Inject
+    @Config("externalEvents.inbox.pollInterval")
+    private Duration inboxPollInterval;
+
+    @Inject
+    @Config("externalEvents.inbox.leaseTimeout")
+    private Duration inboxLeaseTimeout;
+
+    @Inject
+    @Config("externalEvents.inbox.maxAttempts")
+    private int inboxMaxAttempts;
+
+    @Inject
+    @Config("externalEvents.inbox.retryDelay")
+    private Duration inboxRetryDelay;
+
+    @Inject
+    @Config("externalEvents.inbox.retention")
+    private Duration inboxRetention;
+
     public Map<String, String> getRequiredRoles() {
         return requiredRoles;
     }
@@ -49,4 +82,36 @@ public class ExternalEventsConfiguration implements Serializable {
     public int getWorkerThreads() {
         return workerThreads;
     }
+
+    public boolean isInboxEnabled() {
+        return inboxEnabled;
+    }
+
+    public int getInboxConsumers() {
+        return inboxConsumers;
+    }
+
+    public int getInboxBatchSize() {
+        return inboxBatchSize;
+    }
+
+    public Duration getInboxPollInterval() {
+        return inboxPollInterval;
+    }
+
+    public Duration getInboxLeaseTimeout() {
+        return inboxLeaseTimeout;
+    }
+
+    public int getInboxMaxAttempts() {
+        return inboxMaxAttempts;
+    }
+
+    public Duration getInboxRetryDelay() {
+        return inboxRetryDelay;
+    }
+
+    public Duration getInboxRetention() {
+        return inboxRetention;
+    }
 }
@@ -62,6 +62,23 @@ public class ProcessConfiguration implements Serializable {
     @Inject
     @Config("process.maxStateAge")
     private long maxStateAge;
+
+    @Inject
+    @Config("process.partitionPeriod")
+    private long partitionPeriod;
+
+    @Inject
+    @Config("process.partitionCheckInterval")
+    private long partitionCheckInterval;
+
+    @Inject
+    @Config("process.eventsMaxSize")
+    private long eventsMaxSize;
+
+    @Inject
+    @Config("process.logsMaxSize")
+    private long logsMaxSize;
+
     @Inject
     @Config("process.secureFiles")
     private List<String> secureFiles;
@@ -86,6 +103,22 @@ public class ProcessConfiguration implements Serializable {
     @Config("process.checkLogPermissions")
     private boolean checkLogPermissions;
 
+    @Inject
+    @Config("process.logBuffer.enabled")
+    private boolean logBufferEnabled;
+
+    @Inject
+    @Config("process.logBuffer.maxSize")
+    private int logBufferMaxSize;
+
+    @Inject
+    @Config("process.logBuffer.maxPendingSize")
+    private long logBufferMaxPendingSize;
+
+    @Inject
+    @Config("process.stateDeduplication")
+    private boolean stateDeduplication;
+
     @Inject
     public ProcessConfiguration(@Config("process.signingKeyPath") @Nullable String signingKeyPath) {
         this.signingKeyPath = signingKeyPath != null ? Paths.get(signingKeyPath) : null;
@@ -124,6 +157,22 @@ public class ProcessConfiguration implements Serializable {
         return maxStateAge;
     }
 
+    public long getPartitionPeriod() {
+        return partitionPeriod;
+    }
+
+    public long getPartitionCheckInterval() {
+        return partitionCheckInterval;
+    }
+
+    public long getEventsMaxSize() {
+        return eventsMaxSize;
+    }
+
+    public long getLogsMaxSize() {
+        return logsMaxSize;
+    }
+
     public List<String> getSecureFiles() {
         return secureFiles;
     }
@@ -147,4 +196,20 @@ public class ProcessConfiguration implements Serializable {
     public boolean isCheckLogPermissions() {
         return checkLogPermissions;
     }
+
+    public boolean isLogBufferEnabled() {
+        return logBufferEnabled;
+    }
+
+    public int getLogBufferMaxSize() {
+        return logBufferMaxSize;
+    }
+
+    public long getLogBufferMaxPendingSize() {
+        return logBufferMaxPendingSize;
+    }
+
+    public boolean isStateDeduplication() {
+        return stateDeduplication;
+    }
 }
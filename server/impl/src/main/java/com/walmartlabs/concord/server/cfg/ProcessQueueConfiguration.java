@@ -39,6 +39,14 @@ public class ProcessQueueConfiguration implements Serializable {
     @Config("queue.dispatcher.batchSize")
     private int dispatcherBatchSize;
 
+    @Inject
+    @Config("queue.dispatcher.bucketLocking")
+    private boolean dispatcherBucketLocking;
+
+    @Inject
+    @Config("queue.countersReconcileInterval")
+    private long countersReconcileInterval;
+
     public long getDispatcherPollDelay() {
         return dispatcherPollDelay;
     }
@@ -46,4 +54,12 @@ public class ProcessQueueConfiguration implements Serializable {
     public int getDispatcherBatchSize() {
         return dispatcherBatchSize;
     }
+
+    public boolean isDispatcherBucketLocking() {
+        return dispatcherBucketLocking;
+    }
+
+    public long getCountersReconcileInterval() {
+        return countersReconcileInterval;
+    }
 }
@@ -39,6 +39,14 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     @Config("process.waitCheckPollLimit")
     private int pollLimit;
 
+    @Inject
+    @Config("process.waitWakerPollDelay")
+    private long wakerPollDelay;
+
+    @Inject
+    @Config("process.waitWakerBatchSize")
+    private int wakerBatchSize;
+
     public long getPeriod() {
         return period;
     }
@@ -46,4 +54,12 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     public int getPollLimit() {
         return pollLimit;
     }
+
+    public long getWakerPollDelay() {
+        return wakerPollDelay;
+    }
+
+    public int getWakerBatchSize() {
+        return wakerBatchSize;
+    }
 }
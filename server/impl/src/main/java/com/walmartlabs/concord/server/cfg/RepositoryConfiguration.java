@@ -59,6 +59,10 @@ public class RepositoryConfiguration {
     @Config("repositoryCache.lockCount")
     private int lockCount;
 
+    @Inject
+    @Config("repositoryCache.fetchFreshness")
+    private long fetchFreshness;
+
     @Inject
     public RepositoryConfiguration(@Config("repositoryCache.cacheDir") @Nullable String cacheDir,
                                    @Config("repositoryCache.cacheInfoDir") @Nullable String cacheInfoDir) throws IOException {
@@ -92,4 +96,8 @@ public class RepositoryConfiguration {
     public Path getCacheInfoDir() {
         return cacheInfoDir;
     }
+
+    public long getFetchFreshness() {
+        return fetchFreshness;
+    }
 }
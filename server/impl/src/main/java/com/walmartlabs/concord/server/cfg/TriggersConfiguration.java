@@ -25,6 +25,7 @@ import com.walmartlabs.ollie.config.Config;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +49,22 @@ public class TriggersConfiguration {
     @Config("triggers.defaultConfiguration")
     private Map<String, Object> defaultConfiguration;
 
+    @Inject
+    @Config("triggers.indexTtl")
+    private Duration indexTtl;
+
+    @Inject
+    @Config("triggers.cron.pollInterval")
+    private Duration cronPollInterval;
+
+    @Inject
+    @Config("triggers.cron.batchSize")
+    private int cronBatchSize;
+
+    @Inject
+    @Config("triggers.cron.workerThreads")
+    private int cronWorkerThreads;
+
     public boolean isDisableAll() {
         return disableAll;
     }
@@ -64,4 +81,20 @@ public class TriggersConfiguration {
         return defaultConfiguration;
     }
 
+    public Duration getIndexTtl() {
+        return indexTtl;
+    }
+
+    public Duration getCronPollInterval() {
+        return cronPollInterval;
+    }
+
+    public int getCronBatchSize() {
+        return cronBatchSize;
+    }
+
+    public int getCronWorkerThreads() {
+        return cronWorkerThreads;
+    }
+
 }
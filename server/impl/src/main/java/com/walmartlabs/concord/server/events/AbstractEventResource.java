@@ -25,8 +25,8 @@ import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
 import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
 import com.walmartlabs.concord.server.process.*;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
@@ -53,7 +53,7 @@ public abstract class AbstractEventResource {
     private final ExternalEventsConfiguration eventsCfg;
     private final ProcessManager processManager;
     private final ProjectDao projectDao;
-    private final RepositoryDao repositoryDao;
+    private final TriggerIndex triggerIndex;
     private final TriggersConfiguration triggersCfg;
     private final UserManager userManager;
     private final ProcessSecurityContext processSecurityContext;
@@ -61,7 +61,7 @@ public abstract class AbstractEventResource {
     public AbstractEventResource(ExternalEventsConfiguration eventsCfg,
                                  ProcessManager processManager,
                                  ProjectDao projectDao,
-                                 RepositoryDao repositoryDao,
+                                 TriggerIndex triggerIndex,
                                  TriggersConfiguration triggersCfg,
                                  UserManager userManager,
                                  ProcessSecurityContext processSecurityContext) {
@@ -69,7 +69,7 @@ public abstract class AbstractEventResource {
         this.eventsCfg = eventsCfg;
         this.processManager = processManager;
         this.projectDao = projectDao;
-        this.repositoryDao = repositoryDao;
+        this.triggerIndex = triggerIndex;
         this.processSecurityContext = processSecurityContext;
         this.triggersCfg = triggersCfg;
         this.userManager = userManager;
@@ -89,8 +89,6 @@ public abstract class AbstractEventResource {
             return Collections.emptyList();
         }
 
-        assertRoles(eventName);
-
         return triggers.stream()
                 .filter(t -> !isRepositoryDisabled(t))
                 .map(t -> process(eventId, eventName, t, event, cfgEnricher))
@@ -155,10 +153,14 @@ public abstract class AbstractEventResource {
     }
 
     private boolean isRepositoryDisabled(TriggerEntry t) {
-        return repositoryDao.get(t.getRepositoryId()).isDisabled();
+        return triggerIndex.isRepositoryDisabled(t.getRepositoryId());
     }
 
-    private void assertRoles(String eventName) {
+    /**
+     * Checks the current user's roles, see {@code externalEvents.requiredRoles}.
+     * Must be called in the request's thread before {@link #process(String, String, Map, List, ProcessConfigurationEnricher)}.
+     */
+    protected void assertRoles(String eventName) {
         if (Roles.isAdmin()) {
             return;
         }
@@ -20,7 +20,6 @@ package com.walmartlabs.concord.server.events;
  * =====
  */
 
-import com.walmartlabs.concord.common.MapMatcher;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,7 +32,7 @@ public final class DefaultEventFilter {
 
     public static boolean filter(Map<String, Object> conditions, TriggerEntry t) {
         try {
-            return MapMatcher.matches(conditions, t.getConditions());
+            return t.getConditionsMatcher().matches(conditions);
         } catch (Exception e) {
             log.warn("filter [{}, {}] -> error while matching events: {}", conditions, t, e.getMessage());
             return false;
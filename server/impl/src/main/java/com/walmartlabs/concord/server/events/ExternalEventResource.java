@@ -23,8 +23,11 @@ package com.walmartlabs.concord.server.events;
 import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
 import com.walmartlabs.concord.server.events.externalevent.ExternalEventTriggerProcessor;
+import com.walmartlabs.concord.server.events.inbox.EventInbox;
+import com.walmartlabs.concord.server.events.inbox.EventInboxEntry;
+import com.walmartlabs.concord.server.events.inbox.EventInboxHandler;
 import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
@@ -58,24 +61,29 @@ import java.util.*;
 @Singleton
 @Api(value = "External Events", authorizations = {@Authorization("api_key"), @Authorization("ldap")})
 @Path("/api/v1/events")
-public class ExternalEventResource extends AbstractEventResource implements Resource {
+public class ExternalEventResource extends AbstractEventResource implements Resource, EventInboxHandler {
 
     private static final Logger log = LoggerFactory.getLogger(ExternalEventResource.class);
 
+    private static final String INBOX_EVENT_SOURCE = "external";
+
     private final List<ExternalEventTriggerProcessor> processors;
+    private final EventInbox eventInbox;
 
     @Inject
     public ExternalEventResource(ExternalEventsConfiguration cfg,
                                  ProcessManager processManager,
                                  ProjectDao projectDao,
-                                 RepositoryDao repositoryDao,
+                                 TriggerIndex triggerIndex,
                                  TriggersConfiguration triggersCfg,
                                  UserManager userManager,
                                  ProcessSecurityContext processSecurityContext,
-                                 List<ExternalEventTriggerProcessor> processors) {
+                                 List<ExternalEventTriggerProcessor> processors,
+                                 EventInbox eventInbox) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersCfg, userManager, processSecurityContext);
+        super(cfg, processManager, projectDao, triggerIndex, triggersCfg, userManager, processSecurityContext);
         this.processors = processors;
+        this.eventInbox = eventInbox;
     }
 
     @POST
@@ -91,10 +99,37 @@ public class ExternalEventResource extends AbstractEventResource implements Reso
             return Response.ok().build();
         }
 
-        Map<String, Object> event = data != null ? data : Collections.emptyMap();
+        assertRoles(eventName);
+
+        Map<String, Object> event = data != null ? data : new HashMap<>();
 
         String eventId = (String) event.computeIfAbsent("id", s -> UUID.randomUUID().toString());
 
+        if (eventInbox.isEnabled()) {
+            // the "id" is provided by the client and is not necessarily unique,
+            // external events are not deduplicated
+            eventInbox.add(INBOX_EVENT_SOURCE, UUID.randomUUID().toString(), eventName, event, null);
+            return Response.ok().build();
+        }
+
+        processEvent(eventId, eventName, event);
+
+        return Response.ok().build();
+    }
+
+    @Override
+    public String eventSource() {
+        return INBOX_EVENT_SOURCE;
+    }
+
+    @Override
+    @WithTimer
+    public void handle(EventInboxEntry entry) {
+        Map<String, Object> event = entry.getData();
+        processEvent((String) event.get("id"), entry.getEventName(), event);
+    }
+
+    private void processEvent(String eventId, String eventName, Map<String, Object> event) {
         List<ExternalEventTriggerProcessor.Result> results = new ArrayList<>();
         processors.forEach(p -> p.process(eventName, event, results));
 
@@ -103,7 +138,5 @@ public class ExternalEventResource extends AbstractEventResource implements Reso
                     process(eventId, eventName, r.event(), r.triggers(), null);
             log.info("event ['{}', '{}', '{}'] -> done, {} processes started", eventId, eventName, event, processKeys.size());
         }
-
-        return Response.ok().build();
     }
 }
\ No newline at end of file
@@ -30,8 +30,11 @@ import com.walmartlabs.concord.server.cfg.GithubConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
 import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
 import com.walmartlabs.concord.server.events.github.Payload;
+import com.walmartlabs.concord.server.events.inbox.EventInbox;
+import com.walmartlabs.concord.server.events.inbox.EventInboxEntry;
+import com.walmartlabs.concord.server.events.inbox.EventInboxHandler;
 import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
@@ -55,10 +58,9 @@ import javax.inject.Singleton;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.events.github.Constants.COMMIT_ID_KEY;
 import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
@@ -74,7 +76,7 @@ import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURC
 @Singleton
 @Api(value = "GitHub Events", authorizations = {})
 @Path("/events/github")
-public class GithubEventResource extends AbstractEventResource implements Resource {
+public class GithubEventResource extends AbstractEventResource implements Resource, EventInboxHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GithubEventResource.class);
 
@@ -83,11 +85,12 @@ public class GithubEventResource extends AbstractEventResource implements Resour
     private final UserManager userManager;
     private final AuditLog auditLog;
     private final List<GithubTriggerProcessor> processors;
+    private final EventInbox eventInbox;
 
     @Inject
     public GithubEventResource(ExternalEventsConfiguration cfg,
                                ProjectDao projectDao,
-                               RepositoryDao repositoryDao,
+                               TriggerIndex triggerIndex,
                                ProcessManager processManager,
                                TriggersConfiguration triggersConfiguration,
                                GithubConfiguration githubCfg,
@@ -95,15 +98,17 @@ public class GithubEventResource extends AbstractEventResource implements Resour
                                UserManager userManager,
                                ProcessSecurityContext processSecurityContext,
                                AuditLog auditLog,
-                               List<GithubTriggerProcessor> processors) {
+                               List<GithubTriggerProcessor> processors,
+                               EventInbox eventInbox) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersConfiguration, userManager, processSecurityContext);
+        super(cfg, processManager, projectDao, triggerIndex, triggersConfiguration, userManager, processSecurityContext);
 
         this.githubCfg = githubCfg;
         this.ldapManager = ldapManager;
         this.userManager = userManager;
         this.auditLog = auditLog;
         this.processors = processors;
+        this.eventInbox = eventInbox;
     }
 
     @POST
@@ -128,6 +133,35 @@ public class GithubEventResource extends AbstractEventResource implements Resour
             return "ok";
         }
 
+        assertRoles(EVENT_SOURCE);
+
+        Map<String, Object> event = data != null ? data : Collections.emptyMap();
+        Map<String, String> queryParams = getQueryParams(uriInfo);
+
+        if (eventInbox.isEnabled()) {
+            // GitHub retries the deliveries using the same ID
+            String eventId = deliveryId != null ? deliveryId : UUID.randomUUID().toString();
+            eventInbox.add(EVENT_SOURCE, eventId, eventName, event, queryParams);
+            return "ok";
+        }
+
+        processEvent(deliveryId, eventName, event, queryParams);
+
+        return "ok";
+    }
+
+    @Override
+    public String eventSource() {
+        return EVENT_SOURCE;
+    }
+
+    @Override
+    @WithTimer
+    public void handle(EventInboxEntry entry) {
+        processEvent(entry.getEventId(), entry.getEventName(), entry.getData(), entry.getQueryParams());
+    }
+
+    private void processEvent(String deliveryId, String eventName, Map<String, Object> data, Map<String, String> queryParams) {
         if (githubCfg.isLogEvents()) {
             auditLog.add(AuditObject.EXTERNAL_EVENT, AuditAction.ACCESS)
                     .field("source", EVENT_SOURCE)
@@ -140,11 +174,11 @@ public class GithubEventResource extends AbstractEventResource implements Resour
         Payload payload = Payload.from(eventName, data);
         if (payload == null) {
             log.warn("event ['{}', '{}'] -> can't parse payload", deliveryId, eventName);
-            return "ok";
+            return;
         }
 
         List<GithubTriggerProcessor.Result> results = new ArrayList<>();
-        processors.forEach(p -> p.process(eventName, payload, uriInfo, results));
+        processors.forEach(p -> p.process(eventName, payload, queryParams, results));
 
         for (GithubTriggerProcessor.Result r : results) {
             process(deliveryId, EVENT_SOURCE, r.event(), r.triggers(), (t, cfg) -> {
@@ -156,8 +190,6 @@ public class GithubEventResource extends AbstractEventResource implements Resour
                 return cfg;
             });
         }
-
-        return "ok";
     }
 
     @Override
@@ -201,4 +233,19 @@ public class GithubEventResource extends AbstractEventResource implements Resour
 
         return (String) sender.get("ldap_dn");
     }
+
+    private static Map<String, String> getQueryParams(UriInfo uriInfo) {
+        if (uriInfo == null) {
+            return null;
+        }
+
+        MultivaluedMap<String, String> qp = uriInfo.getQueryParameters();
+        if (qp == null || qp.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> result = new HashMap<>();
+        qp.keySet().forEach(k -> result.put(k, qp.getFirst(k)));
+        return result;
+    }
 }
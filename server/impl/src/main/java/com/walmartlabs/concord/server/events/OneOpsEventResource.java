@@ -25,7 +25,7 @@ import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
 import com.walmartlabs.concord.server.events.oneops.OneOpsTriggerProcessor;
 import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
@@ -75,14 +75,14 @@ public class OneOpsEventResource extends AbstractEventResource implements Resour
     public OneOpsEventResource(ExternalEventsConfiguration cfg,
                                ProcessManager processManager,
                                ProjectDao projectDao,
-                               RepositoryDao repositoryDao,
+                               TriggerIndex triggerIndex,
                                TriggersConfiguration triggersCfg,
                                UserManager userManager,
                                ProcessSecurityContext processSecurityContext,
                                ObjectMapper objectMapper,
                                List<OneOpsTriggerProcessor> processors) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersCfg, userManager, processSecurityContext);
+        super(cfg, processManager, projectDao, triggerIndex, triggersCfg, userManager, processSecurityContext);
 
         this.objectMapper = objectMapper;
         this.processors = processors;
@@ -102,6 +102,8 @@ public class OneOpsEventResource extends AbstractEventResource implements Resour
             return Response.status(Status.BAD_REQUEST).build();
         }
 
+        assertRoles(EVENT_SOURCE);
+
         List<OneOpsTriggerProcessor.Result> results = new ArrayList<>();
         processors.forEach(p -> p.process(event, results));
 
@@ -20,7 +20,7 @@ package com.walmartlabs.concord.server.events.externalevent;
  * =====
  */
 
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -32,7 +32,7 @@ import javax.inject.Singleton;
 public class ExternalEventTriggerV1Processor extends ExternalEventTriggerProcessor {
 
     @Inject
-    public ExternalEventTriggerV1Processor(TriggersDao dao) {
-        super(dao, 1);
+    public ExternalEventTriggerV1Processor(TriggerIndex triggerIndex) {
+        super(triggerIndex, 1);
     }
 }
\ No newline at end of file
@@ -22,14 +22,16 @@ package com.walmartlabs.concord.server.events.github;
 
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 
-import javax.ws.rs.core.UriInfo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public interface GithubTriggerProcessor {
 
-    void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result);
+    /**
+     * @param queryParams query parameters of the webhook request (first values only)
+     */
+    void process(String eventName, Payload payload, Map<String, String> queryParams, List<Result> result);
 
     class Result {
 
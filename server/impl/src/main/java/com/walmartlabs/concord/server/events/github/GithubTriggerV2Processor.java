@@ -23,16 +23,14 @@ package com.walmartlabs.concord.server.events.github;
 import com.walmartlabs.concord.repository.GitCliRepositoryProvider;
 import com.walmartlabs.concord.sdk.MapUtils;
 import com.walmartlabs.concord.server.events.DefaultEventFilter;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.security.github.GithubKey;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.ws.rs.core.UriInfo;
 import java.util.*;
 
 import static com.walmartlabs.concord.server.events.github.Constants.*;
@@ -43,17 +41,17 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     private static final int VERSION_ID = 2;
 
-    private final TriggersDao dao;
+    private final TriggerIndex triggerIndex;
     private final List<EventEnricher> eventEnrichers;
 
     @Inject
-    public GithubTriggerV2Processor(TriggersDao dao, List<EventEnricher> eventEnrichers) {
-        this.dao = dao;
+    public GithubTriggerV2Processor(TriggerIndex triggerIndex, List<EventEnricher> eventEnrichers) {
+        this.triggerIndex = triggerIndex;
         this.eventEnrichers = eventEnrichers;
     }
 
     @Override
-    public void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result) {
+    public void process(String eventName, Payload payload, Map<String, String> queryParams, List<Result> result) {
         GithubKey githubKey = GithubKey.getCurrent();
         UUID projectId = githubKey.getProjectId();
 
@@ -85,7 +83,7 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
             conditions.put(GITHUB_REPO_KEY, repo);
         }
 
-        return dao.list(projectId, EVENT_SOURCE, VERSION_ID, conditions);
+        return triggerIndex.list(projectId, EVENT_SOURCE, VERSION_ID, conditions);
     }
 
     private Map<String, Object> buildEvent(String eventName, Payload payload) {
@@ -136,11 +134,11 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
     @Named
     private static class RepositoryInfoEnricher implements EventEnricher {
 
-        private final RepositoryDao repositoryDao;
+        private final TriggerIndex triggerIndex;
 
         @Inject
-        public RepositoryInfoEnricher(RepositoryDao repositoryDao) {
-            this.repositoryDao = repositoryDao;
+        public RepositoryInfoEnricher(TriggerIndex triggerIndex) {
+            this.triggerIndex = triggerIndex;
         }
 
         @Override
@@ -151,7 +149,7 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
             }
 
             List<Map<String, Object>> repositoryInfos = new ArrayList<>();
-            List<RepositoryEntry> repositories = repositoryDao.find(payload.getFullRepoName());
+            List<RepositoryEntry> repositories = triggerIndex.findRepositories(payload.getFullRepoName());
             for (RepositoryEntry r : repositories) {
                 Map<String, Object> repositoryInfo = new HashMap<>();
                 repositoryInfo.put(REPO_ID_KEY, r.getId());
@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.security.PrincipalUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Map;
+
+/**
+ * Durable inbox for external events. The events are saved into the DB
+ * and processed asynchronously by {@link EventInboxTask} using the
+ * {@link EventInboxHandler} registered for the event's source.
+ */
+@Named
+@Singleton
+public class EventInbox {
+
+    private static final Logger log = LoggerFactory.getLogger(EventInbox.class);
+
+    /**
+     * Notification channel, see {@link DbNotifications}.
+     */
+    static final String INBOX_CHANNEL = "event_inbox";
+
+    private final ExternalEventsConfiguration cfg;
+    private final EventInboxDao dao;
+    private final ProcessSecurityContext securityContext;
+    private final DbNotifications notifications;
+
+    @Inject
+    public EventInbox(ExternalEventsConfiguration cfg,
+                      EventInboxDao dao,
+                      ProcessSecurityContext securityContext,
+                      DbNotifications notifications) {
+
+        this.cfg = cfg;
+        this.dao = dao;
+        this.securityContext = securityContext;
+        this.notifications = notifications;
+    }
+
+    public boolean isEnabled() {
+        return cfg.isInboxEnabled();
+    }
+
+    /**
+     * Saves the event into the inbox. The event is processed later using
+     * the current user's principals.
+     *
+     * @param eventSource source of the event, used to find the {@link EventInboxHandler}
+     * @param eventId     ID of the event, unique for the source. Duplicates are ignored
+     * @return {@code false} if the event with the same source and ID was already received
+     */
+    public boolean add(String eventSource,
+                       String eventId,
+                       String eventName,
+                       Map<String, Object> data,
+                       Map<String, String> queryParams) {
+
+        byte[] principals = PrincipalUtils.serialize(securityContext.getCurrentPrincipals());
+
+        boolean added = dao.txResult(tx -> {
+            boolean result = dao.insert(tx, eventSource, eventId, eventName, data, queryParams, principals);
+            if (result) {
+                notifications.notify(tx, INBOX_CHANNEL, null);
+            }
+            return result;
+        });
+
+        if (!added) {
+            log.info("add ['{}', '{}', '{}'] -> duplicate event, ignoring", eventSource, eventId, eventName);
+        }
+
+        return added;
+    }
+}
@@ -0,0 +1,237 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.records.EventInboxRecord;
+import com.walmartlabs.concord.server.security.PrincipalUtils;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.tables.EventInbox.EVENT_INBOX;
+import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.currentTimestamp;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.min;
+import static org.jooq.impl.DSL.value;
+
+@Named
+public class EventInboxDao extends AbstractDao {
+
+    public static final String DEPTH_METRIC = "depth";
+    public static final String OLDEST_AGE_METRIC = "oldest-age";
+
+    private static final TypeReference<Map<String, String>> QUERY_PARAMS_TYPE = new TypeReference<Map<String, String>>() {
+    };
+
+    private static final int MAX_ERROR_LENGTH = 4096;
+
+    private final ConcordObjectMapper objectMapper;
+
+    @Inject
+    public EventInboxDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+        super(cfg);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public <T> T txResult(TxResult<T> t) {
+        return super.txResult(t);
+    }
+
+    /**
+     * @return {@code false} if an event with the same source and ID already exists.
+     */
+    public boolean insert(DSLContext tx,
+                          String eventSource,
+                          String eventId,
+                          String eventName,
+                          Map<String, Object> data,
+                          Map<String, String> queryParams,
+                          byte[] principals) {
+
+        int rows = tx.insertInto(EVENT_INBOX)
+                .columns(EVENT_INBOX.EVENT_SOURCE,
+                        EVENT_INBOX.EVENT_ID,
+                        EVENT_INBOX.EVENT_NAME,
+                        EVENT_INBOX.EVENT_DATA,
+                        EVENT_INBOX.QUERY_PARAMS,
+                        EVENT_INBOX.PRINCIPALS,
+                        EVENT_INBOX.STATUS)
+                .values(value(eventSource),
+                        value(eventId),
+                        value(eventName),
+                        value(objectMapper.toJSONB(data)),
+                        value(objectMapper.toJSONB(queryParams)),
+                        value(principals),
+                        value(Status.NEW.name()))
+                .onConflictDoNothing()
+                .execute();
+
+        return rows > 0;
+    }
+
+    /**
+     * Claims up to {@code limit} events ready for processing. The claimed
+     * events are not returned by subsequent calls until {@code leaseTimeout}
+     * expires or until {@link #retry(long, Duration, String)} is called.
+     */
+    public List<EventInboxEntry> poll(int limit, Duration leaseTimeout) {
+        return txResult(tx -> {
+            List<Long> ids = tx.select(EVENT_INBOX.INBOX_SEQ)
+                    .from(EVENT_INBOX)
+                    .where(EVENT_INBOX.STATUS.eq(Status.NEW.name())
+                            .and(EVENT_INBOX.NEXT_ATTEMPT_AT.lessOrEqual(currentTimestamp())))
+                    .orderBy(EVENT_INBOX.INBOX_SEQ)
+                    .limit(limit)
+                    .forUpdate()
+                    .skipLocked()
+                    .fetch(EVENT_INBOX.INBOX_SEQ);
+
+            if (ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            return tx.update(EVENT_INBOX)
+                    .set(EVENT_INBOX.NEXT_ATTEMPT_AT, currentTimestamp().plus(interval(toInterval(leaseTimeout))))
+                    .set(EVENT_INBOX.ATTEMPTS, EVENT_INBOX.ATTEMPTS.plus(1))
+                    .where(EVENT_INBOX.INBOX_SEQ.in(ids))
+                    .returning()
+                    .fetch()
+                    .map(this::toEntry);
+        });
+    }
+
+    /**
+     * Extends the lease of the events that are still being processed.
+     * Doesn't affect the events that were already completed or failed.
+     */
+    public void extendLease(Collection<Long> seqs, Duration leaseTimeout) {
+        if (seqs.isEmpty()) {
+            return;
+        }
+
+        tx(tx -> tx.update(EVENT_INBOX)
+                .set(EVENT_INBOX.NEXT_ATTEMPT_AT, currentTimestamp().plus(interval(toInterval(leaseTimeout))))
+                .where(EVENT_INBOX.INBOX_SEQ.in(seqs)
+                        .and(EVENT_INBOX.STATUS.eq(Status.NEW.name())))
+                .execute());
+    }
+
+    public void markDone(long seq) {
+        tx(tx -> tx.update(EVENT_INBOX)
+                .set(EVENT_INBOX.STATUS, Status.DONE.name())
+                .set(EVENT_INBOX.LAST_ERROR, (String) null)
+                .where(EVENT_INBOX.INBOX_SEQ.eq(seq))
+                .execute());
+    }
+
+    public void markFailed(long seq, String error) {
+        tx(tx -> tx.update(EVENT_INBOX)
+                .set(EVENT_INBOX.STATUS, Status.FAILED.name())
+                .set(EVENT_INBOX.LAST_ERROR, truncate(error))
+                .where(EVENT_INBOX.INBOX_SEQ.eq(seq))
+                .execute());
+    }
+
+    public void retry(long seq, Duration delay, String error) {
+        tx(tx -> tx.update(EVENT_INBOX)
+                .set(EVENT_INBOX.NEXT_ATTEMPT_AT, currentTimestamp().plus(interval(toInterval(delay))))
+                .set(EVENT_INBOX.LAST_ERROR, truncate(error))
+                .where(EVENT_INBOX.INBOX_SEQ.eq(seq))
+                .execute());
+    }
+
+    /**
+     * Removes processed and failed events older than {@code maxAge}.
+     */
+    public int deleteOld(Duration maxAge) {
+        return txResult(tx -> tx.deleteFrom(EVENT_INBOX)
+                .where(EVENT_INBOX.STATUS.in(Status.DONE.name(), Status.FAILED.name())
+                        .and(EVENT_INBOX.CREATED_AT.lessThan(currentTimestamp().minus(interval(toInterval(maxAge))))))
+                .execute());
+    }
+
+    /**
+     * @return the number of events waiting to be processed and the age
+     * of the oldest one (in seconds).
+     */
+    public Map<String, Long> getStatistics() {
+        Field<BigDecimal> oldestAge = field("extract(epoch from {0} - {1})", BigDecimal.class,
+                currentTimestamp(), min(EVENT_INBOX.CREATED_AT));
+
+        Record2<Integer, BigDecimal> r;
+        try (DSLContext tx = DSL.using(cfg)) {
+            r = tx.select(count(), oldestAge)
+                    .from(EVENT_INBOX)
+                    .where(EVENT_INBOX.STATUS.eq(Status.NEW.name()))
+                    .fetchOne();
+        }
+
+        Map<String, Long> result = new HashMap<>();
+        result.put(DEPTH_METRIC, r.value1().longValue());
+        result.put(OLDEST_AGE_METRIC, r.value2() != null ? r.value2().longValue() : 0L);
+        return result;
+    }
+
+    private EventInboxEntry toEntry(EventInboxRecord r) {
+        byte[] principals = r.getPrincipals();
+        return new EventInboxEntry(r.getInboxSeq(),
+                r.getEventSource(),
+                r.getEventId(),
+                r.getEventName(),
+                objectMapper.fromJSONB(r.getEventData()),
+                objectMapper.fromJSONB(r.getQueryParams(), QUERY_PARAMS_TYPE),
+                principals != null ? PrincipalUtils.deserialize(principals).orElse(null) : null,
+                r.getAttempts());
+    }
+
+    private static String toInterval(Duration d) {
+        return d.toMillis() + " milliseconds";
+    }
+
+    private static String truncate(String s) {
+        if (s == null || s.length() <= MAX_ERROR_LENGTH) {
+            return s;
+        }
+        return s.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private enum Status {
+        NEW,
+        DONE,
+        FAILED
+    }
+}
@@ -0,0 +1,105 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.apache.shiro.subject.PrincipalCollection;
+
+import java.util.Map;
+
+public class EventInboxEntry {
+
+    private final long seq;
+    private final String eventSource;
+    private final String eventId;
+    private final String eventName;
+    private final Map<String, Object> data;
+    private final Map<String, String> queryParams;
+    private final PrincipalCollection principals;
+    private final int attempts;
+
+    public EventInboxEntry(long seq,
+                           String eventSource,
+                           String eventId,
+                           String eventName,
+                           Map<String, Object> data,
+                           Map<String, String> queryParams,
+                           PrincipalCollection principals,
+                           int attempts) {
+
+        this.seq = seq;
+        this.eventSource = eventSource;
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.data = data;
+        this.queryParams = queryParams;
+        this.principals = principals;
+        this.attempts = attempts;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getEventSource() {
+        return eventSource;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    public Map<String, String> getQueryParams() {
+        return queryParams;
+    }
+
+    /**
+     * Principals of the user who submitted the event.
+     */
+    public PrincipalCollection getPrincipals() {
+        return principals;
+    }
+
+    /**
+     * Number of processing attempts, including the current one.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "EventInboxEntry{" +
+                "seq=" + seq +
+                ", eventSource='" + eventSource + '\'' +
+                ", eventId='" + eventId + '\'' +
+                ", eventName='" + eventName + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.DerivativeGauge;
+import com.codahale.metrics.Gauge;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.multibindings.Multibinder;
+import com.walmartlabs.concord.server.sdk.metrics.GaugeProvider;
+
+import javax.inject.Named;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Named
+public class EventInboxGaugeModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        Provider<EventInboxDao> daoProvider = getProvider(EventInboxDao.class);
+
+        Gauge<Map<String, Long>> base = new CachedGauge<Map<String, Long>>(15, TimeUnit.SECONDS) {
+            @Override
+            protected Map<String, Long> loadValue() {
+                return daoProvider.get().getStatistics();
+            }
+        };
+
+        Multibinder<GaugeProvider> gauges = Multibinder.newSetBinder(binder(), GaugeProvider.class);
+        gauges.addBinding().toInstance(create(base, EventInboxDao.DEPTH_METRIC));
+        gauges.addBinding().toInstance(create(base, EventInboxDao.OLDEST_AGE_METRIC));
+    }
+
+    private static GaugeProvider<Long> create(Gauge<Map<String, Long>> base, String key) {
+        return new GaugeProvider<Long>() {
+            @Override
+            public String name() {
+                return "event-inbox-" + key;
+            }
+
+            @Override
+            public Gauge<Long> gauge() {
+                return new DerivativeGauge<Map<String, Long>, Long>(base) {
+                    @Override
+                    protected Long transform(Map<String, Long> value) {
+                        return value.getOrDefault(key, 0L);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+/**
+ * Processes the events of a specific source saved into the {@link EventInbox}.
+ */
+public interface EventInboxHandler {
+
+    /**
+     * @return the event source handled by this handler,
+     * same as the one used in {@link EventInbox#add}.
+     */
+    String eventSource();
+
+    /**
+     * Processes the event. Called using the principals of the user who
+     * submitted the event. If the method throws an exception the event
+     * is retried later, up to {@code externalEvents.inbox.maxAttempts} times.
+     */
+    void handle(EventInboxEntry entry) throws Exception;
+}
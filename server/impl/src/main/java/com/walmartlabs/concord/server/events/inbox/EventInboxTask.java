@@ -0,0 +1,246 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the {@link EventInbox}. Claims batches of events and processes them
+ * on a pool of consumer threads using the {@link EventInboxHandler} registered
+ * for the event's source.
+ * <p>
+ * Failed events are retried with an exponential backoff up to
+ * {@code externalEvents.inbox.maxAttempts} times. The events abandoned by
+ * a stopped server are claimed again after {@code externalEvents.inbox.leaseTimeout}.
+ * <p>
+ * The leases of the events that are still being processed are periodically
+ * extended, so the handlers can run longer than {@code leaseTimeout}.
+ * An event can be processed twice only if the server stops extending
+ * the leases (e.g. the task's thread or the DB connection is stalled)
+ * for longer than {@code leaseTimeout} while the handler is still running.
+ */
+@Named
+@Singleton
+public class EventInboxTask extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(EventInboxTask.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(5);
+    private static final long CLEANUP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final ExternalEventsConfiguration cfg;
+    private final EventInboxDao dao;
+    private final ProcessSecurityContext securityContext;
+    private final Map<String, EventInboxHandler> handlers;
+
+    private final BlockingQueue<EventInboxEntry> queue;
+    private final AtomicInteger freeWorkersCount;
+    private final Set<Long> inProgress;
+    private final ExecutorService executor;
+
+    private long lastCleanupAt;
+    private long lastLeaseExtensionAt;
+
+    @Inject
+    public EventInboxTask(ExternalEventsConfiguration cfg,
+                          EventInboxDao dao,
+                          ProcessSecurityContext securityContext,
+                          DbNotifications notifications,
+                          List<EventInboxHandler> handlers) {
+
+        super(cfg.isInboxEnabled() ? cfg.getInboxPollInterval().toMillis() : 0, ERROR_DELAY);
+
+        this.cfg = cfg;
+        this.dao = dao;
+        this.securityContext = securityContext;
+
+        this.handlers = new HashMap<>();
+        for (EventInboxHandler h : handlers) {
+            this.handlers.put(h.eventSource(), h);
+        }
+
+        int consumers = cfg.getInboxConsumers();
+        this.queue = new ArrayBlockingQueue<>(consumers);
+        this.freeWorkersCount = new AtomicInteger(consumers);
+        this.inProgress = ConcurrentHashMap.newKeySet();
+
+        if (cfg.isInboxEnabled()) {
+            this.executor = Executors.newFixedThreadPool(consumers);
+            for (int i = 0; i < consumers; i++) {
+                executor.submit(new Worker());
+            }
+
+            // process new events immediately, including the events received by other servers
+            notifications.subscribe(EventInbox.INBOX_CHANNEL, payload -> wakeUp());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected boolean performTask() {
+        cleanup();
+        extendLeases();
+
+        int free = freeWorkersCount.get();
+        if (free <= 0) {
+            return false;
+        }
+
+        int limit = Math.min(free, cfg.getInboxBatchSize());
+        List<EventInboxEntry> entries = dao.poll(limit, cfg.getInboxLeaseTimeout());
+        log.debug("performTask ['{}'] -> size: {}", limit, entries.size());
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        freeWorkersCount.addAndGet(-entries.size());
+        entries.forEach(e -> inProgress.add(e.getSeq()));
+        queue.addAll(entries);
+
+        return entries.size() >= limit;
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanupAt < CLEANUP_INTERVAL) {
+            return;
+        }
+        lastCleanupAt = now;
+
+        int deleted = dao.deleteOld(cfg.getInboxRetention());
+        if (deleted > 0) {
+            log.info("cleanup -> removed {} old event(s)", deleted);
+        }
+    }
+
+    private void extendLeases() {
+        Duration leaseTimeout = cfg.getInboxLeaseTimeout();
+
+        // extend well before the lease expires to tolerate slow DB calls and missed polls
+        long now = System.currentTimeMillis();
+        if (now - lastLeaseExtensionAt < leaseTimeout.toMillis() / 3) {
+            return;
+        }
+        lastLeaseExtensionAt = now;
+
+        dao.extendLease(new ArrayList<>(inProgress), leaseTimeout);
+    }
+
+    private void onWorkerFree() {
+        if (freeWorkersCount.getAndIncrement() <= 0) {
+            // all consumers were busy, there might be more events waiting
+            wakeUp();
+        }
+    }
+
+    private void process(EventInboxEntry e) {
+        EventInboxHandler h = handlers.get(e.getEventSource());
+        if (h == null) {
+            log.warn("process ['{}'] -> unknown event source", e);
+            dao.markFailed(e.getSeq(), "Unknown event source: " + e.getEventSource());
+            return;
+        }
+
+        int maxAttempts = cfg.getInboxMaxAttempts();
+        if (e.getAttempts() > maxAttempts) {
+            // the event was claimed by a server that stopped before finishing it
+            log.warn("process ['{}'] -> too many attempts", e);
+            dao.markFailed(e.getSeq(), "Too many attempts");
+            return;
+        }
+
+        try {
+            if (e.getPrincipals() != null) {
+                securityContext.runAs(e.getPrincipals(), () -> {
+                    h.handle(e);
+                    return null;
+                });
+            } else {
+                h.handle(e);
+            }
+
+            dao.markDone(e.getSeq());
+        } catch (Exception ex) {
+            if (e.getAttempts() >= maxAttempts) {
+                log.error("process ['{}'] -> failed, giving up", e, ex);
+                dao.markFailed(e.getSeq(), ex.toString());
+                return;
+            }
+
+            Duration delay = cfg.getInboxRetryDelay().multipliedBy(1L << Math.min(e.getAttempts() - 1, 16));
+            log.warn("process ['{}'] -> failed, will retry in {}: {}", e, delay, ex.getMessage(), ex);
+            dao.retry(e.getSeq(), delay, ex.toString());
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                EventInboxEntry e;
+                try {
+                    e = queue.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                try {
+                    process(e);
+                } catch (Exception ex) {
+                    log.error("run ['{}'] -> error", e, ex);
+                    sleep(ERROR_DELAY);
+                } finally {
+                    inProgress.remove(e.getSeq());
+                    onWorkerFree();
+                }
+            }
+        }
+    }
+}
@@ -55,6 +55,11 @@ public class OrganizationDao extends AbstractDao {
         this.objectMapper = objectMapper;
     }
 
+    @Override
+    public void tx(Tx t) {
+        super.tx(t);
+    }
+
     @Override
     public <T> T txResult(TxResult<T> t) {
         return super.txResult(t);
@@ -231,9 +236,13 @@ public class OrganizationDao extends AbstractDao {
     }
 
     public void delete(UUID orgId) {
-        tx(tx -> tx.deleteFrom(ORGANIZATIONS)
+        tx(tx -> delete(tx, orgId));
+    }
+
+    public void delete(DSLContext tx, UUID orgId) {
+        tx.deleteFrom(ORGANIZATIONS)
                 .where(ORGANIZATIONS.ORG_ID.eq(orgId))
-                .execute());
+                .execute();
     }
 
     private OrganizationEntry toEntry(Record10<UUID, String, UUID, String, String, String, String, String, JSONB, JSONB> r) {
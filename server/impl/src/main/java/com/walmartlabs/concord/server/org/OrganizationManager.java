@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.org.project.DiffUtils;
 import com.walmartlabs.concord.server.org.team.TeamDao;
 import com.walmartlabs.concord.server.org.team.TeamManager;
 import com.walmartlabs.concord.server.org.team.TeamRole;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.policy.EntityAction;
 import com.walmartlabs.concord.server.policy.EntityType;
 import com.walmartlabs.concord.server.policy.PolicyManager;
@@ -59,19 +60,22 @@ public class OrganizationManager {
     private final TeamDao teamDao;
     private final UserManager userManager;
     private final AuditLog auditLog;
+    private final TriggerIndex triggerIndex;
 
     @Inject
     public OrganizationManager(PolicyManager policyManager,
                                OrganizationDao orgDao,
                                TeamDao teamDao,
                                UserManager userManager,
-                               AuditLog auditLog) {
+                               AuditLog auditLog,
+                               TriggerIndex triggerIndex) {
 
         this.policyManager = policyManager;
         this.orgDao = orgDao;
         this.teamDao = teamDao;
         this.userManager = userManager;
         this.auditLog = auditLog;
+        this.triggerIndex = triggerIndex;
     }
 
     public UUID create(OrganizationEntry entry) {
@@ -108,7 +112,11 @@ public class OrganizationManager {
         policyManager.checkEntity(orgId, null, EntityType.ORGANIZATION, EntityAction.UPDATE, owner, PolicyUtils.toMap(entry));
 
         UUID ownerId = owner != null ? owner.getId() : null;
-        orgDao.update(orgId, entry.getName(), ownerId, entry.getVisibility(), entry.getMeta(), entry.getCfg());
+        orgDao.tx(tx -> {
+            orgDao.update(tx, orgId, entry.getName(), ownerId, entry.getVisibility(), entry.getMeta(), entry.getCfg());
+            // the indexed triggers contain the org's name
+            triggerIndex.invalidate(tx);
+        });
 
         OrganizationEntry newEntry = orgDao.get(orgId);
 
@@ -125,7 +133,10 @@ public class OrganizationManager {
 
         OrganizationEntry org = assertExisting(null, orgName);
 
-        orgDao.delete(org.getId());
+        orgDao.tx(tx -> {
+            orgDao.delete(tx, org.getId());
+            triggerIndex.invalidate(tx);
+        });
 
         addAuditLog(
                 AuditAction.DELETE,
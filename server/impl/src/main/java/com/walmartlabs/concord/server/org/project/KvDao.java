@@ -22,29 +22,24 @@ package com.walmartlabs.concord.server.org.project;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
-import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.jooq.tables.ProjectKvStore;
-import org.jooq.Configuration;
-import org.jooq.DSLContext;
-import org.jooq.Record1;
+import com.walmartlabs.concord.server.jooq.tables.records.ProjectKvStoreRecord;
+import org.jooq.*;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProjectKvStore.PROJECT_KV_STORE;
 
 @Named
 public class KvDao extends AbstractDao {
 
-    private final Locks locks;
-
     @Inject
-    public KvDao(@MainDB Configuration cfg, Locks locks) {
+    public KvDao(@MainDB Configuration cfg) {
         super(cfg);
-        this.locks = locks;
     }
 
     public void remove(UUID projectId, String key) {
@@ -55,36 +50,28 @@ public class KvDao extends AbstractDao {
                 .execute());
     }
 
-    public synchronized void putString(UUID projectId, String key, String value) {
+    public void putString(UUID projectId, String key, String value) {
+        putStrings(projectId, Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Inserts or updates multiple string values in a single statement.
+     */
+    public void putStrings(UUID projectId, Map<String, String> values) {
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
-        tx(tx -> {
-            int rows = tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_STRING)
-                    .values(projectId, key, value)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_STRING, value)
-                    .execute();
+        put(projectId, values, kv.VALUE_STRING);
+    }
 
-            if (rows != 1) {
-                throw new DataAccessException("Invalid number of rows: " + rows);
-            }
-        });
+    public void putLong(UUID projectId, String key, long value) {
+        putLongs(projectId, Collections.singletonMap(key, value));
     }
 
-    public synchronized void putLong(UUID projectId, String key, long value) {
+    /**
+     * Inserts or updates multiple long values in a single statement.
+     */
+    public void putLongs(UUID projectId, Map<String, Long> values) {
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
-        tx(tx -> {
-            int rows = tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
-                    .values(projectId, key, value)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_LONG, value)
-                    .execute();
-
-            if (rows != 1) {
-                throw new DataAccessException("Invalid number of rows: " + rows);
-            }
-        });
+        put(projectId, values, kv.VALUE_LONG);
     }
 
     public String getString(UUID projectId, String key) {
@@ -98,6 +85,14 @@ public class KvDao extends AbstractDao {
         }
     }
 
+    /**
+     * @return string values of the existing keys.
+     */
+    public Map<String, String> getStrings(UUID projectId, Collection<String> keys) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        return get(projectId, keys, kv.VALUE_STRING);
+    }
+
     public Long getLong(UUID projectId, String key) {
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
         try (DSLContext tx = DSL.using(cfg)) {
@@ -115,26 +110,93 @@ public class KvDao extends AbstractDao {
         }
     }
 
-    public synchronized long inc(UUID projectId, String key) {
+    /**
+     * @return long values of the existing keys.
+     */
+    public Map<String, Long> getLongs(UUID projectId, Collection<String> keys) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        return get(projectId, keys, kv.VALUE_LONG);
+    }
+
+    public long inc(UUID projectId, String key) {
+        return inc(projectId, Collections.singletonList(key)).get(key);
+    }
+
+    /**
+     * Increments multiple values in a single statement. Missing keys are
+     * initialized with {@code 0} before incrementing. Keys mentioned several
+     * times are incremented several times.
+     *
+     * @return the updated values.
+     */
+    public Map<String, Long> inc(UUID projectId, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> deltas = new TreeMap<>();
+        keys.forEach(k -> deltas.merge(k, 1L, Long::sum));
+
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
         return txResult(tx -> {
-            // grab a lock, it will be released when the transaction ends
-            locks.lock(tx, projectId + "/" + key);
-
-            // "upsert" the record
-            tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
-                    .values(projectId, key, 1L)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_LONG, kv.VALUE_LONG.plus(1))
+            InsertValuesStep3<ProjectKvStoreRecord, UUID, String, Long> q = tx.insertInto(kv)
+                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG);
+
+            deltas.forEach((k, v) -> q.values(projectId, k, v));
+
+            // the upsert takes the row locks, the concurrent increments of the same keys
+            // are serialized by the DB without any additional locking
+            Result<ProjectKvStoreRecord> result = q.onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
+                    .doUpdate().set(kv.VALUE_LONG, kv.VALUE_LONG.plus(excluded(kv.VALUE_LONG)))
+                    .returning(kv.VALUE_KEY, kv.VALUE_LONG)
+                    .fetch();
+
+            Map<String, Long> m = new HashMap<>(result.size());
+            result.forEach(r -> m.put(r.getValueKey(), r.getValueLong()));
+            return m;
+        });
+    }
+
+    private <T> void put(UUID projectId, Map<String, T> values, TableField<ProjectKvStoreRecord, T> valueField) {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        tx(tx -> {
+            InsertValuesStep3<ProjectKvStoreRecord, UUID, String, T> q = tx.insertInto(kv)
+                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, valueField);
+
+            // sorted to keep the same lock order in concurrent transactions
+            new TreeMap<>(values).forEach((k, v) -> q.values(projectId, k, v));
+
+            int rows = q.onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
+                    .doUpdate().set(valueField, excluded(valueField))
                     .execute();
 
-            // get an updated value
-            return tx.select(kv.VALUE_LONG)
+            if (rows != values.size()) {
+                throw new DataAccessException("Invalid number of rows: " + rows);
+            }
+        });
+    }
+
+    private <T> Map<String, T> get(UUID projectId, Collection<String> keys, TableField<ProjectKvStoreRecord, T> valueField) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        try (DSLContext tx = DSL.using(cfg)) {
+            Map<String, T> m = new HashMap<>(keys.size());
+            tx.select(kv.VALUE_KEY, valueField)
                     .from(kv)
                     .where(kv.PROJECT_ID.eq(projectId)
-                            .and(kv.VALUE_KEY.eq(key)))
-                    .fetchOne(kv.VALUE_LONG);
-        });
+                            .and(kv.VALUE_KEY.in(keys)))
+                    .forEach(r -> m.put(r.value1(), r.value2()));
+            return m;
+        }
+    }
+
+    /**
+     * The value proposed for insertion in {@code ON CONFLICT DO UPDATE}.
+     */
+    private static <T> Field<T> excluded(Field<T> f) {
+        return DSL.field(DSL.name("excluded", f.getName()), f.getDataType());
     }
 }
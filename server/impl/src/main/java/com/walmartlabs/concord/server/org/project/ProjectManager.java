@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.jooq.enums.RawPayloadMode;
 import com.walmartlabs.concord.server.org.*;
 import com.walmartlabs.concord.server.org.secret.SecretDao;
 import com.walmartlabs.concord.server.org.secret.SecretManager;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.policy.EntityAction;
 import com.walmartlabs.concord.server.policy.EntityType;
 import com.walmartlabs.concord.server.policy.PolicyManager;
@@ -62,6 +63,7 @@ public class ProjectManager {
     private final UserManager userManager;
     private final OrganizationManager organizationManager;
     private final OrganizationDao organizationDao;
+    private final TriggerIndex triggerIndex;
 
     @Inject
     public ProjectManager(PolicyManager policyManager,
@@ -75,7 +77,8 @@ public class ProjectManager {
                           EncryptedProjectValueManager encryptedValueManager,
                           UserManager userManager,
                           OrganizationManager organizationManager,
-                          OrganizationDao organizationDao) {
+                          OrganizationDao organizationDao,
+                          TriggerIndex triggerIndex) {
 
         this.policyManager = policyManager;
         this.projectDao = projectDao;
@@ -89,6 +92,7 @@ public class ProjectManager {
         this.userManager = userManager;
         this.organizationManager = organizationManager;
         this.organizationDao = organizationDao;
+        this.triggerIndex = triggerIndex;
     }
 
     public ProjectEntry get(UUID projectId) {
@@ -184,6 +188,8 @@ public class ProjectManager {
                 repositoryDao.deleteAll(tx, projectId);
                 repos.forEach((k, v) -> projectRepositoryManager.insert(tx, orgId, prevEntry.getOrgName(), projectId, prevEntry.getName(), v, false));
             }
+
+            triggerIndex.invalidate(tx);
         });
 
         ProjectEntry newEntry = projectDao.get(projectId);
@@ -201,7 +207,10 @@ public class ProjectManager {
     public void delete(UUID projectId) {
         ProjectEntry e = accessManager.assertAccess(projectId, ResourceAccessLevel.OWNER, true);
 
-        projectDao.delete(projectId);
+        projectDao.tx(tx -> {
+            projectDao.delete(tx, projectId);
+            triggerIndex.invalidate(tx);
+        });
 
         addAuditLog(
                 AuditAction.DELETE,
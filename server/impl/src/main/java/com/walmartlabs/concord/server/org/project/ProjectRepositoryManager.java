@@ -31,6 +31,7 @@ import com.walmartlabs.concord.server.events.ExternalEventResource;
 import com.walmartlabs.concord.server.org.ResourceAccessLevel;
 import com.walmartlabs.concord.server.org.secret.SecretDao;
 import com.walmartlabs.concord.server.org.secret.SecretManager;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.ImportsNormalizerFactory;
 import com.walmartlabs.concord.server.repository.RepositoryManager;
 import org.jooq.DSLContext;
@@ -54,6 +55,7 @@ public class ProjectRepositoryManager {
     private final AuditLog auditLog;
     private final ProjectLoader projectLoader;
     private final ImportsNormalizerFactory importsNormalizerFactory;
+    private final TriggerIndex triggerIndex;
 
     @Inject
     public ProjectRepositoryManager(ProjectAccessManager projectAccessManager,
@@ -64,7 +66,8 @@ public class ProjectRepositoryManager {
                                     ExternalEventResource externalEventResource,
                                     AuditLog auditLog,
                                     ProjectLoader projectLoader,
-                                    ImportsNormalizerFactory importsNormalizerFactory) {
+                                    ImportsNormalizerFactory importsNormalizerFactory,
+                                    TriggerIndex triggerIndex) {
 
         this.projectAccessManager = projectAccessManager;
         this.secretManager = secretManager;
@@ -75,6 +78,7 @@ public class ProjectRepositoryManager {
         this.auditLog = auditLog;
         this.projectLoader = projectLoader;
         this.importsNormalizerFactory = importsNormalizerFactory;
+        this.triggerIndex = triggerIndex;
     }
 
     public void createOrUpdate(UUID projectId, RepositoryEntry entry) {
@@ -109,7 +113,11 @@ public class ProjectRepositoryManager {
             throw new ValidationErrorsException("Repository not found: " + repoName);
         }
 
-        repositoryDao.delete(repoId);
+        repositoryDao.tx(tx -> {
+            repositoryDao.delete(tx, repoId);
+            triggerIndex.invalidate(tx);
+        });
+
         addAuditLog(
                 projEntry.getOrgId(),
                 projEntry.getOrgName(),
@@ -130,6 +138,8 @@ public class ProjectRepositoryManager {
                 trim(entry.getBranch()), trim(entry.getCommitId()),
                 trim(entry.getPath()), secretId, entry.isDisabled(), entry.getMeta());
 
+        triggerIndex.invalidate(tx);
+
         Map<String, Object> ev = Events.Repository.repositoryCreated(projectId, repoId, entry.getName());
         externalEventResource.event(Events.CONCORD_EVENT, ev);
 
@@ -159,6 +169,8 @@ public class ProjectRepositoryManager {
                 trim(entry.getBranch()), trim(entry.getCommitId()),
                 trim(entry.getPath()), secretId, entry.isDisabled());
 
+        triggerIndex.invalidate(tx);
+
         Map<String, Object> ev = Events.Repository.repositoryUpdated(projectId, repoId, entry.getName());
         externalEventResource.event(Events.CONCORD_EVENT, ev);
 
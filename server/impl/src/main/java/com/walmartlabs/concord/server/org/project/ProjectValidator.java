@@ -29,6 +29,7 @@ import com.walmartlabs.concord.process.loader.model.ProcessDefinition;
 import com.walmartlabs.concord.process.loader.model.SourceMap;
 import com.walmartlabs.concord.process.loader.model.Trigger;
 import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.server.org.triggers.CronUtils;
 import org.sonatype.siesta.ValidationErrorsException;
 
 import java.io.Serializable;
@@ -58,6 +59,8 @@ public class ProjectValidator {
 
         validateTimezone(t, errors);
 
+        validateJitter(t, errors);
+
         if (Objects.isNull(t.conditions())) {
             return;
         }
@@ -144,6 +147,23 @@ public class ProjectValidator {
         }
     }
 
+    private static void validateJitter(Trigger t, List<String> errors) {
+        String triggerName = t.name();
+        if (!triggerName.equals("cron")) {
+            return;
+        }
+
+        if (Objects.isNull(t.conditions())) {
+            return;
+        }
+
+        try {
+            CronUtils.getJitter(t.conditions());
+        } catch (IllegalArgumentException e) {
+            errors.add(makeErrorMessage(t, Constants.Trigger.CRON_JITTER, "invalid value: non-negative number of seconds expected"));
+        }
+    }
+
     private static void validateRegex(Trigger t, List<String> errors, Map.Entry<String, Object> entry) {
         try {
             Pattern.compile(entry.getValue().toString());
@@ -29,7 +29,6 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.Instant;
-import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.TimeZone;
 import java.util.UUID;
@@ -59,18 +58,13 @@ public class CronTriggerProcessor {
             return;
         }
 
-        ZoneId zoneId = null;
         String timezone = (String) t.conditions().get(Constants.Trigger.CRON_TIMEZONE);
-        if (timezone != null) {
-            if (!validTimeZone(timezone)) {
-                log.warn("process ['{}'] -> cron trigger invalid timezone, ignore", triggerId);
-                return;
-            }
-
-            zoneId = TimeZone.getTimeZone(timezone).toZoneId();
+        if (timezone != null && !validTimeZone(timezone)) {
+            log.warn("process ['{}'] -> cron trigger invalid timezone, ignore", triggerId);
+            return;
         }
 
-        Instant fireAt = CronUtils.nextExecution(schedulerDao.now(), spec, zoneId);
+        Instant fireAt = CronUtils.nextExecution(schedulerDao.now(), triggerId, t.conditions());
         if (fireAt == null) {
             log.warn("process ['{}'] -> cron spec empty", triggerId);
             return;
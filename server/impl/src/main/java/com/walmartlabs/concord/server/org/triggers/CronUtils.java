@@ -24,11 +24,18 @@ import com.cronutils.model.CronType;
 import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
+import com.google.common.hash.Hashing;
+import com.walmartlabs.concord.sdk.Constants;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.chrono.ChronoZonedDateTime;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
 
 public final class CronUtils {
 
@@ -46,6 +53,78 @@ public final class CronUtils {
         return nextExecution(ZonedDateTime.now(zone), expression);
     }
 
+    /**
+     * Returns the next fire time of the cron trigger with the specified conditions.
+     * The fire time is shifted by the trigger's jitter offset, see {@link #jitterOffset(UUID, Map)}.
+     */
+    public static Instant nextExecution(Instant now, UUID triggerId, Map<String, Object> conditions) {
+        String spec = (String) conditions.get(Constants.Trigger.CRON_SPEC);
+
+        ZoneId zoneId = null;
+        String timezone = (String) conditions.get(Constants.Trigger.CRON_TIMEZONE);
+        if (timezone != null) {
+            zoneId = TimeZone.getTimeZone(timezone).toZoneId();
+        }
+
+        // the next execution is calculated for the unshifted time, otherwise
+        // the triggers with offsets larger than the cron's period would skip runs
+        Duration offset = jitterOffset(triggerId, conditions);
+        Instant next = nextExecution(now.minus(offset), spec, zoneId);
+        return next != null ? next.plus(offset) : null;
+    }
+
+    /**
+     * Returns a stable delay within [0, jitter) for the specified trigger,
+     * where {@code jitter} is the trigger's {@link Constants.Trigger#CRON_JITTER} value.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static Duration jitterOffset(UUID triggerId, Map<String, Object> conditions) {
+        long jitter;
+        try {
+            jitter = getJitter(conditions);
+        } catch (IllegalArgumentException e) {
+            // invalid values are reported by the project validator
+            return Duration.ZERO;
+        }
+
+        if (jitter <= 0) {
+            return Duration.ZERO;
+        }
+
+        long h = Hashing.murmur3_128().hashString(triggerId.toString(), StandardCharsets.UTF_8).asLong();
+        return Duration.ofSeconds(Math.floorMod(h, jitter));
+    }
+
+    /**
+     * @return the trigger's jitter value in seconds or {@code 0} if the value is not specified
+     * @throws IllegalArgumentException if the value is not a non-negative number
+     */
+    public static long getJitter(Map<String, Object> conditions) {
+        Object v = conditions.get(Constants.Trigger.CRON_JITTER);
+        if (v == null) {
+            return 0;
+        }
+
+        long result;
+        if (v instanceof Number) {
+            result = ((Number) v).longValue();
+        } else if (v instanceof String) {
+            try {
+                result = Long.parseLong((String) v);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid '" + Constants.Trigger.CRON_JITTER + "' value: " + v);
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid '" + Constants.Trigger.CRON_JITTER + "' value: " + v);
+        }
+
+        if (result < 0) {
+            throw new IllegalArgumentException("Invalid '" + Constants.Trigger.CRON_JITTER + "' value: " + v);
+        }
+
+        return result;
+    }
+
     private static Instant nextExecution(ZonedDateTime now, String expression) {
         CronParser parser = new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.UNIX));
         ExecutionTime executionTime = ExecutionTime.forCron(parser.parse(expression));
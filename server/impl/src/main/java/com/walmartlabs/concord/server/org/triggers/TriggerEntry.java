@@ -21,10 +21,12 @@ package com.walmartlabs.concord.server.org.triggers;
  */
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.walmartlabs.concord.common.MapMatcher;
 import com.walmartlabs.concord.common.validation.ConcordKey;
 
 import javax.validation.constraints.NotNull;
@@ -69,6 +71,8 @@ public class TriggerEntry implements Serializable {
     @NotNull
     private final Map<String, Object> cfg;
 
+    private transient volatile MapMatcher conditionsMatcher;
+
     @JsonCreator
     public TriggerEntry(@JsonProperty("id") UUID id,
                         @JsonProperty("orgId") UUID orgId,
@@ -145,6 +149,19 @@ public class TriggerEntry implements Serializable {
         return cfg;
     }
 
+    /**
+     * @return the compiled {@link #getConditions()}, created on the first call.
+     */
+    @JsonIgnore
+    public MapMatcher getConditionsMatcher() {
+        MapMatcher result = conditionsMatcher;
+        if (result == null) {
+            result = MapMatcher.compile(conditions);
+            conditionsMatcher = result;
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
         return "TriggerEntry{" +
@@ -0,0 +1,289 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.walmartlabs.concord.common.MapMatcher;
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import com.walmartlabs.concord.server.org.project.RepositoryEntry;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory index of triggers used to route external events (GitHub webhooks, etc).
+ * Also caches the repository lookups made for each matched trigger.
+ * <p>
+ * The index is invalidated cluster-wide (see {@link #invalidate(DSLContext)})
+ * when triggers are refreshed or when repositories, projects or organizations
+ * are updated or deleted. Other changes are picked up after
+ * {@code triggers.indexTtl}.
+ */
+@Named
+@Singleton
+public class TriggerIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TriggerIndex.class);
+
+    /**
+     * Notification channel, see {@link DbNotifications}.
+     */
+    private static final String TRIGGERS_CHANNEL = "triggers";
+
+    private final TriggersDao triggersDao;
+    private final RepositoryDao repositoryDao;
+    private final DbNotifications notifications;
+
+    /**
+     * Incremented on each invalidation. Values loaded before the last
+     * invalidation are discarded.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LoadingCache<BucketKey, Versioned<Bucket>> buckets;
+    private final LoadingCache<UUID, Versioned<Boolean>> repositoryDisabled;
+    private final LoadingCache<String, Versioned<List<RepositoryEntry>>> repositories;
+
+    @Inject
+    public TriggerIndex(TriggersDao triggersDao,
+                        RepositoryDao repositoryDao,
+                        TriggersConfiguration cfg,
+                        DbNotifications notifications) {
+
+        this.triggersDao = triggersDao;
+        this.repositoryDao = repositoryDao;
+        this.notifications = notifications;
+
+        long ttl = cfg.getIndexTtl().toMillis();
+        this.buckets = cache(ttl, this::loadBucket);
+        this.repositoryDisabled = cache(ttl, this::loadRepositoryDisabled);
+        this.repositories = cache(ttl, this::loadRepositories);
+
+        // invalidate on every notification, including reconnects (null payload)
+        notifications.subscribe(TRIGGERS_CHANNEL, payload -> invalidateLocal());
+    }
+
+    /**
+     * Returns the triggers that can match an event with the specified values.
+     * Same as {@link TriggersDao#list(UUID, String, Integer, Map)}, the result
+     * must be filtered using the triggers' conditions.
+     *
+     * @param projectId  if not {@code null}, only the triggers of the specified project are returned
+     * @param conditions values of the event's attributes. Only the triggers which conditions
+     *                   for those attributes are missing, non-literal or equal to the values are returned.
+     */
+    public List<TriggerEntry> list(UUID projectId, String eventSource, Integer version, Map<String, String> conditions) {
+        Map<String, String> values = conditions != null ? conditions : Collections.emptyMap();
+
+        BucketKey key = new BucketKey(eventSource, version, new TreeSet<>(values.keySet()));
+        Bucket b = get(buckets, key);
+
+        List<TriggerEntry> result = new ArrayList<>();
+        for (TriggerEntry t : b.find(values)) {
+            if (projectId == null || projectId.equals(t.getProjectId())) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    public boolean isRepositoryDisabled(UUID repoId) {
+        return get(repositoryDisabled, repoId);
+    }
+
+    /**
+     * Same as {@link RepositoryDao#find(String)}.
+     */
+    public List<RepositoryEntry> findRepositories(String repoUrl) {
+        return get(repositories, repoUrl);
+    }
+
+    /**
+     * Invalidates the index on all server nodes after the specified transaction is committed.
+     */
+    public void invalidate(DSLContext tx) {
+        notifications.notify(tx, TRIGGERS_CHANNEL, null);
+    }
+
+    private void invalidateLocal() {
+        generation.incrementAndGet();
+
+        buckets.invalidateAll();
+        repositoryDisabled.invalidateAll();
+        repositories.invalidateAll();
+
+        log.debug("invalidateLocal -> done");
+    }
+
+    private Bucket loadBucket(BucketKey key) {
+        List<TriggerEntry> triggers = triggersDao.list(key.eventSource, key.version);
+        return new Bucket(new ArrayList<>(key.conditionKeys), triggers);
+    }
+
+    private boolean loadRepositoryDisabled(UUID repoId) {
+        RepositoryEntry r = repositoryDao.get(repoId);
+        return r != null && r.isDisabled();
+    }
+
+    private List<RepositoryEntry> loadRepositories(String repoUrl) {
+        return repositoryDao.find(repoUrl);
+    }
+
+    private <K, V> V get(LoadingCache<K, Versioned<V>> cache, K key) {
+        while (true) {
+            Versioned<V> v = cache.getUnchecked(key);
+            if (v.generation == generation.get()) {
+                return v.value;
+            }
+
+            // loaded before the last invalidation
+            cache.asMap().remove(key, v);
+        }
+    }
+
+    private <K, V> LoadingCache<K, Versioned<V>> cache(long ttl, Function<K, V> loader) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(k -> {
+                    long gen = generation.get();
+                    return new Versioned<>(gen, loader.apply(k));
+                }));
+    }
+
+    private static final class Versioned<V> {
+
+        private final long generation;
+        private final V value;
+
+        private Versioned(long generation, V value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+
+    private static final class BucketKey {
+
+        private final String eventSource;
+        private final Integer version;
+        private final SortedSet<String> conditionKeys;
+
+        private BucketKey(String eventSource, Integer version, SortedSet<String> conditionKeys) {
+            this.eventSource = eventSource;
+            this.version = version;
+            this.conditionKeys = conditionKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BucketKey that = (BucketKey) o;
+            return eventSource.equals(that.eventSource) &&
+                    Objects.equals(version, that.version) &&
+                    conditionKeys.equals(that.conditionKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eventSource, version, conditionKeys);
+        }
+    }
+
+    /**
+     * Triggers of the same event source and version. The triggers with literal
+     * conditions for all of the bucket's keys are indexed by the condition values.
+     */
+    static final class Bucket {
+
+        private final List<String> keys;
+        private final Map<List<String>, List<TriggerEntry>> literal = new HashMap<>();
+        private final List<TriggerEntry> others = new ArrayList<>();
+
+        Bucket(List<String> keys, List<TriggerEntry> triggers) {
+            this.keys = keys;
+
+            for (TriggerEntry t : triggers) {
+                List<String> values = literalValues(t.getConditions());
+                if (values != null) {
+                    literal.computeIfAbsent(values, k -> new ArrayList<>()).add(t);
+                } else {
+                    others.add(t);
+                }
+
+                // compile the conditions while loading
+                t.getConditionsMatcher();
+            }
+        }
+
+        List<TriggerEntry> find(Map<String, String> conditions) {
+            if (keys.isEmpty()) {
+                return others;
+            }
+
+            List<String> values = new ArrayList<>(keys.size());
+            for (String k : keys) {
+                values.add(conditions.get(k));
+            }
+
+            List<TriggerEntry> l = literal.get(values);
+            if (l == null) {
+                return others;
+            }
+
+            List<TriggerEntry> result = new ArrayList<>(l.size() + others.size());
+            result.addAll(l);
+            result.addAll(others);
+            return result;
+        }
+
+        private List<String> literalValues(Map<String, Object> conditions) {
+            if (keys.isEmpty() || conditions == null) {
+                return null;
+            }
+
+            List<String> result = new ArrayList<>(keys.size());
+            for (String k : keys) {
+                Object v = conditions.get(k);
+                if (!(v instanceof String) || !MapMatcher.isLiteral((String) v)) {
+                    return null;
+                }
+                result.add((String) v);
+            }
+            return result;
+        }
+    }
+}
@@ -57,6 +57,7 @@ public class TriggerManager extends AbstractDao {
     private final TriggersDao triggersDao;
     private final PolicyManager policyManager;
     private final TriggersConfiguration triggersCfg;
+    private final TriggerIndex triggerIndex;
 
     private final CronTriggerProcessor cronTriggerProcessor;
     private final GithubTriggerEnricher githubTriggerEnricher;
@@ -67,6 +68,7 @@ public class TriggerManager extends AbstractDao {
                           TriggersDao triggersDao,
                           PolicyManager policyManager,
                           TriggersConfiguration triggersCfg,
+                          TriggerIndex triggerIndex,
                           CronTriggerProcessor cronTriggerProcessor,
                           GithubTriggerEnricher githubTriggerEnricher) {
 
@@ -76,6 +78,7 @@ public class TriggerManager extends AbstractDao {
         this.triggersDao = triggersDao;
         this.policyManager = policyManager;
         this.triggersCfg = triggersCfg;
+        this.triggerIndex = triggerIndex;
 
         this.cronTriggerProcessor = cronTriggerProcessor;
         this.githubTriggerEnricher = githubTriggerEnricher;
@@ -116,6 +119,8 @@ public class TriggerManager extends AbstractDao {
             if (!triggerIds.isEmpty()) {
                 triggersDao.delete(tx, triggerIds.values().stream().map(TriggerEntry::getId).collect(Collectors.toList()));
             }
+
+            triggerIndex.invalidate(tx);
         });
 
         log.info("refresh ['{}', '{}'] -> done, triggers count: {}", projectId, repoId, pd.triggers().size());
@@ -22,19 +22,19 @@ package com.walmartlabs.concord.server.org.triggers;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
-import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.jooq.tables.Organizations;
 import com.walmartlabs.concord.server.jooq.tables.Projects;
 import com.walmartlabs.concord.server.jooq.tables.Repositories;
 import com.walmartlabs.concord.server.jooq.tables.Triggers;
 import org.jooq.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.sql.Timestamp;
 import java.time.Instant;
-import java.time.ZoneId;
 import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.Tables.*;
@@ -45,6 +45,8 @@ import static org.jooq.impl.DSL.*;
 @Named
 public class TriggerScheduleDao extends AbstractDao {
 
+    private static final Logger log = LoggerFactory.getLogger(TriggerScheduleDao.class);
+
     private final ConcordObjectMapper objectMapper;
 
     @Inject
@@ -55,24 +57,25 @@ public class TriggerScheduleDao extends AbstractDao {
         this.objectMapper = objectMapper;
     }
 
-    public TriggerSchedulerEntry findNext() {
+    /**
+     * Claims up to {@code limit} due triggers and moves their fire time
+     * to the next execution.
+     */
+    public List<TriggerSchedulerEntry> findNext(int limit) {
         return txResult(tx -> {
-            // TODO fetch everything in a single request?
-            Map<String, Object> e = tx.select(TRIGGER_SCHEDULE.TRIGGER_ID, TRIGGER_SCHEDULE.FIRE_AT)
+            Map<UUID, Timestamp> due = tx.select(TRIGGER_SCHEDULE.TRIGGER_ID, TRIGGER_SCHEDULE.FIRE_AT)
                     .from(TRIGGER_SCHEDULE)
                     .where(TRIGGER_SCHEDULE.FIRE_AT.le(currentTimestamp()))
-                    .limit(1)
+                    .orderBy(TRIGGER_SCHEDULE.FIRE_AT)
+                    .limit(limit)
                     .forUpdate()
                     .skipLocked()
-                    .fetchOneMap();
+                    .fetchMap(TRIGGER_SCHEDULE.TRIGGER_ID, TRIGGER_SCHEDULE.FIRE_AT);
 
-            if (e == null) {
-                return null;
+            if (due.isEmpty()) {
+                return Collections.emptyList();
             }
 
-            UUID id = (UUID) e.get(TRIGGER_SCHEDULE.TRIGGER_ID.getName());
-            Date fireAt = (Date) e.get(TRIGGER_SCHEDULE.FIRE_AT.getName());
-
             Triggers t = TRIGGERS.as("t");
             Projects p = PROJECTS.as("p");
             Repositories r = REPOSITORIES.as("r");
@@ -80,7 +83,7 @@ public class TriggerScheduleDao extends AbstractDao {
 
             Field<UUID> orgIdField = select(p.ORG_ID).from(p).where(p.PROJECT_ID.eq(t.PROJECT_ID)).asField();
 
-            Record13<UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String> record = tx.select(
+            Result<Record13<UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String>> records = tx.select(
                     t.TRIGGER_ID,
                     orgIdField,
                     o.ORG_NAME,
@@ -95,52 +98,71 @@ public class TriggerScheduleDao extends AbstractDao {
                     currentTimestamp(),
                     t.EVENT_SOURCE)
                     .from(t, p, r, o)
-                    .where(t.TRIGGER_ID.eq(id).
+                    .where(t.TRIGGER_ID.in(due.keySet()).
                             and(t.PROJECT_ID.eq(p.PROJECT_ID)).
                             and(p.PROJECT_ID.eq(r.PROJECT_ID)).
                             and(p.ORG_ID.eq(o.ORG_ID)).
                             and(t.REPO_ID.eq(r.REPO_ID)))
-                    .fetchOne();
-
-            if (record == null) {
-                return null;
+                    .fetch();
+
+            List<TriggerSchedulerEntry> result = new ArrayList<>(records.size());
+            List<Query> updates = new ArrayList<>(records.size());
+
+            for (Record13<UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String> record : records) {
+                UUID triggerId = record.value1();
+                UUID orgId = record.value2();
+                String organizationName = record.value3();
+                UUID projectId = record.value4();
+                String projectName = record.value5();
+                UUID repoId = record.value6();
+                String repositoryName = record.value7();
+                List<String> activeProfiles = toList(record.value8());
+                Map<String, Object> arguments = objectMapper.fromJSONB(record.value9());
+                Map<String, Object> cfg = objectMapper.fromJSONB(record.value10());
+                Map<String, Object> conditions = objectMapper.fromJSONB(record.value11());
+                Instant now = record.value12().toInstant();
+                String eventSource = record.value13();
+
+                Instant next = CronUtils.nextExecution(now, triggerId, conditions);
+                if (next == null) {
+                    // no more executions, the entry is removed as an orphan
+                    continue;
+                }
+
+                result.add(new TriggerSchedulerEntry(
+                        due.get(triggerId),
+                        triggerId,
+                        orgId,
+                        organizationName,
+                        projectId,
+                        projectName,
+                        repoId,
+                        repositoryName,
+                        conditions,
+                        cfg,
+                        activeProfiles,
+                        arguments,
+                        eventSource));
+
+                updates.add(updateFireAt(tx, triggerId, next));
             }
 
-            UUID triggerId = record.value1();
-            UUID orgId = record.value2();
-            String organizationName = record.value3();
-            UUID projectId = record.value4();
-            String projectName = record.value5();
-            UUID repoId = record.value6();
-            String repositoryName = record.value7();
-            List<String> activeProfiles = toList(record.value8());
-            Map<String, Object> arguments = objectMapper.fromJSONB(record.value9());
-            Map<String, Object> cfg = objectMapper.fromJSONB(record.value10());
-            Map<String, Object> conditions = objectMapper.fromJSONB(record.value11());
-            Instant now = record.value12().toInstant();
-            String eventSource = record.value13();
-
-            TriggerSchedulerEntry result = new TriggerSchedulerEntry(
-                    fireAt,
-                    triggerId,
-                    orgId,
-                    organizationName,
-                    projectId,
-                    projectName,
-                    repoId,
-                    repositoryName,
-                    conditions,
-                    cfg,
-                    activeProfiles,
-                    arguments,
-                    eventSource);
-
-            ZoneId zoneId = null;
-            if (conditions.get(Constants.Trigger.CRON_TIMEZONE) != null) {
-                zoneId = TimeZone.getTimeZone((String) conditions.get(Constants.Trigger.CRON_TIMEZONE)).toZoneId();
+            if (!updates.isEmpty()) {
+                tx.batch(updates).execute();
             }
 
-            updateFireAt(tx, id, CronUtils.nextExecution(now, (String) conditions.get(Constants.Trigger.CRON_SPEC), zoneId));
+            // schedule entries without a valid trigger (or without the next execution)
+            // would be claimed over and over again
+            if (result.size() < due.size()) {
+                Set<UUID> orphans = new HashSet<>(due.keySet());
+                result.forEach(e -> orphans.remove(e.getTriggerId()));
+
+                tx.deleteFrom(TRIGGER_SCHEDULE)
+                        .where(TRIGGER_SCHEDULE.TRIGGER_ID.in(orphans))
+                        .execute();
+
+                log.warn("findNext -> removed invalid schedule entries: {}", orphans);
+            }
 
             return result;
         });
@@ -159,11 +181,10 @@ public class TriggerScheduleDao extends AbstractDao {
                 .execute();
     }
 
-    private void updateFireAt(DSLContext tx, UUID triggerId, Instant fireAt) {
-        tx.update(TRIGGER_SCHEDULE)
+    private static Query updateFireAt(DSLContext tx, UUID triggerId, Instant fireAt) {
+        return tx.update(TRIGGER_SCHEDULE)
                 .set(TRIGGER_SCHEDULE.FIRE_AT, Timestamp.from(fireAt))
-                .where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId))
-                .execute();
+                .where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId));
     }
 
     private static <E> List<E> toList(E[] arr) {
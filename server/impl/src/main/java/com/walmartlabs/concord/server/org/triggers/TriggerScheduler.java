@@ -20,9 +20,10 @@ package com.walmartlabs.concord.server.org.triggers;
  * =====
  */
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.process.*;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import org.slf4j.Logger;
@@ -33,8 +34,12 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.xml.bind.DatatypeConverter;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
+/**
+ * Starts the processes of due cron triggers. The triggers are claimed
+ * in batches and the processes are started using a pool of worker threads.
+ */
 @Named("trigger-scheduler")
 @Singleton
 public class TriggerScheduler implements ScheduledTask {
@@ -48,40 +53,53 @@ public class TriggerScheduler implements ScheduledTask {
 
     private final Date startedAt;
     private final TriggerScheduleDao scheduleDao;
-    private final RepositoryDao repositoryDao;
+    private final TriggerIndex triggerIndex;
     private final ProcessManager processManager;
     private final ProcessSecurityContext processSecurityContext;
     private final TriggersConfiguration triggerCfg;
+    private final ExecutorService executor;
+    private final Histogram fireLagHistogram;
 
     @Inject
     public TriggerScheduler(TriggerScheduleDao scheduleDao,
-                            RepositoryDao repositoryDao,
+                            TriggerIndex triggerIndex,
                             ProcessManager processManager,
                             ProcessSecurityContext processSecurityContext,
-                            TriggersConfiguration triggerCfg) {
+                            TriggersConfiguration triggerCfg,
+                            MetricRegistry metricRegistry) {
 
         this.startedAt = new Date();
         this.scheduleDao = scheduleDao;
-        this.repositoryDao = repositoryDao;
+        this.triggerIndex = triggerIndex;
         this.processManager = processManager;
         this.processSecurityContext = processSecurityContext;
         this.triggerCfg = triggerCfg;
+        this.executor = createExecutor(triggerCfg.getCronWorkerThreads(), triggerCfg.getCronBatchSize());
+        this.fireLagHistogram = metricRegistry.histogram("cron-trigger-fire-lag");
     }
 
     @Override
     public long getIntervalInSec() {
-        return TimeUnit.MINUTES.toSeconds(1);
+        return Math.max(1, triggerCfg.getCronPollInterval().getSeconds());
     }
 
     @Override
     public void performTask() {
+        int batchSize = triggerCfg.getCronBatchSize();
+
         while (!Thread.currentThread().isInterrupted()) {
-            TriggerSchedulerEntry e = scheduleDao.findNext();
-            if (e == null) {
-                break;
+            List<TriggerSchedulerEntry> entries = scheduleDao.findNext(batchSize);
+
+            for (TriggerSchedulerEntry e : entries) {
+                if (e.getFireAt().after(startedAt)) {
+                    // when all workers are busy the process is started in the current thread,
+                    // which also stops claiming more triggers
+                    executor.execute(() -> startProcess(e));
+                }
             }
-            if (e.getFireAt().after(startedAt)) {
-                startProcess(e);
+
+            if (entries.size() < batchSize) {
+                break;
             }
         }
     }
@@ -97,7 +115,10 @@ public class TriggerScheduler implements ScheduledTask {
             return;
         }
 
-        log.info("run -> starting {}...", t);
+        long lag = System.currentTimeMillis() - t.getFireAt().getTime();
+        fireLagHistogram.update(lag);
+
+        log.info("run -> starting {}, lag: {}ms...", t, lag);
 
         Map<String, Object> args = new HashMap<>();
         if (t.getArguments() != null) {
@@ -148,7 +169,7 @@ public class TriggerScheduler implements ScheduledTask {
     }
 
     private boolean isRepositoryDisabled(TriggerSchedulerEntry t) {
-        return repositoryDao.get(t.getRepositoryId()).isDisabled();
+        return triggerIndex.isRepositoryDisabled(t.getRepositoryId());
     }
 
     private boolean isDisabled(String eventName) {
@@ -159,9 +180,22 @@ public class TriggerScheduler implements ScheduledTask {
         Map<String, Object> m = new HashMap<>();
         m.put(Constants.Trigger.CRON_SPEC, t.getConditions().get(Constants.Trigger.CRON_SPEC));
         m.put(Constants.Trigger.CRON_TIMEZONE, t.getConditions().get(Constants.Trigger.CRON_TIMEZONE));
+
+        // the scheduled time without the trigger's jitter
+        Date fireAt = Date.from(t.getFireAt().toInstant().minus(CronUtils.jitterOffset(t.getTriggerId(), t.getConditions())));
         Calendar c = Calendar.getInstance();
-        c.setTime(t.getFireAt());
+        c.setTime(fireAt);
         m.put(Constants.Trigger.CRON_EVENT_FIREAT, DatatypeConverter.printDateTime(c));
         return m;
     }
+
+    private static ExecutorService createExecutor(int poolSize, int queueSize) {
+        ThreadPoolExecutor p = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "trigger-scheduler-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        p.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return p;
+    }
 }
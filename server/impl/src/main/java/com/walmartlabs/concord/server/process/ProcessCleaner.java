@@ -23,8 +23,11 @@ package com.walmartlabs.concord.server.process;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.Partition;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.PartitionedTable;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.jooq.Condition;
 import org.jooq.Configuration;
 import org.jooq.Record1;
 import org.jooq.SelectConditionStep;
@@ -36,13 +39,14 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessCheckpoints.PROCESS_CHECKPOINTS;
-import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
-import static com.walmartlabs.concord.server.jooq.tables.ProcessLogs.PROCESS_LOGS;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_STATE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessStateBlobs.PROCESS_STATE_BLOBS;
+import static org.jooq.impl.DSL.*;
 
 @Named("process-cleaner")
 @Singleton
@@ -50,6 +54,12 @@ public class ProcessCleaner implements ScheduledTask {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessCleaner.class);
 
+    /**
+     * Recently used state blobs are kept regardless of whether they are
+     * referenced or not. Gives the concurrent state uploads time to commit.
+     */
+    private static final long UNUSED_BLOB_GRACE_PERIOD = 60 * 60 * 1000L;
+
     private static final String[] EXCLUDE_STATUSES = {
             ProcessStatus.STARTING.toString(),
             ProcessStatus.RUNNING.toString(),
@@ -58,11 +68,13 @@ public class ProcessCleaner implements ScheduledTask {
 
     private final ProcessConfiguration cfg;
     private final CleanerDao cleanerDao;
+    private final ProcessPartitionsDao partitionsDao;
 
     @Inject
-    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao) {
+    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao, ProcessPartitionsDao partitionsDao) {
         this.cfg = cfg;
         this.cleanerDao = cleanerDao;
+        this.partitionsDao = partitionsDao;
     }
 
     @Override
@@ -75,10 +87,69 @@ public class ProcessCleaner implements ScheduledTask {
         Timestamp cutoff = new Timestamp(System.currentTimeMillis() - cfg.getMaxStateAge());
         cleanerDao.deleteOldState(cutoff, cfg);
         cleanerDao.deleteOrphans(cfg);
+
+        if (cfg.isEventsCleanup()) {
+            dropPartitions(PartitionedTable.EVENTS, cutoff, cfg.getEventsMaxSize());
+        }
+
+        if (cfg.isLogsCleanup()) {
+            dropPartitions(PartitionedTable.LOGS, cutoff, cfg.getLogsMaxSize());
+        }
+
+        if (cfg.isStateCleanup()) {
+            cleanerDao.deleteUnusedBlobs(new Timestamp(System.currentTimeMillis() - UNUSED_BLOB_GRACE_PERIOD));
+        }
+    }
+
+    /**
+     * Removes the partitions with data of the processes older than {@code cutoff}.
+     * If {@code maxSize > 0} removes the oldest partitions until the total size
+     * of the table fits the limit. Partitions with running processes or the
+     * partitions that can still receive new processes are never removed.
+     * The partitions that can't be removed yet are skipped, the next ones
+     * are still considered. The "legacy" partition (the data created before
+     * the partitioning) is removed the same way, as a whole.
+     */
+    private void dropPartitions(PartitionedTable t, Timestamp cutoff, long maxSize) {
+        long t1 = System.currentTimeMillis();
+
+        List<Partition> partitions = partitionsDao.list(t);
+
+        long totalSize = partitions.stream().mapToLong(Partition::getSize).sum();
+        Timestamp now = new Timestamp(t1);
+
+        int dropped = 0;
+        int skipped = 0;
+        for (Partition p : partitions) {
+            boolean closed = p.getTo() != null && !p.getTo().after(now);
+            if (!closed) {
+                // this and the subsequent partitions can still receive new processes
+                break;
+            }
+
+            boolean expired = !p.getTo().after(cutoff);
+            boolean oversized = maxSize > 0 && totalSize > maxSize;
+            if (!expired && !oversized) {
+                continue;
+            }
+
+            if (cleanerDao.dropPartition(partitionsDao, p, expired ? cutoff : null)) {
+                log.info("dropPartitions ['{}'] -> removed {} ({} bytes, expired: {})", t.getName(), p, p.getSize(), expired);
+
+                totalSize -= p.getSize();
+                dropped++;
+            } else {
+                skipped++;
+            }
+        }
+
+        long t2 = System.currentTimeMillis();
+        log.info("dropPartitions ['{}'] -> removed {} partition(s), skipped {}, total size {} bytes, took {}ms",
+                t.getName(), dropped, skipped, totalSize, (t2 - t1));
     }
 
     @Named
-    private static class CleanerDao extends AbstractDao {
+    static class CleanerDao extends AbstractDao {
 
         @Inject
         protected CleanerDao(@MainDB Configuration cfg) {
@@ -108,20 +179,6 @@ public class ProcessCleaner implements ScheduledTask {
                             .execute();
                 }
 
-                int events = 0;
-                if (jobCfg.isEventsCleanup()) {
-                    events = tx.deleteFrom(PROCESS_EVENTS)
-                            .where(PROCESS_EVENTS.INSTANCE_ID.in(ids))
-                            .execute();
-                }
-
-                int logEntries = 0;
-                if (jobCfg.isLogsCleanup()) {
-                    logEntries = tx.deleteFrom(PROCESS_LOGS)
-                            .where(PROCESS_LOGS.INSTANCE_ID.in(ids))
-                            .execute();
-                }
-
                 int checkpoints = 0;
                 if (jobCfg.isCheckpointCleanup()) {
                     checkpoints = tx.deleteFrom(PROCESS_CHECKPOINTS)
@@ -129,8 +186,8 @@ public class ProcessCleaner implements ScheduledTask {
                             .execute();
                 }
 
-                log.info("deleteOldState -> removed older than {}: {} queue entries, {} log entries, {} state item(s), {} event(s), {} checkpoint(s)",
-                        cutoff, queueEntries, logEntries, stateRecords, events, checkpoints);
+                log.info("deleteOldState -> removed older than {}: {} queue entries, {} state item(s), {} checkpoint(s)",
+                        cutoff, queueEntries, stateRecords, checkpoints);
             });
 
             long t2 = System.currentTimeMillis();
@@ -150,20 +207,6 @@ public class ProcessCleaner implements ScheduledTask {
                             .execute();
                 }
 
-                int events = 0;
-                if (jobCfg.isEventsCleanup()) {
-                    events = tx.deleteFrom(PROCESS_EVENTS)
-                            .where(PROCESS_EVENTS.INSTANCE_ID.notIn(alive))
-                            .execute();
-                }
-
-                int logEntries = 0;
-                if (jobCfg.isLogsCleanup()) {
-                    logEntries = tx.deleteFrom(PROCESS_LOGS)
-                            .where(PROCESS_LOGS.INSTANCE_ID.notIn(alive))
-                            .execute();
-                }
-
                 int checkpoints = 0;
                 if (jobCfg.isCheckpointCleanup()) {
                     checkpoints = tx.deleteFrom(PROCESS_CHECKPOINTS)
@@ -171,12 +214,59 @@ public class ProcessCleaner implements ScheduledTask {
                             .execute();
                 }
 
-                log.info("deleteOrphans -> removed orphan data: {} log entries, {} state item(s), {} event(s), {} checkpoint(s)",
-                        logEntries, stateRecords, events, checkpoints);
+                log.info("deleteOrphans -> removed orphan data: {} state item(s), {} checkpoint(s)",
+                        stateRecords, checkpoints);
             });
 
             long t2 = System.currentTimeMillis();
             log.info("deleteOrphans -> took {}ms", (t2 - t1));
         }
+
+        /**
+         * Removes the partition unless it contains data of running processes or,
+         * if {@code cutoff} is specified, of processes updated after {@code cutoff}.
+         * @return {@code true} if the partition was removed.
+         */
+        boolean dropPartition(ProcessPartitionsDao partitionsDao, Partition p, Timestamp cutoff) {
+            return txResult(tx -> {
+                Condition inRange = PROCESS_QUEUE.CREATED_AT.lessThan(p.getTo());
+                if (p.getFrom() != null) {
+                    inRange = inRange.and(PROCESS_QUEUE.CREATED_AT.greaterOrEqual(p.getFrom()));
+                }
+
+                Condition alive = PROCESS_QUEUE.CURRENT_STATUS.in(EXCLUDE_STATUSES);
+                if (cutoff != null) {
+                    alive = alive.or(PROCESS_QUEUE.LAST_UPDATED_AT.greaterOrEqual(cutoff));
+                }
+
+                UUID blocker = tx.select(PROCESS_QUEUE.INSTANCE_ID)
+                        .from(PROCESS_QUEUE)
+                        .where(inRange.and(alive))
+                        .limit(1)
+                        .fetchOne(PROCESS_QUEUE.INSTANCE_ID);
+
+                if (blocker != null) {
+                    log.warn("dropPartition -> can't remove {} ({} bytes) yet, it contains the data of process {}", p, p.getSize(), blocker);
+                    return false;
+                }
+
+                partitionsDao.drop(tx, p);
+                return true;
+            });
+        }
+
+        void deleteUnusedBlobs(Timestamp cutoff) {
+            long t1 = System.currentTimeMillis();
+
+            int blobs = txResult(tx -> tx.deleteFrom(PROCESS_STATE_BLOBS)
+                    .where(PROCESS_STATE_BLOBS.LAST_USED_AT.lessThan(cutoff)
+                            .andNotExists(selectOne()
+                                    .from(PROCESS_STATE)
+                                    .where(PROCESS_STATE.BLOB_HASH.eq(PROCESS_STATE_BLOBS.BLOB_HASH))))
+                    .execute());
+
+            long t2 = System.currentTimeMillis();
+            log.info("deleteUnusedBlobs -> removed {} state blob(s), took {}ms", blobs, (t2 - t1));
+        }
     }
 }
@@ -251,8 +251,11 @@ public class ProcessManager {
             return;
         }
 
-        queueManager.updateAgentId(processKey, agentId, status);
+        // log the status before it becomes visible to the clients, so the status
+        // message is saved by the time the clients see the process finished
+        // (the process log appends return only after the data is saved)
         logManager.info(processKey, "Process status: {}", status);
+        queueManager.updateAgentId(processKey, agentId, status);
 
         log.info("updateStatus [{}, '{}', {}] -> done", processKey, agentId, status);
     }
@@ -0,0 +1,109 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.Partition;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.PartitionedTable;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Creates new partitions of {@code PROCESS_EVENTS} and {@code PROCESS_LOGS}
+ * ahead of time. Expired partitions are removed by {@link ProcessCleaner}.
+ */
+@Named("process-partition-manager")
+@Singleton
+public class ProcessPartitionManager implements ScheduledTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessPartitionManager.class);
+
+    /**
+     * Number of partitions to keep ready in advance.
+     */
+    private static final int PARTITIONS_AHEAD = 3;
+
+    private static final long DEFAULT_CHECK_INTERVAL = 3600;
+
+    private final ProcessConfiguration cfg;
+    private final ProcessPartitionsDao dao;
+
+    @Inject
+    public ProcessPartitionManager(ProcessConfiguration cfg, ProcessPartitionsDao dao) {
+        this.cfg = cfg;
+        this.dao = dao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        // there's no default partition (Postgres 10), without new partitions
+        // the new processes can't save their events and logs. The task can't be disabled
+        long interval = cfg.getPartitionCheckInterval();
+        return interval > 0 ? interval : DEFAULT_CHECK_INTERVAL;
+    }
+
+    @Override
+    public void performTask() {
+        for (PartitionedTable t : PartitionedTable.values()) {
+            createPartitions(t);
+        }
+    }
+
+    private void createPartitions(PartitionedTable t) {
+        long period = cfg.getPartitionPeriod();
+        if (period <= 0) {
+            throw new IllegalStateException("Invalid process.partitionPeriod value: " + period);
+        }
+
+        long horizon = System.currentTimeMillis() + PARTITIONS_AHEAD * period;
+
+        List<Partition> partitions = dao.list(t);
+
+        Timestamp from;
+        if (partitions.isEmpty()) {
+            from = Timestamp.valueOf(LocalDate.now(ZoneOffset.UTC).atStartOfDay());
+        } else {
+            from = partitions.get(partitions.size() - 1).getTo();
+        }
+
+        if (from == null) {
+            // the last partition is unbounded, nothing to do
+            return;
+        }
+
+        while (from.getTime() < horizon) {
+            Timestamp to = new Timestamp(from.getTime() + period);
+            dao.create(t, from, to);
+            log.info("createPartitions ['{}'] -> created [{}, {})", t.getName(), from, to);
+            from = to;
+        }
+    }
+}
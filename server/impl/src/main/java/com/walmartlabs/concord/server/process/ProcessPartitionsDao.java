@@ -0,0 +1,186 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessLogs.PROCESS_LOGS;
+
+/**
+ * Manages the range partitions of the tables partitioned by
+ * {@code INSTANCE_CREATED_AT}. Postgres 10 doesn't support indexes on
+ * the partitioned tables, so each partition gets its own set of indexes.
+ */
+@Named
+public class ProcessPartitionsDao extends AbstractDao {
+
+    public enum PartitionedTable {
+
+        EVENTS(PROCESS_EVENTS, "EVENT_SEQ",
+                new String[]{"INSTANCE_ID", "INSTANCE_CREATED_AT", "EVENT_DATE", "EVENT_TYPE"},
+                new String[]{"EVENT_SEQ", "EVENT_TYPE"}),
+
+        LOGS(PROCESS_LOGS, "LOG_SEQ",
+                new String[]{"INSTANCE_ID", "INSTANCE_CREATED_AT"});
+
+        private final Table<?> table;
+        private final String primaryKey;
+        private final String[][] indexes;
+
+        PartitionedTable(Table<?> table, String primaryKey, String[]... indexes) {
+            this.table = table;
+            this.primaryKey = primaryKey;
+            this.indexes = indexes;
+        }
+
+        public String getName() {
+            return table.getName();
+        }
+    }
+
+    private static final String LIST_SQL = "select c.relname, pg_get_expr(c.relpartbound, c.oid), pg_total_relation_size(c.oid) " +
+            "from pg_inherits i " +
+            "join pg_class c on c.oid = i.inhrelid " +
+            "where i.inhparent = ?::regclass";
+
+    private static final Pattern BOUNDS_PATTERN = Pattern.compile("FOR VALUES FROM \\((MINVALUE|'([^']*)')\\) TO \\((MAXVALUE|'([^']*)')\\)");
+
+    @Inject
+    public ProcessPartitionsDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    /**
+     * @return partitions of the specified table, oldest first.
+     */
+    public List<Partition> list(PartitionedTable t) {
+        List<Partition> result = txResult(tx -> tx.connectionResult(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(LIST_SQL)) {
+                ps.setString(1, t.getName().toLowerCase());
+
+                List<Partition> l = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        l.add(toPartition(rs.getString(1), rs.getString(2), rs.getLong(3)));
+                    }
+                }
+                return l;
+            }
+        }));
+
+        result.sort(Comparator.comparing(Partition::getFrom, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    public void create(PartitionedTable t, Timestamp from, Timestamp to) {
+        String name = t.getName() + "_P" + new SimpleDateFormat("yyyyMMddHHmm").format(from);
+
+        tx(tx -> {
+            tx.execute("create table if not exists " + name +
+                    " partition of " + t.getName() + " (primary key (" + t.primaryKey + "))" +
+                    " for values from ('" + from + "') to ('" + to + "')");
+
+            for (int i = 0; i < t.indexes.length; i++) {
+                tx.execute("create index if not exists IDX_" + name + "_" + i +
+                        " on " + name + " (" + String.join(", ", t.indexes[i]) + ")");
+            }
+        });
+    }
+
+    public void drop(DSLContext tx, Partition p) {
+        tx.execute("drop table if exists " + p.getName());
+    }
+
+    private static Partition toPartition(String name, String bounds, long size) {
+        Matcher m = BOUNDS_PATTERN.matcher(bounds);
+        if (!m.matches()) {
+            throw new IllegalStateException("Unexpected partition bounds of '" + name + "': " + bounds);
+        }
+
+        Timestamp from = m.group(2) != null ? Timestamp.valueOf(m.group(2)) : null;
+        Timestamp to = m.group(4) != null ? Timestamp.valueOf(m.group(4)) : null;
+        return new Partition(name, from, to, size);
+    }
+
+    public static final class Partition implements Serializable {
+
+        private final String name;
+        private final Timestamp from;
+        private final Timestamp to;
+        private final long size;
+
+        public Partition(String name, Timestamp from, Timestamp to, long size) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the inclusive lower bound or {@code null} if unbounded.
+         */
+        public Timestamp getFrom() {
+            return from;
+        }
+
+        /**
+         * @return the exclusive upper bound or {@code null} if unbounded.
+         */
+        public Timestamp getTo() {
+            return to;
+        }
+
+        /**
+         * @return the partition's size in bytes, including indexes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + from + ", " + to + ")";
+        }
+    }
+}
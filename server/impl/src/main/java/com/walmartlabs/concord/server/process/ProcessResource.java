@@ -21,6 +21,7 @@ package com.walmartlabs.concord.server.process;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
 import com.walmartlabs.concord.common.ConfigurationUtils;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.imports.Imports;
@@ -39,10 +40,12 @@ import com.walmartlabs.concord.server.process.ProcessEntry.ProcessWaitHistoryEnt
 import com.walmartlabs.concord.server.process.ProcessManager.ProcessResult;
 import com.walmartlabs.concord.server.process.event.ProcessEventDao;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import com.walmartlabs.concord.server.process.logs.ProcessLogWatcher;
 import com.walmartlabs.concord.server.process.logs.ProcessLogsDao;
 import com.walmartlabs.concord.server.process.logs.ProcessLogsDao.ProcessLog;
 import com.walmartlabs.concord.server.process.logs.ProcessLogsDao.ProcessLogChunk;
 import com.walmartlabs.concord.server.process.queue.*;
+import com.walmartlabs.concord.server.process.queue.ProcessCompletionCondition.CompleteCondition;
 import com.walmartlabs.concord.server.process.state.ProcessStateManager;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
@@ -69,6 +72,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.Status;
 import java.io.*;
@@ -76,8 +81,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
+import static com.walmartlabs.concord.server.process.state.ProcessStateManager.incrementalZipTo;
 import static com.walmartlabs.concord.server.process.state.ProcessStateManager.path;
 import static com.walmartlabs.concord.server.process.state.ProcessStateManager.zipTo;
 
@@ -89,6 +101,19 @@ public class ProcessResource implements Resource {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessResource.class);
 
+    private static final Set<ProcessStatus> FINAL_STATUSES = EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
+    private static final int MAX_LOG_TAIL_TIMEOUT = 60;
+    private static final int LOG_TAIL_MAX_CHUNKS = 100;
+    private static final int MAX_WAIT_FOR_COMPLETION_TIMEOUT = 60;
+    private static final int MAX_WAIT_FOR_COMPLETION_IDS = 1000;
+    private static final String LOG_OFFSET_HEADER = "X-Concord-Log-Offset";
+    private static final String LOG_EOF_HEADER = "X-Concord-Log-EOF";
+
     private final ProcessManager processManager;
     private final ProcessQueueDao queueDao;
     private final ProcessQueueManager processQueueManager;
@@ -103,6 +128,8 @@ public class ProcessResource implements Resource {
     private final ProcessConfiguration processCfg;
     private final ProcessLogManager logManager;
     private final ProcessEventDao processEventDao;
+    private final ProcessLogWatcher logWatcher;
+    private final ProcessStatusWatcher statusWatcher;
 
     private final ProcessResourceV2 v2;
 
@@ -121,6 +148,8 @@ public class ProcessResource implements Resource {
                            ProcessConfiguration processCfg,
                            ProcessLogManager logManager,
                            ProcessEventDao processEventDao,
+                           ProcessLogWatcher logWatcher,
+                           ProcessStatusWatcher statusWatcher,
                            ProcessResourceV2 v2) {
 
         this.processManager = processManager;
@@ -137,6 +166,8 @@ public class ProcessResource implements Resource {
         this.processCfg = processCfg;
         this.logManager = logManager;
         this.processEventDao = processEventDao;
+        this.logWatcher = logWatcher;
+        this.statusWatcher = statusWatcher;
 
         this.v2 = v2;
     }
@@ -474,47 +505,28 @@ public class ProcessResource implements Resource {
      *
      * @param instanceId
      * @param timeout
-     * @return
+     * @param asyncResponse
      */
     @GET
-    @ApiOperation("Wait for a process to finish")
+    @ApiOperation(value = "Wait for a process to finish", response = ProcessEntry.class)
     @Produces(MediaType.APPLICATION_JSON)
     @javax.ws.rs.Path("/{id}/waitForCompletion")
-    public ProcessEntry waitForCompletion(@ApiParam @PathParam("id") UUID instanceId,
-                                          @ApiParam @QueryParam("timeout") @DefaultValue("-1") long timeout) {
+    public void waitForCompletion(@ApiParam @PathParam("id") UUID instanceId,
+                                  @ApiParam @QueryParam("timeout") @DefaultValue("-1") long timeout,
+                                  @Suspended AsyncResponse asyncResponse) {
 
         log.info("waitForCompletion ['{}', {}] -> waiting...", instanceId, timeout);
 
-        long t1 = System.currentTimeMillis();
-
-        ProcessEntry r;
-        while (true) {
-            r = get(instanceId);
-
-            ProcessStatus s = r.status();
-            if (s == ProcessStatus.FINISHED ||
-                    s == ProcessStatus.FAILED ||
-                    s == ProcessStatus.CANCELLED ||
-                    s == ProcessStatus.TIMED_OUT) {
-                return r;
-            }
+        // fail early if the process doesn't exist
+        get(instanceId);
 
-            if (timeout > 0) {
-                long t2 = System.currentTimeMillis();
-                if (t2 - t1 >= timeout) {
-                    log.warn("waitForCompletion ['{}', {}] -> timeout, last status: {}", instanceId, timeout, s);
-                    throw new ConcordApplicationException(Response.status(Status.REQUEST_TIMEOUT).entity(r).build());
-                }
-            }
-
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) { // NOSONAR
-                throw new ConcordApplicationException(Response.status(Status.INTERNAL_SERVER_ERROR)
-                        .entity("Request was interrputed")
-                        .build());
-            }
-        }
+        new CompletionWait(Collections.singleton(instanceId), CompleteCondition.ALL, asyncResponse)
+                .start(timeout, entries -> Response.ok(single(instanceId, entries)).build(),
+                        entries -> {
+                            ProcessEntry e = single(instanceId, entries);
+                            log.warn("waitForCompletion ['{}', {}] -> timeout, last status: {}", instanceId, timeout, e.status());
+                            return Response.status(Status.REQUEST_TIMEOUT).entity(e).build();
+                        });
     }
 
     /**
@@ -560,6 +572,44 @@ public class ProcessResource implements Resource {
         instanceIdList.forEach(this::kill);
     }
 
+    /**
+     * Waits for completion of multiple processes. Returns the current state
+     * of the specified processes when all (or one of, depending on
+     * the {@code condition}) processes are finished or when the timeout
+     * is reached. The client is expected to repeat the request for the
+     * unfinished processes.
+     *
+     * @param instanceIds
+     * @param condition
+     * @param timeout timeout in seconds
+     * @param asyncResponse
+     */
+    @POST
+    @ApiOperation(value = "Wait for multiple processes to finish", response = ProcessEntry.class, responseContainer = "List")
+    @javax.ws.rs.Path("/bulk/waitForCompletion")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public void batchWaitForCompletion(@ApiParam List<UUID> instanceIds,
+                                       @ApiParam @QueryParam("condition") @DefaultValue("ALL") CompleteCondition condition,
+                                       @ApiParam @QueryParam("timeout") @DefaultValue("30") int timeout,
+                                       @Suspended AsyncResponse asyncResponse) {
+
+        if (instanceIds == null || instanceIds.isEmpty()) {
+            throw new ConcordApplicationException("Process instance IDs are required", Status.BAD_REQUEST);
+        }
+
+        if (instanceIds.size() > MAX_WAIT_FOR_COMPLETION_IDS) {
+            throw new ConcordApplicationException("Too many process instance IDs: " + instanceIds.size() +
+                    ", max: " + MAX_WAIT_FOR_COMPLETION_IDS, Status.BAD_REQUEST);
+        }
+
+        long t = TimeUnit.SECONDS.toMillis(Math.max(1, Math.min(timeout, MAX_WAIT_FOR_COMPLETION_TIMEOUT)));
+        new CompletionWait(new HashSet<>(instanceIds), condition, asyncResponse)
+                .start(t, entries -> Response.ok(entries).build(),
+                        entries -> Response.ok(entries).build());
+    }
+
     /**
      * Forcefully stops a process and all its children.
      *
@@ -853,26 +903,73 @@ public class ProcessResource implements Resource {
                 .build();
     }
 
+    /**
+     * Waits for new log data ("long polling"). Returns the data starting
+     * from the specified {@code offset} as soon as it's available or
+     * an empty response after the {@code timeout} (in seconds).
+     * <p>
+     * The {@code X-Concord-Log-Offset} response header contains the offset
+     * for the next request. The {@code X-Concord-Log-EOF} header is set if
+     * the process is finished and there's no more data to read.
+     *
+     * @param instanceId
+     * @param offset
+     * @param timeout
+     * @param asyncResponse
+     */
+    @GET
+    @ApiOperation(value = "Wait for new log data")
+    @javax.ws.rs.Path("/{id}/log/tail")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @WithTimer
+    public void tailLog(@ApiParam @PathParam("id") UUID instanceId,
+                        @ApiParam @QueryParam("offset") @DefaultValue("0") int offset,
+                        @ApiParam @QueryParam("timeout") @DefaultValue("30") int timeout,
+                        @Suspended AsyncResponse asyncResponse) {
+
+        // check the permissions, logs can contain sensitive data
+        ProcessKey processKey = assertLogAccess(instanceId);
+
+        if (offset < 0) {
+            throw new ConcordApplicationException("Invalid offset: " + offset, Status.BAD_REQUEST);
+        }
+
+        int t = Math.max(1, Math.min(timeout, MAX_LOG_TAIL_TIMEOUT));
+        new LogTail(processKey, offset, asyncResponse).start(t);
+    }
+
     /**
      * Appends a process' log.
      *
      * @param instanceId
+     * @param contentEncoding
      * @param data
      */
     @POST
     @javax.ws.rs.Path("{id}/log")
     @Consumes(MediaType.APPLICATION_OCTET_STREAM)
     @WithTimer
-    public void appendLog(@PathParam("id") UUID instanceId, InputStream data) {
+    public void appendLog(@PathParam("id") UUID instanceId,
+                          @HeaderParam(HttpHeaders.CONTENT_ENCODING) String contentEncoding,
+                          InputStream data) {
+
         ProcessKey processKey = assertProcessKey(instanceId);
 
+        // whenever we accept logs from an external source (e.g. from an Agent) we need to check
+        // the log size limits
+        int logSizeLimit = processCfg.getLogSizeLimit();
+
         try {
-            byte[] ab = IOUtils.toByteArray(data);
+            byte[] ab;
+            if ("gzip".equalsIgnoreCase(contentEncoding)) {
+                // agents can send compressed log chunks
+                ab = gunzip(data, logSizeLimit);
+            } else {
+                ab = IOUtils.toByteArray(data);
+            }
+
             int upper = logManager.log(processKey, ab);
 
-            // whenever we accept logs from an external source (e.g. from an Agent) we need to check
-            // the log size limits
-            int logSizeLimit = processCfg.getLogSizeLimit();
             if (upper >= logSizeLimit) {
                 logManager.error(processKey, "Maximum log size reached: {}. Process cancelled.", logSizeLimit);
                 processManager.kill(processKey);
@@ -882,6 +979,20 @@ public class ProcessResource implements Resource {
         }
     }
 
+    /**
+     * Decompresses a log chunk. A chunk can't be larger than the max log size,
+     * stops reading as soon as the inflated data exceeds {@code maxSize}.
+     */
+    static byte[] gunzip(InputStream in, int maxSize) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(in)) {
+            byte[] ab = IOUtils.toByteArray(ByteStreams.limit(gzip, maxSize + 1L));
+            if (ab.length > maxSize) {
+                throw new ConcordApplicationException("Log chunk is too large, max size: " + maxSize, Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+            return ab;
+        }
+    }
+
     /**
      * Downloads the current state snapshot of a process.
      */
@@ -906,6 +1017,36 @@ public class ProcessResource implements Resource {
                 .build();
     }
 
+    /**
+     * Downloads the current state snapshot of a process. The data of
+     * deduplicated files with the specified hashes is omitted.
+     */
+    @POST
+    @ApiOperation(value = "Download a process state snapshot, skip the known files", response = File.class)
+    @javax.ws.rs.Path("/{id}/state/snapshot")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces("application/zip")
+    public Response downloadStateIncremental(@ApiParam @PathParam("id") UUID instanceId,
+                                             @ApiParam Set<String> knownHashes) {
+
+        ProcessEntry entry = assertProcess(PartialProcessKey.from(instanceId));
+        ProcessKey processKey = ProcessKey.from(entry);
+
+        assertProcessAccess(entry, "attachments");
+
+        Set<String> hashes = knownHashes != null ? knownHashes : Collections.emptySet();
+
+        StreamingOutput out = output -> {
+            try (ZipArchiveOutputStream dst = new ZipArchiveOutputStream(output)) {
+                stateManager.export(processKey, hashes, incrementalZipTo(dst));
+            }
+        };
+
+        return Response.ok(out, "application/zip")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + instanceId + ".zip\"")
+                .build();
+    }
+
     /**
      * Downloads a single file from the current state snapshot of a process.
      */
@@ -1191,4 +1332,232 @@ public class ProcessResource implements Resource {
         return new ConcordApplicationException("The 'sync' mode is no longer available. " +
                 "Please use sync=false and poll for the status updates.", Status.BAD_REQUEST);
     }
+
+    /**
+     * A pending {@link #tailLog(UUID, int, int, AsyncResponse)} request.
+     */
+    private final class LogTail implements ProcessLogWatcher.Subscriber {
+
+        private final ProcessKey processKey;
+        private final int offset;
+        private final AsyncResponse asyncResponse;
+
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private final AtomicBoolean busy = new AtomicBoolean(false);
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private LogTail(ProcessKey processKey, int offset, AsyncResponse asyncResponse) {
+            this.processKey = processKey;
+            this.offset = offset;
+            this.asyncResponse = asyncResponse;
+        }
+
+        public void start(int timeout) {
+            if (tryComplete(this::isFinished)) {
+                return;
+            }
+
+            asyncResponse.setTimeout(timeout, TimeUnit.SECONDS);
+            asyncResponse.setTimeoutHandler(r -> complete(Response.ok()
+                    .header(LOG_OFFSET_HEADER, offset)
+                    .build()));
+
+            logWatcher.subscribe(processKey, this);
+
+            // the data might've been saved before we subscribed
+            onUpdate(false);
+        }
+
+        @Override
+        public void onUpdate(boolean finished) {
+            if (finished) {
+                this.finished.set(true);
+            }
+
+            // coalesce concurrent notifications, but don't lose the ones received while busy
+            pending.set(true);
+            while (!done.get() && pending.get() && busy.compareAndSet(false, true)) {
+                try {
+                    pending.set(false);
+                    tryComplete(this.finished::get);
+                } catch (Exception e) {
+                    log.warn("tailLog ['{}'] -> error: {}", processKey, e.getMessage());
+                    complete(Response.serverError().build());
+                } finally {
+                    busy.set(false);
+                }
+            }
+        }
+
+        /**
+         * Completes the request if there's any data after the offset. Only
+         * the first {@link #LOG_TAIL_MAX_CHUNKS} chunks are returned, the
+         * client picks up the rest using the returned offset.
+         * If there's no data and the process is finished, completes the
+         * request with the EOF header.
+         */
+        private boolean tryComplete(BooleanSupplier finished) {
+            // check the status first, the data saved before the process finished must be in the result
+            boolean isFinished = finished.getAsBoolean();
+
+            List<ProcessLogChunk> chunks = logsDao.getChunksFrom(processKey, offset, LOG_TAIL_MAX_CHUNKS);
+
+            if (chunks.isEmpty()) {
+                if (!isFinished) {
+                    return false;
+                }
+
+                return complete(Response.ok()
+                        .header(LOG_OFFSET_HEADER, offset)
+                        .header(LOG_EOF_HEADER, true)
+                        .build());
+            }
+
+            ProcessLogChunk last = chunks.get(chunks.size() - 1);
+            int nextOffset = last.getStart() + last.getData().length;
+
+            StreamingOutput out = output -> {
+                for (ProcessLogChunk c : chunks) {
+                    byte[] ab = c.getData();
+                    int skip = Math.max(0, offset - c.getStart());
+                    if (skip < ab.length) {
+                        output.write(ab, skip, ab.length - skip);
+                    }
+                }
+            };
+
+            return complete(Response.ok(out)
+                    .header(LOG_OFFSET_HEADER, nextOffset)
+                    .build());
+        }
+
+        private boolean complete(Response response) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+
+            logWatcher.unsubscribe(processKey, this);
+            asyncResponse.resume(response);
+            return true;
+        }
+
+        private boolean isFinished() {
+            ProcessStatus s = queueDao.getStatus(processKey.getInstanceId());
+            return logWatcher.isFinished(processKey, s);
+        }
+    }
+
+    private static ProcessEntry single(UUID instanceId, List<ProcessEntry> entries) {
+        if (entries.isEmpty()) {
+            throw new ConcordApplicationException("Process instance not found: " + instanceId, Status.NOT_FOUND);
+        }
+        return entries.get(0);
+    }
+
+    /**
+     * A pending {@link #waitForCompletion(UUID, long, AsyncResponse)} or
+     * {@link #batchWaitForCompletion(List, CompleteCondition, int, AsyncResponse)} request.
+     */
+    private final class CompletionWait implements Runnable {
+
+        private final Set<UUID> instanceIds;
+        private final CompleteCondition condition;
+        private final AsyncResponse asyncResponse;
+
+        private final Set<UUID> finished = ConcurrentHashMap.newKeySet();
+
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private final AtomicBoolean busy = new AtomicBoolean(false);
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+
+        private Function<List<ProcessEntry>, Response> onComplete;
+
+        private CompletionWait(Set<UUID> instanceIds, CompleteCondition condition, AsyncResponse asyncResponse) {
+            this.instanceIds = instanceIds;
+            this.condition = condition;
+            this.asyncResponse = asyncResponse;
+        }
+
+        /**
+         * @param timeout timeout in milliseconds, if {@code <= 0} waits until completion.
+         */
+        public void start(long timeout,
+                          Function<List<ProcessEntry>, Response> onComplete,
+                          Function<List<ProcessEntry>, Response> onTimeout) {
+
+            this.onComplete = onComplete;
+
+            // zero timeout suspends the request indefinitely
+            asyncResponse.setTimeout(Math.max(timeout, 0), TimeUnit.MILLISECONDS);
+            asyncResponse.setTimeoutHandler(r -> complete(onTimeout));
+
+            instanceIds.forEach(id -> statusWatcher.subscribe(id, this));
+
+            // the processes might've finished before we subscribed
+            run();
+        }
+
+        @Override
+        public void run() {
+            // coalesce concurrent notifications, but don't lose the ones received while busy
+            pending.set(true);
+            while (!done.get() && pending.get() && busy.compareAndSet(false, true)) {
+                try {
+                    pending.set(false);
+                    if (isCompleted()) {
+                        complete(onComplete);
+                    }
+                } catch (Exception e) {
+                    log.warn("waitForCompletion ['{}'] -> error: {}", instanceIds, e.getMessage());
+                    complete(entries -> Response.serverError().build());
+                } finally {
+                    busy.set(false);
+                }
+            }
+        }
+
+        private boolean isCompleted() {
+            Set<UUID> remaining = new HashSet<>(instanceIds);
+            remaining.removeAll(finished);
+
+            Map<UUID, ProcessStatus> statuses = queueDao.getStatuses(remaining);
+            for (UUID id : remaining) {
+                ProcessStatus s = statuses.get(id);
+                // removed processes are considered finished
+                if (s == null || FINAL_STATUSES.contains(s)) {
+                    finished.add(id);
+                }
+            }
+
+            switch (condition) {
+                case ALL: {
+                    return finished.size() == instanceIds.size();
+                }
+                case ONE_OF: {
+                    return !finished.isEmpty();
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown condition type: " + condition);
+            }
+        }
+
+        private void complete(Function<List<ProcessEntry>, Response> responseFn) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+
+            instanceIds.forEach(id -> statusWatcher.unsubscribe(id, this));
+
+            try {
+                List<PartialProcessKey> keys = instanceIds.stream()
+                        .map(PartialProcessKey::from)
+                        .collect(Collectors.toList());
+
+                asyncResponse.resume(responseFn.apply(queueDao.get(keys)));
+            } catch (Exception e) {
+                asyncResponse.resume(e);
+            }
+        }
+    }
 }
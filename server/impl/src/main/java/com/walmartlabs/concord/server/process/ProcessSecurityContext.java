@@ -66,6 +66,15 @@ public class ProcessSecurityContext {
     }
 
     public void storeCurrentSubject(ProcessKey processKey) {
+        stateManager.replace(processKey, PRINCIPAL_FILE_PATH, PrincipalUtils.serialize(getCurrentPrincipals()));
+    }
+
+    /**
+     * @return the current subject's principals without the transient ones
+     * (e.g. session keys). The result can be serialized and used later
+     * with {@link #runAs(PrincipalCollection, Callable)}.
+     */
+    public PrincipalCollection getCurrentPrincipals() {
         Subject s = SecurityUtils.getSubject();
 
         PrincipalCollection src = s.getPrincipals();
@@ -83,7 +92,7 @@ public class ProcessSecurityContext {
             }
         }
 
-        stateManager.replace(processKey, PRINCIPAL_FILE_PATH, PrincipalUtils.serialize(dst));
+        return dst;
     }
 
     public PrincipalCollection getPrincipals(PartialProcessKey processKey) {
@@ -105,24 +114,24 @@ public class ProcessSecurityContext {
             throw new UnauthorizedException("User '" + userID + "'not found");
         }
 
-        ThreadContext.bind(securityManager);
-
         SimplePrincipalCollection principals = new SimplePrincipalCollection();
         principals.add(new UserPrincipal(InternalRealm.REALM_NAME, u), InternalRealm.REALM_NAME);
 
-        Subject subject = new Subject.Builder()
-                .sessionCreationEnabled(false)
-                .authenticated(true)
-                .principals(principals)
-                .buildSubject();
-
-        ThreadContext.bind(subject);
-
-        return c.call();
+        return runAs(principals, c);
     }
 
     public <T> T runAsCurrentUser(ProcessKey processKey, Callable<T> c) throws Exception {
         PrincipalCollection principals = getPrincipals(processKey);
+        return runAs(principals, c);
+    }
+
+    /**
+     * Calls {@code c} using a subject with the specified principals.
+     * The thread's previous subject (if any) is restored afterwards.
+     */
+    public <T> T runAs(PrincipalCollection principals, Callable<T> c) throws Exception {
+        SecurityManager prevSecurityManager = ThreadContext.getSecurityManager();
+        Subject prevSubject = ThreadContext.getSubject();
 
         ThreadContext.bind(securityManager);
 
@@ -137,8 +146,17 @@ public class ProcessSecurityContext {
 
             return c.call();
         } finally {
-            ThreadContext.unbindSubject();
-            ThreadContext.unbindSecurityManager();
+            if (prevSubject != null) {
+                ThreadContext.bind(prevSubject);
+            } else {
+                ThreadContext.unbindSubject();
+            }
+
+            if (prevSecurityManager != null) {
+                ThreadContext.bind(prevSecurityManager);
+            } else {
+                ThreadContext.unbindSecurityManager();
+            }
         }
     }
 }
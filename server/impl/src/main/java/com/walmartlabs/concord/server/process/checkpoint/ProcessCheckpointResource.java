@@ -22,6 +22,7 @@ package com.walmartlabs.concord.server.process.checkpoint;
 
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.common.TemporaryPath;
+import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.MultipartUtils;
 import com.walmartlabs.concord.server.process.ProcessEntry;
 import com.walmartlabs.concord.server.process.ProcessEntry.ProcessCheckpointEntry;
@@ -47,6 +48,7 @@ import javax.inject.Singleton;
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -110,24 +112,31 @@ public class ProcessCheckpointResource implements Resource {
     @POST
     @javax.ws.rs.Path("{id}/checkpoint")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public void uploadCheckpoint(@PathParam("id") UUID instanceId,
-                                 @ApiParam MultipartInput input) {
+    @WithTimer
+    public Response uploadCheckpoint(@PathParam("id") UUID instanceId,
+                                     @ApiParam MultipartInput input) {
 
         ProcessEntry entry = processManager.assertProcess(instanceId);
         ProcessKey processKey = ProcessKey.from(entry);
 
         UUID checkpointId = MultipartUtils.getUuid(input, "id");
+        UUID parentCheckpointId = MultipartUtils.getUuid(input, "parentId");
         String checkpointName = MultipartUtils.getString(input, "name");
         try (InputStream data = MultipartUtils.getStream(input, "data");
              TemporaryPath tmpIn = IOUtils.tempFile("checkpoint", ".zip")) {
 
             Files.copy(data, tmpIn.path(), StandardCopyOption.REPLACE_EXISTING);
-            checkpointManager.importCheckpoint(processKey, checkpointId, checkpointName, tmpIn.path());
+            checkpointManager.importCheckpoint(processKey, checkpointId, parentCheckpointId, checkpointName, tmpIn.path());
         } catch (IOException e) {
             log.error("uploadCheckpoint ['{}'] -> error", processKey, e);
             throw new ConcordApplicationException("upload error: " + e.getMessage());
         }
 
-        log.info("uploadCheckpoint ['{}'] -> done", processKey);
+        log.info("uploadCheckpoint ['{}', '{}', '{}'] -> done", processKey, checkpointId, parentCheckpointId);
+
+        // let the runner know it can send only the changes next time
+        return Response.noContent()
+                .header(Constants.Headers.INCREMENTAL_CHECKPOINTS, "true")
+                .build();
     }
 }
@@ -0,0 +1,337 @@
+package com.walmartlabs.concord.server.process.logs;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.db.PgIntRange;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.core.Response.Status;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent process log appends. The chunks received while
+ * the previous batch is being saved are saved using a single INSERT,
+ * the chunks of the same process are merged into a single row.
+ * <p>
+ * {@link #append(ProcessKey, byte[])} returns only after the data is saved,
+ * i.e. the data is never acknowledged before it is in the DB. Agents send
+ * the log chunks of a process one at a time, so the order of the chunks
+ * is preserved regardless of which server node receives them and there's
+ * no unsaved data left when the process reaches its final status.
+ * <p>
+ * If the DB is unavailable or too slow, the appends fail with 503 and
+ * the callers are expected to retry. The failed data is never saved.
+ */
+@Named
+@Singleton
+public class ProcessLogBuffer implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessLogBuffer.class);
+
+    /**
+     * Max time to wait until the appended data is saved.
+     */
+    private static final long APPEND_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Max time to wait for the worker thread to finish on stop.
+     */
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private final ProcessLogsDao logsDao;
+    private final int maxBatchSize;
+    private final long maxPendingSize;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * Processes of the batch that is being saved right now.
+     */
+    private volatile Set<ProcessKey> saving = Collections.emptySet();
+
+    private final Timer flushTimer;
+    private final Histogram batchSize;
+
+    private volatile Thread worker;
+
+    @Inject
+    public ProcessLogBuffer(ProcessLogsDao logsDao,
+                            ProcessConfiguration cfg,
+                            MetricRegistry metricRegistry) {
+
+        this.logsDao = logsDao;
+        this.maxBatchSize = cfg.getLogBufferMaxSize();
+        this.maxPendingSize = cfg.getLogBufferMaxPendingSize();
+
+        this.flushTimer = metricRegistry.timer("process-log-buffer-flush");
+        this.batchSize = metricRegistry.histogram("process-log-buffer-batch-size");
+    }
+
+    @Override
+    public void start() {
+        Thread t = new Thread(this::run, "process-log-buffer");
+        t.setDaemon(true);
+        this.worker = t;
+        t.start();
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // save whatever was appended while the worker was stopping
+        List<Pending> batch;
+        while (!(batch = nextBatch(queue.poll())).isEmpty()) {
+            save(batch);
+        }
+
+        log.info("stop -> done");
+    }
+
+    /**
+     * Appends a chunk of data to the process log and waits until it's saved.
+     *
+     * @return the size of the process log after the append. Can be larger than
+     * the size right after the specified chunk if other chunks of the same
+     * process were saved in the same batch.
+     * @throws ConcordApplicationException (503) if the data can't be saved
+     * or if there's too much data waiting to be saved. The data is not
+     * appended in this case.
+     */
+    public int append(ProcessKey processKey, byte[] data) {
+        if (worker == null) {
+            // not started or stopping
+            PgIntRange range = logsDao.append(processKey, data);
+            return range.getUpper();
+        }
+
+        if (pendingBytes.get() > 0 && pendingBytes.get() + data.length > maxPendingSize) {
+            throw new ConcordApplicationException("Process log buffer is full, try again later", Status.SERVICE_UNAVAILABLE);
+        }
+
+        Pending p = new Pending(processKey, data);
+        pendingBytes.addAndGet(data.length);
+        queue.add(p);
+
+        try {
+            return p.result.get(APPEND_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (queue.remove(p)) {
+                // not picked up by the worker, it's safe to reject the data
+                pendingBytes.addAndGet(-data.length);
+                throw new ConcordApplicationException("Timeout while saving the process log, try again later", Status.SERVICE_UNAVAILABLE);
+            }
+
+            // the data is being saved right now, the result must be reported back to the caller
+            return awaitSaved(p);
+        } catch (ExecutionException e) {
+            throw saveError(e);
+        }
+    }
+
+    /**
+     * @return {@code true} if some of the process' data is not saved yet.
+     */
+    public boolean hasPending(ProcessKey processKey) {
+        if (saving.contains(processKey)) {
+            return true;
+        }
+
+        for (Pending p : queue) {
+            if (p.processKey.equals(processKey)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return number of not yet saved bytes.
+     */
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * @return number of chunks waiting to be saved (not including
+     * the chunks being saved right now).
+     */
+    public int pendingChunks() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of processes with not yet saved data.
+     */
+    public int pendingProcesses() {
+        Set<ProcessKey> keys = new HashSet<>();
+        for (Pending p : queue) {
+            keys.add(p.processKey);
+        }
+        return keys.size();
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            Pending first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            List<Pending> batch = nextBatch(first);
+            saving = batch.stream()
+                    .map(p -> p.processKey)
+                    .collect(Collectors.toSet());
+
+            try {
+                save(batch);
+            } catch (Exception e) {
+                log.warn("run -> error: {}", e.getMessage(), e);
+            } finally {
+                saving = Collections.emptySet();
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@link #maxBatchSize} bytes of the queued data, starting with {@code first}.
+     */
+    private List<Pending> nextBatch(Pending first) {
+        if (first == null) {
+            return Collections.emptyList();
+        }
+
+        List<Pending> batch = new ArrayList<>();
+        batch.add(first);
+
+        int size = first.data.length;
+        Pending p;
+        while (size < maxBatchSize && (p = queue.poll()) != null) {
+            batch.add(p);
+            size += p.data.length;
+        }
+
+        return batch;
+    }
+
+    private void save(List<Pending> batch) {
+        // merge the chunks of the same process, keeping the order in which they were appended
+        Map<ProcessKey, ByteArrayOutputStream> chunks = new LinkedHashMap<>();
+        long size = 0;
+        for (Pending p : batch) {
+            chunks.computeIfAbsent(p.processKey, k -> new ByteArrayOutputStream())
+                    .write(p.data, 0, p.data.length);
+            size += p.data.length;
+        }
+
+        Map<ProcessKey, byte[]> data = new LinkedHashMap<>(chunks.size());
+        chunks.forEach((k, v) -> data.put(k, v.toByteArray()));
+
+        Map<ProcessKey, PgIntRange> ranges;
+        try (Timer.Context ignored = flushTimer.time()) {
+            ranges = logsDao.append(data);
+        } catch (Exception e) {
+            // nothing is saved, the callers will retry
+            log.warn("save -> error while saving {} byte(s) of {} process(es): {}", size, chunks.size(), e.getMessage());
+            pendingBytes.addAndGet(-size);
+            for (Pending p : batch) {
+                p.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        batchSize.update(batch.size());
+        pendingBytes.addAndGet(-size);
+        for (Pending p : batch) {
+            p.result.complete(ranges.get(p.processKey).getUpper());
+        }
+    }
+
+    private static int awaitSaved(Pending p) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return p.result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw saveError(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ConcordApplicationException saveError(ExecutionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new ConcordApplicationException("Error while saving the process log, try again later: " + cause.getMessage(),
+                Status.SERVICE_UNAVAILABLE);
+    }
+
+    private static final class Pending {
+
+        private final ProcessKey processKey;
+        private final byte[] data;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        private Pending(ProcessKey processKey, byte[] data) {
+            this.processKey = processKey;
+            this.data = data;
+        }
+    }
+}
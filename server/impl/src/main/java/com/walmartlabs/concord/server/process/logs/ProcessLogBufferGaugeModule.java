@@ -0,0 +1,58 @@
+package com.walmartlabs.concord.server.process.logs;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.Multibinder;
+import com.walmartlabs.concord.server.sdk.metrics.GaugeProvider;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import java.util.function.Function;
+
+@Named
+public class ProcessLogBufferGaugeModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        Provider<ProcessLogBuffer> provider = getProvider(ProcessLogBuffer.class);
+
+        Multibinder<GaugeProvider> gauges = Multibinder.newSetBinder(binder(), GaugeProvider.class);
+        gauges.addBinding().toInstance(create("pending-bytes", provider, ProcessLogBuffer::pendingBytes));
+        gauges.addBinding().toInstance(create("pending-chunks", provider, b -> (long) b.pendingChunks()));
+        gauges.addBinding().toInstance(create("pending-processes", provider, b -> (long) b.pendingProcesses()));
+    }
+
+    private static GaugeProvider<Long> create(String suffix, Provider<ProcessLogBuffer> provider, Function<ProcessLogBuffer, Long> value) {
+        return new GaugeProvider<Long>() {
+            @Override
+            public String name() {
+                return "process-log-buffer-" + suffix;
+            }
+
+            @Override
+            public Gauge<Long> gauge() {
+                return () -> value.apply(provider.get());
+            }
+        };
+    }
+}
@@ -24,6 +24,7 @@ import com.codahale.metrics.Counter;
 import com.walmartlabs.concord.common.LogUtils;
 import com.walmartlabs.concord.db.PgIntRange;
 import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
 import com.walmartlabs.concord.server.process.ProcessKey;
 import com.walmartlabs.concord.server.sdk.metrics.InjectCounter;
 
@@ -38,18 +39,27 @@ import static com.walmartlabs.concord.common.LogUtils.LogLevel;
 public class ProcessLogManager {
 
     private final ProcessLogsDao logsDao;
+    private final ProcessLogBuffer logBuffer;
+    private final ProcessLogWatcher logWatcher;
     private final Listeners listeners;
+    private final boolean bufferEnabled;
 
     @InjectCounter
     private final Counter logBytesAppended;
 
     @Inject
     public ProcessLogManager(ProcessLogsDao logsDao,
+                             ProcessLogBuffer logBuffer,
+                             ProcessLogWatcher logWatcher,
                              Listeners listeners,
+                             ProcessConfiguration cfg,
                              Counter logBytesAppended) {
 
         this.logsDao = logsDao;
+        this.logBuffer = logBuffer;
+        this.logWatcher = logWatcher;
         this.listeners = listeners;
+        this.bufferEnabled = cfg.isLogBufferEnabled();
         this.logBytesAppended = logBytesAppended;
     }
 
@@ -69,11 +79,24 @@ public class ProcessLogManager {
         log(processKey, msg.getBytes());
     }
 
+    /**
+     * Appends the data to the process log.
+     *
+     * @return the size of the process log after the append.
+     */
     public int log(ProcessKey processKey, byte[] msg) {
-        PgIntRange range = logsDao.append(processKey, msg);
+        int upper;
+        if (bufferEnabled) {
+            upper = logBuffer.append(processKey, msg);
+        } else {
+            PgIntRange range = logsDao.append(processKey, msg);
+            upper = range.getUpper();
+        }
+        logWatcher.onSaved(processKey);
+
         logBytesAppended.inc(msg.length);
         listeners.onProcessLogAppend(processKey, msg);
-        return range.getUpper();
+        return upper;
     }
 
     private void log(ProcessKey processKey, LogLevel level, String msg, Object... args) {
@@ -0,0 +1,213 @@
+package com.walmartlabs.concord.server.process.logs;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Notifies the log "tail" subscribers when new log data is saved.
+ * <p>
+ * The data saved on the current server node triggers the subscribers
+ * immediately. To pick up the data saved by other nodes, the watcher
+ * periodically fetches the log sizes and the statuses of all watched
+ * processes (one query each for all processes) and notifies the
+ * subscribers of the processes with new data or with a final status.
+ * <p>
+ * A process is considered finished only if it is in one of the final
+ * statuses and none of its log data is waiting in the {@link ProcessLogBuffer}.
+ */
+@Named
+@Singleton
+public class ProcessLogWatcher implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessLogWatcher.class);
+
+    private static final long CATCH_UP_INTERVAL = 2000;
+    private static final int WORKER_THREADS = 4;
+
+    private static final Set<ProcessStatus> FINAL_STATUSES = EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
+    private final ProcessLogsDao logsDao;
+    private final ProcessQueueDao queueDao;
+    private final ProcessLogBuffer logBuffer;
+
+    private final Map<ProcessKey, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Log sizes seen on the previous catch-up run.
+     * Accessed only by the scheduler thread.
+     */
+    private final Map<ProcessKey, Integer> lastSizes = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+
+    @Inject
+    public ProcessLogWatcher(ProcessLogsDao logsDao, ProcessQueueDao queueDao, ProcessLogBuffer logBuffer) {
+        this.logsDao = logsDao;
+        this.queueDao = queueDao;
+        this.logBuffer = logBuffer;
+    }
+
+    @Override
+    public void start() {
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, r -> {
+            Thread t = new Thread(r, "process-log-watcher-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "process-log-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::catchUp, CATCH_UP_INTERVAL, CATCH_UP_INTERVAL, TimeUnit.MILLISECONDS);
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        log.info("stop -> done");
+    }
+
+    /**
+     * Registers a callback which is called (possibly several times and
+     * concurrently) when the process' log changes or when the process
+     * reaches a final status.
+     */
+    public void subscribe(ProcessKey processKey, Subscriber subscriber) {
+        subscribers.computeIfAbsent(processKey, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    }
+
+    public void unsubscribe(ProcessKey processKey, Subscriber subscriber) {
+        subscribers.computeIfPresent(processKey, (k, v) -> {
+            v.remove(subscriber);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    /**
+     * Should be called after a chunk of log data is saved into the DB.
+     */
+    public void onSaved(ProcessKey processKey) {
+        fire(processKey, false);
+    }
+
+    /**
+     * @return {@code true} if no more log data is expected for the process
+     * with the specified status (or {@code null} if the process doesn't exist).
+     */
+    public boolean isFinished(ProcessKey processKey, ProcessStatus status) {
+        return (status == null || FINAL_STATUSES.contains(status)) && !logBuffer.hasPending(processKey);
+    }
+
+    void catchUp() {
+        try {
+            Set<ProcessKey> keys = new HashSet<>(subscribers.keySet());
+            lastSizes.keySet().retainAll(keys);
+            if (keys.isEmpty()) {
+                return;
+            }
+
+            Map<ProcessKey, Integer> sizes = logsDao.getSizes(keys);
+
+            Set<UUID> instanceIds = keys.stream()
+                    .map(ProcessKey::getInstanceId)
+                    .collect(Collectors.toSet());
+            Map<UUID, ProcessStatus> statuses = queueDao.getStatuses(instanceIds);
+
+            for (ProcessKey k : keys) {
+                boolean finished = isFinished(k, statuses.get(k.getInstanceId()));
+
+                Integer size = sizes.get(k);
+                Integer prevSize = size != null ? lastSizes.put(k, size) : lastSizes.get(k);
+
+                if (finished || !Objects.equals(size, prevSize)) {
+                    fire(k, finished);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("catchUp -> error: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Notifies all subscribers of the process using a single worker task.
+     */
+    private void fire(ProcessKey processKey, boolean finished) {
+        Set<Subscriber> s = subscribers.get(processKey);
+        if (s == null) {
+            return;
+        }
+
+        ExecutorService e = executor;
+        if (e == null) {
+            return;
+        }
+
+        try {
+            e.submit(() -> s.forEach(sub -> {
+                try {
+                    sub.onUpdate(finished);
+                } catch (Exception ex) {
+                    log.warn("fire ['{}'] -> error: {}", processKey, ex.getMessage(), ex);
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            log.warn("fire ['{}'] -> rejected: {}", processKey, ex.getMessage());
+        }
+    }
+
+    public interface Subscriber {
+
+        /**
+         * @param finished {@code true} if the process is in one of the final
+         *                 statuses (or no longer exists) and no more log data
+         *                 is expected after the data that is already saved
+         *                 (see {@link #isFinished(ProcessKey, ProcessStatus)}).
+         */
+        void onUpdate(boolean finished);
+    }
+}
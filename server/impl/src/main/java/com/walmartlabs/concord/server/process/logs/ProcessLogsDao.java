@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.jooq.tables.records.ProcessLogsRecord;
 import com.walmartlabs.concord.server.process.ProcessKey;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep4;
 import org.jooq.Record2;
 import org.jooq.impl.DSL;
 
@@ -34,8 +35,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.Serializable;
 import java.sql.Timestamp;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.Routines.processLogLastNBytes2;
 import static com.walmartlabs.concord.server.jooq.Routines.processLogNextRange2;
@@ -74,6 +74,38 @@ public class ProcessLogsDao extends AbstractDao {
         return PgIntRange.parse(r.getChunkRange().toString());
     }
 
+    /**
+     * Appends chunks to the logs of multiple processes using a single statement.
+     * @return the new chunk ranges.
+     */
+    public Map<ProcessKey, PgIntRange> append(Map<ProcessKey, byte[]> chunks) {
+        return txResult(tx -> {
+            InsertValuesStep4<ProcessLogsRecord, UUID, Timestamp, Object, byte[]> q = tx.insertInto(PROCESS_LOGS)
+                    .columns(PROCESS_LOGS.INSTANCE_ID,
+                            PROCESS_LOGS.INSTANCE_CREATED_AT,
+                            PROCESS_LOGS.CHUNK_RANGE,
+                            PROCESS_LOGS.CHUNK_DATA);
+
+            for (Map.Entry<ProcessKey, byte[]> e : chunks.entrySet()) {
+                UUID instanceId = e.getKey().getInstanceId();
+                Timestamp createdAt = e.getKey().getCreatedAt();
+                byte[] data = e.getValue();
+
+                q = q.values(value(instanceId),
+                        value(createdAt),
+                        processLogNextRange2(instanceId, createdAt, data.length),
+                        value(data));
+            }
+
+            Map<ProcessKey, PgIntRange> result = new HashMap<>(chunks.size());
+            q.returning(PROCESS_LOGS.INSTANCE_ID, PROCESS_LOGS.INSTANCE_CREATED_AT, PROCESS_LOGS.CHUNK_RANGE)
+                    .fetch()
+                    .forEach(r -> result.put(new ProcessKey(r.getInstanceId(), r.getInstanceCreatedAt()),
+                            PgIntRange.parse(r.getChunkRange().toString())));
+            return result;
+        });
+    }
+
     public ProcessLog get(ProcessKey processKey, Integer start, Integer end) {
         UUID instanceId = processKey.getInstanceId();
         Timestamp createdAt = processKey.getCreatedAt();
@@ -92,6 +124,61 @@ public class ProcessLogsDao extends AbstractDao {
         }
     }
 
+    /**
+     * Returns up to {@code limit} log chunks that contain data starting from
+     * the specified position. The first chunk can start before {@code start}.
+     */
+    public List<ProcessLogChunk> getChunksFrom(ProcessKey processKey, int start, int limit) {
+        UUID instanceId = processKey.getInstanceId();
+        Timestamp createdAt = processKey.getCreatedAt();
+
+        String lowerBoundExpr = "lower(" + PROCESS_LOGS.CHUNK_RANGE + ")";
+        String rangeExpr = PROCESS_LOGS.CHUNK_RANGE.getName() + " && int4range(?, null)";
+
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(field(lowerBoundExpr), PROCESS_LOGS.CHUNK_DATA)
+                    .from(PROCESS_LOGS)
+                    .where(PROCESS_LOGS.INSTANCE_ID.eq(instanceId)
+                            .and(PROCESS_LOGS.INSTANCE_CREATED_AT.eq(createdAt))
+                            .and(rangeExpr, start))
+                    .orderBy(PROCESS_LOGS.CHUNK_RANGE)
+                    .limit(limit)
+                    .fetch(ProcessLogsDao::toChunk);
+        }
+    }
+
+    /**
+     * Returns the current log sizes of the specified processes. Processes
+     * without any log data are omitted.
+     */
+    public Map<ProcessKey, Integer> getSizes(Collection<ProcessKey> processKeys) {
+        if (processKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Set<UUID> instanceIds = new HashSet<>(processKeys.size());
+        Set<Timestamp> createdAts = new HashSet<>(processKeys.size());
+        for (ProcessKey k : processKeys) {
+            instanceIds.add(k.getInstanceId());
+            createdAts.add(k.getCreatedAt());
+        }
+
+        try (DSLContext tx = DSL.using(cfg)) {
+            Map<ProcessKey, Integer> result = new HashMap<>(processKeys.size());
+            tx.select(V_PROCESS_LOGS_SIZE.INSTANCE_ID, V_PROCESS_LOGS_SIZE.INSTANCE_CREATED_AT, V_PROCESS_LOGS_SIZE.SIZE)
+                    .from(V_PROCESS_LOGS_SIZE)
+                    .where(V_PROCESS_LOGS_SIZE.INSTANCE_ID.in(instanceIds)
+                            .and(V_PROCESS_LOGS_SIZE.INSTANCE_CREATED_AT.in(createdAts)))
+                    .forEach(r -> {
+                        ProcessKey k = new ProcessKey(r.value1(), r.value2());
+                        if (processKeys.contains(k)) {
+                            result.put(k, r.value3());
+                        }
+                    });
+            return result;
+        }
+    }
+
     private List<ProcessLogChunk> getChunks(DSLContext tx, ProcessKey processKey, Integer start, Integer end) {
         UUID instanceId = processKey.getInstanceId();
         Timestamp createdAt = processKey.getCreatedAt();
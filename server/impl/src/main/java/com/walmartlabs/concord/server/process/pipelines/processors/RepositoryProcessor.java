@@ -20,7 +20,6 @@ package com.walmartlabs.concord.server.process.pipelines.processors;
  * =====
  */
 
-import com.walmartlabs.concord.repository.Repository;
 import com.walmartlabs.concord.repository.Snapshot;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.sdk.MapUtils;
@@ -91,9 +90,10 @@ public class RepositoryProcessor implements PayloadProcessor {
 
         Path dst = payload.getHeader(Payload.WORKSPACE_DIR);
 
-        Payload newPayload = repositoryManager.withLock(repo.getUrl(), () -> {
-            try {
-                Repository repository = repositoryManager.fetch(projectId, repo);
+        Payload newPayload;
+        try {
+            // exports of the same repository can run in parallel
+            newPayload = repositoryManager.withFetchedRepository(projectId, repo, repository -> {
                 Snapshot snapshot = repository.export(dst);
                 com.walmartlabs.concord.repository.RepositoryInfo info = repository.info();
                 String branch = repository.branch();
@@ -106,12 +106,12 @@ public class RepositoryProcessor implements PayloadProcessor {
                 RepositoryInfo i = new RepositoryInfo(repo.getId(), repo.getName(), repo.getUrl(), repo.getPath(), branch, repo.getCommitId(), ci);
                 return payload.putHeader(REPOSITORY_INFO_KEY, i)
                         .putHeader(REPOSITORY_SNAPSHOT, Collections.singletonList(snapshot));
-            } catch (Exception e) {
-                log.error("process -> repository error", e);
-                logManager.error(processKey, "Error while processing a repository: " + repo.getUrl(), e);
-                throw new ProcessException(processKey, "Error while processing a repository: " + repo.getUrl(), e);
-            }
-        });
+            });
+        } catch (Exception e) {
+            log.error("process -> repository error", e);
+            logManager.error(processKey, "Error while processing a repository: " + repo.getUrl(), e);
+            throw new ProcessException(processKey, "Error while processing a repository: " + repo.getUrl(), e);
+        }
 
         return chain.process(newPayload);
     }
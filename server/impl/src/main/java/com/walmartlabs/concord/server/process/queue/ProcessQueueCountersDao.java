@@ -0,0 +1,230 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueueCounters;
+import com.walmartlabs.concord.server.jooq.tables.Projects;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.walmartlabs.concord.db.PgUtils.jsonbText;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueueCounters.PROCESS_QUEUE_COUNTERS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Number of active processes per org, project and exclusive group.
+ * The counters are maintained by the {@code UPDATE_PROCESS_QUEUE_COUNTERS_*}
+ * triggers on every status change and periodically reconciled with
+ * the {@code PROCESS_QUEUE} data by {@link ProcessQueueCountersReconciler}.
+ */
+@Named
+public class ProcessQueueCountersDao extends AbstractDao {
+
+    public enum CounterType {
+
+        /**
+         * Running processes in the organization.
+         */
+        ORG,
+
+        /**
+         * Running processes in the project.
+         */
+        PROJECT,
+
+        /**
+         * Active processes in the project's exclusive group.
+         */
+        EXCLUSIVE
+    }
+
+    private static final List<String> RUNNING_PROCESS_STATUSES = Arrays.asList(
+            ProcessStatus.STARTING.name(),
+            ProcessStatus.RUNNING.name(),
+            ProcessStatus.RESUMING.name());
+
+    private static final List<String> EXCLUSIVE_PROCESS_STATUSES = Arrays.asList(
+            ProcessStatus.STARTING.name(),
+            ProcessStatus.SUSPENDED.name(),
+            ProcessStatus.RUNNING.name(),
+            ProcessStatus.RESUMING.name());
+
+    private static final String NO_GROUP = "";
+
+    @Inject
+    public ProcessQueueCountersDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    public int get(DSLContext tx, CounterType type, UUID entityId) {
+        return get(tx, type, entityId, NO_GROUP);
+    }
+
+    public int get(DSLContext tx, CounterType type, UUID entityId, String group) {
+        ProcessQueueCounters c = PROCESS_QUEUE_COUNTERS.as("c");
+        Integer v = tx.select(c.COUNTER_VALUE)
+                .from(c)
+                .where(c.COUNTER_TYPE.eq(type.name())
+                        .and(c.ENTITY_ID.eq(entityId))
+                        .and(c.COUNTER_GROUP.eq(group)))
+                .fetchOne(c.COUNTER_VALUE);
+
+        return v != null ? Math.max(v, 0) : 0;
+    }
+
+    /**
+     * Recalculates the out-of-sync counters using the current {@code PROCESS_QUEUE} data.
+     * Each counter is recalculated in a separate transaction, holding only the lock
+     * of the counter's row.
+     *
+     * @return number of counters that were out of sync.
+     */
+    public int reconcile() {
+        List<CounterKey> keys = txResult(ProcessQueueCountersDao::findOutOfSync);
+        for (CounterKey k : keys) {
+            tx(tx -> recalculate(tx, k));
+        }
+        return keys.size();
+    }
+
+    private static List<CounterKey> findOutOfSync(DSLContext tx) {
+        ProcessQueue q = ProcessQueue.PROCESS_QUEUE.as("q");
+        Projects p = Projects.PROJECTS.as("p");
+        ProcessQueueCounters c = PROCESS_QUEUE_COUNTERS.as("c");
+
+        Field<String> group = jsonbText(q.EXCLUSIVE, "group");
+
+        // actual counters: type, entity, group, value
+        Table<?> actual = select(inline(CounterType.ORG.name()).as("t"), p.ORG_ID.as("e"), inline(NO_GROUP).as("g"), count().as("v"))
+                .from(q).join(p).on(p.PROJECT_ID.eq(q.PROJECT_ID))
+                .where(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES))
+                .groupBy(p.ORG_ID)
+                .unionAll(select(inline(CounterType.PROJECT.name()), q.PROJECT_ID, inline(NO_GROUP), count())
+                        .from(q)
+                        .where(q.PROJECT_ID.isNotNull()
+                                .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)))
+                        .groupBy(q.PROJECT_ID))
+                .unionAll(select(inline(CounterType.EXCLUSIVE.name()), q.PROJECT_ID, group, count())
+                        .from(q)
+                        .where(q.PROJECT_ID.isNotNull()
+                                .and(group.isNotNull())
+                                .and(q.CURRENT_STATUS.in(EXCLUSIVE_PROCESS_STATUSES)))
+                        .groupBy(q.PROJECT_ID, group))
+                .asTable("a");
+
+        Field<String> aType = actual.field("t", String.class);
+        Field<UUID> aEntity = actual.field("e", UUID.class);
+        Field<String> aGroup = actual.field("g", String.class);
+        Field<Integer> aValue = actual.field("v", Integer.class);
+
+        return tx.select(coalesce(c.COUNTER_TYPE, aType), coalesce(c.ENTITY_ID, aEntity), coalesce(c.COUNTER_GROUP, aGroup))
+                .from(c)
+                .fullOuterJoin(actual).on(c.COUNTER_TYPE.eq(aType)
+                        .and(c.ENTITY_ID.eq(aEntity))
+                        .and(c.COUNTER_GROUP.eq(aGroup)))
+                .where(coalesce(c.COUNTER_VALUE, 0).ne(coalesce(aValue, 0)))
+                .fetch(r -> new CounterKey(CounterType.valueOf(r.value1()), r.value2(), r.value3()));
+    }
+
+    private static void recalculate(DSLContext tx, CounterKey k) {
+        ProcessQueueCounters c = PROCESS_QUEUE_COUNTERS;
+        Condition key = c.COUNTER_TYPE.eq(k.type.name())
+                .and(c.ENTITY_ID.eq(k.entityId))
+                .and(c.COUNTER_GROUP.eq(k.group));
+
+        // make sure there's a row to lock
+        tx.insertInto(c, c.COUNTER_TYPE, c.ENTITY_ID, c.COUNTER_GROUP, c.COUNTER_VALUE)
+                .values(k.type.name(), k.entityId, k.group, 0)
+                .onConflictDoNothing()
+                .execute();
+
+        // wait for the in-flight status updates of the counter and block the new ones,
+        // the next statement sees all changes committed before the lock was acquired
+        tx.select(c.COUNTER_VALUE)
+                .from(c)
+                .where(key)
+                .forUpdate()
+                .execute();
+
+        int actual = countActive(tx, k);
+        if (actual == 0) {
+            tx.deleteFrom(c).where(key).execute();
+        } else {
+            tx.update(c).set(c.COUNTER_VALUE, actual).where(key).execute();
+        }
+    }
+
+    private static int countActive(DSLContext tx, CounterKey k) {
+        ProcessQueue q = ProcessQueue.PROCESS_QUEUE.as("q");
+
+        switch (k.type) {
+            case ORG: {
+                Projects p = Projects.PROJECTS.as("p");
+                return tx.fetchCount(selectOne()
+                        .from(q).join(p).on(p.PROJECT_ID.eq(q.PROJECT_ID))
+                        .where(p.ORG_ID.eq(k.entityId)
+                                .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES))));
+            }
+            case PROJECT: {
+                return tx.fetchCount(selectOne()
+                        .from(q)
+                        .where(q.PROJECT_ID.eq(k.entityId)
+                                .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES))));
+            }
+            case EXCLUSIVE: {
+                return tx.fetchCount(selectOne()
+                        .from(q)
+                        .where(q.PROJECT_ID.eq(k.entityId)
+                                .and(jsonbText(q.EXCLUSIVE, "group").eq(k.group))
+                                .and(q.CURRENT_STATUS.in(EXCLUSIVE_PROCESS_STATUSES))));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown counter type: " + k.type);
+        }
+    }
+
+    private static final class CounterKey {
+
+        private final CounterType type;
+        private final UUID entityId;
+        private final String group;
+
+        private CounterKey(CounterType type, UUID entityId, String group) {
+            this.type = type;
+            this.entityId = entityId;
+            this.group = group;
+        }
+    }
+}
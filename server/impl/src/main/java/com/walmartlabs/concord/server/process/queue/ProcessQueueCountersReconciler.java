@@ -0,0 +1,66 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Periodically recalculates the process queue counters.
+ * The counters can drift if the status updates bypass the triggers
+ * (e.g. manual changes in the DB or disabled triggers) or if a project
+ * is deleted or moved to another org while its processes change status.
+ */
+@Named("process-queue-counters")
+@Singleton
+public class ProcessQueueCountersReconciler implements ScheduledTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessQueueCountersReconciler.class);
+
+    private final ProcessQueueConfiguration cfg;
+    private final ProcessQueueCountersDao dao;
+
+    @Inject
+    public ProcessQueueCountersReconciler(ProcessQueueConfiguration cfg, ProcessQueueCountersDao dao) {
+        this.cfg = cfg;
+        this.dao = dao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        return cfg.getCountersReconcileInterval();
+    }
+
+    @Override
+    public void performTask() {
+        int outOfSync = dao.reconcile();
+        if (outOfSync > 0) {
+            log.warn("performTask -> {} process queue counter(s) were out of sync and have been recalculated", outOfSync);
+        }
+    }
+}
@@ -357,6 +357,17 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    public Map<UUID, ProcessStatus> getStatuses(Collection<UUID> instanceIds) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Map<UUID, ProcessStatus> result = new HashMap<>(instanceIds.size());
+            tx.select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.CURRENT_STATUS)
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds))
+                    .forEach(r -> result.put(r.value1(), ProcessStatus.valueOf(r.value2())));
+            return result;
+        }
+    }
+
     public List<ProcessEntry> get(List<PartialProcessKey> processKeys) {
         try (DSLContext tx = DSL.using(cfg)) {
             List<UUID> instanceIds = processKeys.stream()
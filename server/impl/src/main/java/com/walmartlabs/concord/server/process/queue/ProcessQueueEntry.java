@@ -25,6 +25,7 @@ import com.walmartlabs.concord.server.process.ProcessKey;
 import org.immutables.value.Value;
 
 import javax.annotation.Nullable;
+import java.sql.Timestamp;
 import java.util.Map;
 import java.util.UUID;
 
@@ -33,6 +34,9 @@ public interface ProcessQueueEntry {
 
     ProcessKey key();
 
+    @Nullable
+    Timestamp lastUpdatedAt();
+
     @Nullable
     UUID projectId();
 
@@ -45,14 +45,17 @@ public class ProcessQueueManager {
     private final ConcordObjectMapper objectMapper;
     private final ProcessKeyCache keyCache;
     private final ProcessEventManager eventManager;
+    private final ProcessWaitIndexDao waitIndexDao;
 
     @Inject
     public ProcessQueueManager(ProcessQueueDao queueDao,
                                ConcordObjectMapper objectMapper,
                                ProcessKeyCache keyCache,
-                               ProcessEventManager eventManager) {
+                               ProcessEventManager eventManager,
+                               ProcessWaitIndexDao waitIndexDao) {
 
         this.queueDao = queueDao;
+        this.waitIndexDao = waitIndexDao;
         this.eventManager = eventManager;
         this.objectMapper = objectMapper;
         this.keyCache = keyCache;
@@ -187,10 +190,12 @@ public class ProcessQueueManager {
     }
 
     /**
-     * Updates the process' wait conditions. Adds a wait condition history event.
+     * Updates the process' wait conditions and the wait conditions index.
+     * Adds a wait condition history event.
      */
     public void updateWait(DSLContext tx, ProcessKey processKey, AbstractWaitCondition wait) {
         queueDao.updateWait(tx, processKey, wait);
+        waitIndexDao.update(tx, processKey, wait);
 
         Map<String, Object> eventData = objectMapper.convertToMap(wait != null ? wait : new NoneCondition());
         ProcessEvent e = new ProcessEvent(processKey, EventType.PROCESS_WAIT.name(), null, eventData);
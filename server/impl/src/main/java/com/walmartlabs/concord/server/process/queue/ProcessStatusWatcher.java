@@ -0,0 +1,160 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Notifies the subscribers when processes reach a final status.
+ * <p>
+ * The notifications are sent by the PROCESS_QUEUE trigger, so the status
+ * changes made on any server node are picked up. All subscribers are
+ * also triggered periodically in case some of the notifications were missed.
+ */
+@Named
+@Singleton
+public class ProcessStatusWatcher implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessStatusWatcher.class);
+
+    /**
+     * Notification channel, see {@link DbNotifications}.
+     * The payload is the process' instance ID.
+     */
+    public static final String PROCESS_STATUS_CHANNEL = "concord_process_status";
+
+    private static final long CATCH_UP_INTERVAL = 10000;
+    private static final int WORKER_THREADS = 4;
+
+    private final Map<UUID, Set<Runnable>> subscribers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+
+    @Inject
+    public ProcessStatusWatcher(DbNotifications notifications) {
+        notifications.subscribe(PROCESS_STATUS_CHANNEL, this::onNotification);
+    }
+
+    @Override
+    public void start() {
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, r -> {
+            Thread t = new Thread(r, "process-status-watcher-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "process-status-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::catchUp, CATCH_UP_INTERVAL, CATCH_UP_INTERVAL, TimeUnit.MILLISECONDS);
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        log.info("stop -> done");
+    }
+
+    /**
+     * Registers a callback which is called (possibly several times and
+     * concurrently) when the process reaches a final status.
+     */
+    public void subscribe(UUID instanceId, Runnable callback) {
+        subscribers.computeIfAbsent(instanceId, k -> ConcurrentHashMap.newKeySet()).add(callback);
+    }
+
+    public void unsubscribe(UUID instanceId, Runnable callback) {
+        subscribers.computeIfPresent(instanceId, (k, v) -> {
+            v.remove(callback);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    private void onNotification(String payload) {
+        if (payload == null || payload.isEmpty()) {
+            // (re)connected, some notifications might've been missed
+            catchUp();
+            return;
+        }
+
+        UUID instanceId;
+        try {
+            instanceId = UUID.fromString(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("onNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        Set<Runnable> s = subscribers.get(instanceId);
+        if (s == null) {
+            return;
+        }
+
+        s.forEach(this::fire);
+    }
+
+    private void catchUp() {
+        // a callback can be subscribed to multiple processes
+        Set<Runnable> callbacks = ConcurrentHashMap.newKeySet();
+        subscribers.values().forEach(callbacks::addAll);
+        callbacks.forEach(this::fire);
+    }
+
+    private void fire(Runnable r) {
+        ExecutorService e = executor;
+        if (e == null) {
+            return;
+        }
+
+        try {
+            e.submit(() -> {
+                try {
+                    r.run();
+                } catch (Exception ex) {
+                    log.warn("fire -> error: {}", ex.getMessage(), ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.warn("fire -> rejected: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.jooq.tables.ProcessWaitIndex;
+import com.walmartlabs.concord.server.jooq.tables.records.ProcessWaitIndexRecord;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import org.immutables.value.Value;
+import org.jooq.*;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessWaitIndex.PROCESS_WAIT_INDEX;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Reverse index of the process wait conditions: which processes are waiting
+ * for a specific process, lock or point in time.
+ * <p>
+ * The entries are "signaled" by the DB triggers when the awaited process
+ * changes its status or when the awaited lock is released.
+ * See {@link ProcessWaitWaker}.
+ */
+@Named
+public class ProcessWaitIndexDao extends AbstractDao {
+
+    public enum DependencyType {
+
+        /**
+         * Waiting for another process, the key is the process' instance ID.
+         */
+        PROCESS,
+
+        /**
+         * Waiting for a lock, the key is {@code ORG_ID/name} or {@code PROJECT_ID/name}
+         * depending on the lock's scope.
+         */
+        LOCK,
+
+        /**
+         * Waiting for a specific point in time.
+         */
+        TIME
+    }
+
+    private static final String NO_KEY = "";
+
+    @Inject
+    public ProcessWaitIndexDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    @Override
+    protected <T> T txResult(TxResult<T> t) {
+        return super.txResult(t);
+    }
+
+    /**
+     * Replaces the index entries of the specified process.
+     * The new entries are signaled, i.e. they are evaluated at least once.
+     */
+    public void update(DSLContext tx, ProcessKey processKey, AbstractWaitCondition wait) {
+        tx.deleteFrom(PROCESS_WAIT_INDEX)
+                .where(PROCESS_WAIT_INDEX.INSTANCE_ID.eq(processKey.getInstanceId()))
+                .execute();
+
+        if (wait == null) {
+            return;
+        }
+
+        List<Dependency> deps = dependencies(wait);
+        if (deps.isEmpty()) {
+            return;
+        }
+
+        InsertValuesStep6<ProcessWaitIndexRecord, UUID, Timestamp, String, String, Timestamp, Timestamp> q = tx.insertInto(PROCESS_WAIT_INDEX,
+                PROCESS_WAIT_INDEX.INSTANCE_ID,
+                PROCESS_WAIT_INDEX.INSTANCE_CREATED_AT,
+                PROCESS_WAIT_INDEX.DEP_TYPE,
+                PROCESS_WAIT_INDEX.DEP_KEY,
+                PROCESS_WAIT_INDEX.SIGNALED_AT,
+                PROCESS_WAIT_INDEX.WAKE_AT);
+
+        for (Dependency d : deps) {
+            q = q.values(value(processKey.getInstanceId()),
+                    value(processKey.getCreatedAt()),
+                    value(d.type.name()),
+                    value(d.key),
+                    field("clock_timestamp()", Timestamp.class),
+                    d.wakeAt != null ? utc(d.wakeAt) : castNull(Timestamp.class));
+        }
+
+        q.execute();
+    }
+
+    /**
+     * Returns the signaled entries and the entries with expired {@code WAKE_AT}.
+     */
+    public List<Signal> poll(DSLContext tx, int limit) {
+        ProcessWaitIndex i = PROCESS_WAIT_INDEX.as("i");
+        return tx.select(i.INSTANCE_ID, i.DEP_TYPE, i.DEP_KEY, i.SIGNALED_AT, i.WAKE_AT)
+                .from(i)
+                .where(i.SIGNALED_AT.isNotNull()
+                        .or(i.WAKE_AT.lessOrEqual(utcNow())))
+                .limit(limit)
+                .fetch(r -> Signal.builder()
+                        .instanceId(r.value1())
+                        .depType(r.value2())
+                        .depKey(r.value3())
+                        .signaledAt(r.value4())
+                        .wakeAt(r.value5())
+                        .build());
+    }
+
+    /**
+     * Clears the specified signals. The entries signaled again after
+     * {@link #poll(DSLContext, int)} keep their new signals.
+     */
+    public void reset(DSLContext tx, List<Signal> signals) {
+        List<Query> queries = new ArrayList<>(signals.size());
+        for (Signal s : signals) {
+            Condition pk = PROCESS_WAIT_INDEX.INSTANCE_ID.eq(s.instanceId())
+                    .and(PROCESS_WAIT_INDEX.DEP_TYPE.eq(s.depType()))
+                    .and(PROCESS_WAIT_INDEX.DEP_KEY.eq(s.depKey()));
+
+            if (s.signaledAt() != null) {
+                queries.add(tx.update(PROCESS_WAIT_INDEX)
+                        .set(PROCESS_WAIT_INDEX.SIGNALED_AT, (Timestamp) null)
+                        .where(pk.and(PROCESS_WAIT_INDEX.SIGNALED_AT.eq(s.signaledAt()))));
+            }
+
+            if (s.wakeAt() != null) {
+                // the timer has fired, any further changes are signaled by the status triggers
+                queries.add(tx.update(PROCESS_WAIT_INDEX)
+                        .set(PROCESS_WAIT_INDEX.WAKE_AT, (Timestamp) null)
+                        .where(pk.and(PROCESS_WAIT_INDEX.WAKE_AT.lessOrEqual(utcNow()))));
+            }
+        }
+
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        tx.batch(queries).execute();
+    }
+
+    /**
+     * @return number of milliseconds until the next {@code WAKE_AT} or {@code null}
+     * if there are no timed entries.
+     */
+    public Long nextWakeUpDelay(DSLContext tx) {
+        Field<Long> delay = field("cast(extract(epoch from min({0}) - {1}) * 1000 as bigint)", Long.class, PROCESS_WAIT_INDEX.WAKE_AT, utcNow());
+        return tx.select(delay)
+                .from(PROCESS_WAIT_INDEX)
+                .where(PROCESS_WAIT_INDEX.WAKE_AT.isNotNull())
+                .fetchOne(delay);
+    }
+
+    /**
+     * {@code WAKE_AT} values are stored in UTC, regardless of the JVM's and
+     * the DB session's time zones.
+     */
+    private static Field<Timestamp> utc(long epochMillis) {
+        return field("(to_timestamp({0} / 1000.0) at time zone 'UTC')", Timestamp.class, value(epochMillis));
+    }
+
+    private static Field<Timestamp> utcNow() {
+        return field("(current_timestamp at time zone 'UTC')", Timestamp.class);
+    }
+
+    private static List<Dependency> dependencies(AbstractWaitCondition wait) {
+        switch (wait.type()) {
+            case PROCESS_COMPLETION: {
+                ProcessCompletionCondition c = (ProcessCompletionCondition) wait;
+                List<Dependency> result = new ArrayList<>(c.processes().size());
+                for (UUID id : c.processes()) {
+                    result.add(new Dependency(DependencyType.PROCESS, id.toString(), null));
+                }
+                return result;
+            }
+            case PROCESS_LOCK: {
+                ProcessLockCondition c = (ProcessLockCondition) wait;
+                UUID entityId = c.scope() == ProcessLockScope.ORG ? c.orgId() : c.projectId();
+                return Collections.singletonList(new Dependency(DependencyType.LOCK, entityId + "/" + c.name(), null));
+            }
+            case PROCESS_SLEEP: {
+                ProcessSleepCondition c = (ProcessSleepCondition) wait;
+                return Collections.singletonList(new Dependency(DependencyType.TIME, NO_KEY, c.until().getTime()));
+            }
+            default: {
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    private static final class Dependency {
+
+        private final DependencyType type;
+        private final String key;
+        private final Long wakeAt;
+
+        private Dependency(DependencyType type, String key, Long wakeAt) {
+            this.type = type;
+            this.key = key;
+            this.wakeAt = wakeAt;
+        }
+    }
+
+    @Value.Immutable
+    public interface Signal {
+
+        UUID instanceId();
+
+        String depType();
+
+        String depKey();
+
+        @Nullable
+        Timestamp signaledAt();
+
+        /**
+         * In UTC, as stored in the DB.
+         */
+        @Nullable
+        Timestamp wakeAt();
+
+        static ImmutableSignal.Builder builder() {
+            return ImmutableSignal.builder();
+        }
+    }
+}
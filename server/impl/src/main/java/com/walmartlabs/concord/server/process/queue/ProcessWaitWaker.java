@@ -0,0 +1,166 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.ProcessWaitWatchdogConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessWaitIndexDao.Signal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates the wait conditions of processes whose dependencies have changed.
+ * Uses the {@code PROCESS_WAIT_INDEX} entries signaled by the DB triggers
+ * (see {@link ProcessWaitIndexDao}) and a timer for the sleeping processes.
+ * <p>
+ * {@link ProcessWaitWatchdog} is used as a fallback for missed notifications.
+ */
+@Named
+@Singleton
+public class ProcessWaitWaker extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessWaitWaker.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_TIMER_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * Notification channel, see {@link DbNotifications}.
+     * The notifications are sent by the PROCESS_WAIT_INDEX trigger every time
+     * an index entry is signaled.
+     */
+    public static final String PROCESS_WAIT_CHANNEL = "concord_process_wait";
+
+    private final Locks locks;
+    private final ProcessWaitIndexDao dao;
+    private final ProcessWaitWatchdog watchdog;
+    private final int batchSize;
+
+    private final Counter wakeupCounter;
+
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> nextWakeUp;
+    private long nextWakeUpAt;
+
+    @Inject
+    public ProcessWaitWaker(ProcessWaitWatchdogConfiguration cfg,
+                            Locks locks,
+                            ProcessWaitIndexDao dao,
+                            ProcessWaitWatchdog watchdog,
+                            MetricRegistry metricRegistry,
+                            DbNotifications notifications) {
+
+        super(cfg.getWakerPollDelay(), ERROR_DELAY);
+
+        this.locks = locks;
+        this.dao = dao;
+        this.watchdog = watchdog;
+        this.batchSize = cfg.getWakerBatchSize();
+
+        this.wakeupCounter = metricRegistry.counter("process-wait-waker-wakeups");
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "process-wait-waker-timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        notifications.subscribe(PROCESS_WAIT_CHANNEL, payload -> onWakeUp());
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        timer.shutdownNow();
+    }
+
+    private void onWakeUp() {
+        wakeupCounter.inc();
+        wakeUp();
+    }
+
+    @Override
+    protected boolean performTask() {
+        return dao.txResult(tx -> {
+            // evaluate the conditions on one node at a time
+            // the other nodes will try again on the next notification or poll
+            if (!locks.tryLock(tx, ProcessWaitWatchdog.LOCK_KEY)) {
+                return false;
+            }
+
+            List<Signal> signals = dao.poll(tx, batchSize);
+            if (!signals.isEmpty()) {
+                Set<UUID> instanceIds = signals.stream()
+                        .map(Signal::instanceId)
+                        .collect(Collectors.toSet());
+
+                watchdog.process(instanceIds);
+
+                dao.reset(tx, signals);
+
+                log.debug("performTask -> processed {} waiting process(es)", instanceIds.size());
+            }
+
+            boolean hasMore = signals.size() >= batchSize;
+            if (!hasMore) {
+                scheduleWakeUp(dao.nextWakeUpDelay(tx));
+            }
+
+            return hasMore;
+        });
+    }
+
+    private synchronized void scheduleWakeUp(Long delay) {
+        if (delay == null) {
+            return;
+        }
+
+        delay = Math.max(delay, MIN_TIMER_DELAY);
+
+        long t = System.currentTimeMillis() + delay;
+        if (nextWakeUp != null && !nextWakeUp.isDone() && nextWakeUpAt <= t) {
+            return;
+        }
+
+        if (nextWakeUp != null) {
+            nextWakeUp.cancel(false);
+        }
+
+        nextWakeUpAt = t;
+        nextWakeUp = timer.schedule((Runnable) this::wakeUp, delay, TimeUnit.MILLISECONDS);
+    }
+}
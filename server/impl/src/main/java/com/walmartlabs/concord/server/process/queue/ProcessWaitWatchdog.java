@@ -23,6 +23,7 @@ package com.walmartlabs.concord.server.process.queue;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.cfg.ProcessWaitWatchdogConfiguration;
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.process.ProcessKey;
@@ -30,6 +31,7 @@ import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import org.immutables.value.Value;
 import org.jooq.Configuration;
+import org.jooq.DSLContext;
 import org.jooq.JSONB;
 import org.jooq.Record5;
 import org.jooq.SelectConditionStep;
@@ -47,6 +49,10 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QU
 /**
  * Takes care of processes with wait conditions.
  * E.g. waiting for other processes to finish, locking, etc.
+ * <p>
+ * Most of the wait conditions are resolved by {@link ProcessWaitWaker} as soon as
+ * their dependencies change. The watchdog periodically re-checks all waiting
+ * processes in case some of the notifications were missed.
  */
 @Named("process-wait-watchdog")
 @Singleton
@@ -60,7 +66,14 @@ public class ProcessWaitWatchdog implements ScheduledTask {
             ProcessStatus.CANCELLED,
             ProcessStatus.TIMED_OUT));
 
+    /**
+     * Shared with {@link ProcessWaitWaker}, only one node at a time evaluates
+     * the wait conditions.
+     */
+    static final long LOCK_KEY = 1586522736385L;
+
     private final ProcessWaitWatchdogConfiguration cfg;
+    private final Locks locks;
     private final WatchdogDao dao;
     private final ProcessQueueManager queueManager;
     private final Map<WaitType, ProcessWaitHandler<AbstractWaitCondition>> processWaitHandlers;
@@ -68,11 +81,13 @@ public class ProcessWaitWatchdog implements ScheduledTask {
     @Inject
     @SuppressWarnings("unchecked")
     public ProcessWaitWatchdog(ProcessWaitWatchdogConfiguration cfg,
+                               Locks locks,
                                WatchdogDao dao,
                                ProcessQueueManager queueManager,
                                Set<ProcessWaitHandler> handlers) {
 
         this.cfg = cfg;
+        this.locks = locks;
         this.dao = dao;
         this.queueManager = queueManager;
         this.processWaitHandlers = new HashMap<>();
@@ -94,11 +109,22 @@ public class ProcessWaitWatchdog implements ScheduledTask {
                 return;
             }
 
-            for (WaitingProcess p : processes) {
-                WaitType type = p.waits().type();
-                processHandler(type, p);
-                lastUpdatedAt = p.lastUpdatedAt();
-            }
+            dao.tx(tx -> {
+                locks.lock(tx, LOCK_KEY);
+                processes.forEach(p -> processHandler(p.waits().type(), p));
+            });
+
+            lastUpdatedAt = processes.get(processes.size() - 1).lastUpdatedAt();
+        }
+    }
+
+    /**
+     * Evaluates the wait conditions of the specified processes.
+     * The caller must hold the {@link #LOCK_KEY} lock.
+     */
+    void process(Collection<UUID> instanceIds) {
+        for (WaitingProcess p : dao.get(instanceIds)) {
+            processHandler(p.waits().type(), p);
         }
     }
 
@@ -158,17 +184,15 @@ public class ProcessWaitWatchdog implements ScheduledTask {
             this.objectMapper = objectMapper;
         }
 
+        @Override
+        protected void tx(Tx t) {
+            super.tx(t);
+        }
+
         public List<WaitingProcess> nextWaitItems(Timestamp lastUpdatedAt, int pollLimit) {
             return txResult(tx -> {
                 ProcessQueue q = PROCESS_QUEUE.as("q");
-                SelectConditionStep<Record5<UUID, String, Timestamp, Timestamp, JSONB>> s = tx.select(
-                        q.INSTANCE_ID,
-                        q.CURRENT_STATUS,
-                        q.CREATED_AT,
-                        q.LAST_UPDATED_AT,
-                        q.WAIT_CONDITIONS)
-                        .from(q)
-                        .where(q.WAIT_CONDITIONS.isNotNull());
+                SelectConditionStep<Record5<UUID, String, Timestamp, Timestamp, JSONB>> s = selectWaitItems(tx, q);
 
                 if (lastUpdatedAt != null) {
                     s.and(q.LAST_UPDATED_AT.greaterThan(lastUpdatedAt));
@@ -176,14 +200,38 @@ public class ProcessWaitWatchdog implements ScheduledTask {
 
                 return s.orderBy(q.LAST_UPDATED_AT)
                         .limit(pollLimit)
-                        .fetch(r -> WaitingProcess.builder()
-                                .instanceId(r.value1())
-                                .status(ProcessStatus.valueOf(r.value2()))
-                                .instanceCreatedAt(r.value3())
-                                .lastUpdatedAt(r.value4())
-                                .waits(objectMapper.fromJSONB(r.value5(), AbstractWaitCondition.class))
-                                .build());
+                        .fetch(this::toWaitingProcess);
             });
         }
+
+        public List<WaitingProcess> get(Collection<UUID> instanceIds) {
+            return txResult(tx -> {
+                ProcessQueue q = PROCESS_QUEUE.as("q");
+                return selectWaitItems(tx, q)
+                        .and(q.INSTANCE_ID.in(instanceIds))
+                        .fetch(this::toWaitingProcess);
+            });
+        }
+
+        private static SelectConditionStep<Record5<UUID, String, Timestamp, Timestamp, JSONB>> selectWaitItems(DSLContext tx, ProcessQueue q) {
+            return tx.select(
+                    q.INSTANCE_ID,
+                    q.CURRENT_STATUS,
+                    q.CREATED_AT,
+                    q.LAST_UPDATED_AT,
+                    q.WAIT_CONDITIONS)
+                    .from(q)
+                    .where(q.WAIT_CONDITIONS.isNotNull());
+        }
+
+        private WaitingProcess toWaitingProcess(Record5<UUID, String, Timestamp, Timestamp, JSONB> r) {
+            return WaitingProcess.builder()
+                    .instanceId(r.value1())
+                    .status(ProcessStatus.valueOf(r.value2()))
+                    .instanceCreatedAt(r.value3())
+                    .lastUpdatedAt(r.value4())
+                    .waits(objectMapper.fromJSONB(r.value5(), AbstractWaitCondition.class))
+                    .build();
+        }
     }
 }
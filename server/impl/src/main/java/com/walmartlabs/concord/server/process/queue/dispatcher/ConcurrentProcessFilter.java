@@ -73,6 +73,8 @@ public class ConcurrentProcessFilter extends WaitProcessFinishFilter {
         }
 
         CheckResult<ConcurrentProcessRule, List<UUID>> result = pe.getConcurrentProcessPolicy().check(
+                () -> processCountPerOrg(tx, item.orgId(), startingProcesses),
+                () -> processCountPerProject(tx, item.projectId(), startingProcesses),
                 () -> processesPerOrg(tx, item.orgId(), startingProcesses),
                 () -> processesPerProject(tx, item.projectId(), startingProcesses));
 
@@ -110,6 +112,34 @@ public class ConcurrentProcessFilter extends WaitProcessFinishFilter {
         return policyManager.get(orgId, prjId, userId);
     }
 
+    private int processCountPerOrg(DSLContext tx, UUID orgId, List<ProcessQueueEntry> startingProcesses) {
+        if (orgId == null) {
+            return 0;
+        }
+
+        int result = dao.processCountPerOrg(tx, orgId);
+        for (ProcessQueueEntry p : startingProcesses) {
+            if (orgId.equals(p.orgId())) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private int processCountPerProject(DSLContext tx, UUID projectId, List<ProcessQueueEntry> startingProcesses) {
+        if (projectId == null) {
+            return 0;
+        }
+
+        int result = dao.processCountPerProject(tx, projectId);
+        for (ProcessQueueEntry p : startingProcesses) {
+            if (projectId.equals(p.projectId())) {
+                result++;
+            }
+        }
+        return result;
+    }
+
     private List<UUID> processesPerOrg(DSLContext tx, UUID orgId, List<ProcessQueueEntry> startingProcesses) {
         if (orgId == null) {
             return Collections.emptyList();
@@ -22,10 +22,13 @@ package com.walmartlabs.concord.server.process.queue.dispatcher;
 
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.jooq.tables.Projects;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueCountersDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueCountersDao.CounterType;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.*;
 
@@ -37,9 +40,26 @@ public class ConcurrentProcessFilterDao {
             ProcessStatus.RUNNING,
             ProcessStatus.RESUMING);
 
+    private final ProcessQueueCountersDao countersDao;
+
+    private final Map<UUID, Integer> countPerOrg = new HashMap<>();
+    private final Map<UUID, Integer> countPerProject = new HashMap<>();
     private final Map<UUID, List<UUID>> perOrg = new HashMap<>();
     private final Map<UUID, List<UUID>> perProject = new HashMap<>();
 
+    @Inject
+    public ConcurrentProcessFilterDao(ProcessQueueCountersDao countersDao) {
+        this.countersDao = countersDao;
+    }
+
+    public int processCountPerOrg(DSLContext tx, UUID orgId) {
+        return countPerOrg.computeIfAbsent(orgId, id -> countersDao.get(tx, CounterType.ORG, id));
+    }
+
+    public int processCountPerProject(DSLContext tx, UUID projectId) {
+        return countPerProject.computeIfAbsent(projectId, id -> countersDao.get(tx, CounterType.PROJECT, id));
+    }
+
     public List<UUID> processesPerOrg(DSLContext tx, UUID orgId) {
         return perOrg.computeIfAbsent(orgId, id -> computeProcessesPerOrg(tx, id));
     }
@@ -49,6 +69,8 @@ public class ConcurrentProcessFilterDao {
     }
 
     public void cleanup() {
+        countPerOrg.clear();
+        countPerProject.clear();
         perOrg.clear();
         perProject.clear();
     }
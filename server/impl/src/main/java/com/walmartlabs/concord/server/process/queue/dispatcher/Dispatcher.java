@@ -20,14 +20,19 @@ package com.walmartlabs.concord.server.process.queue.dispatcher;
  * =====
  */
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.walmartlabs.concord.common.MapMatcher;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.imports.Imports;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.DbNotifications;
 import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.PeriodicTask;
 import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
@@ -55,6 +60,7 @@ import javax.inject.Singleton;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.tables.Organizations.ORGANIZATIONS;
@@ -77,6 +83,13 @@ public class Dispatcher extends PeriodicTask {
     private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(30);
     private static final long LOCK_KEY = 1552468327245L;
 
+    /**
+     * Notification channel, see {@link DbNotifications}.
+     * The notifications are sent by the PROCESS_QUEUE trigger every time
+     * a process becomes ready for dispatching.
+     */
+    public static final String PROCESS_QUEUE_CHANNEL = "concord_process_queue";
+
     private final Locks locks;
     private final DispatcherDao dao;
     private final WebSocketChannelManager channelManager;
@@ -86,9 +99,18 @@ public class Dispatcher extends PeriodicTask {
     private final ImportsNormalizerFactory importsNormalizerFactory;
 
     private final int batchSize;
+    private final boolean bucketLocking;
 
     private final Histogram dispatchedCountHistogram;
     private final Timer responseTimer;
+    private final Counter wakeupCounter;
+
+    /**
+     * Compiled matchers for process requirements. Cached between dispatch rounds.
+     */
+    private final LoadingCache<Map<String, Object>, MapMatcher> matchers = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .build(CacheLoader.from(MapMatcher::compile));
 
     @Inject
     public Dispatcher(Locks locks,
@@ -99,7 +121,8 @@ public class Dispatcher extends PeriodicTask {
                       Set<Filter> filters,
                       ImportsNormalizerFactory importsNormalizerFactory,
                       ProcessQueueConfiguration cfg,
-                      MetricRegistry metricRegistry) {
+                      MetricRegistry metricRegistry,
+                      DbNotifications notifications) {
 
         super(cfg.getDispatcherPollDelay(), ERROR_DELAY);
 
@@ -112,9 +135,21 @@ public class Dispatcher extends PeriodicTask {
         this.importsNormalizerFactory = importsNormalizerFactory;
 
         this.batchSize = cfg.getDispatcherBatchSize();
+        this.bucketLocking = cfg.isDispatcherBucketLocking();
 
         this.dispatchedCountHistogram = metricRegistry.histogram("process-queue-dispatcher-dispatched-count");
         this.responseTimer = metricRegistry.timer("process-queue-dispatcher-response-timer");
+        this.wakeupCounter = metricRegistry.counter("process-queue-dispatcher-wakeups");
+
+        // wake up immediately when a new process is enqueued or when a new agent request arrives
+        // the regular polling is still used as a fallback for missed notifications
+        notifications.subscribe(PROCESS_QUEUE_CHANNEL, payload -> onWakeUp());
+        channelManager.addRequestListener(MessageType.PROCESS_REQUEST, this::onWakeUp);
+    }
+
+    private void onWakeUp() {
+        wakeupCounter.inc();
+        wakeUp();
     }
 
     @Override
@@ -133,9 +168,12 @@ public class Dispatcher extends PeriodicTask {
                 .collect(Collectors.toList());
 
         // prepare all responses in a single transaction
-        // take a global lock to avoid races
         List<Match> matches = dao.txResult(tx -> {
-            locks.lock(tx, LOCK_KEY);
+            if (!bucketLocking) {
+                // take a global lock to avoid races
+                locks.lock(tx, LOCK_KEY);
+            }
+
             try {
                 return match(tx, l);
             } finally {
@@ -159,26 +197,43 @@ public class Dispatcher extends PeriodicTask {
     }
 
     private List<Match> match(DSLContext tx, List<Request> requests) {
-        // we need it modifiable
-        List<Request> inbox = new ArrayList<>(requests);
+        RequestIndex inbox = new RequestIndex(requests, matchers::getUnchecked);
+
+        // buckets (distinct agent requirements), orgs and projects we tried to lock in this transaction
+        // used only when bucketLocking is enabled
+        Map<Map<String, Object>, Boolean> lockedBuckets = new HashMap<>();
+        Map<String, Boolean> lockedScopes = new HashMap<>();
 
-        int offset = 0;
+        ProcessQueueEntry last = null;
         List<Match> matches = new ArrayList<>();
         while (true) {
             // fetch the next few ENQUEUED processes from the DB
-            List<ProcessQueueEntry> candidates = dao.next(tx, offset, batchSize);
+            List<ProcessQueueEntry> candidates = dao.next(tx, last, batchSize);
             if (candidates.isEmpty()) {
                 break;
             }
 
             // filter out the candidates that shouldn't be dispatched at the moment (e.g. due to concurrency limits)
             for (ProcessQueueEntry e : candidates) {
+                Map<String, Object> requirements = getAgentRequirements(e);
+
+                // skip the buckets that are currently handled by other server nodes
+                if (bucketLocking && !lockedBuckets.computeIfAbsent(requirements, k -> lockBucket(tx, k))) {
+                    continue;
+                }
+
                 // find request/agent who can handle process
-                Request req = findRequest(e, inbox);
+                Request req = inbox.find(requirements);
                 if (req == null) {
                     continue;
                 }
 
+                // the filters check the state shared by all buckets (e.g. the number of running processes in the project)
+                // only one server node can start processes in the same org or project at a time
+                if (bucketLocking && !lockScope(locks, tx, e, lockedScopes)) {
+                    continue;
+                }
+
                 // "startingProcesses" are the currently collected "matches"
                 // we keep them in a separate collection to simplify the filtering
                 List<ProcessQueueEntry> startingProcesses = matches.stream().map(m -> m.response).collect(Collectors.toList());
@@ -197,7 +252,7 @@ public class Dispatcher extends PeriodicTask {
                 break;
             }
 
-            offset += batchSize;
+            last = candidates.get(candidates.size() - 1);
         }
 
         for (Match m : matches) {
@@ -210,16 +265,24 @@ public class Dispatcher extends PeriodicTask {
         return matches;
     }
 
-    private static Request findRequest(ProcessQueueEntry candidate, List<Request> requests) {
-        for (Request req : requests) {
-            Map<String, Object> capabilities = req.request.getCapabilities();
-            Map<String, Object> m = getAgentRequirements(candidate);
-            if (MapMatcher.matches(capabilities, m)) {
-                return req;
-            }
+    private boolean lockBucket(DSLContext tx, Map<String, Object> requirements) {
+        // Locks#hash uses only the first bytes of the key, the unique part must go first
+        return locks.tryLock(tx, requirements.hashCode() + "/dispatcher-bucket");
+    }
+
+    /**
+     * Tries to lock the process' organization and project for the duration of
+     * the current transaction. The results are remembered in {@code lockedScopes}.
+     *
+     * @return {@code true} if both locks were acquired.
+     */
+    static boolean lockScope(Locks locks, DSLContext tx, ProcessQueueEntry e, Map<String, Boolean> lockedScopes) {
+        // Locks#hash uses only the first bytes of the key, the unique part must go first
+        if (e.orgId() != null && !lockedScopes.computeIfAbsent(e.orgId() + "/dispatcher-org", k -> locks.tryLock(tx, k))) {
+            return false;
         }
 
-        return null;
+        return e.projectId() == null || lockedScopes.computeIfAbsent(e.projectId() + "/dispatcher-project", k -> locks.tryLock(tx, k));
     }
 
     @SuppressWarnings("unchecked")
@@ -285,16 +348,13 @@ public class Dispatcher extends PeriodicTask {
     public static class DispatcherDao extends AbstractDao {
 
         private final ConcordObjectMapper objectMapper;
-        private final Histogram offsetHistogram;
 
         @Inject
         public DispatcherDao(@MainDB Configuration cfg,
-                             ConcordObjectMapper objectMapper,
-                             MetricRegistry metricRegistry) {
+                             ConcordObjectMapper objectMapper) {
 
             super(cfg);
             this.objectMapper = objectMapper;
-            this.offsetHistogram = metricRegistry.histogram("process-queue-dispatcher-offset");
         }
 
         @Override
@@ -302,18 +362,24 @@ public class Dispatcher extends PeriodicTask {
             return super.txResult(t);
         }
 
+        /**
+         * Returns the next batch of ENQUEUED processes.
+         * Uses keyset pagination: the next batch starts right after
+         * the specified {@code after} entry.
+         *
+         * @param after the last entry of the previous batch or {@code null}
+         */
         @WithTimer
-        public List<ProcessQueueEntry> next(DSLContext tx, int offset, int limit) {
-            offsetHistogram.update(offset);
-
+        public List<ProcessQueueEntry> next(DSLContext tx, ProcessQueueEntry after, int limit) {
             ProcessQueue q = PROCESS_QUEUE.as("q");
 
             Field<UUID> orgIdField = select(PROJECTS.ORG_ID).from(PROJECTS).where(PROJECTS.PROJECT_ID.eq(q.PROJECT_ID)).asField();
 
-            SelectJoinStep<Record13<UUID, Timestamp, UUID, UUID, UUID, UUID, String, String, String, UUID, JSONB, JSONB, JSONB>> s =
+            SelectJoinStep<Record14<UUID, Timestamp, Timestamp, UUID, UUID, UUID, UUID, String, String, String, UUID, JSONB, JSONB, JSONB>> s =
                     tx.select(
                             q.INSTANCE_ID,
                             q.CREATED_AT,
+                            q.LAST_UPDATED_AT,
                             q.PROJECT_ID,
                             orgIdField,
                             q.INITIATOR_ID,
@@ -327,30 +393,36 @@ public class Dispatcher extends PeriodicTask {
                             q.EXCLUSIVE)
                             .from(q);
 
-            s.where(q.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.toString())
+            Condition c = q.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.toString())
                     .and(or(q.START_AT.isNull(),
                             q.START_AT.le(currentTimestamp())))
-                    .and(q.WAIT_CONDITIONS.isNull()));
+                    .and(q.WAIT_CONDITIONS.isNull());
+
+            if (after != null) {
+                c = c.and(row(q.LAST_UPDATED_AT, q.INSTANCE_ID).gt(after.lastUpdatedAt(), after.key().getInstanceId()));
+            }
 
-            return s.orderBy(q.LAST_UPDATED_AT)
-                    .offset(offset)
+            s.where(c);
+
+            return s.orderBy(q.LAST_UPDATED_AT, q.INSTANCE_ID)
                     .limit(limit)
                     .forUpdate()
                     .of(q)
                     .skipLocked()
                     .fetch(r -> ProcessQueueEntry.builder()
                             .key(new ProcessKey(r.value1(), r.value2()))
-                            .projectId(r.value3())
-                            .orgId(r.value4())
-                            .initiatorId(r.value5())
-                            .parentInstanceId(r.value6())
-                            .repoPath(r.value7())
-                            .repoUrl(r.value8())
-                            .commitId(r.value9())
-                            .repoId(r.value10())
-                            .imports(objectMapper.fromJSONB(r.value11(), Imports.class))
-                            .requirements(objectMapper.fromJSONB(r.value12()))
-                            .exclusive(objectMapper.fromJSONB(r.value13()))
+                            .lastUpdatedAt(r.value3())
+                            .projectId(r.value4())
+                            .orgId(r.value5())
+                            .initiatorId(r.value6())
+                            .parentInstanceId(r.value7())
+                            .repoPath(r.value8())
+                            .repoUrl(r.value9())
+                            .commitId(r.value10())
+                            .repoId(r.value11())
+                            .imports(objectMapper.fromJSONB(r.value12(), Imports.class))
+                            .requirements(objectMapper.fromJSONB(r.value13()))
+                            .exclusive(objectMapper.fromJSONB(r.value14()))
                             .build());
         }
 
@@ -377,6 +449,69 @@ public class Dispatcher extends PeriodicTask {
         }
     }
 
+    /**
+     * Groups the agent requests by their capabilities. The result of matching
+     * a set of process requirements against each distinct set of capabilities
+     * is cached, so the number of {@link MapMatcher#matches(Map)} calls
+     * depends on the number of distinct requirements/capabilities and not
+     * on the number of candidates or agents.
+     */
+    private static final class RequestIndex {
+
+        private final Map<Map<String, Object>, Deque<Request>> buckets = new LinkedHashMap<>();
+        private final Map<Map<String, Object>, List<Deque<Request>>> matchCache = new HashMap<>();
+        private final Function<Map<String, Object>, MapMatcher> matchers;
+
+        private RequestIndex(List<Request> requests, Function<Map<String, Object>, MapMatcher> matchers) {
+            this.matchers = matchers;
+
+            for (Request r : requests) {
+                Map<String, Object> capabilities = r.request.getCapabilities();
+                if (capabilities == null) {
+                    capabilities = Collections.emptyMap();
+                }
+
+                buckets.computeIfAbsent(capabilities, k -> new ArrayDeque<>()).add(r);
+            }
+        }
+
+        public Request find(Map<String, Object> requirements) {
+            List<Deque<Request>> candidates = matchCache.computeIfAbsent(requirements, this::match);
+            for (Deque<Request> q : candidates) {
+                Request r = q.peek();
+                if (r != null) {
+                    return r;
+                }
+            }
+
+            return null;
+        }
+
+        public void remove(Request r) {
+            Map<String, Object> capabilities = r.request.getCapabilities();
+            Deque<Request> q = buckets.get(capabilities != null ? capabilities : Collections.emptyMap());
+            if (q != null) {
+                q.remove(r);
+            }
+        }
+
+        public boolean isEmpty() {
+            return buckets.values().stream().allMatch(Collection::isEmpty);
+        }
+
+        private List<Deque<Request>> match(Map<String, Object> requirements) {
+            MapMatcher matcher = matchers.apply(requirements);
+
+            List<Deque<Request>> result = new ArrayList<>();
+            for (Map.Entry<Map<String, Object>, Deque<Request>> e : buckets.entrySet()) {
+                if (matcher.matches(e.getKey())) {
+                    result.add(e.getValue());
+                }
+            }
+            return result;
+        }
+    }
+
     private static final class Match {
 
         private final Request request;
@@ -21,6 +21,8 @@ package com.walmartlabs.concord.server.process.queue.dispatcher;
  */
 
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueCountersDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueCountersDao.CounterType;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import org.immutables.value.Value;
@@ -30,6 +32,7 @@ import org.jooq.SelectConditionStep;
 import org.jooq.SelectJoinStep;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.*;
 
@@ -46,15 +49,29 @@ public class ExclusiveProcessFilterDao {
             ProcessStatus.RUNNING,
             ProcessStatus.RESUMING);
 
+    private final ProcessQueueCountersDao countersDao;
+
     private final Map<CacheKey, List<UUID>> cache = new HashMap<>();
 
+    @Inject
+    public ExclusiveProcessFilterDao(ProcessQueueCountersDao countersDao) {
+        this.countersDao = countersDao;
+    }
+
     public void cleanup() {
         cache.clear();
     }
 
     public List<UUID> findProcess(DSLContext tx, ProcessQueueEntry item, String group) {
         return cache.computeIfAbsent(CacheKey.of(group, item.projectId(), item.parentInstanceId()),
-                key -> findProcess(tx, key.group(), key.projectId(), key.parentInstanceId()));
+                key -> {
+                    // no active processes in the group, no need to look for them
+                    if (countersDao.get(tx, CounterType.EXCLUSIVE, key.projectId(), key.group()) == 0) {
+                        return Collections.emptyList();
+                    }
+
+                    return findProcess(tx, key.group(), key.projectId(), key.parentInstanceId());
+                });
     }
 
     private List<UUID> findProcess(DSLContext tx, String group, UUID projectId, UUID parentInstanceId) {
@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.process.ProcessEntry.ProcessCheckpointEntr
 import com.walmartlabs.concord.server.process.ProcessKey;
 import org.jooq.Configuration;
 import org.jooq.Record;
+import org.jooq.Record1;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -38,6 +39,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -70,7 +72,7 @@ public class ProcessCheckpointDao extends AbstractDao {
                 .fetchOne(PROCESS_CHECKPOINTS.CHECKPOINT_ID));
     }
 
-    public void importCheckpoint(ProcessKey processKey, UUID checkpointId, String checkpointName, Path data) {
+    public void importCheckpoint(ProcessKey processKey, UUID checkpointId, UUID parentCheckpointId, String checkpointName, Path data) {
         tx(tx -> {
             String sql = tx.insertInto(PROCESS_CHECKPOINTS)
                     .columns(PROCESS_CHECKPOINTS.INSTANCE_ID,
@@ -78,8 +80,9 @@ public class ProcessCheckpointDao extends AbstractDao {
                             PROCESS_CHECKPOINTS.CHECKPOINT_ID,
                             PROCESS_CHECKPOINTS.CHECKPOINT_NAME,
                             PROCESS_CHECKPOINTS.CHECKPOINT_DATE,
-                            PROCESS_CHECKPOINTS.CHECKPOINT_DATA)
-                    .values((UUID) null, null, null, null, null, null)
+                            PROCESS_CHECKPOINTS.CHECKPOINT_DATA,
+                            PROCESS_CHECKPOINTS.PARENT_CHECKPOINT_ID)
+                    .values((UUID) null, null, null, null, null, null, null)
                     .getSQL();
 
             tx.connection(conn -> {
@@ -92,6 +95,7 @@ public class ProcessCheckpointDao extends AbstractDao {
                     try (InputStream in = Files.newInputStream(data)) {
                         ps.setBinaryStream(6, in);
                     }
+                    ps.setObject(7, parentCheckpointId);
 
                     ps.execute();
                 }
@@ -99,6 +103,43 @@ public class ProcessCheckpointDao extends AbstractDao {
         });
     }
 
+    /**
+     * Returns the IDs of the specified checkpoint and all its parents,
+     * starting from the base (full) checkpoint.
+     * Returns an empty list if the checkpoint doesn't exist.
+     */
+    public List<UUID> getChain(ProcessKey processKey, UUID checkpointId) {
+        return txResult(tx -> {
+            LinkedList<UUID> result = new LinkedList<>();
+
+            UUID id = checkpointId;
+            while (id != null) {
+                if (result.contains(id)) {
+                    throw new IllegalStateException("Circular checkpoint reference: " + id);
+                }
+
+                Record1<UUID> r = tx.select(PROCESS_CHECKPOINTS.PARENT_CHECKPOINT_ID)
+                        .from(PROCESS_CHECKPOINTS)
+                        .where(PROCESS_CHECKPOINTS.CHECKPOINT_ID.eq(id)
+                                .and(PROCESS_CHECKPOINTS.INSTANCE_ID.eq(processKey.getInstanceId())
+                                .and(PROCESS_CHECKPOINTS.INSTANCE_CREATED_AT.eq(processKey.getCreatedAt()))))
+                        .fetchOne();
+
+                if (r == null) {
+                    if (result.isEmpty()) {
+                        return result;
+                    }
+                    throw new IllegalStateException("Parent checkpoint not found: " + id);
+                }
+
+                result.addFirst(id);
+                id = r.value1();
+            }
+
+            return result;
+        });
+    }
+
     public String export(ProcessKey processKey, UUID checkpointId, Path dest) {
         return txResult(tx -> {
             String sql = tx.select(PROCESS_CHECKPOINTS.CHECKPOINT_DATA, PROCESS_CHECKPOINTS.CHECKPOINT_NAME)
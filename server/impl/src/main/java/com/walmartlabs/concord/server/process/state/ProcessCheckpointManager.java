@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.process.state;
  * =====
  */
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.common.TemporaryPath;
 import com.walmartlabs.concord.sdk.Constants;
@@ -41,11 +43,15 @@ import javax.inject.Named;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static com.walmartlabs.concord.sdk.Constants.Files.CHECKPOINT_DELETED_FILES_FILE_NAME;
 import static com.walmartlabs.concord.sdk.Constants.Files.CHECKPOINT_META_FILE_NAME;
 
 @Named
@@ -55,17 +61,20 @@ public class ProcessCheckpointManager {
     private final ProcessQueueDao queueDao;
     private final ProcessStateManager stateManager;
     private final ProjectAccessManager projectAccessManager;
+    private final Histogram checkpointSize;
 
     @Inject
     protected ProcessCheckpointManager(ProcessCheckpointDao checkpointDao,
                                        ProcessQueueDao queueDao,
                                        ProcessStateManager stateManager,
-                                       ProjectAccessManager projectAccessManager) {
+                                       ProjectAccessManager projectAccessManager,
+                                       MetricRegistry metricRegistry) {
 
         this.checkpointDao = checkpointDao;
         this.queueDao = queueDao;
         this.stateManager = stateManager;
         this.projectAccessManager = projectAccessManager;
+        this.checkpointSize = metricRegistry.histogram("process-checkpoint-size");
     }
 
     public UUID getRecentCheckpointId(ProcessKey processKey, String checkpointName) {
@@ -75,28 +84,31 @@ public class ProcessCheckpointManager {
     /**
      * Import checkpoints data from the specified directory or a file.
      *
-     * @param processKey     process key
-     * @param checkpointId   process checkpoint ID
-     * @param checkpointName process checkpoint name
-     * @param data           checkpoint data file
+     * @param processKey         process key
+     * @param checkpointId       process checkpoint ID
+     * @param parentCheckpointId ID of the parent checkpoint if {@code data} contains
+     *                           only the changes made since the parent checkpoint
+     * @param checkpointName     process checkpoint name
+     * @param data               checkpoint data file
      */
-    public void importCheckpoint(ProcessKey processKey, UUID checkpointId, String checkpointName, Path data) {
-        checkpointDao.importCheckpoint(processKey, checkpointId, checkpointName, data);
+    public void importCheckpoint(ProcessKey processKey, UUID checkpointId, UUID parentCheckpointId, String checkpointName, Path data) throws IOException {
+        checkpointSize.update(Files.size(data));
+        checkpointDao.importCheckpoint(processKey, checkpointId, parentCheckpointId, checkpointName, data);
     }
 
     /**
      * Restore process to a saved checkpoint.
      */
     public CheckpointInfo restoreCheckpoint(ProcessKey processKey, UUID checkpointId) {
-        try (TemporaryPath checkpointArchive = IOUtils.tempFile("checkpoint", ".zip")) {
-
-            String checkpointName = export(processKey, checkpointId, checkpointArchive.path());
-            if (checkpointName == null) {
+        try {
+            // incremental checkpoints are applied on top of their parents, starting from the base checkpoint
+            List<UUID> chain = checkpointDao.getChain(processKey, checkpointId);
+            if (chain.isEmpty()) {
                 return null;
             }
 
             try (TemporaryPath extractedDir = IOUtils.tempDir("unzipped-checkpoint")) {
-                IOUtils.unzip(checkpointArchive.path(), extractedDir.path());
+                String checkpointName = extractChain(processKey, chain, extractedDir.path());
 
                 // TODO: only for v1 runtime
                 String eventName = readCheckpointEventName(extractedDir.path());
@@ -175,6 +187,75 @@ public class ProcessCheckpointManager {
         return checkpointName;
     }
 
+    /**
+     * Extracts the specified checkpoints (see {@link ProcessCheckpointDao#getChain(ProcessKey, UUID)})
+     * into {@code dest} one on top of another.
+     *
+     * @return the name of the last checkpoint in the chain
+     */
+    String extractChain(ProcessKey processKey, List<UUID> chain, Path dest) throws IOException {
+        String checkpointName = null;
+        for (UUID id : chain) {
+            checkpointName = extract(processKey, id, dest);
+        }
+        return checkpointName;
+    }
+
+    private String extract(ProcessKey processKey, UUID checkpointId, Path dest) throws IOException {
+        String checkpointName;
+        try (TemporaryPath checkpointArchive = IOUtils.tempFile("checkpoint", ".zip")) {
+            checkpointName = export(processKey, checkpointId, checkpointArchive.path());
+            if (checkpointName == null) {
+                throw new IllegalStateException("Checkpoint not found: " + checkpointId);
+            }
+
+            IOUtils.unzip(checkpointArchive.path(), dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        applyDeletedFiles(dest);
+
+        return checkpointName;
+    }
+
+    /**
+     * Removes the files listed in {@link Constants.Files#CHECKPOINT_DELETED_FILES_FILE_NAME}
+     * (if present) from the specified directory. The list is supplied by the process,
+     * only the paths inside the directory are allowed.
+     */
+    static void applyDeletedFiles(Path dir) throws IOException {
+        Path deletedFiles = dir.resolve(CHECKPOINT_DELETED_FILES_FILE_NAME);
+        if (!Files.exists(deletedFiles)) {
+            return;
+        }
+
+        Path baseDir = dir.toAbsolutePath().normalize();
+
+        List<Path> paths = new ArrayList<>();
+        for (String f : Files.readAllLines(deletedFiles)) {
+            if (f.isEmpty()) {
+                continue;
+            }
+
+            Path p = Paths.get(f);
+            Path resolved = baseDir.resolve(p).normalize();
+            if (p.isAbsolute() || resolved.equals(baseDir) || !resolved.startsWith(baseDir)) {
+                throw new IllegalArgumentException("Invalid path in the list of deleted checkpoint files: " + f);
+            }
+
+            if (resolved.equals(deletedFiles.toAbsolutePath().normalize())) {
+                continue;
+            }
+
+            paths.add(resolved);
+        }
+
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+
+        Files.delete(deletedFiles);
+    }
+
     private String export(ProcessKey processKey, UUID checkpointId, Path dest) {
         return checkpointDao.export(processKey, checkpointId, dest);
     }
@@ -20,8 +20,10 @@ package com.walmartlabs.concord.server.process.state;
  * =====
  */
 
+import com.google.common.hash.Hashing;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.common.Posix;
+import com.walmartlabs.concord.common.ZipItemAttributes;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
@@ -34,6 +36,7 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +54,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -58,6 +62,8 @@ import java.util.stream.Stream;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_STATE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessStateBlobs.PROCESS_STATE_BLOBS;
+import static org.jooq.impl.DSL.*;
 
 @Named
 @Singleton
@@ -68,8 +74,23 @@ public class ProcessStateManager extends AbstractDao {
     private static final String PATH_SEPARATOR = "/";
     private static final int INSERT_BATCH_SIZE = 10;
 
+    /**
+     * Smaller files are always stored "inline", without deduplication.
+     */
+    private static final long DEDUPLICATION_MIN_SIZE = 4096;
+
+    /**
+     * Item data, either stored "inline" or as a shared blob.
+     */
+    private static final Field<byte[]> ITEM_DATA = coalesce(PROCESS_STATE.ITEM_DATA,
+            select(PROCESS_STATE_BLOBS.BLOB_DATA)
+                    .from(PROCESS_STATE_BLOBS)
+                    .where(PROCESS_STATE_BLOBS.BLOB_HASH.eq(PROCESS_STATE.BLOB_HASH))
+                    .asField());
+
     private final SecretStoreConfiguration secretCfg;
     private final Set<String> secureFiles = new HashSet<>();
+    private final boolean deduplication;
 
     @Inject
     protected ProcessStateManager(@MainDB Configuration cfg,
@@ -79,6 +100,7 @@ public class ProcessStateManager extends AbstractDao {
         this.secretCfg = secretCfg;
 
         this.secureFiles.addAll(stateCfg.getSecureFiles());
+        this.deduplication = stateCfg.isStateDeduplication();
     }
 
     public <T> Optional<T> get(PartialProcessKey partialProcessKey, String path, Function<InputStream, Optional<T>> converter) {
@@ -96,7 +118,7 @@ public class ProcessStateManager extends AbstractDao {
     }
 
     private <T> Optional<T> get(DSLContext tx, ProcessKey processKey, String path, Function<InputStream, Optional<T>> converter) {
-        String sql = tx.select(PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_DATA)
+        String sql = tx.select(PROCESS_STATE.IS_ENCRYPTED, ITEM_DATA)
                 .from(PROCESS_STATE)
                 .where(PROCESS_STATE.INSTANCE_ID.eq((UUID) null)
                         .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq((Timestamp) null))
@@ -129,7 +151,7 @@ public class ProcessStateManager extends AbstractDao {
      */
     public <T> List<T> forEach(ProcessKey processKey, String path, Function<InputStream, Optional<T>> converter) {
         try (DSLContext tx = DSL.using(cfg)) {
-            String sql = tx.select(PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_DATA)
+            String sql = tx.select(PROCESS_STATE.IS_ENCRYPTED, ITEM_DATA)
                     .from(PROCESS_STATE)
                     .where(PROCESS_STATE.INSTANCE_ID.eq((UUID) null)
                             .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq((Timestamp) null))
@@ -347,7 +369,13 @@ public class ProcessStateManager extends AbstractDao {
                             .and(PROCESS_STATE.ITEM_PATH.eq(n)))
                             .execute();
 
-                    batch.add(new BatchItem(n, file, unixMode, needsEncryption));
+                    // encrypted files are never shared
+                    String blobHash = null;
+                    if (deduplication && !needsEncryption && attrs.size() >= DEDUPLICATION_MIN_SIZE) {
+                        blobHash = hash(file);
+                    }
+
+                    batch.add(new BatchItem(n, file, unixMode, needsEncryption, blobHash));
                     if (batch.size() >= INSERT_BATCH_SIZE) {
                         insert(tx, instanceId, instanceCreatedAt, batch);
                         batch.clear();
@@ -366,9 +394,11 @@ public class ProcessStateManager extends AbstractDao {
     }
 
     private void insert(DSLContext tx, UUID instanceId, Timestamp instanceCreatedAt, Collection<BatchItem> batch) {
+        insertBlobs(tx, batch);
+
         String sql = tx.insertInto(PROCESS_STATE)
-                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED)
-                .values((UUID) null, null, null, null, null, null)
+                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.BLOB_HASH)
+                .values((UUID) null, null, null, null, null, null, null)
                 .getSQL();
 
         List<InputStream> streams = new LinkedList<>();
@@ -388,6 +418,20 @@ public class ProcessStateManager extends AbstractDao {
                         // UNIX_MODE
                         ps.setInt(4, item.unixMode);
 
+                        if (item.blobHash != null) {
+                            // ITEM_DATA
+                            ps.setNull(5, Types.BINARY);
+
+                            // IS_ENCRYPTED
+                            ps.setBoolean(6, false);
+
+                            // BLOB_HASH
+                            ps.setString(7, item.blobHash);
+
+                            ps.addBatch();
+                            continue;
+                        }
+
                         InputStream in = Files.newInputStream(item.path);
                         streams.add(in); // keep the streams open until the batch is committed
 
@@ -401,6 +445,9 @@ public class ProcessStateManager extends AbstractDao {
                         // IS_ENCRYPTED
                         ps.setBoolean(6, item.needsEncryption);
 
+                        // BLOB_HASH
+                        ps.setNull(7, Types.VARCHAR);
+
                         ps.addBatch();
                     }
 
@@ -414,13 +461,78 @@ public class ProcessStateManager extends AbstractDao {
         }
     }
 
+    /**
+     * Saves the data of the deduplicated items. Only the blobs which are
+     * not in the DB yet are uploaded.
+     */
+    private void insertBlobs(DSLContext tx, Collection<BatchItem> batch) {
+        // sorted to keep the order of row locks consistent
+        Map<String, Path> blobs = new TreeMap<>();
+        for (BatchItem item : batch) {
+            if (item.blobHash != null) {
+                blobs.putIfAbsent(item.blobHash, item.path);
+            }
+        }
+
+        if (blobs.isEmpty()) {
+            return;
+        }
+
+        // "touch" the existing blobs. The updated rows stay locked until the end
+        // of the transaction which prevents the cleaner from removing them
+        List<String> existing = tx.update(PROCESS_STATE_BLOBS)
+                .set(PROCESS_STATE_BLOBS.LAST_USED_AT, currentTimestamp())
+                .where(PROCESS_STATE_BLOBS.BLOB_HASH.in(blobs.keySet()))
+                .returning(PROCESS_STATE_BLOBS.BLOB_HASH)
+                .fetch()
+                .getValues(PROCESS_STATE_BLOBS.BLOB_HASH);
+
+        existing.forEach(blobs::remove);
+        if (blobs.isEmpty()) {
+            return;
+        }
+
+        String sql = tx.insertInto(PROCESS_STATE_BLOBS)
+                .columns(PROCESS_STATE_BLOBS.BLOB_HASH, PROCESS_STATE_BLOBS.BLOB_DATA)
+                .values((String) null, null)
+                .onConflictDoNothing()
+                .getSQL();
+
+        List<InputStream> streams = new LinkedList<>();
+        try {
+            tx.connection(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (Map.Entry<String, Path> e : blobs.entrySet()) {
+                        InputStream in = Files.newInputStream(e.getValue());
+                        streams.add(in);
+
+                        ps.setString(1, e.getKey());
+                        ps.setBinaryStream(2, in);
+                        ps.addBatch();
+                    }
+
+                    ps.executeBatch();
+                }
+            });
+        } finally {
+            streams.forEach(ProcessStateManager::closeSilently);
+        }
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static String hash(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile())
+                .hash(Hashing.sha256())
+                .toString();
+    }
+
     /**
      * Exports all data of a process instance.
      */
     public boolean export(ProcessKey processKey, ItemConsumer consumer) {
         try (DSLContext tx = DSL.using(cfg)) {
             String sql = tx
-                    .select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_DATA)
+                    .select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.IS_ENCRYPTED, ITEM_DATA)
                     .from(PROCESS_STATE)
                     .where(PROCESS_STATE.INSTANCE_ID.eq((UUID) null).and(PROCESS_STATE.INSTANCE_CREATED_AT.eq((Timestamp) null)))
                     .getSQL();
@@ -451,6 +563,48 @@ public class ProcessStateManager extends AbstractDao {
         }
     }
 
+    /**
+     * Exports all data of a process instance. The data of deduplicated items
+     * with the specified hashes is not fetched, such items are passed to the
+     * consumer with {@code null} instead of the data stream.
+     */
+    public boolean export(ProcessKey processKey, Collection<String> knownHashes, BlobItemConsumer consumer) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            String sql = tx
+                    .select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.BLOB_HASH,
+                            when(PROCESS_STATE.BLOB_HASH.eq(any(val(null, String[].class))), inline((byte[]) null)).otherwise(ITEM_DATA))
+                    .from(PROCESS_STATE)
+                    .where(PROCESS_STATE.INSTANCE_ID.eq((UUID) null).and(PROCESS_STATE.INSTANCE_CREATED_AT.eq((Timestamp) null)))
+                    .getSQL();
+
+            return tx.connectionResult(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setArray(1, conn.createArrayOf("varchar", knownHashes.toArray()));
+                    ps.setObject(2, processKey.getInstanceId());
+                    ps.setTimestamp(3, processKey.getCreatedAt());
+
+                    boolean found = false;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            found = true;
+
+                            String n = rs.getString(1);
+                            int unixMode = rs.getInt(2);
+                            boolean encrypted = rs.getBoolean(3);
+                            String blobHash = rs.getString(4);
+                            try (InputStream in = rs.getBinaryStream(5);
+                                 InputStream processed = encrypted && in != null ? decrypt(in) : in) {
+                                consumer.accept(n, unixMode, blobHash, processed);
+                            }
+                        }
+                    }
+
+                    return found;
+                }
+            });
+        }
+    }
+
     /**
      * Exports elements whose path begins with the specified value.
      */
@@ -459,7 +613,7 @@ public class ProcessStateManager extends AbstractDao {
 
         try (DSLContext tx = DSL.using(cfg)) {
             String sql = tx
-                    .select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_DATA)
+                    .select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.IS_ENCRYPTED, ITEM_DATA)
                     .from(PROCESS_STATE)
                     .where(PROCESS_STATE.INSTANCE_ID.eq((UUID) null)
                             .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq((Timestamp) null))
@@ -555,6 +709,17 @@ public class ProcessStateManager extends AbstractDao {
         return new ZipConsumer(dst);
     }
 
+    /**
+     * Puts all elements into the specified ZIP archive stream. The items
+     * without data are written as empty entries. The unix mode and the hash
+     * of each item are stored in the local headers, see {@link ZipItemAttributes}.
+     *
+     * @param dst archive stream.
+     */
+    public static BlobItemConsumer incrementalZipTo(ZipArchiveOutputStream dst) {
+        return new IncrementalZipConsumer(dst);
+    }
+
     public static ItemConsumer exclude(ItemConsumer delegate, String... patterns) {
         return new FilteringConsumer(delegate, n -> Arrays.stream(patterns).noneMatch(n::matches));
     }
@@ -612,6 +777,15 @@ public class ProcessStateManager extends AbstractDao {
         void accept(String name, int unixMode, InputStream src);
     }
 
+    public interface BlobItemConsumer {
+
+        /**
+         * @param blobHash hash of the item's data, {@code null} if the item is not deduplicated
+         * @param src      the item's data, {@code null} if the hash is known to the caller
+         */
+        void accept(String name, int unixMode, String blobHash, InputStream src);
+    }
+
     public static final class CopyConsumer implements ItemConsumer {
 
         private final Path dst;
@@ -676,6 +850,32 @@ public class ProcessStateManager extends AbstractDao {
         }
     }
 
+    public static final class IncrementalZipConsumer implements BlobItemConsumer {
+
+        private final ZipArchiveOutputStream dst;
+
+        private IncrementalZipConsumer(ZipArchiveOutputStream dst) {
+            this.dst = dst;
+        }
+
+        @Override
+        public void accept(String name, int unixMode, String blobHash, InputStream src) {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setUnixMode(unixMode);
+            ZipItemAttributes.set(entry, unixMode, blobHash);
+
+            try {
+                dst.putArchiveEntry(entry);
+                if (src != null) {
+                    IOUtils.copy(src, dst);
+                }
+                dst.closeArchiveEntry();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     public static final class FilteringConsumer implements ItemConsumer {
 
         private final ItemConsumer delegate;
@@ -700,12 +900,14 @@ public class ProcessStateManager extends AbstractDao {
         private final Path path;
         private final int unixMode;
         private final boolean needsEncryption;
+        private final String blobHash;
 
-        private BatchItem(String itemPath, Path path, int unixMode, boolean needsEncryption) {
+        private BatchItem(String itemPath, Path path, int unixMode, boolean needsEncryption, String blobHash) {
             this.itemPath = itemPath;
             this.path = path;
             this.unixMode = unixMode;
             this.needsEncryption = needsEncryption;
+            this.blobHash = blobHash;
         }
     }
 }
@@ -39,11 +39,16 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 @Named
 @Singleton
@@ -51,12 +56,20 @@ public class RepositoryManager {
 
     private static final Logger log = LoggerFactory.getLogger(RepositoryManager.class);
 
+    private static final Pattern COMMIT_ID_PATTERN = Pattern.compile("[0-9a-fA-F]{40}");
+
     private final RepositoryProviders providers;
     private final ProjectDao projectDao;
     private final SecretManager secretManager;
     private final RepositoryCache repositoryCache;
     private final RepositoryConfiguration repoCfg;
 
+    /**
+     * The last successful fetch for each locally cached repository (by URL).
+     * Modified only while holding the repository's exclusive lock.
+     */
+    private final ConcurrentMap<String, FetchState> fetchStates = new ConcurrentHashMap<>();
+
     @Inject
     public RepositoryManager(ObjectMapper objectMapper,
                              GitConfiguration gitCfg,
@@ -118,9 +131,19 @@ public class RepositoryManager {
         }
     }
 
+    /**
+     * Fetches the repository. Must be called while holding the repository's lock,
+     * see {@link #withLock(String, Callable)}.
+     */
     public Repository fetch(String url, String branch, String commitId, String path, Secret secret) {
         Path dest = repositoryCache.getPath(url);
-        return providers.fetch(url, branch, commitId, path, secret, dest);
+
+        // the provider might delete the local copy on failure
+        fetchStates.remove(url);
+
+        Repository result = providers.fetch(url, branch, commitId, path, secret, dest);
+        fetchStates.put(url, new FetchState(branch, commitId, System.currentTimeMillis()));
+        return result;
     }
 
     public Repository fetch(UUID projectId, RepositoryEntry repository) {
@@ -134,6 +157,70 @@ public class RepositoryManager {
         return repositoryCache.withLock(repoUrl, f);
     }
 
+    /**
+     * Fetches the repository and calls {@code f} while holding the repository's
+     * shared lock, i.e. calls for the same repository (e.g. exporting the files
+     * into process workspaces) can run concurrently.
+     * <p>
+     * The fetch is skipped if the requested revision is already checked out locally
+     * and it is a full commit ID, or it was fetched after this call started
+     * (e.g. by a concurrent call), or within the configured
+     * {@link RepositoryConfiguration#getFetchFreshness()} window.
+     */
+    public <T> T withFetchedRepository(UUID projectId, RepositoryEntry repository, RepositoryCache.ReadAction<Repository, T> f) {
+        long requestedAt = System.currentTimeMillis();
+
+        UUID orgId = getOrgId(projectId);
+        Secret secret = getSecret(orgId, projectId, repository.getSecretName());
+
+        String url = repository.getUrl();
+        String branch = repository.getBranch();
+        String commitId = repository.getCommitId();
+        String path = repository.getPath();
+
+        Callable<Repository> lookup = () -> {
+            FetchState s = fetchStates.get(url);
+            if (s == null || !isUpToDate(s, branch, commitId, requestedAt, System.currentTimeMillis(), repoCfg.getFetchFreshness())) {
+                return null;
+            }
+
+            Path dest = repositoryCache.getPath(url);
+            if (!Files.exists(dest)) {
+                return null;
+            }
+
+            log.debug("withFetchedRepository ['{}', '{}', '{}'] -> up to date, skipping the fetch", url, branch, commitId);
+            return providers.open(url, branch, path, dest);
+        };
+
+        return repositoryCache.withLock(url, lookup, () -> {
+            // re-check, the repository might've been fetched while we were waiting for the lock
+            Repository r = lookup.call();
+            if (r != null) {
+                return r;
+            }
+
+            return fetch(url, branch, commitId, path, secret);
+        }, f);
+    }
+
+    static boolean isUpToDate(FetchState s, String branch, String commitId, long requestedAt, long now, long freshness) {
+        if (!Objects.equals(s.branch, branch) || !Objects.equals(s.commitId, commitId)) {
+            return false;
+        }
+
+        // commit IDs are immutable, anything else (e.g. tags) might've changed on the remote
+        if (commitId != null && COMMIT_ID_PATTERN.matcher(commitId).matches()) {
+            return true;
+        }
+
+        if (s.fetchedAt >= requestedAt) {
+            return true;
+        }
+
+        return freshness > 0 && now - s.fetchedAt < freshness;
+    }
+
     private UUID getOrgId(UUID projectId) {
         UUID orgId = projectDao.getOrgId(projectId);
 
@@ -157,4 +244,17 @@ public class RepositoryManager {
 
         return s.getSecret();
     }
+
+    static final class FetchState {
+
+        private final String branch;
+        private final String commitId;
+        private final long fetchedAt;
+
+        FetchState(String branch, String commitId, long fetchedAt) {
+            this.branch = branch;
+            this.commitId = commitId;
+            this.fetchedAt = fetchedAt;
+        }
+    }
 }
@@ -28,9 +28,11 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Named
 @Singleton
@@ -39,6 +41,7 @@ public class WebSocketChannelManager {
     private static final Logger log = LoggerFactory.getLogger(WebSocketChannelManager.class);
 
     private final Map<UUID, WebSocketChannel> channels = new ConcurrentHashMap<>();
+    private final Map<MessageType, List<Runnable>> requestListeners = new ConcurrentHashMap<>();
 
     private volatile boolean isShutdown;
 
@@ -73,6 +76,19 @@ public class WebSocketChannelManager {
         }
 
         channel.onRequest(message);
+
+        List<Runnable> l = requestListeners.get(message.getMessageType());
+        if (l != null) {
+            l.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Registers a callback which is called every time a new request
+     * of the specified type is received.
+     */
+    public void addRequestListener(MessageType requestType, Runnable listener) {
+        requestListeners.computeIfAbsent(requestType, k -> new CopyOnWriteArrayList<>()).add(listener);
     }
 
     /**
@@ -37,15 +37,16 @@ import java.util.Collections;
 
 public abstract class AbstractDaoTest {
 
+    private DatabaseConfiguration dbCfg;
     private DataSource dataSource;
     private Configuration cfg;
 
     @Before
     public void initDataSource() {
-        DatabaseConfiguration cfg = new DatabaseConfigurationImpl("jdbc:postgresql://localhost:5432/postgres", "postgres", "q1", 3);
+        this.dbCfg = new DatabaseConfigurationImpl("jdbc:postgresql://localhost:5432/postgres", "postgres", "q1", 3);
 
         DatabaseModule db = new DatabaseModule();
-        this.dataSource = db.appDataSource(cfg, new MetricRegistry(), Collections.singleton(new MainDBChangeLogProvider()));
+        this.dataSource = db.appDataSource(dbCfg, new MetricRegistry(), Collections.singleton(new MainDBChangeLogProvider()));
 
         this.cfg = db.appJooqConfiguration(this.dataSource);
     }
@@ -69,6 +70,10 @@ public abstract class AbstractDaoTest {
         return cfg;
     }
 
+    protected DatabaseConfiguration getDatabaseConfiguration() {
+        return dbCfg;
+    }
+
     private static final class DatabaseConfigurationImpl implements DatabaseConfiguration {
 
         private final String url;
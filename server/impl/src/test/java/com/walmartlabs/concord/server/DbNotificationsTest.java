@@ -0,0 +1,117 @@
+package com.walmartlabs.concord.server;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.select;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@Ignore("requires a local DB instance")
+public class DbNotificationsTest extends AbstractDaoTest {
+
+    private DbNotifications notifications;
+    private String channel;
+    private BlockingQueue<Optional<String>> received;
+
+    @Before
+    public void setUp() {
+        notifications = new DbNotifications(getDatabaseConfiguration());
+        channel = "test_" + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        received = new LinkedBlockingQueue<>();
+
+        notifications.subscribe(channel, payload -> received.add(Optional.ofNullable(payload)));
+        notifications.start();
+    }
+
+    @After
+    public void tearDown() {
+        notifications.stop();
+    }
+
+    @Test
+    public void testNotify() throws Exception {
+        // the initial connect
+        assertEquals(Optional.empty(), next());
+
+        tx(tx -> notifications.notify(tx, channel, "hello"));
+        assertEquals(Optional.of("hello"), next());
+
+        // notifications without payload must not look like the reconnect signal
+        tx(tx -> notifications.notify(tx, channel, null));
+        assertEquals(Optional.of(""), next());
+
+        // not delivered if rolled back
+        try {
+            tx(tx -> {
+                notifications.notify(tx, channel, "rolled back");
+                throw new RuntimeException("rollback");
+            });
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertNull(received.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        assertEquals(Optional.empty(), next());
+
+        // kill the listener's connection, it shouldn't be a pooled one
+        int terminated = terminateListener();
+        assertEquals(1, terminated);
+
+        // the listener reconnects and signals that some notifications might've been lost
+        assertEquals(Optional.empty(), next());
+
+        tx(tx -> notifications.notify(tx, channel, "after reconnect"));
+        assertEquals(Optional.of("after reconnect"), next());
+    }
+
+    private Optional<String> next() throws InterruptedException {
+        Optional<String> result = received.poll(15, TimeUnit.SECONDS);
+        if (result == null) {
+            throw new AssertionError("no notification received");
+        }
+        return result;
+    }
+
+    private int terminateListener() {
+        int[] result = new int[1];
+        tx(tx -> result[0] = tx.select(field("count(*)", Integer.class))
+                .from(select(field("pg_terminate_backend(pid)").as("t"))
+                        .from("pg_stat_activity")
+                        .where(field("application_name").eq(DbNotifications.APPLICATION_NAME)))
+                .fetchOne(0, Integer.class));
+        return result[0];
+    }
+}
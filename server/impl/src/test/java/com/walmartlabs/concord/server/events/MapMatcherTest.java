@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -51,7 +52,7 @@ public class MapMatcherTest {
         conditions.put("e", true);
         conditions.put("f", Arrays.asList("1", "2"));
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertTrue(result);
     }
 
@@ -67,7 +68,7 @@ public class MapMatcherTest {
 
         Map<String, Object> conditions = new HashMap<>();
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertTrue(result);
     }
 
@@ -84,7 +85,7 @@ public class MapMatcherTest {
         Map<String, Object> conditions = new HashMap<>();
         conditions.put("b", "XXXX");
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertFalse(result);
     }
 
@@ -96,7 +97,7 @@ public class MapMatcherTest {
         Map<String, Object> conditions = new HashMap<>();
         conditions.put("a", "123");
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertFalse(result);
     }
 
@@ -114,7 +115,7 @@ public class MapMatcherTest {
         conditions.put("a", 100);
         conditions.put("obj", Collections.singletonMap("o1", "o1v1"));
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertTrue(result);
     }
 
@@ -126,7 +127,7 @@ public class MapMatcherTest {
         Map<String, Object> conditions = new HashMap<>();
         conditions.put("unknownRepo", Arrays.asList(true, false));
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertTrue(result);
     }
 
@@ -138,7 +139,38 @@ public class MapMatcherTest {
         Map<String, Object> conditions = new HashMap<>();
         conditions.put("unknownRepo", Collections.singletonList(false));
 
-        boolean result = MapMatcher.matches(event, conditions);
+        boolean result = matches(event, conditions);
         assertFalse(result);
     }
+
+    @Test
+    public void testRegexAndLiterals() {
+        Map<String, Object> event = new HashMap<>();
+        event.put("ref", "refs/heads/master");
+        event.put("path", "a.b");
+
+        Map<String, Object> conditions = new HashMap<>();
+        conditions.put("ref", "refs/heads/master");
+        conditions.put("path", "a.b");
+        conditions.put("missing", ".*");
+        assertTrue(matches(event, conditions));
+
+        conditions.put("ref", "refs/heads/(master|develop)");
+        assertTrue(matches(event, conditions));
+
+        conditions.put("path", "a\\.c");
+        assertFalse(matches(event, conditions));
+
+        conditions.put("path", "axb");
+        assertFalse(matches(event, conditions));
+    }
+
+    /**
+     * Checks that the compiled matcher returns the same result.
+     */
+    private static boolean matches(Map<String, Object> event, Map<String, Object> conditions) {
+        boolean result = MapMatcher.matches(event, conditions);
+        assertEquals(result, MapMatcher.compile(conditions).matches(event));
+        return result;
+    }
 }
@@ -0,0 +1,222 @@
+package com.walmartlabs.concord.server.events.inbox;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.records.EventInboxRecord;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.server.jooq.tables.EventInbox.EVENT_INBOX;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class EventInboxDaoTest extends AbstractDaoTest {
+
+    private static final Duration LEASE_TIMEOUT = Duration.ofMinutes(10);
+
+    private EventInboxDao dao;
+    private String eventSource;
+
+    @Before
+    public void setUp() {
+        dao = new EventInboxDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+        // a unique source per test, the table might contain events created by other tests
+        eventSource = "test_" + UUID.randomUUID();
+    }
+
+    @Test
+    public void testDuplicateInsert() {
+        assertTrue(insert("a"));
+        assertFalse(insert("a"));
+        assertTrue(insert("b"));
+
+        List<EventInboxEntry> l = poll();
+        assertEquals(2, l.size());
+    }
+
+    @Test
+    public void testPollClaimsEvents() {
+        insert("a");
+
+        List<EventInboxEntry> l = poll();
+        assertEquals(1, l.size());
+
+        EventInboxEntry e = l.get(0);
+        assertEquals(eventSource, e.getEventSource());
+        assertEquals("a", e.getEventId());
+        assertEquals(1, e.getAttempts());
+
+        // claimed events are not returned until the lease expires
+        assertTrue(poll().isEmpty());
+    }
+
+    @Test
+    public void testPollSkipsLockedEvents() {
+        insert("a");
+        insert("b");
+
+        tx(tx -> {
+            // lock the first event as if another server is claiming it right now
+            long lockedSeq = tx.select(EVENT_INBOX.INBOX_SEQ)
+                    .from(EVENT_INBOX)
+                    .where(EVENT_INBOX.EVENT_SOURCE.eq(eventSource)
+                            .and(EVENT_INBOX.EVENT_ID.eq("a")))
+                    .forUpdate()
+                    .fetchOne(EVENT_INBOX.INBOX_SEQ);
+
+            List<EventInboxEntry> l = poll();
+            assertEquals(1, l.size());
+            assertEquals("b", l.get(0).getEventId());
+            assertNotEquals(lockedSeq, l.get(0).getSeq());
+        });
+
+        // the lock is released, the remaining event can be claimed
+        List<EventInboxEntry> l = poll();
+        assertEquals(1, l.size());
+        assertEquals("a", l.get(0).getEventId());
+    }
+
+    @Test
+    public void testLeaseExpiry() throws Exception {
+        insert("a");
+
+        List<EventInboxEntry> l = poll(Duration.ofSeconds(1));
+        assertEquals(1, l.size());
+        assertTrue(poll().isEmpty());
+
+        Thread.sleep(1500);
+
+        // the lease is expired, the event is claimed again
+        l = poll();
+        assertEquals(1, l.size());
+        assertEquals(2, l.get(0).getAttempts());
+    }
+
+    @Test
+    public void testExtendLease() throws Exception {
+        insert("a");
+
+        EventInboxEntry e = poll(Duration.ofSeconds(1)).get(0);
+        dao.extendLease(Collections.singletonList(e.getSeq()), LEASE_TIMEOUT);
+
+        Thread.sleep(1500);
+
+        assertTrue(poll().isEmpty());
+    }
+
+    @Test
+    public void testExtendLeaseIgnoresCompletedEvents() throws Exception {
+        insert("a");
+
+        EventInboxEntry e = poll().get(0);
+        dao.markDone(e.getSeq());
+        dao.extendLease(Collections.singletonList(e.getSeq()), Duration.ZERO);
+
+        assertTrue(poll().isEmpty());
+        assertEquals("DONE", getStatus(e.getSeq()));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        insert("a");
+
+        EventInboxEntry e = poll().get(0);
+        dao.retry(e.getSeq(), Duration.ofSeconds(1), "boom");
+
+        // not available until the delay expires
+        assertTrue(poll().isEmpty());
+
+        Thread.sleep(1500);
+
+        List<EventInboxEntry> l = poll();
+        assertEquals(1, l.size());
+        assertEquals(2, l.get(0).getAttempts());
+        assertEquals("boom", getLastError(e.getSeq()));
+    }
+
+    @Test
+    public void testMarkFailed() {
+        insert("a");
+
+        EventInboxEntry e = poll(Duration.ZERO).get(0);
+        dao.markFailed(e.getSeq(), "boom");
+
+        // failed events are never claimed again
+        assertTrue(poll().isEmpty());
+        assertEquals("FAILED", getStatus(e.getSeq()));
+        assertEquals("boom", getLastError(e.getSeq()));
+    }
+
+    @Test
+    public void testMarkDone() {
+        insert("a");
+
+        EventInboxEntry e = poll(Duration.ZERO).get(0);
+        dao.markDone(e.getSeq());
+
+        assertTrue(poll().isEmpty());
+        assertEquals("DONE", getStatus(e.getSeq()));
+    }
+
+    private boolean insert(String eventId) {
+        return dao.txResult(tx -> dao.insert(tx, eventSource, eventId, "push",
+                Collections.singletonMap("k", "v"), Collections.emptyMap(), null));
+    }
+
+    private List<EventInboxEntry> poll() {
+        return poll(LEASE_TIMEOUT);
+    }
+
+    /**
+     * Polls and returns only the events created by the current test.
+     * Events from other sources remain claimed until the lease expires.
+     */
+    private List<EventInboxEntry> poll(Duration leaseTimeout) {
+        return dao.poll(100, leaseTimeout).stream()
+                .filter(e -> eventSource.equals(e.getEventSource()))
+                .collect(Collectors.toList());
+    }
+
+    private String getStatus(long seq) {
+        return getRecord(seq).map(EventInboxRecord::getStatus).orElse(null);
+    }
+
+    private String getLastError(long seq) {
+        return getRecord(seq).map(EventInboxRecord::getLastError).orElse(null);
+    }
+
+    private Optional<EventInboxRecord> getRecord(long seq) {
+        return Optional.ofNullable(getConfiguration().dsl().selectFrom(EVENT_INBOX)
+                .where(EVENT_INBOX.INBOX_SEQ.eq(seq))
+                .fetchOne());
+    }
+}
@@ -0,0 +1,98 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CronUtilsTest {
+
+    @Test
+    public void testNoJitter() {
+        Map<String, Object> conditions = cron("0 * * * *", null);
+
+        Instant now = Instant.parse("2020-05-01T10:15:00Z");
+        assertEquals(Instant.parse("2020-05-01T11:00:00Z"), CronUtils.nextExecution(now, UUID.randomUUID(), conditions));
+    }
+
+    @Test
+    public void testJitter() {
+        Map<String, Object> conditions = cron("0 * * * *", 600);
+
+        UUID triggerId = UUID.randomUUID();
+        Duration offset = CronUtils.jitterOffset(triggerId, conditions);
+        assertEquals(offset, CronUtils.jitterOffset(triggerId, conditions));
+        assertTrue(offset.getSeconds() >= 0 && offset.getSeconds() < 600);
+
+        Instant now = Instant.parse("2020-05-01T10:15:00Z");
+        Instant next = CronUtils.nextExecution(now, triggerId, conditions);
+        assertEquals(Instant.parse("2020-05-01T11:00:00Z").plus(offset), next);
+
+        // firing at the shifted time must not skip the next run
+        assertEquals(Instant.parse("2020-05-01T12:00:00Z").plus(offset), CronUtils.nextExecution(next, triggerId, conditions));
+    }
+
+    @Test
+    public void testJitterLargerThanPeriod() {
+        Map<String, Object> conditions = cron("* * * * *", 3600);
+
+        UUID triggerId = UUID.randomUUID();
+        Duration offset = CronUtils.jitterOffset(triggerId, conditions);
+
+        Instant now = Instant.parse("2020-05-01T10:15:00Z");
+        Instant next = CronUtils.nextExecution(now, triggerId, conditions);
+        assertEquals(Duration.ofMinutes(1), Duration.between(next, CronUtils.nextExecution(next, triggerId, conditions)));
+        assertTrue(next.isAfter(now) && !next.isAfter(now.plus(Duration.ofMinutes(1))));
+        assertEquals(0, next.minus(offset).getEpochSecond() % 60);
+    }
+
+    @Test
+    public void testInvalidJitter() {
+        assertEquals(0, CronUtils.getJitter(cron("* * * * *", null)));
+        assertEquals(30, CronUtils.getJitter(cron("* * * * *", "30")));
+
+        try {
+            CronUtils.getJitter(cron("* * * * *", -1));
+            fail("exception expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(Duration.ZERO, CronUtils.jitterOffset(UUID.randomUUID(), cron("* * * * *", "abc")));
+    }
+
+    private static Map<String, Object> cron(String spec, Object jitter) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("spec", spec);
+        m.put("timezone", "UTC");
+        if (jitter != null) {
+            m.put("jitter", jitter);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,171 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.DbNotifications;
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TriggerIndexTest {
+
+    @Test
+    public void testFindLiteral() {
+        TriggerEntry a = trigger("a", "type", "push", "repo", "r1");
+        TriggerEntry b = trigger("b", "type", "push", "repo", "r2");
+        TriggerEntry c = trigger("c", "type", "pull_request", "repo", "r1");
+
+        TriggerIndex.Bucket bucket = new TriggerIndex.Bucket(Arrays.asList("repo", "type"), Arrays.asList(a, b, c));
+
+        assertEquals(names("a"), names(bucket.find(event("type", "push", "repo", "r1"))));
+        assertEquals(names("b"), names(bucket.find(event("type", "push", "repo", "r2"))));
+        assertEquals(names(), names(bucket.find(event("type", "push", "repo", "r3"))));
+    }
+
+    @Test
+    public void testFindRegexAndMissingConditions() {
+        TriggerEntry literal = trigger("literal", "type", "push", "repo", "r1");
+        TriggerEntry regex = trigger("regex", "type", "push", "repo", "r.*");
+        TriggerEntry missing = trigger("missing", "type", "push");
+        TriggerEntry nonString = trigger("nonString", "type", "push", "repo", Collections.singletonList("r1"));
+
+        TriggerIndex.Bucket bucket = new TriggerIndex.Bucket(Arrays.asList("repo", "type"), Arrays.asList(literal, regex, missing, nonString));
+
+        // regex and missing conditions are returned regardless of the values, the caller filters them
+        assertEquals(names("literal", "regex", "missing", "nonString"), names(bucket.find(event("type", "push", "repo", "r1"))));
+        assertEquals(names("regex", "missing", "nonString"), names(bucket.find(event("type", "push", "repo", "x"))));
+    }
+
+    @Test
+    public void testFindMissingEventKeys() {
+        TriggerEntry a = trigger("a", "type", "push", "repo", "r1");
+        TriggerEntry b = trigger("b", "type", "push");
+
+        // the event has no "repo" value
+        TriggerIndex.Bucket bucket = new TriggerIndex.Bucket(Arrays.asList("repo", "type"), Arrays.asList(a, b));
+        Map<String, String> event = new HashMap<>();
+        event.put("type", "push");
+        event.put("repo", null);
+        // only the triggers without the "repo" condition can match
+        assertEquals(names("b"), names(bucket.find(event)));
+        assertEquals(names("b"), names(bucket.find(Collections.emptyMap())));
+
+        // the event has no condition keys at all, everything is a candidate
+        TriggerIndex.Bucket noKeys = new TriggerIndex.Bucket(Collections.emptyList(), Arrays.asList(a, b));
+        assertEquals(names("a", "b"), names(noKeys.find(Collections.emptyMap())));
+    }
+
+    @Test
+    public void testFindNoConditions() {
+        TriggerEntry a = new TriggerEntry(UUID.randomUUID(), null, null, null, null, null, null, "github", null, null, null, null);
+
+        TriggerIndex.Bucket bucket = new TriggerIndex.Bucket(Collections.singletonList("type"), Collections.singletonList(a));
+        assertEquals(1, bucket.find(event("type", "push")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoadDuringInvalidationIsDiscarded() throws Exception {
+        TriggersDao triggersDao = mock(TriggersDao.class);
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        TriggerEntry stale = trigger("stale", "type", "push");
+        TriggerEntry fresh = trigger("fresh", "type", "push");
+
+        when(triggersDao.list(eq("github"), eq(2)))
+                .thenAnswer(i -> {
+                    // the first load is interrupted by the invalidation
+                    loading.countDown();
+                    assertTrue(invalidated.await(10, TimeUnit.SECONDS));
+                    return Collections.singletonList(stale);
+                })
+                .thenReturn(Collections.singletonList(fresh));
+
+        TriggersConfiguration cfg = mock(TriggersConfiguration.class);
+        when(cfg.getIndexTtl()).thenReturn(Duration.ofHours(1));
+
+        DbNotifications notifications = mock(DbNotifications.class);
+
+        TriggerIndex index = new TriggerIndex(triggersDao, mock(RepositoryDao.class), cfg, notifications);
+
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(notifications).subscribe(eq("triggers"), listener.capture());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<TriggerEntry>> f = executor.submit(() -> index.list(null, "github", 2, event("type", "push")));
+
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            listener.getValue().accept(null);
+            invalidated.countDown();
+
+            assertEquals(names("fresh"), names(f.get(10, TimeUnit.SECONDS)));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // cached now
+        assertEquals(names("fresh"), names(index.list(null, "github", 2, event("type", "push"))));
+        verify(triggersDao, times(2)).list(eq("github"), eq(2));
+    }
+
+    private static TriggerEntry trigger(String name, Object... conditions) {
+        Map<String, Object> m = new HashMap<>();
+        for (int i = 0; i < conditions.length; i += 2) {
+            m.put((String) conditions[i], conditions[i + 1]);
+        }
+        return new TriggerEntry(UUID.randomUUID(), null, null, null, null, null, name, "github", null, null, m, null);
+    }
+
+    private static Map<String, String> event(String... values) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < values.length; i += 2) {
+            m.put(values[i], values[i + 1]);
+        }
+        return m;
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    /**
+     * The triggers' names are stored as their repository names.
+     */
+    private static Set<String> names(List<TriggerEntry> triggers) {
+        return triggers.stream()
+                .map(TriggerEntry::getRepositoryName)
+                .collect(Collectors.toSet());
+    }
+}
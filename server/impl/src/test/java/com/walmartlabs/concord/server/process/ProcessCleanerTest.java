@@ -0,0 +1,131 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessCleaner.CleanerDao;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.Partition;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.PartitionedTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ProcessCleanerTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private ProcessConfiguration cfg;
+    private CleanerDao cleanerDao;
+    private ProcessPartitionsDao partitionsDao;
+    private ProcessCleaner cleaner;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        now = System.currentTimeMillis();
+
+        cfg = mock(ProcessConfiguration.class);
+        when(cfg.getMaxStateAge()).thenReturn(7 * DAY);
+        when(cfg.isEventsCleanup()).thenReturn(true);
+
+        cleanerDao = mock(CleanerDao.class);
+        partitionsDao = mock(ProcessPartitionsDao.class);
+        cleaner = new ProcessCleaner(cfg, cleanerDao, partitionsDao);
+    }
+
+    @Test
+    public void testBlockedPartitionIsSkipped() {
+        Partition legacy = partition("legacy", null, daysAgo(30), 100);
+        Partition p1 = partition("p1", daysAgo(30), daysAgo(20), 100);
+        Partition p2 = partition("p2", daysAgo(20), daysAgo(10), 100);
+        Partition current = partition("current", daysAgo(1), daysAgo(-1), 100);
+        when(partitionsDao.list(PartitionedTable.EVENTS)).thenReturn(Arrays.asList(legacy, p1, p2, current));
+
+        // a long-running process keeps the first partition
+        when(cleanerDao.dropPartition(any(), eq(legacy), any())).thenReturn(false);
+        when(cleanerDao.dropPartition(any(), eq(p1), any())).thenReturn(true);
+        when(cleanerDao.dropPartition(any(), eq(p2), any())).thenReturn(true);
+
+        cleaner.performTask();
+
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(legacy), notNull());
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p1), notNull());
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p2), notNull());
+        verify(cleanerDao, never()).dropPartition(any(), eq(current), any());
+    }
+
+    @Test
+    public void testSizeLimitIsEnforcedPastBlockedPartitions() {
+        when(cfg.getEventsMaxSize()).thenReturn(250L);
+
+        // nothing is expired
+        Partition p1 = partition("p1", daysAgo(4), daysAgo(3), 100);
+        Partition p2 = partition("p2", daysAgo(3), daysAgo(2), 100);
+        Partition p3 = partition("p3", daysAgo(2), daysAgo(1), 100);
+        Partition current = partition("current", daysAgo(1), daysAgo(-1), 100);
+        when(partitionsDao.list(PartitionedTable.EVENTS)).thenReturn(Arrays.asList(p1, p2, p3, current));
+
+        when(cleanerDao.dropPartition(any(), eq(p1), any())).thenReturn(false);
+        when(cleanerDao.dropPartition(any(), eq(p2), any())).thenReturn(true);
+        when(cleanerDao.dropPartition(any(), eq(p3), any())).thenReturn(true);
+
+        cleaner.performTask();
+
+        // oversized partitions are removed regardless of the process' last update date
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p1), isNull());
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p2), isNull());
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p3), isNull());
+        verify(cleanerDao, never()).dropPartition(any(), eq(current), any());
+    }
+
+    @Test
+    public void testStopsWhenSizeFits() {
+        when(cfg.getEventsMaxSize()).thenReturn(250L);
+
+        Partition p1 = partition("p1", daysAgo(3), daysAgo(2), 100);
+        Partition p2 = partition("p2", daysAgo(2), daysAgo(1), 100);
+        Partition current = partition("current", daysAgo(1), daysAgo(-1), 100);
+        when(partitionsDao.list(PartitionedTable.EVENTS)).thenReturn(Arrays.asList(p1, p2, current));
+
+        when(cleanerDao.dropPartition(any(), any(), any())).thenReturn(true);
+
+        cleaner.performTask();
+
+        verify(cleanerDao).dropPartition(eq(partitionsDao), eq(p1), isNull());
+        verify(cleanerDao, never()).dropPartition(any(), eq(p2), any());
+        verify(cleanerDao, never()).dropPartition(any(), eq(current), any());
+    }
+
+    private Timestamp daysAgo(int days) {
+        return new Timestamp(now - days * DAY);
+    }
+
+    private static Partition partition(String name, Timestamp from, Timestamp to, long size) {
+        return new Partition(name, from, to, size);
+    }
+}
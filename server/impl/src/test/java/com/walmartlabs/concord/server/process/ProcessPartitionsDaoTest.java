@@ -0,0 +1,143 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.Partition;
+import com.walmartlabs.concord.server.process.ProcessPartitionsDao.PartitionedTable;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.JSONB;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static org.jooq.impl.DSL.currentTimestamp;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessPartitionsDaoTest extends AbstractDaoTest {
+
+    private ProcessPartitionsDao partitionsDao;
+    private ProcessQueueDao queueDao;
+
+    @Before
+    public void setUp() {
+        partitionsDao = new ProcessPartitionsDao(getConfiguration());
+        queueDao = new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+    }
+
+    @Test
+    public void testLegacyPartition() {
+        for (PartitionedTable t : PartitionedTable.values()) {
+            List<Partition> l = partitionsDao.list(t);
+            assertFalse(l.isEmpty());
+
+            // the pre-existing data, always goes first
+            Partition legacy = l.get(0);
+            assertEquals((t.getName() + "_legacy").toLowerCase(), legacy.getName());
+            assertNull(legacy.getFrom());
+            assertNotNull(legacy.getTo());
+        }
+    }
+
+    @Test
+    public void testCreateAndDrop() {
+        Timestamp from = Timestamp.valueOf("2100-01-01 00:00:00");
+        Timestamp to = Timestamp.valueOf("2100-01-02 00:00:00");
+
+        partitionsDao.create(PartitionedTable.EVENTS, from, to);
+        // creating the same partition twice is a no-op
+        partitionsDao.create(PartitionedTable.EVENTS, from, to);
+
+        Partition p = find(PartitionedTable.EVENTS, from);
+        assertNotNull(p);
+        assertEquals(to, p.getTo());
+
+        tx(tx -> partitionsDao.drop(tx, p));
+        assertNull(find(PartitionedTable.EVENTS, from));
+    }
+
+    @Test
+    public void testDropPartitionInUse() {
+        Timestamp from = Timestamp.valueOf("2100-02-01 00:00:00");
+        Timestamp to = Timestamp.valueOf("2100-02-02 00:00:00");
+        partitionsDao.create(PartitionedTable.EVENTS, from, to);
+
+        Timestamp createdAt = Timestamp.valueOf("2100-02-01 12:00:00");
+        ProcessKey running = newProcess(createdAt, ProcessStatus.RUNNING);
+        addEvent(running);
+
+        ProcessCleaner.CleanerDao cleanerDao = new ProcessCleaner.CleanerDao(getConfiguration());
+
+        // kept by the running process
+        assertFalse(cleanerDao.dropPartition(partitionsDao, find(PartitionedTable.EVENTS, from), null));
+        assertNotNull(find(PartitionedTable.EVENTS, from));
+
+        tx(tx -> tx.update(PROCESS_QUEUE)
+                .set(PROCESS_QUEUE.CURRENT_STATUS, ProcessStatus.FINISHED.name())
+                .where(PROCESS_QUEUE.INSTANCE_ID.eq(running.getInstanceId()))
+                .execute());
+
+        // kept because the process was updated after the cutoff
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7));
+        assertFalse(cleanerDao.dropPartition(partitionsDao, find(PartitionedTable.EVENTS, from), cutoff));
+
+        assertTrue(cleanerDao.dropPartition(partitionsDao, find(PartitionedTable.EVENTS, from), null));
+        assertNull(find(PartitionedTable.EVENTS, from));
+
+        tx(tx -> tx.deleteFrom(PROCESS_QUEUE)
+                .where(PROCESS_QUEUE.INSTANCE_ID.eq(running.getInstanceId()))
+                .execute());
+    }
+
+    private Partition find(PartitionedTable t, Timestamp from) {
+        return partitionsDao.list(t).stream()
+                .filter(p -> from.equals(p.getFrom()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private ProcessKey newProcess(Timestamp createdAt, ProcessStatus status) {
+        ProcessKey key = new ProcessKey(UUID.randomUUID(), createdAt);
+        tx(tx -> queueDao.insert(tx, key, status, ProcessKind.DEFAULT, null, null, null, null, null, null));
+        return key;
+    }
+
+    private void addEvent(ProcessKey key) {
+        tx(tx -> tx.insertInto(PROCESS_EVENTS)
+                .set(PROCESS_EVENTS.INSTANCE_ID, key.getInstanceId())
+                .set(PROCESS_EVENTS.INSTANCE_CREATED_AT, key.getCreatedAt())
+                .set(PROCESS_EVENTS.EVENT_TYPE, "TEST")
+                .set(PROCESS_EVENTS.EVENT_DATE, currentTimestamp())
+                .set(PROCESS_EVENTS.EVENT_DATA, JSONB.valueOf("{}"))
+                .execute());
+    }
+}
@@ -0,0 +1,63 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response.Status;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ProcessResourceTest {
+
+    @Test
+    public void testGunzip() throws Exception {
+        byte[] ab = "Hello!".getBytes();
+        assertArrayEquals(ab, ProcessResource.gunzip(new ByteArrayInputStream(gzip(ab)), ab.length));
+    }
+
+    @Test
+    public void testGunzipTooLarge() throws Exception {
+        // compresses very well
+        byte[] ab = new byte[1024 * 1024];
+        Arrays.fill(ab, (byte) 'a');
+
+        try {
+            ProcessResource.gunzip(new ByteArrayInputStream(gzip(ab)), ab.length - 1);
+            fail("exception expected");
+        } catch (ConcordApplicationException e) {
+            assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), e.getResponse().getStatus());
+        }
+    }
+
+    private static byte[] gzip(byte[] ab) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(ab);
+        }
+        return out.toByteArray();
+    }
+}
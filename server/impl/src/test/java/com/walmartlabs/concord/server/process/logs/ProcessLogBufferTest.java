@@ -0,0 +1,247 @@
+package com.walmartlabs.concord.server.process.logs;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.PgIntRange;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class ProcessLogBufferTest {
+
+    private static final int MAX_SIZE = 10;
+    private static final long MAX_PENDING_SIZE = 100;
+
+    private ProcessLogsDao logsDao;
+    private ProcessLogBuffer buffer;
+    private ExecutorService executor;
+
+    /**
+     * Everything saved using the DAO mock.
+     */
+    private Map<ProcessKey, ByteArrayOutputStream> saved;
+
+    /**
+     * Batches saved using the DAO mock.
+     */
+    private List<Map<ProcessKey, byte[]>> batches;
+
+    @Before
+    public void setUp() {
+        saved = new ConcurrentHashMap<>();
+        batches = new CopyOnWriteArrayList<>();
+
+        logsDao = mock(ProcessLogsDao.class);
+        when(logsDao.append(any(ProcessKey.class), any(byte[].class))).thenAnswer(i -> save(i.getArgument(0), i.getArgument(1)));
+        when(logsDao.append(anyMap())).thenAnswer(i -> saveBatch(i.getArgument(0)));
+
+        ProcessConfiguration cfg = mock(ProcessConfiguration.class);
+        when(cfg.getLogBufferMaxSize()).thenReturn(MAX_SIZE);
+        when(cfg.getLogBufferMaxPendingSize()).thenReturn(MAX_PENDING_SIZE);
+
+        buffer = new ProcessLogBuffer(logsDao, cfg, new MetricRegistry());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        buffer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testNotStarted() {
+        ProcessKey processKey = newKey();
+
+        assertEquals(1, buffer.append(processKey, "a".getBytes()));
+        assertEquals(2, buffer.append(processKey, "b".getBytes()));
+        assertEquals("ab", saved(processKey));
+        verify(logsDao, never()).append(anyMap());
+    }
+
+    @Test(timeout = 10000)
+    public void testCoalesce() throws Exception {
+        ProcessKey a = newKey();
+        ProcessKey b = newKey();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            blocked.countDown();
+            release.await();
+            return saveBatch(i.getArgument(0));
+        }).doAnswer(i -> saveBatch(i.getArgument(0))).when(logsDao).append(anyMap());
+
+        buffer.start();
+
+        // the first batch is blocked in the DAO
+        Future<Integer> first = append(a, "1");
+        blocked.await();
+
+        // the next appends are queued, in order
+        Future<Integer> a2 = append(a, "2");
+        waitForPending(1);
+        Future<Integer> b1 = append(b, "x");
+        waitForPending(2);
+        Future<Integer> a3 = append(a, "3");
+        waitForPending(3);
+
+        // nothing is acknowledged until the data is saved
+        assertFalse(first.isDone());
+        assertFalse(a2.isDone());
+        assertTrue(buffer.hasPending(a));
+        assertTrue(buffer.hasPending(b));
+
+        release.countDown();
+
+        assertEquals(1, (int) first.get());
+        assertEquals(3, (int) a2.get());
+        assertEquals(3, (int) a3.get());
+        assertEquals(1, (int) b1.get());
+
+        assertEquals("123", saved(a));
+        assertEquals("x", saved(b));
+
+        // the queued appends are saved as a single batch, one row per process
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(1).size());
+        assertEquals("23", new String(batches.get(1).get(a)));
+        assertEquals(0, buffer.pendingBytes());
+
+        while (buffer.hasPending(a)) {
+            // the worker is finishing the batch
+            Thread.sleep(10);
+        }
+        assertFalse(buffer.hasPending(b));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedSaveIsNotAcknowledged() {
+        ProcessKey processKey = newKey();
+
+        doThrow(new RuntimeException("db is down"))
+                .doAnswer(i -> saveBatch(i.getArgument(0)))
+                .when(logsDao).append(anyMap());
+
+        buffer.start();
+
+        ConcordApplicationException e = assertThrows(ConcordApplicationException.class, () -> buffer.append(processKey, "a".getBytes()));
+        assertEquals(503, e.getResponse().getStatus());
+        assertEquals("", saved(processKey));
+        assertEquals(0, buffer.pendingBytes());
+
+        // the client retries
+        assertEquals(1, buffer.append(processKey, "a".getBytes()));
+        assertEquals("a", saved(processKey));
+    }
+
+    @Test(timeout = 10000)
+    public void testBackpressure() throws Exception {
+        ProcessKey processKey = newKey();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            blocked.countDown();
+            release.await();
+            return saveBatch(i.getArgument(0));
+        }).doAnswer(i -> saveBatch(i.getArgument(0))).when(logsDao).append(anyMap());
+
+        buffer.start();
+
+        byte[] ab = new byte[(int) MAX_PENDING_SIZE];
+        Arrays.fill(ab, (byte) 'a');
+
+        Future<Integer> first = executor.submit(() -> buffer.append(processKey, ab));
+        blocked.await();
+
+        // no more room
+        ConcordApplicationException e = assertThrows(ConcordApplicationException.class, () -> buffer.append(processKey, "b".getBytes()));
+        assertEquals(503, e.getResponse().getStatus());
+
+        release.countDown();
+        assertEquals(MAX_PENDING_SIZE, (int) first.get());
+
+        assertEquals(MAX_PENDING_SIZE + 1, buffer.append(processKey, "b".getBytes()));
+        assertEquals(MAX_PENDING_SIZE + 1, saved(processKey).length());
+    }
+
+    @Test(timeout = 10000)
+    public void testAppendAfterStop() {
+        ProcessKey processKey = newKey();
+
+        buffer.start();
+        assertEquals(1, buffer.append(processKey, "a".getBytes()));
+        buffer.stop();
+
+        // saved directly
+        assertEquals(2, buffer.append(processKey, "b".getBytes()));
+        assertEquals("ab", saved(processKey));
+    }
+
+    private Future<Integer> append(ProcessKey processKey, String s) {
+        return executor.submit(() -> buffer.append(processKey, s.getBytes()));
+    }
+
+    private void waitForPending(int chunks) throws InterruptedException {
+        while (buffer.pendingChunks() < chunks) {
+            Thread.sleep(10);
+        }
+    }
+
+    private String saved(ProcessKey processKey) {
+        ByteArrayOutputStream out = saved.get(processKey);
+        return out != null ? out.toString() : "";
+    }
+
+    private Map<ProcessKey, PgIntRange> saveBatch(Map<ProcessKey, byte[]> chunks) {
+        batches.add(new HashMap<>(chunks));
+
+        Map<ProcessKey, PgIntRange> result = new HashMap<>();
+        chunks.forEach((k, v) -> result.put(k, save(k, v)));
+        return result;
+    }
+
+    private PgIntRange save(ProcessKey processKey, byte[] data) {
+        ByteArrayOutputStream out = saved.computeIfAbsent(processKey, k -> new ByteArrayOutputStream());
+        int lower = out.size();
+        out.write(data, 0, data.length);
+        return PgIntRange.parse("[" + lower + "," + out.size() + ")");
+    }
+
+    private static ProcessKey newKey() {
+        return new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+    }
+}
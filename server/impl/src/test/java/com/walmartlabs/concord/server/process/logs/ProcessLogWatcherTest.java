@@ -0,0 +1,179 @@
+package com.walmartlabs.concord.server.process.logs;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class ProcessLogWatcherTest {
+
+    private ProcessLogsDao logsDao;
+    private ProcessQueueDao queueDao;
+    private ProcessLogBuffer logBuffer;
+    private ProcessLogWatcher watcher;
+
+    @Before
+    public void setUp() {
+        logsDao = mock(ProcessLogsDao.class);
+        queueDao = mock(ProcessQueueDao.class);
+        logBuffer = mock(ProcessLogBuffer.class);
+        watcher = new ProcessLogWatcher(logsDao, queueDao, logBuffer);
+        watcher.start();
+    }
+
+    @After
+    public void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    public void testCatchUpFiresOnlyOnChanges() throws Exception {
+        ProcessKey a = newKey();
+        ProcessKey b = newKey();
+
+        Map<ProcessKey, Integer> sizes = new HashMap<>();
+        sizes.put(a, 100);
+        sizes.put(b, 200);
+        when(logsDao.getSizes(anyCollection())).thenReturn(sizes);
+
+        Map<UUID, ProcessStatus> statuses = new HashMap<>();
+        statuses.put(a.getInstanceId(), ProcessStatus.RUNNING);
+        statuses.put(b.getInstanceId(), ProcessStatus.RUNNING);
+        when(queueDao.getStatuses(anyCollection())).thenReturn(statuses);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        watcher.subscribe(a, finished -> events.add("a" + finished));
+        watcher.subscribe(a, finished -> events.add("a" + finished));
+        watcher.subscribe(b, finished -> events.add("b" + finished));
+
+        // first run, everything is new
+        watcher.catchUp();
+        assertEquals(3, take(events, 3).size());
+
+        // nothing changed
+        watcher.catchUp();
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        // new data for "b"
+        sizes.put(b, 300);
+        watcher.catchUp();
+        assertEquals(Collections.singletonList("bfalse"), take(events, 1));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        // one query per run for all processes
+        verify(logsDao, atLeast(3)).getSizes(argThat(c -> c.size() == 2));
+        verify(queueDao, atLeast(3)).getStatuses(argThat(c -> c.size() == 2));
+    }
+
+    @Test
+    public void testCatchUpReportsFinishedProcesses() throws Exception {
+        ProcessKey a = newKey();
+        ProcessKey b = newKey();
+
+        when(logsDao.getSizes(anyCollection())).thenReturn(Collections.emptyMap());
+
+        Map<UUID, ProcessStatus> statuses = new HashMap<>();
+        statuses.put(a.getInstanceId(), ProcessStatus.RUNNING);
+        when(queueDao.getStatuses(anyCollection())).thenReturn(statuses);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        watcher.subscribe(a, finished -> events.add("a" + finished));
+        watcher.subscribe(b, finished -> events.add("b" + finished));
+
+        // "a" has no data and is still running, "b" no longer exists
+        watcher.catchUp();
+        assertEquals(Collections.singletonList("btrue"), take(events, 1));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        statuses.put(a.getInstanceId(), ProcessStatus.FINISHED);
+        watcher.catchUp();
+        assertTrue(take(events, 2).contains("atrue"));
+    }
+
+    @Test
+    public void testNotFinishedWhileDataIsPending() throws Exception {
+        ProcessKey a = newKey();
+
+        when(logsDao.getSizes(anyCollection())).thenReturn(Collections.singletonMap(a, 100));
+        when(queueDao.getStatuses(anyCollection())).thenReturn(Collections.singletonMap(a.getInstanceId(), ProcessStatus.FINISHED));
+        when(logBuffer.hasPending(a)).thenReturn(true);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        watcher.subscribe(a, finished -> events.add("a" + finished));
+
+        // the last chunks are still being saved
+        watcher.catchUp();
+        assertEquals(Collections.singletonList("afalse"), take(events, 1));
+        assertFalse(watcher.isFinished(a, ProcessStatus.FINISHED));
+
+        when(logBuffer.hasPending(a)).thenReturn(false);
+        watcher.catchUp();
+        assertEquals(Collections.singletonList("atrue"), take(events, 1));
+        assertTrue(watcher.isFinished(a, ProcessStatus.FINISHED));
+        assertFalse(watcher.isFinished(a, ProcessStatus.RUNNING));
+    }
+
+    @Test
+    public void testOnSaved() throws Exception {
+        ProcessKey a = newKey();
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        ProcessLogWatcher.Subscriber s = finished -> events.add("a" + finished);
+        watcher.subscribe(a, s);
+
+        watcher.onSaved(a);
+        assertEquals(Collections.singletonList("afalse"), take(events, 1));
+
+        watcher.unsubscribe(a, s);
+        watcher.onSaved(a);
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        verifyNoInteractions(logsDao, queueDao);
+    }
+
+    private static List<String> take(BlockingQueue<String> q, int count) throws InterruptedException {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String s = q.poll(5, TimeUnit.SECONDS);
+            assertNotNull("expected " + count + " events, got " + result, s);
+            result.add(s);
+        }
+        return result;
+    }
+
+    private static ProcessKey newKey() {
+        return new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+    }
+}
@@ -20,15 +20,19 @@ package com.walmartlabs.concord.server.process.logs;
  * =====
  */
 
+import com.walmartlabs.concord.db.PgIntRange;
 import com.walmartlabs.concord.server.AbstractDaoTest;
 import com.walmartlabs.concord.server.process.ProcessKey;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.sql.Timestamp;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 @Ignore
 public class ProcessLogsDaoTest extends AbstractDaoTest {
 
@@ -56,4 +60,59 @@ public class ProcessLogsDaoTest extends AbstractDaoTest {
             }
         }
     }
+
+    @Test
+    public void testAppendBatch() {
+        ProcessLogsDao processLogsDao = new ProcessLogsDao(getConfiguration());
+
+        ProcessKey a = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        ProcessKey b = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+
+        processLogsDao.append(a, "aaa".getBytes());
+
+        Map<ProcessKey, byte[]> chunks = new LinkedHashMap<>();
+        chunks.put(a, "aa".getBytes());
+        chunks.put(b, "b".getBytes());
+
+        Map<ProcessKey, PgIntRange> ranges = processLogsDao.append(chunks);
+        assertEquals(2, ranges.size());
+        assertEquals(3, ranges.get(a).getLower());
+        assertEquals(5, ranges.get(a).getUpper());
+        assertEquals(0, ranges.get(b).getLower());
+        assertEquals(1, ranges.get(b).getUpper());
+
+        Map<ProcessKey, Integer> sizes = processLogsDao.getSizes(Arrays.asList(a, b));
+        assertEquals(5, (int) sizes.get(a));
+        assertEquals(1, (int) sizes.get(b));
+    }
+
+    @Test
+    public void testGetChunksFromIsPaged() {
+        ProcessLogsDao processLogsDao = new ProcessLogsDao(getConfiguration());
+
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        for (int i = 0; i < 5; i++) {
+            processLogsDao.append(processKey, ("chunk" + i).getBytes());
+        }
+
+        // each chunk is 6 bytes long, start in the middle of the second one
+        List<ProcessLogsDao.ProcessLogChunk> page = processLogsDao.getChunksFrom(processKey, 8, 2);
+        assertEquals(2, page.size());
+        assertEquals(6, page.get(0).getStart());
+        assertArrayEquals("chunk1".getBytes(), page.get(0).getData());
+        assertEquals(12, page.get(1).getStart());
+
+        ProcessLogsDao.ProcessLogChunk last = page.get(page.size() - 1);
+        page = processLogsDao.getChunksFrom(processKey, last.getStart() + last.getData().length, 2);
+        assertEquals(2, page.size());
+        assertEquals(18, page.get(0).getStart());
+        assertEquals(24, page.get(1).getStart());
+
+        page = processLogsDao.getChunksFrom(processKey, 30, 2);
+        assertEquals(0, page.size());
+
+        ProcessKey empty = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        Map<ProcessKey, Integer> sizes = processLogsDao.getSizes(Arrays.asList(processKey, empty));
+        assertEquals(Collections.singletonMap(processKey, 30), sizes);
+    }
 }
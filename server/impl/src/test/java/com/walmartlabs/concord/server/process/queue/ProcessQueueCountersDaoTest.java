@@ -0,0 +1,248 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.org.OrganizationDao;
+import com.walmartlabs.concord.server.org.OrganizationVisibility;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueCountersDao.CounterType;
+import com.walmartlabs.concord.server.process.queue.dispatcher.ConcurrentProcessFilterDao;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.walmartlabs.concord.db.PgUtils.jsonbText;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueueCounters.PROCESS_QUEUE_COUNTERS;
+import static com.walmartlabs.concord.server.jooq.tables.Projects.PROJECTS;
+import static org.junit.Assert.assertEquals;
+
+@Ignore("requires a local DB instance")
+public class ProcessQueueCountersDaoTest extends AbstractDaoTest {
+
+    private static final String GROUP = "test-group";
+
+    private ProcessQueueDao queueDao;
+    private ProcessQueueCountersDao countersDao;
+    private OrganizationDao orgDao;
+    private ProjectDao projectDao;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+        countersDao = new ProcessQueueCountersDao(getConfiguration());
+        orgDao = new OrganizationDao(getConfiguration(), objectMapper);
+        projectDao = new ProjectDao(getConfiguration(), objectMapper);
+    }
+
+    @Test
+    public void testStatusChanges() {
+        UUID orgId = newOrg();
+        UUID projectA = newProject(orgId);
+        UUID projectB = newProject(orgId);
+
+        ProcessKey a = newProcess(projectA, ProcessStatus.RUNNING, null);
+        ProcessKey b = newProcess(projectA, ProcessStatus.ENQUEUED, null);
+        ProcessKey c = newProcess(projectB, ProcessStatus.SUSPENDED, GROUP);
+        newProcess(null, ProcessStatus.RUNNING, null);
+        assertCounters(orgId, projectA, projectB);
+        assertEquals(1, get(CounterType.PROJECT, projectA, ""));
+        assertEquals(1, get(CounterType.EXCLUSIVE, projectB, GROUP));
+
+        tx(tx -> queueDao.updateStatus(tx, b, ProcessStatus.STARTING));
+        tx(tx -> queueDao.updateStatus(tx, c, ProcessStatus.RUNNING));
+        assertCounters(orgId, projectA, projectB);
+        assertEquals(3, get(CounterType.ORG, orgId, ""));
+
+        // multi-row update
+        queueDao.updateStatus(Arrays.asList(a, b, c), null, ProcessStatus.FINISHED);
+        assertCounters(orgId, projectA, projectB);
+        assertEquals(0, get(CounterType.ORG, orgId, ""));
+
+        tx(tx -> queueDao.updateStatus(tx, a, ProcessStatus.RESUMING));
+        tx(tx -> tx.deleteFrom(PROCESS_QUEUE).where(PROCESS_QUEUE.INSTANCE_ID.eq(b.getInstanceId())).execute());
+        assertCounters(orgId, projectA, projectB);
+
+        tx(tx -> tx.deleteFrom(PROCESS_QUEUE).where(PROCESS_QUEUE.INSTANCE_ID.eq(a.getInstanceId())).execute());
+        assertCounters(orgId, projectA, projectB);
+        assertEquals(0, get(CounterType.PROJECT, projectA, ""));
+    }
+
+    @Test
+    public void testProjectMove() {
+        UUID orgA = newOrg();
+        UUID orgB = newOrg();
+        UUID projectId = newProject(orgA);
+
+        newProcess(projectId, ProcessStatus.RUNNING, null);
+        newProcess(projectId, ProcessStatus.STARTING, null);
+        newProcess(projectId, ProcessStatus.SUSPENDED, null);
+        assertEquals(2, get(CounterType.ORG, orgA, ""));
+
+        tx(tx -> tx.update(PROJECTS)
+                .set(PROJECTS.ORG_ID, orgB)
+                .where(PROJECTS.PROJECT_ID.eq(projectId))
+                .execute());
+
+        assertCounters(orgA, projectId);
+        assertCounters(orgB, projectId);
+        assertEquals(0, get(CounterType.ORG, orgA, ""));
+        assertEquals(2, get(CounterType.ORG, orgB, ""));
+    }
+
+    @Test
+    public void testReconcile() {
+        UUID orgId = newOrg();
+        UUID projectId = newProject(orgId);
+
+        newProcess(projectId, ProcessStatus.RUNNING, GROUP);
+        newProcess(projectId, ProcessStatus.RUNNING, null);
+
+        // make the counters drift
+        tx(tx -> {
+            tx.update(PROCESS_QUEUE_COUNTERS)
+                    .set(PROCESS_QUEUE_COUNTERS.COUNTER_VALUE, 100)
+                    .where(PROCESS_QUEUE_COUNTERS.COUNTER_TYPE.eq(CounterType.ORG.name())
+                            .and(PROCESS_QUEUE_COUNTERS.ENTITY_ID.eq(orgId)))
+                    .execute();
+
+            tx.deleteFrom(PROCESS_QUEUE_COUNTERS)
+                    .where(PROCESS_QUEUE_COUNTERS.COUNTER_TYPE.eq(CounterType.EXCLUSIVE.name())
+                            .and(PROCESS_QUEUE_COUNTERS.ENTITY_ID.eq(projectId)))
+                    .execute();
+
+            tx.insertInto(PROCESS_QUEUE_COUNTERS)
+                    .set(PROCESS_QUEUE_COUNTERS.COUNTER_TYPE, CounterType.PROJECT.name())
+                    .set(PROCESS_QUEUE_COUNTERS.ENTITY_ID, UUID.randomUUID())
+                    .set(PROCESS_QUEUE_COUNTERS.COUNTER_GROUP, "")
+                    .set(PROCESS_QUEUE_COUNTERS.COUNTER_VALUE, 5)
+                    .execute();
+        });
+
+        assertEquals(3, countersDao.reconcile());
+        assertCounters(orgId, projectId);
+        assertEquals(0, countersDao.reconcile());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentMultiRowUpdates() throws Exception {
+        UUID orgA = newOrg();
+        UUID orgB = newOrg();
+        UUID projectA = newProject(orgA);
+        UUID projectB = newProject(orgB);
+
+        // each statement touches the counters of both orgs, in the opposite order
+        // of the processes' IDs
+        long hi = new Random().nextLong();
+        List<ProcessKey> first = Arrays.asList(
+                newProcess(new UUID(hi, 1), projectA, ProcessStatus.RUNNING),
+                newProcess(new UUID(hi, 2), projectB, ProcessStatus.RUNNING));
+        List<ProcessKey> second = Arrays.asList(
+                newProcess(new UUID(hi, 3), projectB, ProcessStatus.RUNNING),
+                newProcess(new UUID(hi, 4), projectA, ProcessStatus.RUNNING));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<ProcessKey> keys : Arrays.asList(first, second)) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        ProcessStatus status = i % 2 == 0 ? ProcessStatus.SUSPENDED : ProcessStatus.RUNNING;
+                        queueDao.updateStatus(keys, null, status);
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertCounters(orgA, projectA);
+        assertCounters(orgB, projectB);
+        assertEquals(2, get(CounterType.ORG, orgA, ""));
+        assertEquals(2, get(CounterType.ORG, orgB, ""));
+    }
+
+    /**
+     * Compares the counters with the results of the queries the dispatcher
+     * filters used before the counters were introduced.
+     */
+    private void assertCounters(UUID orgId, UUID... projectIds) {
+        tx(tx -> {
+            ConcurrentProcessFilterDao listDao = new ConcurrentProcessFilterDao(countersDao);
+
+            assertEquals(listDao.processesPerOrg(tx, orgId).size(), countersDao.get(tx, CounterType.ORG, orgId));
+
+            for (UUID projectId : projectIds) {
+                assertEquals(listDao.processesPerProject(tx, projectId).size(), countersDao.get(tx, CounterType.PROJECT, projectId));
+
+                int exclusive = tx.fetchCount(PROCESS_QUEUE, PROCESS_QUEUE.PROJECT_ID.eq(projectId)
+                        .and(PROCESS_QUEUE.CURRENT_STATUS.in("STARTING", "SUSPENDED", "RUNNING", "RESUMING"))
+                        .and(jsonbText(PROCESS_QUEUE.EXCLUSIVE, "group").eq(GROUP)));
+                assertEquals(exclusive, countersDao.get(tx, CounterType.EXCLUSIVE, projectId, GROUP));
+            }
+        });
+    }
+
+    private int get(CounterType type, UUID entityId, String group) {
+        int[] result = new int[1];
+        tx(tx -> result[0] = countersDao.get(tx, type, entityId, group));
+        return result[0];
+    }
+
+    private UUID newOrg() {
+        return orgDao.insert("org#" + UUID.randomUUID(), null, OrganizationVisibility.PUBLIC, null, null);
+    }
+
+    private UUID newProject(UUID orgId) {
+        return projectDao.insert(orgId, "project#" + UUID.randomUUID(), "test", null, null, null, null, new byte[0], null);
+    }
+
+    private ProcessKey newProcess(UUID projectId, ProcessStatus status, String group) {
+        ProcessKey key = newProcess(UUID.randomUUID(), projectId, status);
+        if (group != null) {
+            tx(tx -> queueDao.updateExclusive(tx, key, Collections.singletonMap("group", group)));
+        }
+        return key;
+    }
+
+    private ProcessKey newProcess(UUID instanceId, UUID projectId, ProcessStatus status) {
+        ProcessKey key = new ProcessKey(instanceId, new Timestamp(System.currentTimeMillis()));
+        tx(tx -> queueDao.insert(tx, key, status, ProcessKind.DEFAULT, null, projectId, null, null, null, null));
+        return key;
+    }
+}
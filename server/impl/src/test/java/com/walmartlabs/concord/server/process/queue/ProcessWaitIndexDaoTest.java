@@ -0,0 +1,198 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.queue.ProcessWaitIndexDao.Signal;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessLocks.PROCESS_LOCKS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessWaitIndex.PROCESS_WAIT_INDEX;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessWaitIndexDaoTest extends AbstractDaoTest {
+
+    private ProcessQueueDao queueDao;
+    private ProcessWaitIndexDao waitIndexDao;
+
+    @Before
+    public void setUp() {
+        queueDao = new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+        waitIndexDao = new ProcessWaitIndexDao(getConfiguration());
+    }
+
+    @Test
+    public void testProcessDependency() {
+        ProcessKey waiting = newProcess(ProcessStatus.ENQUEUED, null);
+        ProcessKey awaited = newProcess(ProcessStatus.RUNNING, null);
+
+        tx(tx -> waitIndexDao.update(tx, waiting, ProcessCompletionCondition.builder()
+                .processes(Collections.singleton(awaited.getInstanceId()))
+                .build()));
+
+        // new entries are evaluated at least once
+        assertSignaled(waiting);
+
+        // non-final statuses of the awaited process are ignored
+        tx(tx -> queueDao.updateStatus(tx, awaited, ProcessStatus.SUSPENDED));
+        assertNotSignaled(waiting);
+
+        tx(tx -> queueDao.updateStatus(tx, awaited, ProcessStatus.FINISHED));
+        assertSignaled(waiting);
+    }
+
+    @Test
+    public void testWaitingProcessStatus() {
+        ProcessKey waiting = newProcess(ProcessStatus.RUNNING, null);
+        ProcessKey awaited = newProcess(ProcessStatus.RUNNING, null);
+
+        tx(tx -> waitIndexDao.update(tx, waiting, ProcessCompletionCondition.builder()
+                .processes(Collections.singleton(awaited.getInstanceId()))
+                .build()));
+        assertSignaled(waiting);
+
+        // the wait conditions are evaluated only for suspended or enqueued processes
+        tx(tx -> queueDao.updateStatus(tx, waiting, ProcessStatus.SUSPENDED));
+        assertSignaled(waiting);
+    }
+
+    @Test
+    public void testLockDependency() {
+        UUID orgId = OrganizationManager.DEFAULT_ORG_ID;
+        UUID projectId = new ProjectDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE))
+                .insert(orgId, "project#" + UUID.randomUUID(), "test", null, null, null, null, new byte[0], null);
+
+        ProcessKey holder = newProcess(ProcessStatus.RUNNING, projectId);
+        ProcessKey waiting = newProcess(ProcessStatus.ENQUEUED, projectId);
+
+        tx(tx -> tx.insertInto(PROCESS_LOCKS)
+                .columns(PROCESS_LOCKS.INSTANCE_ID, PROCESS_LOCKS.ORG_ID, PROCESS_LOCKS.PROJECT_ID, PROCESS_LOCKS.LOCK_SCOPE, PROCESS_LOCKS.LOCK_NAME)
+                .values(holder.getInstanceId(), orgId, projectId, ProcessLockScope.PROJECT, "test")
+                .execute());
+
+        tx(tx -> waitIndexDao.update(tx, waiting, ProcessLockCondition.builder()
+                .instanceId(holder.getInstanceId())
+                .orgId(orgId)
+                .projectId(projectId)
+                .scope(ProcessLockScope.PROJECT)
+                .name("test")
+                .build()));
+        assertSignaled(waiting);
+
+        tx(tx -> tx.deleteFrom(PROCESS_LOCKS)
+                .where(PROCESS_LOCKS.INSTANCE_ID.eq(holder.getInstanceId()))
+                .execute());
+        assertSignaled(waiting);
+    }
+
+    @Test
+    public void testWakeAtIsUtc() {
+        TimeZone defaultTz = TimeZone.getDefault();
+        try {
+            // the JVM and the DB sessions use different non-UTC time zones
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            // nextWakeUpDelay looks at all timed entries
+            tx(tx -> tx.deleteFrom(PROCESS_WAIT_INDEX)
+                    .where(PROCESS_WAIT_INDEX.WAKE_AT.isNotNull())
+                    .execute());
+
+            ProcessKey waiting = newProcess(ProcessStatus.SUSPENDED, null);
+
+            long delay = TimeUnit.HOURS.toMillis(2);
+            tx(tx -> {
+                tx.execute("set local time zone 'Asia/Kolkata'");
+                waitIndexDao.update(tx, waiting, ProcessSleepCondition.builder()
+                        .resumeEvent("test")
+                        .until(new Date(System.currentTimeMillis() + delay))
+                        .build());
+            });
+            assertSignaled(waiting);
+
+            // the timer hasn't fired yet
+            assertNotSignaled(waiting);
+
+            Long nextWakeUp = waitIndexDao.txResult(tx -> {
+                tx.execute("set local time zone 'America/Los_Angeles'");
+                return waitIndexDao.nextWakeUpDelay(tx);
+            });
+            assertNotNull(nextWakeUp);
+            assertTrue("unexpected delay: " + nextWakeUp, nextWakeUp <= delay && nextWakeUp > delay - TimeUnit.MINUTES.toMillis(1));
+        } finally {
+            TimeZone.setDefault(defaultTz);
+        }
+    }
+
+    @Test
+    public void testExpiredWakeAt() {
+        ProcessKey waiting = newProcess(ProcessStatus.SUSPENDED, null);
+
+        tx(tx -> waitIndexDao.update(tx, waiting, ProcessSleepCondition.builder()
+                .resumeEvent("test")
+                .until(new Date(System.currentTimeMillis() - 1000))
+                .build()));
+
+        // signaled and expired, both are cleared by the reset
+        assertSignaled(waiting);
+        assertNotSignaled(waiting);
+    }
+
+    private ProcessKey newProcess(ProcessStatus status, UUID projectId) {
+        ProcessKey key = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        tx(tx -> queueDao.insert(tx, key, status, ProcessKind.DEFAULT, null, projectId, null, null, null, null));
+        return key;
+    }
+
+    /**
+     * Polls the signals of the specified process and resets them.
+     */
+    private void assertSignaled(ProcessKey key) {
+        List<Signal> signals = poll(key);
+        assertFalse("expected signals for " + key, signals.isEmpty());
+        tx(tx -> waitIndexDao.reset(tx, signals));
+    }
+
+    private void assertNotSignaled(ProcessKey key) {
+        assertEquals(Collections.emptyList(), poll(key));
+    }
+
+    private List<Signal> poll(ProcessKey key) {
+        return waitIndexDao.txResult(tx -> waitIndexDao.poll(tx, 10000)).stream()
+                .filter(s -> s.instanceId().equals(key.getInstanceId()))
+                .collect(Collectors.toList());
+    }
+}
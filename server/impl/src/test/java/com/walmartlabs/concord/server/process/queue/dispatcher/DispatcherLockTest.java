@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.server.process.queue.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.cfg.LockingConfiguration;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Ignore("requires a local DB instance")
+public class DispatcherLockTest extends AbstractDaoTest {
+
+    @Test(timeout = 30000)
+    public void testExclusiveGroupInDifferentBuckets() throws Exception {
+        Locks locks = new Locks(new LockingConfiguration(100000));
+
+        UUID orgId = UUID.randomUUID();
+        UUID projectId = UUID.randomUUID();
+
+        // same project and exclusive group, different agent requirements (i.e. buckets)
+        ProcessQueueEntry a = entry(orgId, projectId, "a");
+        ProcessQueueEntry b = entry(orgId, projectId, "b");
+
+        // a process in an unrelated org and project
+        ProcessQueueEntry c = entry(UUID.randomUUID(), UUID.randomUUID(), "b");
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean aLocked = new AtomicBoolean();
+
+        // the first "node" dispatches bucket "a"
+        Thread t = new Thread(() -> tx(tx -> {
+            aLocked.set(Dispatcher.lockScope(locks, tx, a, new HashMap<>()));
+            locked.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }));
+        t.start();
+
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        assertTrue(aLocked.get());
+
+        // the second "node" dispatches bucket "b" at the same time
+        tx(tx -> {
+            Map<String, Boolean> lockedScopes = new HashMap<>();
+            assertFalse(Dispatcher.lockScope(locks, tx, b, lockedScopes));
+            assertTrue(Dispatcher.lockScope(locks, tx, c, lockedScopes));
+        });
+
+        done.countDown();
+        t.join();
+
+        // the first transaction is done, the project is available again
+        tx(tx -> assertTrue(Dispatcher.lockScope(locks, tx, b, new HashMap<>())));
+    }
+
+    private static ProcessQueueEntry entry(UUID orgId, UUID projectId, String flavor) {
+        Map<String, Object> exclusive = new HashMap<>();
+        exclusive.put("group", "test");
+        exclusive.put("mode", "wait");
+
+        return ProcessQueueEntry.builder()
+                .key(new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis())))
+                .orgId(orgId)
+                .projectId(projectId)
+                .exclusive(exclusive)
+                .requirements(Collections.singletonMap("agent", Collections.singletonMap("flavor", flavor)))
+                .build();
+    }
+}
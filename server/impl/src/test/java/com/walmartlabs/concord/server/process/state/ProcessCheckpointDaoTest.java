@@ -0,0 +1,156 @@
+package com.walmartlabs.concord.server.process.state;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static com.walmartlabs.concord.sdk.Constants.Files.CHECKPOINT_DELETED_FILES_FILE_NAME;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessCheckpointDaoTest extends AbstractDaoTest {
+
+    private ProcessCheckpointDao checkpointDao;
+
+    @Before
+    public void setUp() {
+        checkpointDao = new ProcessCheckpointDao(getConfiguration());
+    }
+
+    @Test
+    public void testChainRestore() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+
+        // the base (full) checkpoint
+        Map<String, String> files = new HashMap<>();
+        files.put("a.txt", "a1");
+        files.put("b.txt", "b1");
+        files.put("c.txt", "c1");
+        UUID base = importCheckpoint(processKey, null, "one", files, Collections.emptyList());
+
+        // incremental checkpoints: only the changed and the deleted files
+        UUID delta1 = importCheckpoint(processKey, base, "two", Collections.singletonMap("a.txt", "a2"), Collections.singletonList("b.txt"));
+        UUID delta2 = importCheckpoint(processKey, delta1, "three", Collections.singletonMap("d.txt", "d3"), Collections.singletonList("c.txt"));
+
+        assertEquals(Collections.singletonList(base), checkpointDao.getChain(processKey, base));
+        assertEquals(Arrays.asList(base, delta1), checkpointDao.getChain(processKey, delta1));
+        assertEquals(Arrays.asList(base, delta1, delta2), checkpointDao.getChain(processKey, delta2));
+
+        ProcessCheckpointManager manager = new ProcessCheckpointManager(checkpointDao, null, null, null, new MetricRegistry());
+
+        try (TemporaryPath dest = IOUtils.tempDir("checkpoint-test")) {
+            String name = manager.extractChain(processKey, checkpointDao.getChain(processKey, delta1), dest.path());
+            assertEquals("two", name);
+            assertContent(dest.path(), "a.txt", "a2");
+            assertFalse(Files.exists(dest.path().resolve("b.txt")));
+            assertContent(dest.path(), "c.txt", "c1");
+            assertFalse(Files.exists(dest.path().resolve(CHECKPOINT_DELETED_FILES_FILE_NAME)));
+        }
+
+        try (TemporaryPath dest = IOUtils.tempDir("checkpoint-test")) {
+            String name = manager.extractChain(processKey, checkpointDao.getChain(processKey, delta2), dest.path());
+            assertEquals("three", name);
+            assertContent(dest.path(), "a.txt", "a2");
+            assertFalse(Files.exists(dest.path().resolve("b.txt")));
+            assertFalse(Files.exists(dest.path().resolve("c.txt")));
+            assertContent(dest.path(), "d.txt", "d3");
+        }
+    }
+
+    @Test
+    public void testUnknownCheckpoint() {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        assertEquals(Collections.emptyList(), checkpointDao.getChain(processKey, UUID.randomUUID()));
+    }
+
+    @Test
+    public void testMissingParent() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        UUID delta = importCheckpoint(processKey, UUID.randomUUID(), "one", Collections.singletonMap("a.txt", "a"), Collections.emptyList());
+
+        try {
+            checkpointDao.getChain(processKey, delta);
+            fail("exception expected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Parent checkpoint not found"));
+        }
+    }
+
+    @Test
+    public void testOtherProcessCheckpoint() throws Exception {
+        ProcessKey processA = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        ProcessKey processB = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+
+        UUID base = importCheckpoint(processA, null, "one", Collections.singletonMap("a.txt", "a"), Collections.emptyList());
+        UUID delta = importCheckpoint(processB, base, "two", Collections.singletonMap("a.txt", "b"), Collections.emptyList());
+
+        // parents are looked up only within the same process
+        try {
+            checkpointDao.getChain(processB, delta);
+            fail("exception expected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Parent checkpoint not found"));
+        }
+    }
+
+    private UUID importCheckpoint(ProcessKey processKey, UUID parentId, String name, Map<String, String> files, List<String> deletedFiles) throws Exception {
+        UUID id = UUID.randomUUID();
+
+        try (TemporaryPath src = IOUtils.tempDir("checkpoint-src");
+             TemporaryPath archive = IOUtils.tempFile("checkpoint", ".zip")) {
+
+            for (Map.Entry<String, String> e : files.entrySet()) {
+                Files.write(src.path().resolve(e.getKey()), e.getValue().getBytes());
+            }
+
+            if (!deletedFiles.isEmpty()) {
+                Files.write(src.path().resolve(CHECKPOINT_DELETED_FILES_FILE_NAME), deletedFiles);
+            }
+
+            try (OutputStream out = Files.newOutputStream(archive.path());
+                 ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+                IOUtils.zip(zip, src.path());
+            }
+
+            checkpointDao.importCheckpoint(processKey, id, parentId, name, archive.path());
+        }
+
+        return id;
+    }
+
+    private static void assertContent(Path dir, String file, String expected) throws Exception {
+        assertEquals(expected, new String(Files.readAllBytes(dir.resolve(file))));
+    }
+}
@@ -0,0 +1,104 @@
+package com.walmartlabs.concord.server.process.state;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.walmartlabs.concord.sdk.Constants.Files.CHECKPOINT_DELETED_FILES_FILE_NAME;
+import static org.junit.Assert.*;
+
+public class ProcessCheckpointManagerTest {
+
+    @Test
+    public void testApplyDeletedFiles() throws Exception {
+        try (TemporaryPath tmp = IOUtils.tempDir("checkpoint-test")) {
+            Path dir = tmp.path();
+
+            Files.createDirectories(dir.resolve("a/b"));
+            Files.write(dir.resolve("a/b/c.txt"), "c".getBytes());
+            Files.write(dir.resolve("d.txt"), "d".getBytes());
+            Files.write(dir.resolve("e.txt"), "e".getBytes());
+
+            Files.write(dir.resolve(CHECKPOINT_DELETED_FILES_FILE_NAME),
+                    Arrays.asList("a/b/c.txt", "", "a/../d.txt", "missing.txt"));
+
+            ProcessCheckpointManager.applyDeletedFiles(dir);
+
+            assertFalse(Files.exists(dir.resolve("a/b/c.txt")));
+            assertFalse(Files.exists(dir.resolve("d.txt")));
+            assertTrue(Files.exists(dir.resolve("e.txt")));
+            assertFalse(Files.exists(dir.resolve(CHECKPOINT_DELETED_FILES_FILE_NAME)));
+        }
+    }
+
+    @Test
+    public void testApplyDeletedFilesWithoutList() throws Exception {
+        try (TemporaryPath tmp = IOUtils.tempDir("checkpoint-test")) {
+            Files.write(tmp.path().resolve("a.txt"), "a".getBytes());
+
+            ProcessCheckpointManager.applyDeletedFiles(tmp.path());
+
+            assertTrue(Files.exists(tmp.path().resolve("a.txt")));
+        }
+    }
+
+    @Test
+    public void testApplyDeletedFilesInvalidPaths() throws Exception {
+        try (TemporaryPath tmp = IOUtils.tempDir("checkpoint-test");
+             TemporaryPath outside = IOUtils.tempDir("checkpoint-test-outside")) {
+
+            Path victim = outside.path().resolve("victim.txt");
+            Files.write(victim, "v".getBytes());
+
+            Path dir = tmp.path();
+            Files.write(dir.resolve("a.txt"), "a".getBytes());
+
+            String[] invalid = {
+                    victim.toAbsolutePath().toString(),
+                    "../" + outside.path().getFileName() + "/victim.txt",
+                    "a/../../" + outside.path().getFileName() + "/victim.txt",
+                    ".",
+                    "a/.."
+            };
+
+            for (String p : invalid) {
+                // valid entries are not deleted if the list contains an invalid one
+                Files.write(dir.resolve(CHECKPOINT_DELETED_FILES_FILE_NAME), Arrays.asList("a.txt", p));
+
+                try {
+                    ProcessCheckpointManager.applyDeletedFiles(dir);
+                    fail("exception expected: " + p);
+                } catch (IllegalArgumentException e) {
+                    assertTrue(e.getMessage().contains(p));
+                }
+
+                assertTrue(Files.exists(victim));
+                assertTrue(Files.exists(dir.resolve("a.txt")));
+            }
+        }
+    }
+}
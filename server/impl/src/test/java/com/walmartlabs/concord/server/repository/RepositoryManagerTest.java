@@ -0,0 +1,78 @@
+package com.walmartlabs.concord.server.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.repository.RepositoryManager.FetchState;
+import org.junit.Test;
+
+import static com.walmartlabs.concord.server.repository.RepositoryManager.isUpToDate;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryManagerTest {
+
+    private static final String COMMIT_ID = "2444993daea2fa357e3805002267d5b1b6199d9b";
+
+    @Test
+    public void testFullCommitId() {
+        FetchState s = new FetchState(null, COMMIT_ID, 1000);
+
+        // commits are immutable, the age of the local copy doesn't matter
+        assertTrue(isUpToDate(s, null, COMMIT_ID, 5000, 100_000, 0));
+
+        // short IDs might be ambiguous after the next fetch
+        FetchState shortId = new FetchState(null, "2444993", 1000);
+        assertFalse(isUpToDate(shortId, null, "2444993", 5000, 100_000, 0));
+
+        // a different commit
+        assertFalse(isUpToDate(s, null, "0123456789012345678901234567890123456789", 5000, 100_000, 0));
+    }
+
+    @Test
+    public void testConcurrentFetch() {
+        // fetched by another call after this one started
+        FetchState s = new FetchState("master", null, 5000);
+        assertTrue(isUpToDate(s, "master", null, 4000, 6000, 0));
+
+        // fetched before this call started
+        assertFalse(isUpToDate(s, "master", null, 5001, 6000, 0));
+    }
+
+    @Test
+    public void testFreshnessWindow() {
+        FetchState s = new FetchState("master", null, 1000);
+
+        assertTrue(isUpToDate(s, "master", null, 2000, 2000, 5000));
+        assertFalse(isUpToDate(s, "master", null, 7000, 7000, 5000));
+
+        // disabled
+        assertFalse(isUpToDate(s, "master", null, 2000, 2000, 0));
+    }
+
+    @Test
+    public void testBranchMismatch() {
+        FetchState s = new FetchState("master", null, 5000);
+
+        assertFalse(isUpToDate(s, "dev", null, 4000, 6000, 60_000));
+        assertFalse(isUpToDate(s, null, null, 4000, 6000, 60_000));
+        assertFalse(isUpToDate(s, "master", COMMIT_ID, 4000, 6000, 60_000));
+    }
+}
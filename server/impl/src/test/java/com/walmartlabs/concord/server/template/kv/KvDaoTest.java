@@ -21,12 +21,13 @@ package com.walmartlabs.concord.server.template.kv;
  */
 
 import com.walmartlabs.concord.server.AbstractDaoTest;
-import com.walmartlabs.concord.server.Locks;
-import com.walmartlabs.concord.server.cfg.LockingConfiguration;
 import com.walmartlabs.concord.server.org.project.KvDao;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,7 +38,7 @@ public class KvDaoTest extends AbstractDaoTest {
 
     @Test(timeout = 10000)
     public void test() throws Exception {
-        KvDao kvDao = new KvDao(getConfiguration(), new Locks(new LockingConfiguration(8)));
+        KvDao kvDao = new KvDao(getConfiguration());
 
         UUID projectId = UUID.randomUUID();
         String key = "key_" + System.currentTimeMillis();
@@ -67,4 +68,25 @@ public class KvDaoTest extends AbstractDaoTest {
         Long total = counter.get();
         assertEquals(total, kvDao.getLong(projectId, key));
     }
+
+    @Test
+    public void testBatch() throws Exception {
+        KvDao kvDao = new KvDao(getConfiguration());
+
+        UUID projectId = UUID.randomUUID();
+
+        Map<String, Long> values = new HashMap<>();
+        values.put("a", 10L);
+        values.put("b", 20L);
+        kvDao.putLongs(projectId, values);
+
+        Map<String, Long> result = kvDao.inc(projectId, Arrays.asList("a", "b", "b", "c"));
+        assertEquals(11L, (long) result.get("a"));
+        assertEquals(22L, (long) result.get("b"));
+        assertEquals(1L, (long) result.get("c"));
+
+        Map<String, Long> stored = kvDao.getLongs(projectId, Arrays.asList("a", "b", "c", "d"));
+        assertEquals(3, stored.size());
+        assertEquals(result, stored);
+    }
 }